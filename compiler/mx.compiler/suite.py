@@ -611,6 +611,7 @@ suite = {
         "org.graalvm.compiler.hotspot.test",
         "org.graalvm.compiler.lir.amd64",
         "org.graalvm.compiler.lir.jtt",
+        "org.graalvm.compiler.replacements.amd64",
       ],
       "annotationProcessors" : ["GRAAL_NODEINFO_PROCESSOR"],
       "checkstyle" : "org.graalvm.compiler.graph",
@@ -1412,6 +1413,7 @@ suite = {
       "sourceDirs" : ["src"],
       "dependencies" : [
         "jdk.tools.jaotc",
+        "org.graalvm.compiler.core.test",
         "mx:JUNIT",
       ],
       "checkstyle" : "org.graalvm.compiler.graph",
@@ -2098,6 +2100,7 @@ suite = {
       ],
       "distDependencies" : [
         "JAOTC",
+        "GRAAL_TEST",
       ],
       "exclude" : [
         "mx:JUNIT",
@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.tools.jaotc.test;
+
+import static jdk.vm.ci.meta.DeoptimizationReason.OptimizedTypeCheckViolated;
+import static jdk.vm.ci.meta.DeoptimizationReason.TypeCheckedInliningViolated;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.graalvm.compiler.bytecode.BytecodeStream;
+import org.graalvm.compiler.bytecode.Bytecodes;
+import org.graalvm.compiler.core.test.GraalCompilerTest;
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.hotspot.TrainingProfile;
+import org.graalvm.compiler.hotspot.TrainingProfile.MethodProfile;
+import org.graalvm.compiler.java.BytecodeParserOptions;
+import org.graalvm.compiler.nodes.StaticDeoptimizingNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.nodes.java.LoadFieldNode;
+import org.graalvm.compiler.nodes.java.MethodCallTargetNode;
+import org.graalvm.compiler.phases.tiers.HighTierContext;
+import org.graalvm.compiler.phases.tiers.MidTierContext;
+import org.junit.Assume;
+import org.junit.Test;
+
+import jdk.tools.jaotc.TrainingProfileProvider;
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.JavaTypeProfile;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.TriState;
+
+public class TrainingProfileProviderTest extends GraalCompilerTest {
+
+    public static int sizeSnippet(List<?> list) {
+        return list.size();
+    }
+
+    public static int lengthSnippet(Object o) {
+        return ((String) o).length();
+    }
+
+    public static int callSnippet(int x) {
+        return trivial(x) * 2;
+    }
+
+    private static int trivial(int x) {
+        return x + 1;
+    }
+
+    public static class Holder {
+    }
+
+    public static int switchSnippet(int x) {
+        switch (x) {
+            case 0:
+                return 10;
+            case 1:
+                return 20;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Gets the {@code method} line of a profile for the current bytecode of {@code method}.
+     */
+    private static String methodLine(ResolvedJavaMethod method) {
+        return "method " + TrainingProfile.methodName(method) + " " + method.getCodeSize() + " " + Long.toHexString(TrainingProfile.codeChecksum(method.getCode())) + "\n";
+    }
+
+    private Map<String, MethodProfile> readProfile(String profile) throws IOException {
+        Path file = Files.createTempFile(getClass().getSimpleName(), ".profile");
+        try {
+            Files.write(file, profile.getBytes(StandardCharsets.UTF_8));
+            return TrainingProfile.read(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private TrainingProfileProvider createProvider(String profile) throws IOException {
+        return new TrainingProfileProvider(readProfile(profile), getMetaAccess(), Collections.<Class<?>> emptyList());
+    }
+
+    private static int bciOf(ResolvedJavaMethod method, int opcode) {
+        BytecodeStream stream = new BytecodeStream(method.getCode());
+        while (stream.currentBC() != Bytecodes.END) {
+            if (stream.currentBC() == opcode) {
+                return stream.currentBCI();
+            }
+            stream.next();
+        }
+        throw new AssertionError(Bytecodes.nameOf(opcode) + " not found in " + method);
+    }
+
+    /**
+     * Parses {@code method} and applies the high tier the way jaotc compiles a method of the
+     * training profile.
+     */
+    private StructuredGraph compileHighTier(ResolvedJavaMethod method, TrainingProfileProvider provider) {
+        StructuredGraph graph = builder(method, AllowAssumptions.YES).useProfilingInfo(true).profileProvider(provider).build();
+        HighTierContext context = new HighTierContext(getProviders(), getDefaultGraphBuilderSuite(), TrainingProfileProvider.PROFILED_OPTIMIZATIONS);
+        context.getGraphBuilderSuite().apply(graph, context);
+        createSuites(graph.getOptions()).getHighTier().apply(graph, context);
+        return graph;
+    }
+
+    private void compileMidTier(StructuredGraph graph) {
+        MidTierContext context = new MidTierContext(getProviders(), getTargetProvider(), TrainingProfileProvider.PROFILED_OPTIMIZATIONS, graph.getProfilingInfo());
+        createSuites(graph.getOptions()).getMidTier().apply(graph, context);
+    }
+
+    private static void assertNoTypeSpeculation(StructuredGraph graph) {
+        for (Node node : graph.getNodes()) {
+            if (node instanceof StaticDeoptimizingNode) {
+                DeoptimizationReason reason = ((StaticDeoptimizingNode) node).getReason();
+                assertFalse(node + " speculates on the training type profile", reason == TypeCheckedInliningViolated || reason == OptimizedTypeCheckViolated);
+            }
+        }
+    }
+
+    @Test
+    public void testHotAndCold() throws IOException {
+        ResolvedJavaMethod hot = getResolvedJavaMethod("sizeSnippet");
+        ResolvedJavaMethod cold = getResolvedJavaMethod("lengthSnippet");
+        TrainingProfileProvider provider = createProvider(methodLine(hot));
+        assertDeepEquals(1, provider.getProfiledMethodCount());
+        assertTrue(provider.isHot(hot));
+        assertFalse(provider.isHot(cold));
+
+        assertTrue("profiles of the training run are mature", provider.getProfilingInfo(hot).isMature());
+        ProfilingInfo coldInfo = provider.getProfilingInfo(cold);
+        assertFalse("cold methods have no profile", coldInfo.isMature());
+        assertDeepEquals(null, coldInfo.getTypeProfile(bciOf(cold, Bytecodes.CHECKCAST)));
+    }
+
+    @Test
+    public void testRecordedProfile() throws IOException {
+        ResolvedJavaMethod method = getResolvedJavaMethod("sizeSnippet");
+        TrainingProfileProvider provider = createProvider(methodLine(method) + "branch 3 0.25\n");
+        ProfilingInfo info = provider.getProfilingInfo(method);
+        assertDeepEquals(method.getCodeSize(), info.getCodeSize());
+        assertDeepEquals(0.25, info.getBranchTakenProbability(3));
+        assertDeepEquals(-1.0, info.getBranchTakenProbability(4));
+        assertDeepEquals(TriState.UNKNOWN, info.getExceptionSeen(1));
+        assertDeepEquals(TriState.UNKNOWN, info.getNullSeen(1));
+        assertDeepEquals(0, info.getDeoptimizationCount(DeoptimizationReason.TypeCheckedInliningViolated));
+    }
+
+    @Test
+    public void testSwitchArity() throws IOException {
+        ResolvedJavaMethod method = getResolvedJavaMethod("switchSnippet");
+        int bci = bciOf(method, Bytecodes.TABLESWITCH);
+        ProfilingInfo info = createProvider(methodLine(method) + "switch " + bci + " 0.25 0.5 0.25\n").getProfilingInfo(method);
+        assertDeepEquals(new double[]{0.25, 0.5, 0.25}, info.getSwitchProbabilities(bci));
+        info = createProvider(methodLine(method) + "switch " + bci + " 0.5 0.5\n").getProfilingInfo(method);
+        assertDeepEquals("wrong number of successors", null, info.getSwitchProbabilities(bci));
+        info = createProvider(methodLine(method) + "switch 0 0.25 0.5 0.25\n").getProfilingInfo(method);
+        assertDeepEquals("not a switch", null, info.getSwitchProbabilities(0));
+    }
+
+    @Test
+    public void testChangedBytecode() throws IOException {
+        ResolvedJavaMethod method = getResolvedJavaMethod("sizeSnippet");
+        String name = TrainingProfile.methodName(method);
+        String checksum = Long.toHexString(TrainingProfile.codeChecksum(method.getCode()));
+        assertFalse("different code size", createProvider("method " + name + " " + (method.getCodeSize() + 1) + " " + checksum + "\n").isHot(method));
+        String otherChecksum = Long.toHexString(TrainingProfile.codeChecksum(method.getCode()) ^ 1);
+        assertFalse("different checksum", createProvider("method " + name + " " + method.getCodeSize() + " " + otherChecksum + "\n").isHot(method));
+        assertTrue(createProvider(methodLine(method)).isHot(method));
+    }
+
+    @Test
+    public void testTypeResolution() throws IOException {
+        ResolvedJavaMethod method = getResolvedJavaMethod("sizeSnippet");
+        int bci = bciOf(method, Bytecodes.INVOKEINTERFACE);
+        TrainingProfileProvider provider = createProvider(methodLine(method) + "type " + bci + " 0.25 Ljava/util/ArrayList; 0.5 Lno/such/Type; 0.25\n");
+        JavaTypeProfile profile = provider.getProfilingInfo(method).getTypeProfile(bci);
+        assertDeepEquals("unresolved types count as not recorded", 0.5, profile.getNotRecordedProbability());
+        assertDeepEquals(1, profile.getTypes().length);
+        assertDeepEquals(getMetaAccess().lookupJavaType(ArrayList.class), profile.getTypes()[0].getType());
+        assertDeepEquals(0.5, profile.getTypes()[0].getProbability());
+    }
+
+    @Test
+    public void testMinNotRecordedProbability() throws IOException {
+        ResolvedJavaMethod method = getResolvedJavaMethod("sizeSnippet");
+        int bci = bciOf(method, Bytecodes.INVOKEINTERFACE);
+        TrainingProfileProvider provider = createProvider(methodLine(method) + "type " + bci + " 0.0 Ljava/util/ArrayList; 1.0\n");
+        JavaTypeProfile profile = provider.getProfilingInfo(method).getTypeProfile(bci);
+        assertDeepEquals(TrainingProfileProvider.MIN_NOT_RECORDED_PROBABILITY, profile.getNotRecordedProbability());
+        assertDeepEquals(1, profile.getTypes().length);
+        assertDeepEquals(null, 1.0 - TrainingProfileProvider.MIN_NOT_RECORDED_PROBABILITY, profile.getTypes()[0].getProbability(), 1e-9);
+    }
+
+    /**
+     * Types of the classes being compiled are resolved even if the system class loader cannot see
+     * them.
+     */
+    @Test
+    public void testCompiledTypeResolution() throws Exception {
+        URL location = Holder.class.getProtectionDomain().getCodeSource().getLocation();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{location}, null)) {
+            Class<?> isolated = Class.forName(Holder.class.getName(), false, loader);
+            assertTrue(isolated != Holder.class);
+
+            ResolvedJavaMethod method = getResolvedJavaMethod("lengthSnippet");
+            int bci = bciOf(method, Bytecodes.CHECKCAST);
+            String typeName = getMetaAccess().lookupJavaType(Holder.class).getName();
+            Map<String, MethodProfile> profiles = readProfile(methodLine(method) + "type " + bci + " 0.5 " + typeName + " 0.5\n");
+            TrainingProfileProvider provider = new TrainingProfileProvider(profiles, getMetaAccess(), Collections.<Class<?>> singletonList(isolated));
+            JavaTypeProfile profile = provider.getProfilingInfo(method).getTypeProfile(bci);
+            assertDeepEquals(1, profile.getTypes().length);
+            assertDeepEquals(getMetaAccess().lookupJavaType(isolated), profile.getTypes()[0].getType());
+        }
+    }
+
+    @Test
+    public void testMalformedProfile() {
+        String[][] malformed = {
+                        {"branch 3 0.5\n", ":1: profile entry before the first method"},
+                        {"method a.b()V\n", ":1: malformed profile entry"},
+                        {"method a.b()V 3 x\n", ":1: "},
+                        {"method a.b()V 3 0\nbranch 3\n", ":2: malformed profile entry"},
+                        {"method a.b()V 3 0\n# comment\nbranch x 0.5\n", ":3: "},
+                        {"method a.b()V 3 0\ntype 3 0.5 Ljava/lang/String;\n", ":2: malformed profile entry"},
+                        {"method a.b()V 3 0\nswitch 3\n", ":2: malformed profile entry"},
+                        {"method a.b()V 3 0\nmethod\n", ":2: malformed profile entry"},
+                        {"method a.b()V 3 0\nbranch 1 1.5\n", ":2: probability out of range"},
+                        {"method a.b()V 3 0\nbranch 1 -0.25\n", ":2: probability out of range"},
+                        {"method a.b()V 3 0\nbranch 1 NaN\n", ":2: probability out of range"},
+                        {"method a.b()V 3 0\nswitch 1 0.5 NaN 0.5\n", ":2: probability out of range"},
+                        {"method a.b()V 3 0\ntype 1 2.0\n", ":2: probability out of range"},
+                        {"method a.b()V 3 0\ntype 1 0.5 Ljava/lang/String; -1.0\n", ":2: probability out of range"},
+        };
+        for (String[] entry : malformed) {
+            try {
+                readProfile(entry[0]);
+                fail("expected an IOException for " + entry[0]);
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains(entry[1]));
+            }
+        }
+    }
+
+    /**
+     * Cold methods are compiled without inlining, including the trivial inlining done while
+     * parsing.
+     */
+    @Test
+    public void testColdOptionsDisableInliningDuringParsing() {
+        Assume.assumeTrue(BytecodeParserOptions.InlineDuringParsing.getValue(getInitialOptions()));
+        ResolvedJavaMethod method = getResolvedJavaMethod("callSnippet");
+
+        StructuredGraph graph = builder(method, AllowAssumptions.YES, getInitialOptions()).build();
+        getDefaultGraphBuilderSuite().apply(graph, getDefaultHighTierContext());
+        assertTrue("trivial method is inlined while parsing", graph.getNodes(MethodCallTargetNode.TYPE).isEmpty());
+
+        graph = builder(method, AllowAssumptions.YES, TrainingProfileProvider.getColdOptions(getInitialOptions())).build();
+        getDefaultGraphBuilderSuite().apply(graph, getDefaultHighTierContext());
+        assertTrue("trivial method is not inlined for a cold method", graph.getNodes(MethodCallTargetNode.TYPE).isNotEmpty());
+    }
+
+    /**
+     * A receiver type profile without unrecorded types must not lead to a type guard that
+     * deoptimizes, since a deoptimization discards the AOT code.
+     */
+    @Test
+    public void testNoTypeCheckedInliningDeopt() throws IOException {
+        ResolvedJavaMethod method = getResolvedJavaMethod("sizeSnippet");
+        int bci = bciOf(method, Bytecodes.INVOKEINTERFACE);
+        TrainingProfileProvider provider = createProvider(methodLine(method) + "type " + bci + " 0.0 Ljava/util/ArrayList; 1.0\n");
+
+        StructuredGraph graph = compileHighTier(method, provider);
+        assertTrue("ArrayList.size is inlined", graph.getNodes().filter(LoadFieldNode.class).isNotEmpty());
+        assertNoTypeSpeculation(graph);
+        compileMidTier(graph);
+        assertNoTypeSpeculation(graph);
+    }
+
+    @Test
+    public void testNoTypeCheckHintDeopt() throws IOException {
+        ResolvedJavaMethod method = getResolvedJavaMethod("lengthSnippet");
+        int bci = bciOf(method, Bytecodes.CHECKCAST);
+        TrainingProfileProvider provider = createProvider(methodLine(method) + "type " + bci + " 0.0 Ljava/lang/String; 1.0\n");
+        StructuredGraph graph = compileHighTier(method, provider);
+        compileMidTier(graph);
+        assertNoTypeSpeculation(graph);
+    }
+}
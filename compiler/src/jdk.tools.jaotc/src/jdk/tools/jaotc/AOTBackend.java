@@ -64,15 +64,25 @@ final class AOTBackend {
     private final HotSpotCodeCacheProvider codeCache;
     private final PhaseSuite<HighTierContext> graphBuilderSuite;
     private final HighTierContext highTierContext;
+    private final TrainingProfileProvider profileProvider;
 
-    AOTBackend(Main main, OptionValues graalOptions, HotSpotBackend backend, HotSpotInvokeDynamicPlugin inokeDynamicPlugin) {
+    /**
+     * Options for the methods that do not appear in the training profile.
+     */
+    private final OptionValues coldOptions;
+    private final HighTierContext profiledHighTierContext;
+
+    AOTBackend(Main main, OptionValues graalOptions, HotSpotBackend backend, HotSpotInvokeDynamicPlugin inokeDynamicPlugin, TrainingProfileProvider profileProvider) {
         this.main = main;
         this.graalOptions = graalOptions;
         this.backend = backend;
+        this.profileProvider = profileProvider;
         providers = backend.getProviders();
         codeCache = providers.getCodeCache();
         graphBuilderSuite = initGraphBuilderSuite(backend, main.options.compileWithAssertions, inokeDynamicPlugin);
         highTierContext = new HighTierContext(providers, graphBuilderSuite, OptimisticOptimizations.ALL);
+        profiledHighTierContext = new HighTierContext(providers, graphBuilderSuite, TrainingProfileProvider.PROFILED_OPTIMIZATIONS);
+        coldOptions = TrainingProfileProvider.getColdOptions(graalOptions);
     }
 
     PhaseSuite<HighTierContext> getGraphBuilderSuite() {
@@ -87,14 +97,25 @@ final class AOTBackend {
         return providers;
     }
 
-    private Suites getSuites() {
+    /**
+     * Determines if {@code method} is compiled with the profile of the training run.
+     */
+    boolean isHot(ResolvedJavaMethod method) {
+        return profileProvider != null && profileProvider.isHot(method);
+    }
+
+    private OptionValues getOptions(ResolvedJavaMethod method) {
+        return profileProvider == null || profileProvider.isHot(method) ? graalOptions : coldOptions;
+    }
+
+    private Suites getSuites(OptionValues options) {
         // create suites every time, as we modify options for the compiler
-        return backend.getSuites().getDefaultSuites(graalOptions);
+        return backend.getSuites().getDefaultSuites(options);
     }
 
-    private LIRSuites getLirSuites() {
+    private LIRSuites getLirSuites(OptionValues options) {
         // create suites every time, as we modify options for the compiler
-        return backend.getSuites().getDefaultLIRSuites(graalOptions);
+        return backend.getSuites().getDefaultLIRSuites(options);
     }
 
     @SuppressWarnings("try")
@@ -116,8 +137,13 @@ final class AOTBackend {
     @SuppressWarnings("try")
     private StructuredGraph buildStructuredGraph(ResolvedJavaMethod javaMethod, DebugContext debug) {
         try (DebugContext.Scope s = debug.scope("AOTParseMethod")) {
-            StructuredGraph graph = new StructuredGraph.Builder(graalOptions, debug).method(javaMethod).useProfilingInfo(false).build();
-            graphBuilderSuite.apply(graph, highTierContext);
+            boolean hot = isHot(javaMethod);
+            StructuredGraph.Builder builder = new StructuredGraph.Builder(getOptions(javaMethod), debug).method(javaMethod).useProfilingInfo(hot);
+            if (hot) {
+                builder.profileProvider(profileProvider);
+            }
+            StructuredGraph graph = builder.build();
+            graphBuilderSuite.apply(graph, hot ? profiledHighTierContext : highTierContext);
             return graph;
         } catch (Throwable e) {
             main.handleError(javaMethod, e, " (building graph)");
@@ -128,7 +154,10 @@ final class AOTBackend {
     @SuppressWarnings("try")
     private CompilationResult compileGraph(ResolvedJavaMethod resolvedMethod, StructuredGraph graph, DebugContext debug) {
         try (DebugContext.Scope s = debug.scope("AOTCompileMethod")) {
-            ProfilingInfo profilingInfo = DefaultProfilingInfo.get(TriState.FALSE);
+            boolean hot = isHot(resolvedMethod);
+            ProfilingInfo profilingInfo = hot ? graph.getProfilingInfo() : DefaultProfilingInfo.get(TriState.FALSE);
+            OptimisticOptimizations optimisticOpts = hot ? TrainingProfileProvider.PROFILED_OPTIMIZATIONS : OptimisticOptimizations.ALL;
+            OptionValues options = graph.getOptions();
 
             final boolean isImmutablePIC = true;
             CompilationIdentifier id = new CompilationIdentifier() {
@@ -139,7 +168,7 @@ final class AOTBackend {
             };
             CompilationResult compilationResult = new CompilationResult(id, isImmutablePIC);
 
-            return GraalCompiler.compileGraph(graph, resolvedMethod, providers, backend, graphBuilderSuite, OptimisticOptimizations.ALL, profilingInfo, getSuites(), getLirSuites(),
+            return GraalCompiler.compileGraph(graph, resolvedMethod, providers, backend, graphBuilderSuite, optimisticOpts, profilingInfo, getSuites(options), getLirSuites(options),
                             compilationResult, CompilationResultBuilderFactory.Default, true);
 
         } catch (Throwable e) {
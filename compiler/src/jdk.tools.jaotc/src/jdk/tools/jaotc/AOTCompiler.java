@@ -32,6 +32,7 @@ import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.graalvm.compiler.options.OptionValues;
 
@@ -67,6 +68,17 @@ final class AOTCompiler {
          */
         private final AtomicInteger failedMethodCount = new AtomicInteger();
 
+        /**
+         * Counters for the methods compiled with the training profile and their code size.
+         */
+        private final AtomicInteger hotMethodCount = new AtomicInteger();
+        private final AtomicLong hotCodeSize = new AtomicLong();
+
+        /**
+         * Code size of all successfully compiled methods.
+         */
+        private final AtomicLong codeSize = new AtomicLong();
+
         /**
          * Create a compile queue with the given number of threads.
          */
@@ -86,6 +98,12 @@ final class AOTCompiler {
                 CompiledMethodInfo result = task.getResult();
                 if (result != null) {
                     task.getHolder().addCompiledMethod(result);
+                    int size = result.getCompilationResult().getTargetCodeSize();
+                    codeSize.addAndGet(size);
+                    if (backend.isHot(task.getMethod())) {
+                        hotMethodCount.incrementAndGet();
+                        hotCodeSize.addAndGet(size);
+                    }
                 }
             } else {
                 failedMethodCount.incrementAndGet();
@@ -102,6 +120,11 @@ final class AOTCompiler {
             final int failed = failedMethodCount.get();
             main.printer.printlnInfo("");
             main.printer.printlnInfo(success + " methods compiled, " + failed + " methods failed (" + (endTime - startTime) + " ms)");
+            if (main.options.profile != null) {
+                final int hot = hotMethodCount.get();
+                final long hotSize = hotCodeSize.get();
+                main.printer.printlnInfo(hot + " hot methods with " + hotSize + " bytes of code, " + (success - hot) + " cold methods with " + (codeSize.get() - hotSize) + " bytes of code");
+            }
         }
 
     }
@@ -52,6 +52,7 @@ import org.graalvm.compiler.hotspot.HotSpotGraalCompilerFactory;
 import org.graalvm.compiler.hotspot.HotSpotGraalOptionValues;
 import org.graalvm.compiler.hotspot.HotSpotGraalRuntime;
 import org.graalvm.compiler.hotspot.HotSpotHostBackend;
+import org.graalvm.compiler.hotspot.TrainingProfile;
 import org.graalvm.compiler.hotspot.meta.HotSpotInvokeDynamicPlugin;
 import org.graalvm.compiler.java.GraphBuilderPhase;
 import org.graalvm.compiler.nodes.graphbuilderconf.GraphBuilderConfiguration;
@@ -178,6 +179,16 @@ public final class Main {
             MetaAccessProvider metaAccess = backend.getProviders().getMetaAccess();
             filters = new GraalFilters(metaAccess);
 
+            TrainingProfileProvider profileProvider = null;
+            if (options.profile != null) {
+                try (Timer t = new Timer(this, "Reading profile " + options.profile)) {
+                    profileProvider = new TrainingProfileProvider(TrainingProfile.read(Paths.get(options.profile)), metaAccess, classesToCompile);
+                } catch (IOException e) {
+                    throw new Options.BadArgs("could not read profile: {0}", e.getMessage());
+                }
+                printer.printlnInfo(profileProvider.getProfiledMethodCount() + " profiled methods");
+            }
+
             List<AOTCompiledClass> classes;
 
             try (Timer t = new Timer(this, "")) {
@@ -194,7 +205,7 @@ public final class Main {
             AOTDynamicTypeStore dynoStore = new AOTDynamicTypeStore();
             AOTCompiledClass.setDynamicTypeStore(dynoStore);
 
-            AOTBackend aotBackend = new AOTBackend(this, graalOptions, backend, new HotSpotInvokeDynamicPlugin(dynoStore));
+            AOTBackend aotBackend = new AOTBackend(this, graalOptions, backend, new HotSpotInvokeDynamicPlugin(dynoStore), profileProvider);
             SnippetReflectionProvider snippetReflection = aotBackend.getProviders().getSnippetReflection();
             AOTCompiler compiler = new AOTCompiler(this, graalOptions, aotBackend, options.threads);
             classes = compiler.compileClasses(classes);
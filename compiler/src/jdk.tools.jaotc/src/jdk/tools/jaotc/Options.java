@@ -44,6 +44,7 @@ final class Options {
     String osName;
     String outputName = defaultOutputName();
     String methodList;
+    String profile;
     List<ClassSource> sources = new ArrayList<>();
     String linkerpath = null;
     SearchPath searchPath = new SearchPath();
@@ -177,6 +178,11 @@ final class Options {
         void process(Main task, String opt, String arg) {
             task.options.methodList = arg;
         }
+    }, new Option("  --profile <file>           Training profile written with -Dgraal.TrainingProfileFile", true, "--profile") {
+        @Override
+        void process(Main task, String opt, String arg) {
+            task.options.profile = arg;
+        }
     }, new Option("  --compile-for-tiered       Generate profiling code for tiered compilation", false, "--compile-for-tiered") {
         @Override
         void process(Main task, String opt, String arg) {
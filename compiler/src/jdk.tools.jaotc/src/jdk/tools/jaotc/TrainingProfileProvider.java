@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.tools.jaotc;
+
+import static org.graalvm.compiler.core.common.GraalOptions.FullUnroll;
+import static org.graalvm.compiler.core.common.GraalOptions.OptLoopTransform;
+import static org.graalvm.compiler.core.common.GraalOptions.PartialUnroll;
+import static org.graalvm.compiler.core.common.GraalOptions.TrivialInliningSize;
+import static org.graalvm.compiler.java.BytecodeParserOptions.InlineDuringParsingMaxDepth;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.graalvm.compiler.bytecode.BytecodeLookupSwitch;
+import org.graalvm.compiler.bytecode.BytecodeStream;
+import org.graalvm.compiler.bytecode.BytecodeTableSwitch;
+import org.graalvm.compiler.bytecode.Bytecodes;
+import org.graalvm.compiler.core.phases.HighTier;
+import org.graalvm.compiler.hotspot.TrainingProfile;
+import org.graalvm.compiler.hotspot.TrainingProfile.MethodProfile;
+import org.graalvm.compiler.hotspot.TrainingProfile.TypeProfile;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.ProfileProvider;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.OptimisticOptimizations;
+import org.graalvm.compiler.phases.OptimisticOptimizations.Optimization;
+
+import jdk.vm.ci.meta.DefaultProfilingInfo;
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.JavaMethodProfile;
+import jdk.vm.ci.meta.JavaTypeProfile;
+import jdk.vm.ci.meta.JavaTypeProfile.ProfiledType;
+import jdk.vm.ci.meta.MetaAccessProvider;
+import jdk.vm.ci.meta.MetaUtil;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+import jdk.vm.ci.meta.TriState;
+
+/**
+ * Supplies the profiles of a {@link TrainingProfile} to the graphs built for AOT compilation. The
+ * methods named in the profile are hot, unless their bytecode differs from the profiled version.
+ * All others have no profile, as in a compilation without {@code --profile}.
+ */
+public final class TrainingProfileProvider implements ProfileProvider {
+
+    /**
+     * Optimistic optimizations for methods compiled with a training profile. Code not reached in
+     * the training run is still compiled, since deoptimizing would discard the AOT code.
+     */
+    public static final OptimisticOptimizations PROFILED_OPTIMIZATIONS = OptimisticOptimizations.ALL.remove(Optimization.RemoveNeverExecutedCode, Optimization.UseExceptionProbability);
+
+    /**
+     * The minimum probability reported for types not recorded in a type profile. A type profile
+     * without unrecorded types lets the inliner and the type check lowering deoptimize on a type
+     * miss, which would discard the AOT code. A non-zero probability makes them fall back to a
+     * virtual call or a full type check instead.
+     */
+    public static final double MIN_NOT_RECORDED_PROBABILITY = 0.001;
+
+    private final Map<String, MethodProfile> profiles;
+    private final MetaAccessProvider metaAccess;
+
+    /**
+     * The classes being compiled by {@linkplain ResolvedJavaType#getName() name}, which are not necessarily
+     * visible to the system class loader.
+     */
+    private final Map<String, ResolvedJavaType> compiledTypes = new ConcurrentHashMap<>();
+
+    private final Map<ResolvedJavaMethod, ProfilingInfo> profilingInfos = new ConcurrentHashMap<>();
+
+    public TrainingProfileProvider(Map<String, MethodProfile> profiles, MetaAccessProvider metaAccess, Collection<Class<?>> classesToCompile) {
+        this.profiles = profiles;
+        this.metaAccess = metaAccess;
+        for (Class<?> c : classesToCompile) {
+            ResolvedJavaType type = metaAccess.lookupJavaType(c);
+            compiledTypes.put(type.getName(), type);
+        }
+    }
+
+    /**
+     * Gets the options for compiling the methods that do not appear in the training profile for
+     * size: no inlining, neither while parsing nor in the high tier, and no loop transformations.
+     * Intrinsics are still applied.
+     */
+    public static OptionValues getColdOptions(OptionValues options) {
+        return new OptionValues(options, HighTier.Options.Inline, false, InlineDuringParsingMaxDepth, 0, TrivialInliningSize, 0, OptLoopTransform, false, FullUnroll, false, PartialUnroll,
+                        false);
+    }
+
+    public int getProfiledMethodCount() {
+        return profiles.size();
+    }
+
+    public boolean isHot(ResolvedJavaMethod method) {
+        return getProfilingInfo(method) instanceof RecordedProfilingInfo;
+    }
+
+    @Override
+    public ProfilingInfo getProfilingInfo(ResolvedJavaMethod method) {
+        return profilingInfos.computeIfAbsent(method, m -> {
+            MethodProfile profile = profiles.get(TrainingProfile.methodName(m));
+            return profile == null || !profile.matches(m) ? DefaultProfilingInfo.get(TriState.UNKNOWN) : new RecordedProfilingInfo(m, profile);
+        });
+    }
+
+    private ResolvedJavaType lookupType(String name) {
+        ResolvedJavaType type = compiledTypes.get(name);
+        if (type == null) {
+            try {
+                type = metaAccess.lookupJavaType(Class.forName(MetaUtil.internalNameToJava(name, true, true), false, ClassLoader.getSystemClassLoader()));
+            } catch (ClassNotFoundException | LinkageError e) {
+                return null;
+            }
+        }
+        return type;
+    }
+
+    /**
+     * The profile of one method, reconstructed from the training run. Types that cannot be
+     * resolved count as not recorded and at least {@link #MIN_NOT_RECORDED_PROBABILITY} is always
+     * reported as not recorded. Exceptions and null values are reported as unknown since they are
+     * not part of the training profile. A switch profile whose number of probabilities does not
+     * match the switch is ignored.
+     */
+    private final class RecordedProfilingInfo implements ProfilingInfo {
+
+        private final ResolvedJavaMethod method;
+        private final MethodProfile profile;
+        private final Map<Integer, JavaTypeProfile> typeProfiles = new ConcurrentHashMap<>();
+        private int graphSize = -1;
+
+        RecordedProfilingInfo(ResolvedJavaMethod method, MethodProfile profile) {
+            this.method = method;
+            this.profile = profile;
+        }
+
+        @Override
+        public int getCodeSize() {
+            return method.getCodeSize();
+        }
+
+        @Override
+        public double getBranchTakenProbability(int bci) {
+            return profile.getBranchTakenProbability(bci);
+        }
+
+        @Override
+        public double[] getSwitchProbabilities(int bci) {
+            double[] probabilities = profile.getSwitchProbabilities(bci);
+            if (probabilities == null || probabilities.length != getSwitchSuccessorCount(bci)) {
+                return null;
+            }
+            return probabilities;
+        }
+
+        /**
+         * Gets the number of cases plus one for the default of the switch at {@code bci}, or -1 if
+         * there is no switch at {@code bci}.
+         */
+        private int getSwitchSuccessorCount(int bci) {
+            BytecodeStream stream = new BytecodeStream(method.getCode());
+            while (stream.currentBC() != Bytecodes.END && stream.currentBCI() < bci) {
+                stream.next();
+            }
+            if (stream.currentBCI() != bci) {
+                return -1;
+            }
+            switch (stream.currentBC()) {
+                case Bytecodes.TABLESWITCH:
+                    return new BytecodeTableSwitch(stream, bci).numberOfCases() + 1;
+                case Bytecodes.LOOKUPSWITCH:
+                    return new BytecodeLookupSwitch(stream, bci).numberOfCases() + 1;
+                default:
+                    return -1;
+            }
+        }
+
+        @Override
+        public JavaTypeProfile getTypeProfile(int bci) {
+            TypeProfile types = profile.getTypeProfile(bci);
+            if (types == null) {
+                return null;
+            }
+            return typeProfiles.computeIfAbsent(bci, b -> createTypeProfile(types));
+        }
+
+        private JavaTypeProfile createTypeProfile(TypeProfile types) {
+            double notRecorded = types.getNotRecordedProbability();
+            ResolvedJavaType[] resolved = new ResolvedJavaType[types.getTypeCount()];
+            for (int i = 0; i < resolved.length; i++) {
+                resolved[i] = lookupType(types.getTypeName(i));
+                if (resolved[i] == null) {
+                    notRecorded += types.getProbability(i);
+                }
+            }
+            notRecorded = Math.min(1.0, notRecorded);
+            double scale = 1.0;
+            if (notRecorded < MIN_NOT_RECORDED_PROBABILITY) {
+                scale = (1.0 - MIN_NOT_RECORDED_PROBABILITY) / (1.0 - notRecorded);
+                notRecorded = MIN_NOT_RECORDED_PROBABILITY;
+            }
+            List<ProfiledType> profiled = new ArrayList<>();
+            for (int i = 0; i < resolved.length; i++) {
+                if (resolved[i] != null) {
+                    profiled.add(new ProfiledType(resolved[i], types.getProbability(i) * scale));
+                }
+            }
+            ProfiledType[] items = profiled.toArray(new ProfiledType[profiled.size()]);
+            Arrays.sort(items, Comparator.comparingDouble(ProfiledType::getProbability).reversed());
+            return new JavaTypeProfile(TriState.UNKNOWN, notRecorded, items);
+        }
+
+        @Override
+        public JavaMethodProfile getMethodProfile(int bci) {
+            return null;
+        }
+
+        @Override
+        public TriState getExceptionSeen(int bci) {
+            return TriState.UNKNOWN;
+        }
+
+        @Override
+        public TriState getNullSeen(int bci) {
+            return TriState.UNKNOWN;
+        }
+
+        @Override
+        public int getExecutionCount(int bci) {
+            return -1;
+        }
+
+        @Override
+        public int getDeoptimizationCount(DeoptimizationReason reason) {
+            return 0;
+        }
+
+        @Override
+        public boolean setCompilerIRSize(Class<?> irType, int size) {
+            if (irType == StructuredGraph.class) {
+                graphSize = size;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public int getCompilerIRSize(Class<?> irType) {
+            if (irType == StructuredGraph.class) {
+                return graphSize;
+            }
+            return -1;
+        }
+
+        @Override
+        public boolean isMature() {
+            /* The profile of the training run does not change any more. */
+            return true;
+        }
+
+        @Override
+        public void setMature() {
+            /* Nothing to do, the profile is always mature. */
+        }
+    }
+}
@@ -2769,6 +2769,68 @@ public class AMD64Assembler extends AMD64BaseAssembler {
         emitModRM(dst, src);
     }
 
+    public final void aesenc(Register dst, Register src) {
+        assert supports(CPUFeature.AES);
+        assert inRC(XMM, dst) && inRC(XMM, src);
+        simdPrefix(dst, dst, src, PD, P_0F38, false);
+        emitByte(0xDC);
+        emitModRM(dst, src);
+    }
+
+    public final void aesenclast(Register dst, Register src) {
+        assert supports(CPUFeature.AES);
+        assert inRC(XMM, dst) && inRC(XMM, src);
+        simdPrefix(dst, dst, src, PD, P_0F38, false);
+        emitByte(0xDD);
+        emitModRM(dst, src);
+    }
+
+    public final void aesdec(Register dst, Register src) {
+        assert supports(CPUFeature.AES);
+        assert inRC(XMM, dst) && inRC(XMM, src);
+        simdPrefix(dst, dst, src, PD, P_0F38, false);
+        emitByte(0xDE);
+        emitModRM(dst, src);
+    }
+
+    public final void aesdeclast(Register dst, Register src) {
+        assert supports(CPUFeature.AES);
+        assert inRC(XMM, dst) && inRC(XMM, src);
+        simdPrefix(dst, dst, src, PD, P_0F38, false);
+        emitByte(0xDF);
+        emitModRM(dst, src);
+    }
+
+    /**
+     * Accumulates the CRC32C checksum of the byte at {@code src} into {@code crc}.
+     */
+    public final void crc32b(Register crc, AMD64Address src) {
+        assert supports(CPUFeature.SSE4_2);
+        assert inRC(CPU, crc);
+        // Code: F2 0F 38 F0 /r, the mandatory prefix precedes the REX prefix
+        emitByte(0xF2);
+        prefix(src, crc);
+        emitByte(0x0F);
+        emitByte(0x38);
+        emitByte(0xF0);
+        emitOperandHelper(crc, src, 0);
+    }
+
+    /**
+     * Accumulates the CRC32C checksum of the quadword at {@code src} into {@code crc}.
+     */
+    public final void crc32q(Register crc, AMD64Address src) {
+        assert supports(CPUFeature.SSE4_2);
+        assert inRC(CPU, crc);
+        // Code: F2 REX.W 0F 38 F1 /r
+        emitByte(0xF2);
+        prefixq(src, crc);
+        emitByte(0x0F);
+        emitByte(0x38);
+        emitByte(0xF1);
+        emitOperandHelper(crc, src, 0);
+    }
+
     public final void pshuflw(Register dst, Register src, int imm8) {
         assert supports(CPUFeature.SSE2);
         assert isUByte(imm8) : "invalid value";
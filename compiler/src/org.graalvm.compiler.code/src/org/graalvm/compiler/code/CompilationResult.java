@@ -189,6 +189,12 @@ public class CompilationResult {
     private int totalFrameSize = -1;
     private int maxInterpreterFrameSize = -1;
 
+    /**
+     * Offset of the first instruction of the out-of-line cold code section or -1 if the code was
+     * not split into hot and cold parts.
+     */
+    private int coldCodeStart = -1;
+
     private StackSlot customStackArea = null;
 
     /**
@@ -278,6 +284,7 @@ public class CompilationResult {
             if (this.entryBCI == that.entryBCI &&
                 Objects.equals(this.customStackArea, that.customStackArea) &&
                 this.totalFrameSize == that.totalFrameSize &&
+                this.coldCodeStart == that.coldCodeStart &&
                 this.targetCodeSize == that.targetCodeSize &&
                 Objects.equals(this.name, that.name) &&
                 Objects.equals(this.compilationId, that.compilationId) &&
@@ -441,6 +448,28 @@ public class CompilationResult {
         this.maxInterpreterFrameSize = maxInterpreterFrameSize;
     }
 
+    /**
+     * Gets the offset of the cold code section. All code from this offset up to
+     * {@link #getTargetCodeSize()} is only reached on rarely executed paths.
+     *
+     * @return the start offset of the cold code or -1 if the code has no cold section
+     */
+    public int getColdCodeStart() {
+        return coldCodeStart;
+    }
+
+    public boolean hasColdCode() {
+        return coldCodeStart != -1;
+    }
+
+    /**
+     * Records the offset of the first instruction of the cold code section.
+     */
+    public void setColdCodeStart(int coldCodeStart) {
+        checkOpen();
+        this.coldCodeStart = coldCodeStart;
+    }
+
     public boolean isImmutablePIC() {
         return this.isImmutablePIC;
     }
@@ -716,6 +745,7 @@ public class CompilationResult {
         exceptionHandlers.clear();
         marks.clear();
         dataSection.clear();
+        coldCodeStart = -1;
         if (annotations != null) {
             annotations.clear();
         }
@@ -52,6 +52,7 @@ import org.graalvm.compiler.core.common.NumUtil;
 import org.graalvm.compiler.core.common.calc.Condition;
 import org.graalvm.compiler.core.common.spi.ForeignCallLinkage;
 import org.graalvm.compiler.core.common.spi.LIRKindTool;
+import org.graalvm.compiler.core.common.type.ArithmeticOpTable.BinaryOp;
 import org.graalvm.compiler.debug.GraalError;
 import org.graalvm.compiler.lir.ConstantValue;
 import org.graalvm.compiler.lir.LIRFrameState;
@@ -62,6 +63,7 @@ import org.graalvm.compiler.lir.StandardOp.JumpOp;
 import org.graalvm.compiler.lir.StandardOp.SaveRegistersOp;
 import org.graalvm.compiler.lir.SwitchStrategy;
 import org.graalvm.compiler.lir.Variable;
+import org.graalvm.compiler.lir.amd64.AMD64AESCryptBlockOp;
 import org.graalvm.compiler.lir.amd64.AMD64AddressValue;
 import org.graalvm.compiler.lir.amd64.AMD64ArithmeticLIRGeneratorTool;
 import org.graalvm.compiler.lir.amd64.AMD64ArrayCompareToOp;
@@ -70,6 +72,7 @@ import org.graalvm.compiler.lir.amd64.AMD64ArrayIndexOfOp;
 import org.graalvm.compiler.lir.amd64.AMD64Binary;
 import org.graalvm.compiler.lir.amd64.AMD64BinaryConsumer;
 import org.graalvm.compiler.lir.amd64.AMD64ByteSwapOp;
+import org.graalvm.compiler.lir.amd64.AMD64CRC32CUpdateOp;
 import org.graalvm.compiler.lir.amd64.AMD64Call;
 import org.graalvm.compiler.lir.amd64.AMD64ControlFlow;
 import org.graalvm.compiler.lir.amd64.AMD64ControlFlow.BranchOp;
@@ -81,6 +84,7 @@ import org.graalvm.compiler.lir.amd64.AMD64ControlFlow.FloatCondSetOp;
 import org.graalvm.compiler.lir.amd64.AMD64ControlFlow.ReturnOp;
 import org.graalvm.compiler.lir.amd64.AMD64ControlFlow.StrategySwitchOp;
 import org.graalvm.compiler.lir.amd64.AMD64ControlFlow.TableSwitchOp;
+import org.graalvm.compiler.lir.amd64.AMD64ElementwiseArrayOp;
 import org.graalvm.compiler.lir.amd64.AMD64LFenceOp;
 import org.graalvm.compiler.lir.amd64.AMD64Move;
 import org.graalvm.compiler.lir.amd64.AMD64Move.CompareAndSwapOp;
@@ -556,6 +560,14 @@ public abstract class AMD64LIRGenerator extends LIRGenerator {
         return result;
     }
 
+    @Override
+    public Variable emitElementwiseArrayOp(JavaKind kind, BinaryOp<?> op, Value dst, Value x, Value y, boolean yIsArray, Value start, Value end) {
+        Variable result = newVariable(LIRKind.value(AMD64Kind.DWORD));
+        append(new AMD64ElementwiseArrayOp(this, kind, op, result, asAllocatable(dst), asAllocatable(x), asAllocatable(y), yIsArray, asAllocatable(start), asAllocatable(end),
+                        getMaxVectorSize()));
+        return result;
+    }
+
     /**
      * Return a conservative estimate of the page size for use by the String.indexOf intrinsic.
      */
@@ -582,6 +594,18 @@ public abstract class AMD64LIRGenerator extends LIRGenerator {
         return result;
     }
 
+    @Override
+    public void emitAESCryptBlock(boolean encrypt, Value in, Value inOffset, Value out, Value outOffset, Value key, Value keyLength) {
+        append(new AMD64AESCryptBlockOp(this, encrypt, asAllocatable(in), asAllocatable(inOffset), asAllocatable(out), asAllocatable(outOffset), asAllocatable(key), asAllocatable(keyLength)));
+    }
+
+    @Override
+    public Variable emitCRC32CUpdate(Value crc, Value buffer, Value offset, Value length, boolean directBuffer) {
+        Variable result = newVariable(LIRKind.value(AMD64Kind.DWORD));
+        append(new AMD64CRC32CUpdateOp(this, result, asAllocatable(crc), asAllocatable(buffer), asAllocatable(offset), asAllocatable(length), directBuffer));
+        return result;
+    }
+
     @Override
     public void emitStringLatin1Inflate(Value src, Value dst, Value len) {
         RegisterValue rsrc = AMD64.rsi.asValue(src.getValueKind());
@@ -24,12 +24,23 @@
  */
 package org.graalvm.compiler.core.amd64;
 
+import static org.graalvm.compiler.core.common.GraalOptions.OptLoopTransform;
+import static org.graalvm.compiler.core.common.GraalOptions.VectorizeLoops;
+
+import java.util.ListIterator;
+
 import org.graalvm.compiler.java.DefaultSuitesCreator;
 import org.graalvm.compiler.lir.amd64.phases.StackMoveOptimizationPhase;
 import org.graalvm.compiler.lir.phases.LIRSuites;
+import org.graalvm.compiler.loop.phases.LoopFullUnrollPhase;
+import org.graalvm.compiler.loop.phases.LoopPeelingPhase;
+import org.graalvm.compiler.loop.phases.LoopVectorizationPhase;
 import org.graalvm.compiler.nodes.graphbuilderconf.GraphBuilderConfiguration.Plugins;
 import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.BasePhase;
 import org.graalvm.compiler.phases.tiers.CompilerConfiguration;
+import org.graalvm.compiler.phases.tiers.HighTierContext;
+import org.graalvm.compiler.phases.tiers.Suites;
 
 public class AMD64SuitesCreator extends DefaultSuitesCreator {
 
@@ -37,6 +48,28 @@ public class AMD64SuitesCreator extends DefaultSuitesCreator {
         super(compilerConfiguration, plugins);
     }
 
+    @Override
+    public Suites createSuites(OptionValues options) {
+        Suites suites = super.createSuites(options);
+        if (OptLoopTransform.getValue(options) && VectorizeLoops.getValue(options)) {
+            /*
+             * Vectorize after full unrolling so that short loops are not vectorized but before
+             * peeling which would separate the first iteration from the loop.
+             */
+            ListIterator<BasePhase<? super HighTierContext>> position = suites.getHighTier().findPhase(LoopFullUnrollPhase.class);
+            if (position == null) {
+                position = suites.getHighTier().findPhase(LoopPeelingPhase.class);
+                if (position != null) {
+                    position.previous();
+                }
+            }
+            if (position != null) {
+                position.add(new LoopVectorizationPhase());
+            }
+        }
+        return suites;
+    }
+
     @Override
     public LIRSuites createLIRSuites(OptionValues options) {
         LIRSuites lirSuites = super.createLIRSuites(options);
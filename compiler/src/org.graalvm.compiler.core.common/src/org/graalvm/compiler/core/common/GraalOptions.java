@@ -89,12 +89,27 @@ public final class GraalOptions {
     @Option(help = "", type = OptionType.Debug)
     public static final OptionKey<Boolean> PEAInliningHints = new OptionKey<>(false);
 
-    @Option(help = "", type = OptionType.Expert)
+    @Option(help = "Compute escape summaries of called methods, so that an object passed to a call that only reads it stays virtual after the call.", type = OptionType.Expert)
+    public static final OptionKey<Boolean> EscapeAnalysisSummaries = new OptionKey<>(false);
+
+    @Option(help = "Maximum bytecode size of a method for which an escape summary is computed.", type = OptionType.Expert)
+    public static final OptionKey<Integer> EscapeSummaryMaxBytecodeSize = new OptionKey<>(300);
+
+    @Option(help = "Duplicate small merge successors into their predecessors when that lets values with more precise stamps reach their usages.", type = OptionType.Expert)
+    public static final OptionKey<Boolean> TailDuplication = new OptionKey<>(false);
+
+    @Option(help = "Minimum relative frequency of a merge whose successor is larger than TailDuplicationTrivialSize to be duplicated.", type = OptionType.Expert)
     public static final OptionKey<Double> TailDuplicationProbability = new OptionKey<>(0.5);
 
-    @Option(help = "", type = OptionType.Expert)
+    @Option(help = "Size up to which merge successors are duplicated regardless of their frequency.", type = OptionType.Expert)
     public static final OptionKey<Integer> TailDuplicationTrivialSize = new OptionKey<>(1);
 
+    @Option(help = "Maximum size of a merge successor that is duplicated.", type = OptionType.Expert)
+    public static final OptionKey<Integer> TailDuplicationMaxSize = new OptionKey<>(30);
+
+    @Option(help = "Maximum growth of the graph size caused by tail duplication, relative to the size before.", type = OptionType.Expert)
+    public static final OptionKey<Double> TailDuplicationMaxGraphGrowth = new OptionKey<>(0.2);
+
     @Option(help = "", type = OptionType.Expert)
     public static final OptionKey<Integer> DeoptsToDisableOptimisticOptimization = new OptionKey<>(40);
 
@@ -113,6 +128,18 @@ public final class GraalOptions {
     @Option(help = "", type = OptionType.Debug)
     public static final OptionKey<Boolean> PartialUnroll = new OptionKey<>(true);
 
+    @Option(help = "Replace simple element-wise array loops with vector code on architectures that support it.", type = OptionType.Expert)
+    public static final OptionKey<Boolean> VectorizeLoops = new OptionKey<>(false);
+
+    @Option(help = "Speculatively hoist range checks and null checks out of counted loops.", type = OptionType.Expert)
+    public static final OptionKey<Boolean> LoopPredication = new OptionKey<>(false);
+
+    @Option(help = "Speculatively move guards with a loop invariant condition to the loop entry.", type = OptionType.Expert)
+    public static final OptionKey<Boolean> SpeculativeGuardMovement = new OptionKey<>(false);
+
+    @Option(help = "Replace StringBuilder append chains with a single allocation of the result string.", type = OptionType.Expert)
+    public static final OptionKey<Boolean> OptimizeStringConcat = new OptionKey<>(false);
+
     @Option(help = "", type = OptionType.Expert)
     public static final OptionKey<Float> MinimumPeelProbability = new OptionKey<>(0.35f);
 
@@ -199,6 +226,12 @@ public final class GraalOptions {
     @Option(help = "", type = OptionType.Debug)
     public static final OptionKey<Boolean> CanOmitFrame = new OptionKey<>(true);
 
+    @Option(help = "Emit blocks with a relative frequency below SplitColdCodeFrequency after all other blocks of the method.", type = OptionType.Expert)
+    public static final OptionKey<Boolean> SplitColdCode = new OptionKey<>(false);
+
+    @Option(help = "Relative block frequency below which a block is moved to the cold code section.", type = OptionType.Expert)
+    public static final OptionKey<Double> SplitColdCodeFrequency = new OptionKey<>(0.01);
+
     // Ahead of time compilation
     @Option(help = "Try to avoid emitting code where patching is required", type = OptionType.Expert)
     public static final OptionKey<Boolean> ImmutableCode = new OptionKey<>(false);
@@ -222,6 +255,27 @@ public final class GraalOptions {
     @Option(help = "", type = OptionType.Debug)
     public static final OptionKey<Boolean> OptReadElimination = new OptionKey<>(true);
 
+    @Option(help = "Remove writes that are overwritten before they can be observed and merge adjacent constant writes.", type = OptionType.Expert)
+    public static final OptionKey<Boolean> OptDeadStoreElimination = new OptionKey<>(false);
+
+    @Option(help = "Replace small diamonds without side effects by conditional moves if the branch is hard to predict.", type = OptionType.Expert)
+    public static final OptionKey<Boolean> OptIfConversion = new OptionKey<>(false);
+
+    @Option(help = "Estimated cost in cycles of a mispredicted branch, used to decide about if-conversion.", type = OptionType.Expert)
+    public static final OptionKey<Integer> IfConversionMispredictCost = new OptionKey<>(14);
+
+    @Option(help = "Maximum number of conditional moves a single if-conversion may introduce.", type = OptionType.Expert)
+    public static final OptionKey<Integer> IfConversionMaxMoves = new OptionKey<>(4);
+
+    @Option(help = "Do not lock a monitor that is already held by an enclosing synchronized region.", type = OptionType.Expert)
+    public static final OptionKey<Boolean> OptEliminateNestedLocks = new OptionKey<>(false);
+
+    @Option(help = "Keep a monitor locked across iterations of a loop whose body is a synchronized region.", type = OptionType.Expert)
+    public static final OptionKey<Boolean> OptLoopLockCoarsening = new OptionKey<>(false);
+
+    @Option(help = "Maximum number of loop iterations a coarsened monitor is held before it is released at a safepoint.", type = OptionType.Expert)
+    public static final OptionKey<Integer> LockCoarseningChunkSize = new OptionKey<>(32);
+
     @Option(help = "", type = OptionType.Debug)
     public static final OptionKey<Integer> ReadEliminationMaxLoopVisits = new OptionKey<>(5);
 
@@ -53,6 +53,11 @@ import org.graalvm.compiler.core.common.cfg.Loop;
  * together in the schedule thus decreasing the probability for inserted phi moves. Also, the
  * algorithm sets the linear scan order number of the block that corresponds to its index in the
  * linear scan order.
+ *
+ * The code emitting order can optionally be split into a hot and a cold part. Blocks whose relative
+ * frequency is below a given threshold are then {@linkplain AbstractBlockBase#setCold marked cold}
+ * and moved behind all hot blocks, so that rarely executed paths do not dilute the instruction
+ * cache footprint of the hot code.
  */
 public final class ComputeBlockOrder {
 
@@ -96,6 +101,61 @@ public final class ComputeBlockOrder {
         return order.toArray(new AbstractBlockBase<?>[0]);
     }
 
+    /**
+     * Computes the block order used for code emission and moves all blocks with a relative
+     * frequency below {@code coldFrequency} to the end of the order. The relative order of the
+     * hot blocks and the relative order of the cold blocks is the same as in
+     * {@link #computeCodeEmittingOrder(int, AbstractBlockBase)}.
+     *
+     * @param coldFrequency relative frequency below which a block is considered cold. A value
+     *            {@code <= 0} disables the splitting.
+     * @return sorted list of blocks
+     */
+    public static <T extends AbstractBlockBase<T>> AbstractBlockBase<?>[] computeCodeEmittingOrder(int blockCount, T startBlock, double coldFrequency) {
+        List<T> order = new ArrayList<>();
+        BitSet visitedBlocks = new BitSet(blockCount);
+        PriorityQueue<T> worklist = initializeWorklist(startBlock, visitedBlocks);
+        computeCodeEmittingOrder(order, worklist, visitedBlocks);
+        assert checkOrder(order, blockCount);
+        if (coldFrequency > 0.0) {
+            order = splitColdBlocks(order, startBlock, coldFrequency);
+        }
+        return order.toArray(new AbstractBlockBase<?>[0]);
+    }
+
+    /**
+     * Moves all cold blocks behind the hot blocks while keeping the relative order within each
+     * part.
+     */
+    private static <T extends AbstractBlockBase<T>> List<T> splitColdBlocks(List<T> order, T startBlock, double coldFrequency) {
+        List<T> hot = new ArrayList<>(order.size());
+        List<T> cold = new ArrayList<>();
+        for (T block : order) {
+            if (isCold(block, startBlock, coldFrequency)) {
+                block.setCold(true);
+                // Cold code is not worth the alignment padding.
+                block.setAlign(false);
+                cold.add(block);
+            } else {
+                hot.add(block);
+            }
+        }
+        if (cold.isEmpty()) {
+            return order;
+        }
+        hot.addAll(cold);
+        return hot;
+    }
+
+    /**
+     * Loop headers and loop ends are never moved out of line so that the loop layout established
+     * by {@link #addPathToCodeEmittingOrder} (conditional backward jump, aligned jump target) is
+     * preserved.
+     */
+    private static <T extends AbstractBlockBase<T>> boolean isCold(T block, T startBlock, double coldFrequency) {
+        return block != startBlock && !block.isLoopHeader() && !block.isLoopEnd() && block.getRelativeFrequency() < coldFrequency;
+    }
+
     /**
      * Iteratively adds paths to the code emission block order.
      */
@@ -39,6 +39,7 @@ public abstract class AbstractBlockBase<T extends AbstractBlockBase<T>> {
     private int maxChildDomNumber;
 
     private boolean align;
+    private boolean cold;
     private int linearScanNumber;
 
     protected AbstractBlockBase() {
@@ -149,6 +150,17 @@ public abstract class AbstractBlockBase<T extends AbstractBlockBase<T>> {
         this.align = align;
     }
 
+    /**
+     * Determines if this block is emitted in the out-of-line cold code section.
+     */
+    public boolean isCold() {
+        return cold;
+    }
+
+    public void setCold(boolean cold) {
+        this.cold = cold;
+    }
+
     public abstract boolean isExceptionEntry();
 
     public abstract Loop<T> getLoop();
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.core.common.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.debug.TTY;
+import org.graalvm.compiler.options.Option;
+import org.graalvm.compiler.options.OptionKey;
+import org.graalvm.compiler.options.OptionType;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.serviceprovider.GraalServices;
+
+/**
+ * Limits the time and memory a single compilation may spend in optional optimizations. Unlike a
+ * {@link CompilationAlarm}, an exhausted budget does not make the compilation fail. Instead,
+ * phases that only improve the code are skipped so that the compilation finishes on an economy
+ * path.
+ */
+public final class CompilationBudget implements AutoCloseable {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Time in milliseconds after which a compilation skips optional optimization phases (0 to disable the limit).", type = OptionType.Expert)
+        public static final OptionKey<Integer> CompilationTimeBudget = new OptionKey<>(0);
+
+        @Option(help = "Memory in megabytes the compiler thread may allocate for a compilation before optional optimization phases are skipped (0 to disable the limit).", type = OptionType.Expert)
+        public static final OptionKey<Integer> CompilationMemoryBudget = new OptionKey<>(0);
+
+        @Option(help = "Print the phases that are skipped because a compilation exhausted its budget.", type = OptionType.Debug)
+        public static final OptionKey<Boolean> TraceCompilationBudget = new OptionKey<>(false);
+        // @formatter:on
+    }
+
+    private static final CounterKey BudgetsExhausted = DebugContext.counter("CompilationBudgetsExhausted");
+    private static final CounterKey PhasesSkipped = DebugContext.counter("CompilationBudgetPhasesSkipped");
+
+    /**
+     * Thread local storage for the active compilation budget.
+     */
+    private static final ThreadLocal<CompilationBudget> currentBudget = new ThreadLocal<>();
+
+    private static final CompilationBudget UNLIMITED = new CompilationBudget(0, 0, false);
+
+    private final long timeLimitNanos;
+    private final long memoryLimitBytes;
+    private final boolean trace;
+    private final long startNanos;
+    private final long startBytes;
+
+    /**
+     * Describes why the budget was exhausted or {@code null} while there is budget left.
+     */
+    private String exhaustedReason;
+
+    private List<String> skippedPhases;
+
+    private CompilationBudget(long timeLimitNanos, long memoryLimitBytes, boolean trace) {
+        this.timeLimitNanos = timeLimitNanos;
+        this.memoryLimitBytes = memoryLimitBytes;
+        this.trace = trace;
+        this.startNanos = System.nanoTime();
+        this.startBytes = memoryLimitBytes > 0 ? GraalServices.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * Gets the current compilation budget. If there is no current budget, a non-null value is
+     * returned that is never {@linkplain #isExhausted() exhausted}.
+     */
+    public static CompilationBudget current() {
+        CompilationBudget budget = currentBudget.get();
+        return budget == null ? UNLIMITED : budget;
+    }
+
+    /**
+     * Starts a budget for the current compilation if there isn't already an active budget and at
+     * least one of {@link Options#CompilationTimeBudget} and {@link Options#CompilationMemoryBudget}
+     * is set. The returned value can be used in a try-with-resource statement to remove the budget
+     * once the compilation is finished.
+     *
+     * @return a {@link CompilationBudget} if there was no current budget for the calling thread
+     *         before this call otherwise {@code null}
+     */
+    public static CompilationBudget trackCompilationBudget(OptionValues options) {
+        int millis = Options.CompilationTimeBudget.getValue(options);
+        int megabytes = GraalServices.isThreadAllocatedMemorySupported() ? Options.CompilationMemoryBudget.getValue(options) : 0;
+        if ((millis > 0 || megabytes > 0) && currentBudget.get() == null) {
+            CompilationBudget budget = new CompilationBudget(millis * 1_000_000L, megabytes * (1L << 20), Options.TraceCompilationBudget.getValue(options));
+            currentBudget.set(budget);
+            return budget;
+        }
+        return null;
+    }
+
+    /**
+     * Determines if this budget is exhausted. Once exhausted, a budget stays exhausted for the rest
+     * of the compilation.
+     */
+    public boolean isExhausted() {
+        if (this == UNLIMITED) {
+            return false;
+        }
+        if (exhaustedReason == null) {
+            long elapsed = System.nanoTime() - startNanos;
+            if (timeLimitNanos > 0 && elapsed > timeLimitNanos) {
+                exhaustedReason = String.format("time budget of %d ms exceeded after %d ms", timeLimitNanos / 1_000_000, elapsed / 1_000_000);
+            } else if (memoryLimitBytes > 0) {
+                long allocated = GraalServices.getCurrentThreadAllocatedBytes() - startBytes;
+                if (allocated > memoryLimitBytes) {
+                    exhaustedReason = String.format("memory budget of %d MB exceeded after allocating %d MB", memoryLimitBytes >> 20, allocated >> 20);
+                }
+            }
+        }
+        return exhaustedReason != null;
+    }
+
+    /**
+     * Gets a description of why this budget is exhausted or {@code null} if it is not.
+     */
+    public String getExhaustedReason() {
+        return exhaustedReason;
+    }
+
+    /**
+     * Records that an optional phase was not applied to {@code compilation} because this budget is
+     * exhausted.
+     */
+    public void phaseSkipped(DebugContext debug, Object compilation, CharSequence phaseName) {
+        assert exhaustedReason != null : "budget is not exhausted";
+        String phase = phaseName.toString();
+        if (skippedPhases == null) {
+            skippedPhases = new ArrayList<>();
+            BudgetsExhausted.increment(debug);
+        }
+        skippedPhases.add(phase);
+        PhasesSkipped.increment(debug);
+        debug.log(DebugContext.BASIC_LEVEL, "Skipping %s: %s", phase, exhaustedReason);
+        if (trace) {
+            TTY.printf("[compilation budget] %s: skipping %s (%s)%n", compilation, phase, exhaustedReason);
+        }
+    }
+
+    /**
+     * Gets the names of the phases skipped so far because this budget is exhausted.
+     */
+    public List<String> getSkippedPhases() {
+        return skippedPhases == null ? Collections.emptyList() : Collections.unmodifiableList(skippedPhases);
+    }
+
+    @Override
+    public void close() {
+        if (this != UNLIMITED) {
+            currentBudget.set(null);
+        }
+    }
+}
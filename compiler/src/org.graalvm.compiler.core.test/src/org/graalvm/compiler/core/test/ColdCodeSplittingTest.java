@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.core.test;
+
+import static org.graalvm.compiler.api.directives.GraalDirectives.SLOWPATH_PROBABILITY;
+import static org.graalvm.compiler.api.directives.GraalDirectives.injectBranchProbability;
+
+import org.graalvm.compiler.code.CompilationResult;
+import org.graalvm.compiler.core.common.GraalOptions;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.options.OptionValues;
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+public class ColdCodeSplittingTest extends GraalCompilerTest {
+
+    static int sideEffect;
+
+    public static int coldSnippet(int x, int y) {
+        int result = x + y;
+        if (injectBranchProbability(SLOWPATH_PROBABILITY, x < 0)) {
+            sideEffect = x * y;
+            result = sideEffect ^ (y << 3);
+        }
+        return result * 7;
+    }
+
+    private CompilationResult compile(String snippet, boolean split) {
+        OptionValues options = new OptionValues(getInitialOptions(), GraalOptions.SplitColdCode, split);
+        ResolvedJavaMethod method = getResolvedJavaMethod(snippet);
+        StructuredGraph graph = parseEager(method, AllowAssumptions.YES, options);
+        return compile(method, graph, options);
+    }
+
+    @Test
+    public void testSplit() {
+        CompilationResult result = compile("coldSnippet", true);
+        Assert.assertTrue(result.hasColdCode());
+        Assert.assertTrue(result.getColdCodeStart() > 0);
+        Assert.assertTrue(result.getColdCodeStart() < result.getTargetCodeSize());
+    }
+
+    @Test
+    public void testNoSplit() {
+        CompilationResult result = compile("coldSnippet", false);
+        Assert.assertFalse(result.hasColdCode());
+    }
+
+    @Test
+    public void testExecution() {
+        OptionValues options = new OptionValues(getInitialOptions(), GraalOptions.SplitColdCode, true);
+        test(options, "coldSnippet", 3, 4);
+        test(options, "coldSnippet", -3, 4);
+    }
+}
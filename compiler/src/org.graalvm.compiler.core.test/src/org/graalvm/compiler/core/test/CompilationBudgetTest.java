@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.core.test;
+
+import org.graalvm.compiler.core.common.util.CompilationBudget;
+import org.graalvm.compiler.loop.DefaultLoopPolicies;
+import org.graalvm.compiler.loop.phases.LoopFullUnrollPhase;
+import org.graalvm.compiler.nodes.LoopBeginNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.PhaseSuite;
+import org.graalvm.compiler.phases.common.CanonicalizerPhase;
+import org.graalvm.compiler.phases.tiers.PhaseContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompilationBudgetTest extends GraalCompilerTest {
+
+    public static int loopSnippet(int input) {
+        int ret = input;
+        for (int i = 0; i < 4; i++) {
+            ret = ret * 31 + i;
+        }
+        return ret;
+    }
+
+    private static PhaseSuite<PhaseContext> createSuite() {
+        PhaseSuite<PhaseContext> suite = new PhaseSuite<>();
+        suite.appendPhase(new LoopFullUnrollPhase(new CanonicalizerPhase(), new DefaultLoopPolicies()));
+        suite.appendPhase(new CanonicalizerPhase());
+        return suite;
+    }
+
+    @Test
+    public void testWithinBudget() {
+        OptionValues options = new OptionValues(getInitialOptions(), CompilationBudget.Options.CompilationTimeBudget, 60_000);
+        StructuredGraph graph = parseEager("loopSnippet", AllowAssumptions.NO, options);
+        try (CompilationBudget budget = CompilationBudget.trackCompilationBudget(options)) {
+            Assert.assertNotNull(budget);
+            createSuite().apply(graph, new PhaseContext(getProviders()));
+            Assert.assertFalse(budget.isExhausted());
+            Assert.assertTrue(budget.getSkippedPhases().isEmpty());
+        }
+        Assert.assertEquals(0, graph.getNodes(LoopBeginNode.TYPE).count());
+    }
+
+    @Test
+    public void testExhaustedBudget() throws InterruptedException {
+        OptionValues options = new OptionValues(getInitialOptions(), CompilationBudget.Options.CompilationTimeBudget, 1);
+        StructuredGraph graph = parseEager("loopSnippet", AllowAssumptions.NO, options);
+        try (CompilationBudget budget = CompilationBudget.trackCompilationBudget(options)) {
+            Assert.assertNotNull(budget);
+            Thread.sleep(10);
+            createSuite().apply(graph, new PhaseContext(getProviders()));
+            Assert.assertTrue(budget.isExhausted());
+            Assert.assertNotNull(budget.getExhaustedReason());
+            Assert.assertEquals(1, budget.getSkippedPhases().size());
+        }
+        Assert.assertEquals(1, graph.getNodes(LoopBeginNode.TYPE).count());
+        Assert.assertFalse(CompilationBudget.current().isExhausted());
+    }
+}
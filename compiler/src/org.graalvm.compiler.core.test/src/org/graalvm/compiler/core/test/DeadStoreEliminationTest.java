@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.core.test;
+
+import org.graalvm.compiler.core.common.GraalOptions;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.nodes.memory.WriteNode;
+import org.graalvm.compiler.options.OptionValues;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DeadStoreEliminationTest extends GraalCompilerTest {
+
+    static class Holder {
+        int x;
+        int y;
+        volatile int v;
+    }
+
+    public static Holder overwriteSnippet(Holder h, int a, int b) {
+        h.y = b;
+        h.x = a;
+        h.y = a;
+        h.x = b;
+        return h;
+    }
+
+    public static Holder volatileSnippet(Holder h, int a, int b) {
+        h.x = a;
+        h.v = b;
+        h.x = b;
+        return h;
+    }
+
+    public static int observedSnippet(Holder h, Holder other, int a, int b) {
+        h.x = a;
+        int result = other.x;
+        h.x = b;
+        return result;
+    }
+
+    public static byte[] initSnippet(byte[] bytes) {
+        if (bytes.length >= 8) {
+            bytes[0] = 1;
+            bytes[1] = 2;
+            bytes[2] = 3;
+            bytes[3] = 4;
+            bytes[4] = 5;
+            bytes[5] = 6;
+            bytes[6] = 7;
+            bytes[7] = 8;
+        }
+        return bytes;
+    }
+
+    private int countWrites(String snippet, boolean enabled) {
+        OptionValues options = new OptionValues(getInitialOptions(), GraalOptions.OptDeadStoreElimination, enabled);
+        StructuredGraph graph = parseEager(snippet, AllowAssumptions.YES, options);
+        compile(graph.method(), graph);
+        return lastCompiledGraph.getNodes().filter(WriteNode.class).count();
+    }
+
+    @Test
+    public void testOverwrite() {
+        Assert.assertEquals(countWrites("overwriteSnippet", false) - 2, countWrites("overwriteSnippet", true));
+        OptionValues options = new OptionValues(getInitialOptions(), GraalOptions.OptDeadStoreElimination, true);
+        test(options, "overwriteSnippet", new Holder(), 1, 2);
+        test(options, "overwriteSnippet", null, 1, 2);
+    }
+
+    @Test
+    public void testVolatile() {
+        Assert.assertEquals(countWrites("volatileSnippet", false), countWrites("volatileSnippet", true));
+    }
+
+    @Test
+    public void testObserved() {
+        Assert.assertEquals(countWrites("observedSnippet", false), countWrites("observedSnippet", true));
+        OptionValues options = new OptionValues(getInitialOptions(), GraalOptions.OptDeadStoreElimination, true);
+        Holder h = new Holder();
+        test(options, "observedSnippet", h, h, 1, 2);
+        test(options, "observedSnippet", h, new Holder(), 1, 2);
+    }
+
+    @Test
+    public void testCoalescing() {
+        Assert.assertTrue(countWrites("initSnippet", true) < countWrites("initSnippet", false));
+        OptionValues options = new OptionValues(getInitialOptions(), GraalOptions.OptDeadStoreElimination, true);
+        test(options, "initSnippet", new byte[8]);
+        test(options, "initSnippet", new byte[13]);
+        test(options, "initSnippet", new byte[7]);
+    }
+}
@@ -24,10 +24,13 @@
  */
 package org.graalvm.compiler.core.test;
 
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
 
 import org.graalvm.collections.EconomicMap;
 import org.graalvm.compiler.debug.DebugOptions;
@@ -65,6 +68,33 @@ public class DumpPathTest extends GraalCompilerTest {
         scrubDirectory(dumpDirectoryPath);
     }
 
+    @Test
+    public void testCompressedDump() throws IOException {
+        assumeManagementLibraryIsLoadable();
+        Path dumpDirectoryPath = Files.createTempDirectory("DumpPathTest");
+        EconomicMap<OptionKey<?>, Object> overrides = OptionValues.newOptionMap();
+        overrides.put(DebugOptions.DumpPath, dumpDirectoryPath.toString());
+        overrides.put(DebugOptions.PrintGraphFile, true);
+        overrides.put(DebugOptions.PrintGraphCompress, true);
+        overrides.put(DebugOptions.Dump, "*");
+
+        test(new OptionValues(getInitialOptions(), overrides), "snippet");
+        checkForFiles(dumpDirectoryPath, new String[]{".bgv.gz"});
+
+        // The compressed dump must decompress to a stream starting with the BGV magic.
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dumpDirectoryPath, "*.bgv.gz")) {
+            for (Path filePath : stream) {
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(filePath))) {
+                    byte[] magic = new byte[4];
+                    new DataInputStream(in).readFully(magic);
+                    assertTrue(new String(magic, "US-ASCII").equals("BIGV"), "%s is not a compressed BGV file", filePath);
+                }
+            }
+        }
+
+        scrubDirectory(dumpDirectoryPath);
+    }
+
     /**
      * Check that the given directory contains file or directory names with all the given
      * extensions.
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.core.test;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.graalvm.compiler.core.GraalCompilerOptions;
+import org.graalvm.compiler.core.GraphCorpus;
+import org.graalvm.compiler.core.GraphCorpus.UnsupportedGraphException;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.common.DeadCodeEliminationPhase;
+import org.graalvm.compiler.phases.tiers.Suites;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GraphCorpusTest extends GraalCompilerTest {
+
+    static final Object OBJECT = new Object();
+
+    static String lastName;
+    static Thread.State lastState;
+    static int counter;
+
+    public static int roundTripSnippet(int[] a, Object o) {
+        int sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            switch (a[i]) {
+                case 1:
+                    sum += 3;
+                    break;
+                case 7:
+                    sum -= 2;
+                    break;
+                case 42:
+                    sum ^= i;
+                    break;
+                default:
+                    sum++;
+            }
+        }
+        if (o instanceof Integer) {
+            sum += (Integer) o;
+        }
+        if (o == String.class) {
+            sum++;
+        }
+        lastName = "corpus";
+        lastState = Thread.State.NEW;
+        return sum + counter;
+    }
+
+    public static int sumSnippet(int[] a) {
+        int sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    public static Object objectSnippet() {
+        return OBJECT;
+    }
+
+    private GraphCorpus.Replay createReplay() {
+        return new GraphCorpus.Replay(getInitialOptions(), getDebugContext(), getProviders(), getSnippetReflection(), getClass().getClassLoader());
+    }
+
+    private void checkRoundTrip(StructuredGraph graph) throws UnsupportedGraphException {
+        new DeadCodeEliminationPhase().apply(graph);
+        byte[] record = GraphCorpus.encode(graph, getProviders(), getSnippetReflection());
+        StructuredGraph decoded = GraphCorpus.decode(record, createReplay());
+        Assert.assertEquals(graph.method(), decoded.method());
+        Assert.assertEquals(graph.getGuardsStage(), decoded.getGuardsStage());
+        Assert.assertEquals(graph.isAfterFloatingReadPhase(), decoded.isAfterFloatingReadPhase());
+        assertEquals(graph, decoded);
+    }
+
+    @Test
+    public void testParsedGraph() throws UnsupportedGraphException {
+        checkRoundTrip(parseEager("roundTripSnippet", AllowAssumptions.YES));
+    }
+
+    @Test
+    public void testHighTierGraph() throws UnsupportedGraphException {
+        StructuredGraph graph = parseEager("sumSnippet", AllowAssumptions.YES);
+        createSuites(getInitialOptions()).getHighTier().apply(graph, getDefaultHighTierContext());
+        checkRoundTrip(graph);
+    }
+
+    @Test
+    public void testUnsupportedConstant() {
+        StructuredGraph graph = parseEager("objectSnippet", AllowAssumptions.YES);
+        try {
+            GraphCorpus.encode(graph, getProviders(), getSnippetReflection());
+            Assert.fail("constant of an arbitrary object must not be recorded");
+        } catch (UnsupportedGraphException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Records graphs before the first phase of the high tier into {@code file}.
+     */
+    private void record(File file, int limit, String... methodNames) {
+        Suites defaultSuites = createSuites(getInitialOptions());
+        String phaseName = defaultSuites.getHighTier().getPhases().get(0).getClass().getSimpleName();
+        OptionValues options = new OptionValues(getInitialOptions(), GraalCompilerOptions.RecordGraphCorpus, file.getPath(), GraalCompilerOptions.RecordGraphCorpusPhase, phaseName,
+                        GraalCompilerOptions.RecordGraphCorpusLimit, limit);
+        Suites suites = GraphCorpus.instrument(defaultSuites, options, getProviders(), getSnippetReflection());
+        Assert.assertNotSame(defaultSuites, suites);
+        for (String methodName : methodNames) {
+            StructuredGraph graph = parseEager(methodName, AllowAssumptions.YES, options);
+            suites.getHighTier().apply(graph, getDefaultHighTierContext());
+        }
+    }
+
+    @Test
+    public void testRecord() throws IOException {
+        File file = File.createTempFile("corpus", ".graphs");
+        try {
+            record(file, 100, "roundTripSnippet", "sumSnippet", "sumSnippet", "objectSnippet");
+            GraphCorpus.Contents contents = GraphCorpus.read(file.toPath(), createReplay());
+            Assert.assertEquals(createSuites(getInitialOptions()).getHighTier().getPhases().get(0).getClass().getSimpleName(), contents.phaseName);
+            // sumSnippet is only recorded once and objectSnippet cannot be recorded
+            Assert.assertEquals(2, contents.graphs.size());
+            Assert.assertEquals(0, contents.skipped);
+            Assert.assertEquals(getResolvedJavaMethod("roundTripSnippet"), contents.graphs.get(0).method());
+            Assert.assertEquals(getResolvedJavaMethod("sumSnippet"), contents.graphs.get(1).method());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testRecordLimit() throws IOException {
+        File file = File.createTempFile("corpus", ".graphs");
+        try {
+            record(file, 1, "sumSnippet", "roundTripSnippet");
+            GraphCorpus.Contents contents = GraphCorpus.read(file.toPath(), createReplay());
+            Assert.assertEquals(1, contents.graphs.size());
+            Assert.assertEquals(getResolvedJavaMethod("sumSnippet"), contents.graphs.get(0).method());
+        } finally {
+            file.delete();
+        }
+    }
+}
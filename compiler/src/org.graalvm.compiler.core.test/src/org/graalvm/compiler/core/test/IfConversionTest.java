@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.core.test;
+
+import static org.graalvm.compiler.api.directives.GraalDirectives.injectBranchProbability;
+
+import org.graalvm.compiler.core.common.GraalOptions;
+import org.graalvm.compiler.nodes.IfNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.options.OptionValues;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IfConversionTest extends GraalCompilerTest {
+
+    public static int multiPhiSnippet(int a, int b) {
+        int x;
+        int y;
+        if (injectBranchProbability(0.5, a < b)) {
+            x = a;
+            y = b * 3;
+        } else {
+            x = b;
+            y = a + 1;
+        }
+        return x ^ y;
+    }
+
+    public static int biasedSnippet(int a, int b) {
+        int x;
+        int y;
+        if (injectBranchProbability(0.95, a < b)) {
+            x = a;
+            y = b * 3;
+        } else {
+            x = b;
+            y = a + 1;
+        }
+        return x ^ y;
+    }
+
+    public static int floatCompareSnippet(double a, double b, int c, int d) {
+        int x;
+        int y;
+        if (injectBranchProbability(0.5, a < b)) {
+            x = c * 3;
+            y = d;
+        } else {
+            x = d;
+            y = c + 1;
+        }
+        return x - y;
+    }
+
+    public static double doublePhiSnippet(double a, double b) {
+        double x;
+        double y;
+        if (injectBranchProbability(0.5, a < b)) {
+            x = a;
+            y = b;
+        } else {
+            x = b;
+            y = a;
+        }
+        return x - y * 2;
+    }
+
+    public static int memorySnippet(int[] array, int a, int b) {
+        int x;
+        int y;
+        if (injectBranchProbability(0.5, a < b)) {
+            x = array[0];
+            y = b;
+        } else {
+            x = b;
+            y = a;
+        }
+        return x ^ y;
+    }
+
+    private int countIfs(String snippet, boolean enabled) {
+        OptionValues options = new OptionValues(getInitialOptions(), GraalOptions.OptIfConversion, enabled);
+        StructuredGraph graph = parseEager(snippet, AllowAssumptions.YES, options);
+        compile(graph.method(), graph);
+        return lastCompiledGraph.getNodes().filter(IfNode.class).count();
+    }
+
+    @Test
+    public void testMultiPhi() {
+        Assert.assertEquals(1, countIfs("multiPhiSnippet", false));
+        Assert.assertEquals(0, countIfs("multiPhiSnippet", true));
+        OptionValues options = new OptionValues(getInitialOptions(), GraalOptions.OptIfConversion, true);
+        test(options, "multiPhiSnippet", 1, 2);
+        test(options, "multiPhiSnippet", 2, 1);
+    }
+
+    @Test
+    public void testBiased() {
+        Assert.assertEquals(1, countIfs("biasedSnippet", true));
+    }
+
+    @Test
+    public void testFloatCompare() {
+        Assert.assertEquals(0, countIfs("floatCompareSnippet", true));
+        OptionValues options = new OptionValues(getInitialOptions(), GraalOptions.OptIfConversion, true);
+        test(options, "floatCompareSnippet", 1.5, 2.5, 3, 4);
+        test(options, "floatCompareSnippet", 2.5, 1.5, 3, 4);
+        test(options, "floatCompareSnippet", Double.NaN, 1.5, 3, 4);
+    }
+
+    @Test
+    public void testDoublePhi() {
+        Assert.assertEquals(1, countIfs("doublePhiSnippet", true));
+    }
+
+    @Test
+    public void testMemory() {
+        Assert.assertEquals(1, countIfs("memorySnippet", true));
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.core.test;
+
+import org.graalvm.compiler.nodes.InlineeGraphCache;
+import org.graalvm.compiler.nodes.ReturnNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+public class InlineeGraphCacheTest extends GraalCompilerTest {
+
+    private static final Object CONFIGURATION = "configuration";
+
+    public static int sumSnippet(int[] a) {
+        int sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    public static int maxSnippet(int a, int b) {
+        return a > b ? a : b;
+    }
+
+    public static int lengthSnippet(int[] a) {
+        return a.length;
+    }
+
+    abstract static class Shape {
+        abstract int size();
+    }
+
+    static final class Square extends Shape {
+        @Override
+        int size() {
+            return 4;
+        }
+    }
+
+    public static int sizeSnippet(Shape shape) {
+        return shape.size();
+    }
+
+    private InlineeGraphCache createCache(int capacity) {
+        return createCache(capacity, Long.MAX_VALUE);
+    }
+
+    private InlineeGraphCache createCache(int capacity, long timeToLiveNanos) {
+        return new InlineeGraphCache(getTarget().arch, capacity, timeToLiveNanos);
+    }
+
+    private static StructuredGraph emptyGraph(StructuredGraph parsed) {
+        return new StructuredGraph.Builder(parsed.getOptions(), parsed.getDebug(), AllowAssumptions.NO).method(parsed.method()).trackNodeSourcePosition(
+                        parsed.trackNodeSourcePosition()).useProfilingInfo(parsed.useProfilingInfo()).build();
+    }
+
+    @Test
+    public void testHit() {
+        InlineeGraphCache cache = createCache(16);
+        StructuredGraph parsed = parseEager("sumSnippet", AllowAssumptions.NO);
+        cache.put(CONFIGURATION, parsed);
+
+        StructuredGraph decoded = emptyGraph(parsed);
+        Assert.assertTrue(cache.decode(parsed.method(), CONFIGURATION, decoded));
+        Assert.assertNotNull(decoded.start().next());
+        Assert.assertEquals(1, decoded.getNodes(ReturnNode.TYPE).count());
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void testConfigurationMismatch() {
+        InlineeGraphCache cache = createCache(16);
+        StructuredGraph parsed = parseEager("sumSnippet", AllowAssumptions.NO);
+        cache.put(CONFIGURATION, parsed);
+
+        Assert.assertFalse(cache.decode(parsed.method(), "other configuration", emptyGraph(parsed)));
+        Assert.assertFalse(cache.decode(getResolvedJavaMethod("maxSnippet"), CONFIGURATION, emptyGraph(parsed)));
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testEviction() {
+        InlineeGraphCache cache = createCache(1);
+        StructuredGraph sum = parseEager("sumSnippet", AllowAssumptions.NO);
+        StructuredGraph max = parseEager("maxSnippet", AllowAssumptions.NO);
+        cache.put(CONFIGURATION, sum);
+        cache.put(CONFIGURATION, max);
+
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(1, cache.getEvictions());
+        Assert.assertFalse(cache.decode(sum.method(), CONFIGURATION, emptyGraph(sum)));
+        Assert.assertTrue(cache.decode(max.method(), CONFIGURATION, emptyGraph(max)));
+    }
+
+    @Test
+    public void testInvalidation() {
+        InlineeGraphCache cache = createCache(16);
+        StructuredGraph parsed = parseEager("sumSnippet", AllowAssumptions.NO);
+        cache.put(CONFIGURATION, parsed);
+        cache.invalidate(parsed.method().getDeclaringClass());
+
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(1, cache.getInvalidations());
+        Assert.assertFalse(cache.decode(parsed.method(), CONFIGURATION, emptyGraph(parsed)));
+    }
+
+    @Test
+    public void testExpiry() throws InterruptedException {
+        InlineeGraphCache cache = createCache(16, 1);
+        StructuredGraph parsed = parseEager("sumSnippet", AllowAssumptions.NO);
+        cache.put(CONFIGURATION, parsed);
+        Thread.sleep(1);
+
+        Assert.assertFalse(cache.decode(parsed.method(), CONFIGURATION, emptyGraph(parsed)));
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(1, cache.getInvalidations());
+        Assert.assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testProfileChange() {
+        ResolvedJavaMethod method = getResolvedJavaMethod("lengthSnippet");
+        method.reprofile();
+        InlineeGraphCache cache = createCache(16);
+        StructuredGraph parsed = parseEager(method, AllowAssumptions.NO);
+        Assert.assertTrue(parsed.useProfilingInfo());
+        cache.put(CONFIGURATION, parsed);
+        Assert.assertEquals(1, cache.size());
+
+        // the null check deoptimizes and records the deoptimization in the profile of the method
+        Result result = executeActual(method, null, (Object) null);
+        Assert.assertTrue(result.exception instanceof NullPointerException);
+
+        Assert.assertFalse(cache.decode(method, CONFIGURATION, emptyGraph(parsed)));
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(1, cache.getInvalidations());
+    }
+
+    @Test
+    public void testAssumptionsNotCached() {
+        Assert.assertEquals(4, new Square().size());
+        InlineeGraphCache cache = createCache(16);
+        StructuredGraph parsed = parseEager("sizeSnippet", AllowAssumptions.YES);
+        Assert.assertFalse(parsed.getAssumptions().isEmpty());
+        cache.put(CONFIGURATION, parsed);
+
+        Assert.assertEquals(0, cache.size());
+        Assert.assertFalse(cache.decode(parsed.method(), CONFIGURATION, emptyGraph(parsed)));
+        Assert.assertEquals(1, cache.getMisses());
+    }
+}
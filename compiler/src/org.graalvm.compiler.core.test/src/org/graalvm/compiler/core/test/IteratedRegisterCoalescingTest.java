@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.core.test;
+
+import java.util.ListIterator;
+
+import org.graalvm.compiler.lir.alloc.RegisterAllocationPhase;
+import org.graalvm.compiler.lir.alloc.irc.IteratedRegisterCoalescingPhase;
+import org.graalvm.compiler.lir.alloc.lsra.LinearScanPhase;
+import org.graalvm.compiler.lir.gen.LIRGenerationResult;
+import org.graalvm.compiler.lir.phases.AllocationPhase.AllocationContext;
+import org.graalvm.compiler.lir.phases.LIRPhase;
+import org.graalvm.compiler.lir.phases.LIRSuites;
+import org.graalvm.compiler.options.OptionValues;
+import org.junit.Test;
+
+import jdk.vm.ci.code.TargetDescription;
+
+public class IteratedRegisterCoalescingTest extends GraalCompilerTest {
+
+    /**
+     * Linear scan counting how often iterated register coalescing falls back to it.
+     */
+    private static final class CountingFallbackPhase extends RegisterAllocationPhase {
+        private final LinearScanPhase linearScan = new LinearScanPhase();
+        private int count;
+
+        @Override
+        protected void run(TargetDescription target, LIRGenerationResult lirGenRes, AllocationContext context) {
+            count++;
+            linearScan.setNeverSpillConstants(getNeverSpillConstants());
+            linearScan.apply(target, lirGenRes, context, false);
+        }
+    }
+
+    private final CountingFallbackPhase fallback = new CountingFallbackPhase();
+
+    @Override
+    protected LIRSuites createLIRSuites(OptionValues opts) {
+        LIRSuites suites = super.createLIRSuites(opts);
+        ListIterator<LIRPhase<AllocationContext>> phase = suites.getAllocationStage().findPhase(IteratedRegisterCoalescingPhase.class);
+        if (phase != null) {
+            phase.set(new IteratedRegisterCoalescingPhase(fallback));
+        }
+        return suites;
+    }
+
+    private OptionValues ircOptions() {
+        return new OptionValues(getInitialOptions(), IteratedRegisterCoalescingPhase.Options.LIROptIteratedRegisterCoalescing, true);
+    }
+
+    public static int swapSnippet(int n) {
+        int a = 1;
+        int b = 2;
+        for (int i = 0; i < n; i++) {
+            int t = a;
+            a = b;
+            b = t + i;
+        }
+        return a * 31 + b;
+    }
+
+    @Test
+    public void testSwap() {
+        test(ircOptions(), "swapSnippet", 0);
+        test(ircOptions(), "swapSnippet", 7);
+        assertDeepEquals(0, fallback.count);
+    }
+
+    public static long pressureSnippet(long[] values) {
+        long a = values[0];
+        long b = values[1];
+        long c = values[2];
+        long d = values[3];
+        long e = values[4];
+        long f = values[5];
+        long g = values[6];
+        long h = values[7];
+        long i = values[8];
+        long j = values[9];
+        long k = values[10];
+        long l = values[11];
+        long m = values[12];
+        long n = values[13];
+        long o = values[14];
+        long p = values[15];
+        long q = values[16];
+        long r = values[17];
+        for (int x = 0; x < values.length; x++) {
+            a += b ^ values[x];
+            b += c * 3;
+            c += d - a;
+            d += e | b;
+            e += f ^ c;
+            f += g + d;
+            g += h & e;
+            h += i - f;
+            i += j * g;
+            j += k ^ h;
+            k += l + i;
+            l += m - j;
+            m += n * k;
+            n += o ^ l;
+            o += p | m;
+            p += q + n;
+            q += r ^ o;
+            r += a - p;
+        }
+        return a + b + c + d + e + f + g + h + i + j + k + l + m + n + o + p + q + r;
+    }
+
+    @Test
+    public void testPressure() {
+        long[] values = new long[32];
+        for (int x = 0; x < values.length; x++) {
+            values[x] = x * 0x9E3779B97F4A7C15L;
+        }
+        test(ircOptions(), "pressureSnippet", values);
+    }
+
+    static int calls;
+
+    static int callee(int x) {
+        calls++;
+        return x * 5;
+    }
+
+    public static Object callSnippet(Object o, int x, double y) {
+        int sum = 0;
+        double product = y;
+        for (int i = 0; i < x; i++) {
+            sum += callee(i);
+            product *= 1.5;
+        }
+        return o.toString() + sum + product;
+    }
+
+    @Test
+    public void testCalls() {
+        test(ircOptions(), "callSnippet", "value", 5, 2.5);
+    }
+
+    public static double mixedSnippet(int n, double seed) {
+        double x = seed;
+        float f = (float) seed;
+        long l = n;
+        for (int i = 0; i < n; i++) {
+            if ((i & 1) == 0) {
+                x = x * 1.25 + i;
+                l += (long) x;
+            } else {
+                f = f * 0.5f + l;
+                x -= f;
+            }
+        }
+        return x + f + l;
+    }
+
+    @Test
+    public void testMixedKinds() {
+        test(ircOptions(), "mixedSnippet", 10, 3.0);
+        test(ircOptions(), "mixedSnippet", 0, -1.0);
+    }
+
+    @Test
+    public void testFallback() {
+        OptionValues options = new OptionValues(ircOptions(), IteratedRegisterCoalescingPhase.Options.LIRIteratedRegisterCoalescingMaxVariables, 0);
+        test(options, "pressureSnippet", new long[32]);
+        assertDeepEquals(1, fallback.count);
+    }
+
+    /**
+     * The loop of {@link #pressureSnippet} keeps more values live than there are registers, so the
+     * first round spills and a single round cannot converge.
+     */
+    @Test
+    public void testNoConvergenceFallback() {
+        OptionValues options = new OptionValues(ircOptions(), IteratedRegisterCoalescingPhase.Options.LIRIteratedRegisterCoalescingMaxRounds, 1);
+        long[] values = new long[32];
+        for (int x = 0; x < values.length; x++) {
+            values[x] = x * 0x9E3779B97F4A7C15L;
+        }
+        test(options, "pressureSnippet", values);
+        assertDeepEquals(1, fallback.count);
+    }
+}
@@ -24,19 +24,27 @@
  */
 package org.graalvm.compiler.core.test;
 
+import static org.graalvm.compiler.core.common.GraalOptions.LockCoarseningChunkSize;
+import static org.graalvm.compiler.core.common.GraalOptions.OptEliminateNestedLocks;
+import static org.graalvm.compiler.core.common.GraalOptions.OptLoopLockCoarsening;
+
+import org.graalvm.compiler.api.directives.GraalDirectives;
 import org.graalvm.compiler.loop.DefaultLoopPolicies;
 import org.graalvm.compiler.loop.phases.LoopFullUnrollPhase;
 import org.graalvm.compiler.nodes.StructuredGraph;
 import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
 import org.graalvm.compiler.nodes.java.MonitorExitNode;
+import org.graalvm.compiler.nodes.java.MonitorIdNode;
 import org.graalvm.compiler.nodes.java.RawMonitorEnterNode;
 import org.graalvm.compiler.nodes.spi.LoweringTool;
+import org.graalvm.compiler.options.OptionValues;
 import org.graalvm.compiler.phases.common.CanonicalizerPhase;
 import org.graalvm.compiler.phases.common.DeadCodeEliminationPhase;
 import org.graalvm.compiler.phases.common.LockEliminationPhase;
 import org.graalvm.compiler.phases.common.LoweringPhase;
 import org.graalvm.compiler.phases.tiers.HighTierContext;
 import org.graalvm.compiler.phases.tiers.PhaseContext;
+import org.graalvm.compiler.phases.tiers.Suites;
 import org.graalvm.compiler.virtual.phases.ea.PartialEscapePhase;
 import org.junit.Test;
 
@@ -115,8 +123,12 @@ public class LockEliminationTest extends GraalCompilerTest {
     }
 
     private StructuredGraph getGraph(String snippet, boolean doEscapeAnalysis) {
+        return getGraph(snippet, doEscapeAnalysis, getInitialOptions());
+    }
+
+    private StructuredGraph getGraph(String snippet, boolean doEscapeAnalysis, OptionValues options) {
         ResolvedJavaMethod method = getResolvedJavaMethod(snippet);
-        StructuredGraph graph = parseEager(method, AllowAssumptions.YES);
+        StructuredGraph graph = parseEager(method, AllowAssumptions.YES, options);
         HighTierContext context = getDefaultHighTierContext();
         CanonicalizerPhase canonicalizer = new CanonicalizerPhase();
         canonicalizer.apply(graph, context);
@@ -166,4 +178,108 @@ public class LockEliminationTest extends GraalCompilerTest {
         assertDeepEquals(2, graph.getNodes().filter(RawMonitorEnterNode.class).count());
         assertDeepEquals(2, graph.getNodes().filter(MonitorExitNode.class).count());
     }
+
+    public static void testNestedSnippet(A a) {
+        synchronized (a) {
+            synchronized (a) {
+                field1 = a.value;
+            }
+        }
+    }
+
+    @Test
+    public void testNested() {
+        checkNested("testNestedSnippet", new A());
+    }
+
+    public static void testNestedSynchronizedMethodSnippet(A a) {
+        synchronized (a) {
+            field1 = a.getValue();
+        }
+    }
+
+    @Test
+    public void testNestedSynchronizedMethod() {
+        checkNested("testNestedSynchronizedMethodSnippet", new A());
+    }
+
+    private void checkNested(String snippet, Object... args) {
+        OptionValues options = new OptionValues(getInitialOptions(), OptEliminateNestedLocks, true);
+        test(options, snippet, args);
+
+        StructuredGraph graph = getGraph(snippet, false, options);
+        new LockEliminationPhase().apply(graph);
+        int eliminated = 0;
+        for (MonitorIdNode monitorId : graph.getNodes().filter(MonitorIdNode.class)) {
+            if (monitorId.isEliminated()) {
+                eliminated++;
+            }
+        }
+        assertDeepEquals(1, eliminated);
+    }
+
+    public static int testLoopCoarseningSnippet(A a, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            synchronized (a) {
+                sum += a.value;
+            }
+        }
+        return sum;
+    }
+
+    @Test
+    public void testLoopCoarsening() {
+        OptionValues options = new OptionValues(getInitialOptions(), OptLoopLockCoarsening, true, LockCoarseningChunkSize, 4);
+        A a = new A();
+        a.value = 3;
+        test(options, "testLoopCoarseningSnippet", a, 0);
+        test(options, "testLoopCoarseningSnippet", a, 1);
+        test(options, "testLoopCoarseningSnippet", a, 9);
+        test(options, "testLoopCoarseningSnippet", null, 0);
+        test(options, "testLoopCoarseningSnippet", null, 2);
+        assertCoarsened("testLoopCoarseningSnippet", options);
+    }
+
+    /**
+     * Checks that the mid tier coarsens the loop of {@code snippet}, which then also releases the
+     * monitor when leaving the loop in the loop header.
+     */
+    private void assertCoarsened(String snippet, OptionValues options) {
+        assertDeepEquals(countMonitorExitsAfterMidTier(snippet, getInitialOptions()) + 1, countMonitorExitsAfterMidTier(snippet, options));
+    }
+
+    private int countMonitorExitsAfterMidTier(String snippet, OptionValues options) {
+        StructuredGraph graph = parseEager(snippet, AllowAssumptions.YES, options);
+        Suites suites = createSuites(options);
+        suites.getHighTier().apply(graph, getDefaultHighTierContext());
+        suites.getMidTier().apply(graph, getDefaultMidTierContext());
+        return graph.getNodes().filter(MonitorExitNode.class).count();
+    }
+
+    public static int testLoopCoarseningDeoptSnippet(A a, int n, int deoptSum) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            synchronized (a) {
+                sum += a.value;
+                if (sum > deoptSum) {
+                    GraalDirectives.deoptimizeAndInvalidate();
+                }
+            }
+        }
+        return Thread.holdsLock(a) ? -1 : sum;
+    }
+
+    @Test
+    public void testLoopCoarseningDeopt() {
+        OptionValues options = new OptionValues(getInitialOptions(), OptLoopLockCoarsening, true, LockCoarseningChunkSize, 4);
+        assertCoarsened("testLoopCoarseningDeoptSnippet", options);
+        A a = new A();
+        a.value = 3;
+        test(options, "testLoopCoarseningDeoptSnippet", a, 9, 100);
+        // Deoptimizes in the third iteration, while the monitor acquired in the first one is held.
+        test(options, "testLoopCoarseningDeoptSnippet", a, 9, 7);
+        // Deoptimizes in the sixth iteration, the second one of the second chunk.
+        test(options, "testLoopCoarseningDeoptSnippet", a, 9, 16);
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.core.test;
+
+import org.graalvm.compiler.core.common.GraalOptions;
+import org.graalvm.compiler.nodes.MergeNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.nodes.java.InstanceOfNode;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.common.CanonicalizerPhase;
+import org.graalvm.compiler.phases.common.IncrementalCanonicalizerPhase;
+import org.graalvm.compiler.phases.common.TailDuplicationPhase;
+import org.graalvm.compiler.phases.tiers.PhaseContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TailDuplicationTest extends GraalCompilerTest {
+
+    static int sideEffect;
+
+    public static boolean instanceOfSnippet(boolean b, Integer other) {
+        Object o;
+        if (b) {
+            sideEffect = 1;
+            o = "string";
+        } else {
+            sideEffect = 2;
+            o = other;
+        }
+        return o instanceof String;
+    }
+
+    public static int constantSnippet(int x, int y) {
+        int v;
+        if (x > 0) {
+            sideEffect = x;
+            v = 3;
+        } else {
+            sideEffect = y;
+            v = 5;
+        }
+        return (v * y) + (v << 2);
+    }
+
+    public static int noBenefitSnippet(int x, int y, int z) {
+        int v;
+        if (x > 0) {
+            sideEffect = x;
+            v = y;
+        } else {
+            sideEffect = z;
+            v = z;
+        }
+        return v * 31;
+    }
+
+    private StructuredGraph duplicateTails(String snippet) {
+        StructuredGraph graph = parseEager(snippet, AllowAssumptions.NO);
+        PhaseContext context = new PhaseContext(getProviders());
+        CanonicalizerPhase canonicalizer = new CanonicalizerPhase();
+        canonicalizer.apply(graph, context);
+        new IncrementalCanonicalizerPhase<>(canonicalizer, new TailDuplicationPhase()).apply(graph, context);
+        return graph;
+    }
+
+    @Test
+    public void testInstanceOf() {
+        StructuredGraph graph = duplicateTails("instanceOfSnippet");
+        Assert.assertEquals(0, graph.getNodes().filter(MergeNode.class).count());
+        Assert.assertEquals(0, graph.getNodes().filter(InstanceOfNode.class).count());
+    }
+
+    @Test
+    public void testConstant() {
+        StructuredGraph graph = duplicateTails("constantSnippet");
+        Assert.assertEquals(0, graph.getNodes().filter(MergeNode.class).count());
+    }
+
+    @Test
+    public void testNoBenefit() {
+        StructuredGraph graph = duplicateTails("noBenefitSnippet");
+        Assert.assertEquals(1, graph.getNodes().filter(MergeNode.class).count());
+    }
+
+    @Test
+    public void testExecution() {
+        OptionValues options = new OptionValues(getInitialOptions(), GraalOptions.TailDuplication, true);
+        test(options, "instanceOfSnippet", true, 42);
+        test(options, "instanceOfSnippet", false, 42);
+        test(options, "instanceOfSnippet", false, null);
+        test(options, "constantSnippet", 1, 7);
+        test(options, "constantSnippet", -1, 7);
+        test(options, "noBenefitSnippet", 1, 2, 3);
+        test(options, "noBenefitSnippet", -1, 2, 3);
+    }
+}
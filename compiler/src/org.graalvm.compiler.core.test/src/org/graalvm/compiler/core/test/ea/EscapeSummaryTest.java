@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.core.test.ea;
+
+import static org.graalvm.compiler.core.common.GraalOptions.EscapeAnalysisSummaries;
+
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.nodes.java.LoadIndexedNode;
+import org.graalvm.compiler.nodes.virtual.CommitAllocationNode;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.common.CanonicalizerPhase;
+import org.graalvm.compiler.phases.tiers.HighTierContext;
+import org.graalvm.compiler.virtual.phases.ea.EscapeSummary;
+import org.graalvm.compiler.virtual.phases.ea.EscapeSummaryCache;
+import org.graalvm.compiler.virtual.phases.ea.PartialEscapePhase;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EscapeSummaryTest extends EATestBase {
+
+    static Object sink;
+
+    @BytecodeParserNeverInline
+    public static int readOnly(TestClassInt p) {
+        return p.x + p.y;
+    }
+
+    @BytecodeParserNeverInline
+    public static void write(TestClassInt p) {
+        p.x = 1;
+    }
+
+    @BytecodeParserNeverInline
+    public static int readOnlyArray(int[] p) {
+        return p[0] + p[1];
+    }
+
+    @BytecodeParserNeverInline
+    public static void writeArray(int[] p) {
+        p[0] = 1;
+    }
+
+    public static Object identity(Object p) {
+        return p;
+    }
+
+    public static void publish(Object p) {
+        sink = p;
+    }
+
+    public static int handler(TestClassInt p) {
+        try {
+            return p.x;
+        } catch (NullPointerException e) {
+            sink = p;
+            return 0;
+        }
+    }
+
+    private EscapeSummary summary(String name) {
+        return new EscapeSummaryCache().get(getResolvedJavaMethod(name), getDefaultHighTierContext(), getInitialOptions(), getDebugContext());
+    }
+
+    @Test
+    public void testSummaries() {
+        Assert.assertTrue(summary("readOnly").isReadOnly(0));
+        Assert.assertEquals(EscapeSummary.WRITTEN, summary("write").getFlags(0));
+        Assert.assertTrue(summary("readOnlyArray").isReadOnly(0));
+        Assert.assertEquals(EscapeSummary.WRITTEN, summary("writeArray").getFlags(0));
+        Assert.assertEquals(EscapeSummary.RETURNED, summary("identity").getFlags(0));
+        Assert.assertEquals(EscapeSummary.ESCAPES, summary("publish").getFlags(0));
+        Assert.assertFalse(summary("handler").isReadOnly(0));
+    }
+
+    public static int readOnlySnippet(int a, int b) {
+        int[] values = {a, b};
+        if (a < 0) {
+            readOnlyArray(values);
+        }
+        return values[0] + values[1];
+    }
+
+    public static int writeSnippet(int a, int b) {
+        int[] values = {a, b};
+        if (a < 0) {
+            writeArray(values);
+        }
+        return values[0] + values[1];
+    }
+
+    @Test
+    public void testReadOnlyArgument() {
+        StructuredGraph g = prepare("readOnlySnippet", true);
+        // the array stays virtual after the call, so its elements are not read
+        Assert.assertTrue(g.getNodes().filter(LoadIndexedNode.class).isEmpty());
+        Assert.assertEquals(1, g.getNodes().filter(CommitAllocationNode.class).count());
+        Assert.assertFalse(prepare("readOnlySnippet", false).getNodes().filter(LoadIndexedNode.class).isEmpty());
+
+        OptionValues options = new OptionValues(getInitialOptions(), EscapeAnalysisSummaries, true);
+        test(options, "readOnlySnippet", -1, 2);
+        test(options, "readOnlySnippet", 1, 2);
+    }
+
+    @Test
+    public void testWrittenArgument() {
+        Assert.assertFalse(prepare("writeSnippet", true).getNodes().filter(LoadIndexedNode.class).isEmpty());
+
+        OptionValues options = new OptionValues(getInitialOptions(), EscapeAnalysisSummaries, true);
+        test(options, "writeSnippet", -1, 2);
+        test(options, "writeSnippet", 1, 2);
+    }
+
+    private StructuredGraph prepare(String snippet, boolean summaries) {
+        OptionValues options = new OptionValues(getInitialOptions(), EscapeAnalysisSummaries, summaries);
+        StructuredGraph g = parseEager(snippet, AllowAssumptions.YES, options);
+        HighTierContext highTierContext = getDefaultHighTierContext();
+        new CanonicalizerPhase().apply(g, highTierContext);
+        new PartialEscapePhase(false, false, new CanonicalizerPhase(), null, options).apply(g, highTierContext);
+        return g;
+    }
+}
@@ -55,5 +55,14 @@ public class GraalCompilerOptions {
     public static final OptionKey<Integer> MaxCompilationProblemsPerAction = new OptionKey<>(2);
     @Option(help = "Alias for CompilationFailureAction=ExitVM.", type = OptionType.User)
     public static final OptionKey<Boolean> ExitVMOnException = new OptionKey<>(false);
+    @Option(help = "File to which the graphs of HotSpot compilations are written right before the phase named by " +
+                   "RecordGraphCorpusPhase. An existing file is overwritten. The phase benchmarks in " +
+                   "org.graalvm.compiler.microbenchmarks replay such a graph corpus.", type = OptionType.Debug)
+    public static final OptionKey<String> RecordGraphCorpus = new OptionKey<>(null);
+    @Option(help = "Simple class name of the top level phase of the default suites before which RecordGraphCorpus " +
+                   "records graphs, e.g. ConditionalEliminationPhase.", type = OptionType.Debug)
+    public static final OptionKey<String> RecordGraphCorpusPhase = new OptionKey<>(null);
+    @Option(help = "Maximum number of methods whose graphs RecordGraphCorpus records.", type = OptionType.Debug)
+    public static final OptionKey<Integer> RecordGraphCorpusLimit = new OptionKey<>(10000);
     // @formatter:on
 }
@@ -0,0 +1,384 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+package org.graalvm.compiler.core;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+
+import org.graalvm.collections.EconomicMap;
+import org.graalvm.collections.EconomicSet;
+import org.graalvm.compiler.api.replacements.SnippetReflectionProvider;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.debug.GraalError;
+import org.graalvm.compiler.debug.TTY;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.BasePhase;
+import org.graalvm.compiler.phases.PhaseSuite;
+import org.graalvm.compiler.phases.tiers.PhaseContext;
+import org.graalvm.compiler.phases.tiers.Suites;
+import org.graalvm.compiler.phases.util.Providers;
+
+import jdk.vm.ci.code.Architecture;
+
+/**
+ * A corpus of graphs captured from real compilations right before a phase of the default suites.
+ * Replaying the corpus applies that phase to exactly the graphs the compiler produced, including
+ * the effects of the profiles, inlining decisions and speculations of the recording VM.
+ *
+ * Each graph is stored as a {@linkplain org.graalvm.compiler.nodes.GraphEncoder graph encoding}.
+ * The objects referenced by the encoding are written symbolically: types, methods and fields by
+ * name, enums and static singletons by their declaring class, and other immutable data objects
+ * (i.e., objects whose class overrides {@link Object#equals}) field by field. Graphs that reference
+ * objects without such a representation, for example constants of arbitrary heap objects, are not
+ * recorded. The {@linkplain org.graalvm.compiler.graph.NodeSourcePosition node source positions}
+ * and the assumptions of the graphs are not recorded.
+ *
+ * The file format is:
+ *
+ * <pre>
+ * corpus := MAGIC:int VERSION:int architecture:string phase:string record*
+ * record := length:int byte[length]
+ * string := length:int UTF-8 byte[length]
+ * </pre>
+ *
+ * where {@code phase} is the simple class name of the phase the graphs were captured before. The
+ * contents of a record are described in {@code GraphCorpusWriter}.
+ */
+public final class GraphCorpus {
+
+    static final int MAGIC = 0x47524350;
+    static final int VERSION = 1;
+
+    /**
+     * Recorders by file name.
+     */
+    private static final EconomicMap<String, Recorder> recorders = EconomicMap.create();
+
+    private GraphCorpus() {
+    }
+
+    /**
+     * Thrown if a graph cannot be written to a corpus or cannot be rebuilt from a corpus.
+     */
+    public static final class UnsupportedGraphException extends Exception {
+        private static final long serialVersionUID = -4405236458618937640L;
+
+        public UnsupportedGraphException(String format, Object... args) {
+            super(String.format(format, args));
+        }
+    }
+
+    /**
+     * The services used to resolve the symbolic references of a corpus in the replaying VM.
+     */
+    public static final class Replay {
+        final OptionValues options;
+        final DebugContext debug;
+        final Providers providers;
+        final SnippetReflectionProvider snippetReflection;
+        final ClassLoader loader;
+
+        /**
+         * @param loader the class loader used to look up the classes referenced by the corpus in
+         *            addition to the loader of the compiler
+         */
+        public Replay(OptionValues options, DebugContext debug, Providers providers, SnippetReflectionProvider snippetReflection, ClassLoader loader) {
+            this.options = options;
+            this.debug = debug;
+            this.providers = providers;
+            this.snippetReflection = snippetReflection;
+            this.loader = loader;
+        }
+
+        Architecture getArchitecture() {
+            return providers.getCodeCache().getTarget().arch;
+        }
+    }
+
+    /**
+     * The graphs of a corpus file.
+     */
+    public static final class Contents {
+        /**
+         * The simple class name of the phase the graphs were captured before.
+         */
+        public final String phaseName;
+        public final List<StructuredGraph> graphs;
+        /**
+         * The number of records that could not be rebuilt in this VM, for example because a class
+         * they reference is not loadable.
+         */
+        public final int skipped;
+
+        Contents(String phaseName, List<StructuredGraph> graphs, int skipped) {
+            this.phaseName = phaseName;
+            this.graphs = graphs;
+            this.skipped = skipped;
+        }
+    }
+
+    /**
+     * Encodes {@code graph} as a corpus record.
+     */
+    public static byte[] encode(StructuredGraph graph, Providers providers, SnippetReflectionProvider snippetReflection) throws UnsupportedGraphException {
+        return new GraphCorpusWriter(providers, snippetReflection).write(graph);
+    }
+
+    /**
+     * Rebuilds a graph from a record produced by {@link #encode}.
+     */
+    public static StructuredGraph decode(byte[] record, Replay replay) throws UnsupportedGraphException {
+        try {
+            return new GraphCorpusReader(new DataInputStream(new ByteArrayInputStream(record)), replay).read();
+        } catch (IOException e) {
+            throw new UnsupportedGraphException("malformed graph corpus record: %s", e);
+        }
+    }
+
+    /**
+     * Reads all graphs of a corpus file.
+     */
+    public static Contents read(Path file, Replay replay) {
+        try (InputStream stream = Files.newInputStream(file)) {
+            DataInputStream in = new DataInputStream(stream);
+            if (in.readInt() != MAGIC) {
+                throw new GraalError("%s is not a graph corpus", file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new GraalError("Graph corpus %s has version %d instead of %d", file, version, VERSION);
+            }
+            String architecture = GraphCorpusWriter.readString(in);
+            if (!architecture.equals(replay.getArchitecture().getName())) {
+                throw new GraalError("Graph corpus %s was recorded on %s", file, architecture);
+            }
+            String phaseName = GraphCorpusWriter.readString(in);
+            List<StructuredGraph> graphs = new ArrayList<>();
+            int skipped = 0;
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                try {
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    // The recording VM exited while writing the last record.
+                    skipped++;
+                    break;
+                }
+                try {
+                    graphs.add(decode(record, replay));
+                } catch (UnsupportedGraphException | GraalError e) {
+                    replay.debug.log("Skipping graph corpus record: %s", e);
+                    skipped++;
+                }
+            }
+            return new Contents(phaseName, graphs, skipped);
+        } catch (IOException e) {
+            throw new GraalError("Error reading graph corpus %s: %s", file, e);
+        }
+    }
+
+    /**
+     * Adds the recording of graphs to {@code suites} if {@link GraalCompilerOptions#RecordGraphCorpus}
+     * is set.
+     *
+     * @return {@code suites} or a copy of {@code suites} that records graphs right before the first
+     *         top level phase named by {@link GraalCompilerOptions#RecordGraphCorpusPhase}
+     */
+    public static Suites instrument(Suites suites, OptionValues options, Providers providers, SnippetReflectionProvider snippetReflection) {
+        String file = GraalCompilerOptions.RecordGraphCorpus.getValue(options);
+        if (file == null) {
+            return suites;
+        }
+        Recorder recorder;
+        synchronized (recorders) {
+            recorder = recorders.get(file);
+            if (recorder == null) {
+                recorder = new Recorder(file, GraalCompilerOptions.RecordGraphCorpusPhase.getValue(options), GraalCompilerOptions.RecordGraphCorpusLimit.getValue(options),
+                                providers.getCodeCache().getTarget().arch);
+                recorders.put(file, recorder);
+            }
+        }
+        if (recorder.isDisabled()) {
+            return suites;
+        }
+        Suites copy = suites.copy();
+        RecordPhase phase = new RecordPhase(recorder, providers, snippetReflection);
+        if (insertBefore(copy.getHighTier(), recorder.phaseName, phase) || insertBefore(copy.getMidTier(), recorder.phaseName, phase) ||
+                        insertBefore(copy.getLowTier(), recorder.phaseName, phase)) {
+            return copy;
+        }
+        recorder.disable("phase %s of RecordGraphCorpusPhase is not a top level phase of the default suites", recorder.phaseName);
+        return suites;
+    }
+
+    private static <C extends PhaseContext> boolean insertBefore(PhaseSuite<C> tier, String phaseName, RecordPhase phase) {
+        ListIterator<BasePhase<? super C>> it = tier.findLastPhase();
+        while (it.hasPrevious()) {
+            it.previous();
+        }
+        while (it.hasNext()) {
+            if (it.next().getClass().getSimpleName().equals(phaseName)) {
+                it.previous();
+                it.add(phase);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records the graphs it is applied to.
+     */
+    private static final class RecordPhase extends BasePhase<PhaseContext> {
+        private final Recorder recorder;
+        private final Providers providers;
+        private final SnippetReflectionProvider snippetReflection;
+
+        RecordPhase(Recorder recorder, Providers providers, SnippetReflectionProvider snippetReflection) {
+            this.recorder = recorder;
+            this.providers = providers;
+            this.snippetReflection = snippetReflection;
+        }
+
+        @Override
+        protected void run(StructuredGraph graph, PhaseContext context) {
+            recorder.record(graph, providers, snippetReflection);
+        }
+    }
+
+    /**
+     * Writes graphs to a corpus file. The file is opened on the first graph and kept open. Only the
+     * first graph of a method and entry BCI is considered, and at most {@link #limit} of them.
+     * Graphs are encoded outside of the lock of the recorder.
+     */
+    private static final class Recorder {
+        private final String file;
+        private final String phaseName;
+        private final int limit;
+        private final Architecture architecture;
+
+        /**
+         * The methods and entry BCIs that were already recorded or could not be recorded. Its size
+         * is bounded by {@link #limit}.
+         */
+        private final EconomicSet<String> recorded = EconomicSet.create();
+        private DataOutputStream out;
+        private volatile boolean disabled;
+
+        Recorder(String file, String phaseName, int limit, Architecture architecture) {
+            this.file = file;
+            this.phaseName = phaseName;
+            this.limit = limit;
+            this.architecture = architecture;
+            if (phaseName == null) {
+                disable("RecordGraphCorpusPhase must name the phase before which graphs are recorded");
+            }
+        }
+
+        boolean isDisabled() {
+            return disabled;
+        }
+
+        synchronized void disable(String format, Object... args) {
+            if (!disabled) {
+                disabled = true;
+                TTY.printf("Not recording graph corpus %s: %s%n", file, String.format(format, args));
+                close();
+            }
+        }
+
+        void record(StructuredGraph graph, Providers providers, SnippetReflectionProvider snippetReflection) {
+            if (disabled || graph.method() == null) {
+                return;
+            }
+            String key = graph.method().format("%H.%n(%P)") + "@" + graph.getEntryBCI();
+            synchronized (this) {
+                if (recorded.size() >= limit || !recorded.add(key)) {
+                    return;
+                }
+            }
+            byte[] record;
+            try {
+                record = encode(graph, providers, snippetReflection);
+            } catch (UnsupportedGraphException e) {
+                graph.getDebug().log("Not recording %s in graph corpus: %s", graph, e.getMessage());
+                return;
+            }
+            synchronized (this) {
+                if (disabled) {
+                    return;
+                }
+                try {
+                    if (out == null) {
+                        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(file))));
+                        out.writeInt(MAGIC);
+                        out.writeInt(VERSION);
+                        GraphCorpusWriter.writeString(out, architecture.getName());
+                        GraphCorpusWriter.writeString(out, phaseName);
+                    }
+                    out.writeInt(record.length);
+                    out.write(record);
+                    // A record is a whole graph, so flushing per record keeps the file complete
+                    // without a shutdown hook.
+                    out.flush();
+                } catch (IOException e) {
+                    disable("%s", e);
+                    return;
+                }
+                if (recorded.size() >= limit) {
+                    close();
+                }
+            }
+        }
+
+        private void close() {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    TTY.printf("Error closing graph corpus %s: %s%n", file, e);
+                }
+                out = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.core;
+
+import static org.graalvm.compiler.core.GraphCorpusWriter.readString;
+import static org.graalvm.compiler.core.UnsafeAccess.UNSAFE;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+
+import org.graalvm.compiler.bytecode.BytecodeProvider;
+import org.graalvm.compiler.bytecode.ResolvedJavaMethodBytecode;
+import org.graalvm.compiler.bytecode.ResolvedJavaMethodBytecodeProvider;
+import org.graalvm.compiler.core.GraphCorpus.Replay;
+import org.graalvm.compiler.core.GraphCorpus.UnsupportedGraphException;
+import org.graalvm.compiler.graph.NodeClass;
+import org.graalvm.compiler.nodes.EncodedGraph;
+import org.graalvm.compiler.nodes.GraphDecoder;
+import org.graalvm.compiler.nodes.NamedLocationIdentity;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.word.LocationIdentity;
+
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.ResolvedJavaField;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+
+/**
+ * Rebuilds a graph from a record written by {@link GraphCorpusWriter}.
+ */
+final class GraphCorpusReader {
+
+    private final DataInputStream in;
+    private final Replay replay;
+
+    GraphCorpusReader(DataInputStream in, Replay replay) {
+        this.in = in;
+        this.replay = replay;
+    }
+
+    StructuredGraph read() throws IOException, UnsupportedGraphException {
+        ResolvedJavaMethod method = (ResolvedJavaMethod) readObject();
+        int entryBCI = in.readInt();
+        int flags = in.readInt();
+        ResolvedJavaMethod[] inlined = new ResolvedJavaMethod[in.readInt()];
+        for (int i = 0; i < inlined.length; i++) {
+            inlined[i] = (ResolvedJavaMethod) readObject();
+        }
+        NodeClass<?>[] nodeClasses = new NodeClass<?>[in.readInt()];
+        for (int i = 0; i < nodeClasses.length; i++) {
+            nodeClasses[i] = NodeClass.get(loadClass(readString(in)));
+        }
+        Object[] objects = new Object[in.readInt()];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = readObject();
+        }
+        int startOffset = in.readInt();
+        byte[] encoding = new byte[in.readInt()];
+        in.readFully(encoding);
+
+        boolean unsafeAccess = (flags & GraphCorpusWriter.UNSAFE_ACCESS) != 0;
+        StructuredGraph graph = new StructuredGraph.Builder(replay.options, replay.debug, AllowAssumptions.ifTrue((flags & GraphCorpusWriter.ALLOW_ASSUMPTIONS) != 0)).method(method).entryBCI(
+                        entryBCI).useProfilingInfo((flags & GraphCorpusWriter.USE_PROFILING_INFO) != 0).build();
+        EncodedGraph encodedGraph = new EncodedGraph(encoding, startOffset, objects, nodeClasses, null, null, null, unsafeAccess, false);
+        new GraphDecoder(replay.getArchitecture(), graph).decode(encodedGraph);
+        for (ResolvedJavaMethod m : inlined) {
+            graph.recordMethod(m);
+        }
+        if (unsafeAccess) {
+            graph.markUnsafeAccess();
+        }
+        if ((flags & GraphCorpusWriter.AFTER_FLOATING_READ) != 0) {
+            graph.setAfterFloatingReadPhase(true);
+        }
+        if ((flags & GraphCorpusWriter.AFTER_FIXED_READ) != 0) {
+            graph.setAfterFixReadPhase(true);
+        }
+        if ((flags & GraphCorpusWriter.NO_VALUE_PROXIES) != 0) {
+            graph.setHasValueProxies(false);
+        }
+        if ((flags & GraphCorpusWriter.AFTER_EXPAND_LOGIC) != 0) {
+            graph.setAfterExpandLogic();
+        }
+        return graph;
+    }
+
+    private Object readObject() throws IOException, UnsupportedGraphException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case GraphCorpusWriter.NULL:
+                return null;
+            case GraphCorpusWriter.STRING:
+                return readString(in);
+            case GraphCorpusWriter.BOOLEAN:
+                return in.readBoolean();
+            case GraphCorpusWriter.BYTE:
+                return in.readByte();
+            case GraphCorpusWriter.SHORT:
+                return in.readShort();
+            case GraphCorpusWriter.CHAR:
+                return in.readChar();
+            case GraphCorpusWriter.INT:
+                return in.readInt();
+            case GraphCorpusWriter.LONG:
+                return in.readLong();
+            case GraphCorpusWriter.FLOAT:
+                return in.readFloat();
+            case GraphCorpusWriter.DOUBLE:
+                return in.readDouble();
+            case GraphCorpusWriter.ENUM:
+                return readEnum();
+            case GraphCorpusWriter.CLASS:
+                return loadClass(readString(in));
+            case GraphCorpusWriter.TYPE:
+                return readType();
+            case GraphCorpusWriter.METHOD:
+                return readMethod();
+            case GraphCorpusWriter.FIELD:
+                return readField();
+            case GraphCorpusWriter.PRIMITIVE_CONSTANT:
+                return JavaConstant.forBoxedPrimitive(readObject());
+            case GraphCorpusWriter.NULL_CONSTANT:
+                return JavaConstant.NULL_POINTER;
+            case GraphCorpusWriter.STRING_CONSTANT:
+                return replay.providers.getConstantReflection().forString(readString(in));
+            case GraphCorpusWriter.CLASS_CONSTANT:
+                return replay.providers.getConstantReflection().asJavaClass((ResolvedJavaType) readObject());
+            case GraphCorpusWriter.ENUM_CONSTANT:
+                return replay.snippetReflection.forObject(readEnum());
+            case GraphCorpusWriter.ANY_LOCATION:
+                return LocationIdentity.any();
+            case GraphCorpusWriter.INIT_LOCATION:
+                return LocationIdentity.init();
+            case GraphCorpusWriter.NAMED_LOCATION: {
+                String name = readString(in);
+                NamedLocationIdentity location = NamedLocationIdentity.lookup(name);
+                if (location == null) {
+                    throw new UnsupportedGraphException("location identity %s does not exist in this VM", name);
+                }
+                return location;
+            }
+            case GraphCorpusWriter.BYTECODE: {
+                ResolvedJavaMethod method = (ResolvedJavaMethod) readObject();
+                BytecodeProvider origin = in.readBoolean() ? replay.providers.getReplacements().getDefaultReplacementBytecodeProvider() : ResolvedJavaMethodBytecodeProvider.INSTANCE;
+                return new ResolvedJavaMethodBytecode(method, origin);
+            }
+            case GraphCorpusWriter.ARRAY: {
+                Class<?> componentType = loadClass(readString(in));
+                int length = in.readInt();
+                Object array = Array.newInstance(componentType, length);
+                for (int i = 0; i < length; i++) {
+                    Array.set(array, i, readObject());
+                }
+                return array;
+            }
+            case GraphCorpusWriter.SINGLETON: {
+                Field field = getDeclaredField(loadClass(readString(in)), readString(in));
+                UNSAFE.ensureClassInitialized(field.getDeclaringClass());
+                return UNSAFE.getObject(UNSAFE.staticFieldBase(field), UNSAFE.staticFieldOffset(field));
+            }
+            case GraphCorpusWriter.VALUE:
+                return readValue();
+            default:
+                throw new IOException("unknown tag " + tag);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Enum<?> readEnum() throws IOException, UnsupportedGraphException {
+        Class enumClass = loadClass(readString(in));
+        String name = readString(in);
+        try {
+            return Enum.valueOf(enumClass, name);
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedGraphException("%s has no constant %s", enumClass.getName(), name);
+        }
+    }
+
+    private ResolvedJavaType readType() throws IOException, UnsupportedGraphException {
+        return replay.providers.getMetaAccess().lookupJavaType(loadClass(readString(in)));
+    }
+
+    private ResolvedJavaMethod readMethod() throws IOException, UnsupportedGraphException {
+        ResolvedJavaType holder = readType();
+        String name = readString(in);
+        String descriptor = readString(in);
+        if (name.equals("<clinit>")) {
+            ResolvedJavaMethod clinit = holder.getClassInitializer();
+            if (clinit != null) {
+                return clinit;
+            }
+        } else {
+            ResolvedJavaMethod[] candidates = name.equals("<init>") ? holder.getDeclaredConstructors() : holder.getDeclaredMethods();
+            for (ResolvedJavaMethod method : candidates) {
+                if (method.getName().equals(name) && method.getSignature().toMethodDescriptor().equals(descriptor)) {
+                    return method;
+                }
+            }
+        }
+        throw new UnsupportedGraphException("%s does not declare %s%s", holder.toJavaName(), name, descriptor);
+    }
+
+    private ResolvedJavaField readField() throws IOException, UnsupportedGraphException {
+        ResolvedJavaType holder = readType();
+        String name = readString(in);
+        boolean isStatic = in.readBoolean();
+        for (ResolvedJavaField field : isStatic ? holder.getStaticFields() : holder.getInstanceFields(false)) {
+            if (field.getName().equals(name)) {
+                return field;
+            }
+        }
+        throw new UnsupportedGraphException("%s does not declare field %s", holder.toJavaName(), name);
+    }
+
+    private Object readValue() throws IOException, UnsupportedGraphException {
+        Class<?> c = loadClass(readString(in));
+        Object value;
+        try {
+            value = UNSAFE.allocateInstance(c);
+        } catch (InstantiationException e) {
+            throw new UnsupportedGraphException("cannot instantiate %s: %s", c.getName(), e);
+        }
+        int fields = in.readInt();
+        for (int i = 0; i < fields; i++) {
+            Field field = getDeclaredField(loadClass(readString(in)), readString(in));
+            setFieldValue(value, field, readObject());
+        }
+        return value;
+    }
+
+    private static void setFieldValue(Object o, Field field, Object value) {
+        long offset = UNSAFE.objectFieldOffset(field);
+        Class<?> type = field.getType();
+        if (!type.isPrimitive()) {
+            UNSAFE.putObject(o, offset, value);
+        } else if (type == boolean.class) {
+            UNSAFE.putBoolean(o, offset, (Boolean) value);
+        } else if (type == byte.class) {
+            UNSAFE.putByte(o, offset, (Byte) value);
+        } else if (type == short.class) {
+            UNSAFE.putShort(o, offset, (Short) value);
+        } else if (type == char.class) {
+            UNSAFE.putChar(o, offset, (Character) value);
+        } else if (type == int.class) {
+            UNSAFE.putInt(o, offset, (Integer) value);
+        } else if (type == long.class) {
+            UNSAFE.putLong(o, offset, (Long) value);
+        } else if (type == float.class) {
+            UNSAFE.putFloat(o, offset, (Float) value);
+        } else {
+            assert type == double.class;
+            UNSAFE.putDouble(o, offset, (Double) value);
+        }
+    }
+
+    private static Field getDeclaredField(Class<?> c, String name) throws UnsupportedGraphException {
+        try {
+            return c.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            throw new UnsupportedGraphException("%s does not declare field %s", c.getName(), name);
+        }
+    }
+
+    /**
+     * Loads a class by its {@linkplain Class#getName() name} with the loader of the replay or the
+     * loader of the compiler.
+     */
+    private Class<?> loadClass(String name) throws UnsupportedGraphException {
+        for (JavaKind kind : JavaKind.values()) {
+            Class<?> c = kind.toJavaClass();
+            if (c != null && c.isPrimitive() && c.getName().equals(name)) {
+                return c;
+            }
+        }
+        try {
+            return Class.forName(name, false, replay.loader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            try {
+                return Class.forName(name, false, GraphCorpusReader.class.getClassLoader());
+            } catch (ClassNotFoundException | LinkageError e2) {
+                throw new UnsupportedGraphException("cannot load %s: %s", name, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,458 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.core;
+
+import static org.graalvm.compiler.core.UnsafeAccess.UNSAFE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.graalvm.compiler.api.replacements.SnippetReflectionProvider;
+import org.graalvm.compiler.bytecode.BytecodeProvider;
+import org.graalvm.compiler.bytecode.ResolvedJavaMethodBytecode;
+import org.graalvm.compiler.bytecode.ResolvedJavaMethodBytecodeProvider;
+import org.graalvm.compiler.core.GraphCorpus.UnsupportedGraphException;
+import org.graalvm.compiler.debug.GraalError;
+import org.graalvm.compiler.graph.NodeClass;
+import org.graalvm.compiler.nodes.EncodedGraph;
+import org.graalvm.compiler.nodes.GraphEncoder;
+import org.graalvm.compiler.nodes.NamedLocationIdentity;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.phases.util.Providers;
+import org.graalvm.word.LocationIdentity;
+
+import jdk.vm.ci.code.BytecodePosition;
+import jdk.vm.ci.meta.Constant;
+import jdk.vm.ci.meta.ConstantReflectionProvider;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.ResolvedJavaField;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+
+/**
+ * Writes a graph as a {@linkplain GraphCorpus graph corpus} record:
+ *
+ * <pre>
+ * record      := method:object entryBCI:int flags:int inlined:int method:object[inlined]
+ *                nodeClasses:int className:string[nodeClasses] objects:int object[objects]
+ *                startOffset:int length:int byte[length]
+ * </pre>
+ *
+ * The trailing bytes and the start offset are those of the {@link EncodedGraph}, and the node
+ * classes and objects are its {@linkplain EncodedGraph#getNodeClasses() node classes} and
+ * {@linkplain EncodedGraph#getObjects() objects}. Each object starts with one of the tags defined
+ * in this class.
+ */
+final class GraphCorpusWriter {
+
+    static final int ALLOW_ASSUMPTIONS = 1;
+    static final int USE_PROFILING_INFO = 1 << 1;
+    static final int AFTER_FLOATING_READ = 1 << 2;
+    static final int AFTER_FIXED_READ = 1 << 3;
+    static final int NO_VALUE_PROXIES = 1 << 4;
+    static final int AFTER_EXPAND_LOGIC = 1 << 5;
+    static final int UNSAFE_ACCESS = 1 << 6;
+
+    static final byte NULL = 0;
+    static final byte STRING = 1;
+    static final byte BOOLEAN = 2;
+    static final byte BYTE = 3;
+    static final byte SHORT = 4;
+    static final byte CHAR = 5;
+    static final byte INT = 6;
+    static final byte LONG = 7;
+    static final byte FLOAT = 8;
+    static final byte DOUBLE = 9;
+    /** The declaring class and the name of an enum constant. */
+    static final byte ENUM = 10;
+    static final byte CLASS = 11;
+    /** The {@linkplain ResolvedJavaType#toClassName() class name} of a type. */
+    static final byte TYPE = 12;
+    /** The declaring type, the name and the descriptor of a method. */
+    static final byte METHOD = 13;
+    /** The declaring type, the name and whether it is static of a field. */
+    static final byte FIELD = 14;
+    /** The boxed value of a primitive constant. */
+    static final byte PRIMITIVE_CONSTANT = 15;
+    static final byte NULL_CONSTANT = 16;
+    static final byte STRING_CONSTANT = 17;
+    /** The type of a {@link Class} constant. */
+    static final byte CLASS_CONSTANT = 18;
+    /** The declaring class and the name of an enum constant in the heap. */
+    static final byte ENUM_CONSTANT = 19;
+    static final byte ANY_LOCATION = 20;
+    static final byte INIT_LOCATION = 21;
+    /** The {@linkplain NamedLocationIdentity#getName() name} of a named location identity. */
+    static final byte NAMED_LOCATION = 22;
+    /**
+     * The method of a {@link ResolvedJavaMethodBytecode} and whether it comes from the default
+     * replacement bytecode provider.
+     */
+    static final byte BYTECODE = 23;
+    /** The component class, the length and the elements of an array. */
+    static final byte ARRAY = 24;
+    /** The declaring class and the name of the static final field holding an object. */
+    static final byte SINGLETON = 25;
+    /**
+     * The class of an immutable data object and the declaring class, the name and the value of
+     * each of its instance fields.
+     */
+    static final byte VALUE = 26;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private final Providers providers;
+    private final SnippetReflectionProvider snippetReflection;
+
+    GraphCorpusWriter(Providers providers, SnippetReflectionProvider snippetReflection) {
+        this.providers = providers;
+        this.snippetReflection = snippetReflection;
+    }
+
+    byte[] write(StructuredGraph graph) throws UnsupportedGraphException {
+        if (graph.method() == null) {
+            throw new UnsupportedGraphException("%s has no method", graph);
+        }
+        if (graph.getGuardsStage().areFrameStatesAtDeopts()) {
+            // The graph encoding does not support the frame states of deoptimization points.
+            throw new UnsupportedGraphException("%s already has its frame states assigned to deoptimization points", graph);
+        }
+        EncodedGraph encoded = GraphEncoder.encodeSingleGraph(graph, providers.getCodeCache().getTarget().arch);
+        try {
+            writeObject(graph.method(), null);
+            out.writeInt(graph.getEntryBCI());
+            out.writeInt(flags(graph));
+            List<ResolvedJavaMethod> inlined = graph.getMethods();
+            out.writeInt(inlined.size());
+            for (ResolvedJavaMethod method : inlined) {
+                writeObject(method, null);
+            }
+            NodeClass<?>[] nodeClasses = encoded.getNodeClasses();
+            out.writeInt(nodeClasses.length);
+            for (NodeClass<?> nodeClass : nodeClasses) {
+                writeString(out, nodeClass.getJavaClass().getName());
+            }
+            Object[] objects = encoded.getObjects();
+            out.writeInt(objects.length);
+            for (Object object : objects) {
+                writeObject(object, null);
+            }
+            out.writeInt(encoded.getStartOffset());
+            byte[] encoding = encoded.getEncoding();
+            out.writeInt(encoding.length);
+            out.write(encoding);
+            out.flush();
+        } catch (IOException e) {
+            throw new GraalError(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int flags(StructuredGraph graph) {
+        int flags = 0;
+        if (graph.getAssumptions() != null) {
+            flags |= ALLOW_ASSUMPTIONS;
+        }
+        if (graph.useProfilingInfo()) {
+            flags |= USE_PROFILING_INFO;
+        }
+        if (graph.isAfterFloatingReadPhase()) {
+            flags |= AFTER_FLOATING_READ;
+        }
+        if (graph.isAfterFixedReadPhase()) {
+            flags |= AFTER_FIXED_READ;
+        }
+        if (!graph.hasValueProxies()) {
+            flags |= NO_VALUE_PROXIES;
+        }
+        if (graph.isAfterExpandLogic()) {
+            flags |= AFTER_EXPAND_LOGIC;
+        }
+        if (graph.hasUnsafeAccess()) {
+            flags |= UNSAFE_ACCESS;
+        }
+        return flags;
+    }
+
+    /**
+     * Writes {@code o}, which is referenced from a field of an instance of {@code holder} or from
+     * the graph itself if {@code holder == null}.
+     */
+    private void writeObject(Object o, Class<?> holder) throws IOException, UnsupportedGraphException {
+        if (o == null || o instanceof BytecodePosition) {
+            // Source positions are not recorded.
+            out.writeByte(NULL);
+        } else if (o instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) o);
+        } else if (o instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) o);
+        } else if (o instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) o);
+        } else if (o instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) o);
+        } else if (o instanceof Character) {
+            out.writeByte(CHAR);
+            out.writeChar((Character) o);
+        } else if (o instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) o);
+        } else if (o instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) o);
+        } else if (o instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) o);
+        } else if (o instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) o);
+        } else if (o instanceof Enum) {
+            out.writeByte(ENUM);
+            writeEnum((Enum<?>) o);
+        } else if (o instanceof Class) {
+            out.writeByte(CLASS);
+            writeString(out, ((Class<?>) o).getName());
+        } else if (o instanceof ResolvedJavaType) {
+            out.writeByte(TYPE);
+            writeString(out, ((ResolvedJavaType) o).toClassName());
+        } else if (o instanceof ResolvedJavaMethod) {
+            ResolvedJavaMethod method = (ResolvedJavaMethod) o;
+            out.writeByte(METHOD);
+            writeString(out, method.getDeclaringClass().toClassName());
+            writeString(out, method.getName());
+            writeString(out, method.getSignature().toMethodDescriptor());
+        } else if (o instanceof ResolvedJavaField) {
+            ResolvedJavaField field = (ResolvedJavaField) o;
+            out.writeByte(FIELD);
+            writeString(out, field.getDeclaringClass().toClassName());
+            writeString(out, field.getName());
+            out.writeBoolean(field.isStatic());
+        } else if (o instanceof Constant) {
+            writeConstant((Constant) o);
+        } else if (o == LocationIdentity.any()) {
+            out.writeByte(ANY_LOCATION);
+        } else if (o == LocationIdentity.init()) {
+            out.writeByte(INIT_LOCATION);
+        } else if (o instanceof NamedLocationIdentity) {
+            out.writeByte(NAMED_LOCATION);
+            writeString(out, ((NamedLocationIdentity) o).getName());
+        } else if (o instanceof ResolvedJavaMethodBytecode) {
+            writeBytecode((ResolvedJavaMethodBytecode) o);
+        } else if (o.getClass().isArray()) {
+            out.writeByte(ARRAY);
+            writeString(out, o.getClass().getComponentType().getName());
+            int length = Array.getLength(o);
+            out.writeInt(length);
+            for (int i = 0; i < length; i++) {
+                writeObject(Array.get(o, i), o.getClass());
+            }
+        } else {
+            Field singleton = findSingleton(o, holder);
+            if (singleton != null) {
+                out.writeByte(SINGLETON);
+                writeString(out, singleton.getDeclaringClass().getName());
+                writeString(out, singleton.getName());
+            } else if (isValueClass(o.getClass())) {
+                writeValue(o);
+            } else {
+                throw new UnsupportedGraphException("cannot record %s of %s", o, o.getClass());
+            }
+        }
+    }
+
+    private void writeEnum(Enum<?> e) throws IOException {
+        writeString(out, e.getDeclaringClass().getName());
+        writeString(out, e.name());
+    }
+
+    private void writeConstant(Constant constant) throws IOException, UnsupportedGraphException {
+        if (constant instanceof JavaConstant) {
+            JavaConstant c = (JavaConstant) constant;
+            if (c.getJavaKind().isPrimitive()) {
+                out.writeByte(PRIMITIVE_CONSTANT);
+                writeObject(c.asBoxedPrimitive(), null);
+                return;
+            }
+            if (c.getJavaKind() == JavaKind.Object) {
+                if (JavaConstant.NULL_POINTER.equals(c)) {
+                    out.writeByte(NULL_CONSTANT);
+                    return;
+                }
+                ConstantReflectionProvider constantReflection = providers.getConstantReflection();
+                ResolvedJavaType type = constantReflection.asJavaType(c);
+                if (type != null && c.equals(constantReflection.asJavaClass(type))) {
+                    out.writeByte(CLASS_CONSTANT);
+                    writeObject(type, null);
+                    return;
+                }
+                Object value = c.isNull() ? null : snippetReflection.asObject(Object.class, c);
+                if (value instanceof String && c.equals(constantReflection.forString((String) value))) {
+                    out.writeByte(STRING_CONSTANT);
+                    writeString(out, (String) value);
+                    return;
+                }
+                if (value instanceof Enum && c.equals(snippetReflection.forObject(value))) {
+                    out.writeByte(ENUM_CONSTANT);
+                    writeEnum((Enum<?>) value);
+                    return;
+                }
+            }
+        }
+        throw new UnsupportedGraphException("cannot record constant %s", constant);
+    }
+
+    private void writeBytecode(ResolvedJavaMethodBytecode code) throws IOException, UnsupportedGraphException {
+        BytecodeProvider origin = code.getOrigin();
+        boolean replacement;
+        if (origin == ResolvedJavaMethodBytecodeProvider.INSTANCE) {
+            replacement = false;
+        } else if (providers.getReplacements() != null && origin == providers.getReplacements().getDefaultReplacementBytecodeProvider()) {
+            replacement = true;
+        } else {
+            throw new UnsupportedGraphException("cannot record bytecode from %s", origin);
+        }
+        out.writeByte(BYTECODE);
+        writeObject(code.getMethod(), null);
+        out.writeBoolean(replacement);
+    }
+
+    private void writeValue(Object o) throws IOException, UnsupportedGraphException {
+        List<Field> fields = instanceFields(o.getClass());
+        out.writeByte(VALUE);
+        writeString(out, o.getClass().getName());
+        out.writeInt(fields.size());
+        for (Field field : fields) {
+            writeString(out, field.getDeclaringClass().getName());
+            writeString(out, field.getName());
+            writeObject(getFieldValue(o, field), o.getClass());
+        }
+    }
+
+    /**
+     * Determines if instances of {@code c} are immutable data objects, using the same assumption
+     * as {@link GraphEncoder}: classes that implement {@link Object#equals} are immutable.
+     */
+    private static boolean isValueClass(Class<?> c) {
+        try {
+            return c.getMethod("equals", Object.class).getDeclaringClass() != Object.class;
+        } catch (NoSuchMethodException e) {
+            throw new GraalError(e);
+        }
+    }
+
+    static List<Field> instanceFields(Class<?> c) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> k = c; k != Object.class; k = k.getSuperclass()) {
+            for (Field field : k.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Finds a static final field holding {@code o} in the class hierarchy or the enclosing classes
+     * of {@code o}'s class or in the class hierarchy of {@code holder}.
+     */
+    private static Field findSingleton(Object o, Class<?> holder) {
+        for (Class<?> c = o.getClass(); c != null; c = c.getSuperclass()) {
+            for (Class<?> k = c; k != null; k = k.getEnclosingClass()) {
+                Field field = findStaticField(k, o);
+                if (field != null) {
+                    return field;
+                }
+            }
+        }
+        for (Class<?> c = holder; c != null; c = c.getSuperclass()) {
+            Field field = findStaticField(c, o);
+            if (field != null) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private static Field findStaticField(Class<?> c, Object o) {
+        for (Field field : c.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers) && field.getType().isInstance(o) &&
+                            UNSAFE.getObject(UNSAFE.staticFieldBase(field), UNSAFE.staticFieldOffset(field)) == o) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private static Object getFieldValue(Object o, Field field) {
+        long offset = UNSAFE.objectFieldOffset(field);
+        Class<?> type = field.getType();
+        if (!type.isPrimitive()) {
+            return UNSAFE.getObject(o, offset);
+        } else if (type == boolean.class) {
+            return UNSAFE.getBoolean(o, offset);
+        } else if (type == byte.class) {
+            return UNSAFE.getByte(o, offset);
+        } else if (type == short.class) {
+            return UNSAFE.getShort(o, offset);
+        } else if (type == char.class) {
+            return UNSAFE.getChar(o, offset);
+        } else if (type == int.class) {
+            return UNSAFE.getInt(o, offset);
+        } else if (type == long.class) {
+            return UNSAFE.getLong(o, offset);
+        } else if (type == float.class) {
+            return UNSAFE.getFloat(o, offset);
+        } else {
+            assert type == double.class;
+            return UNSAFE.getDouble(o, offset);
+        }
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] utf8 = new byte[in.readInt()];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -29,22 +29,30 @@ import static org.graalvm.compiler.core.common.SpeculativeExecutionAttacksMitiga
 import static org.graalvm.compiler.core.common.SpeculativeExecutionAttacksMitigations.Options.MitigateSpeculativeExecutionAttacks;
 import static org.graalvm.compiler.core.common.GraalOptions.ConditionalElimination;
 import static org.graalvm.compiler.core.common.GraalOptions.ImmutableCode;
+import static org.graalvm.compiler.core.common.GraalOptions.LoopPredication;
+import static org.graalvm.compiler.core.common.GraalOptions.OptDeadStoreElimination;
 import static org.graalvm.compiler.core.common.GraalOptions.OptDeoptimizationGrouping;
 import static org.graalvm.compiler.core.common.GraalOptions.OptFloatingReads;
+import static org.graalvm.compiler.core.common.GraalOptions.OptLoopLockCoarsening;
 import static org.graalvm.compiler.core.common.GraalOptions.OptLoopTransform;
 import static org.graalvm.compiler.core.common.GraalOptions.PartialUnroll;
 import static org.graalvm.compiler.core.common.GraalOptions.ReassociateInvariants;
+import static org.graalvm.compiler.core.common.GraalOptions.SpeculativeGuardMovement;
 import static org.graalvm.compiler.core.common.GraalOptions.VerifyHeapAtReturn;
 
 import org.graalvm.compiler.loop.DefaultLoopPolicies;
 import org.graalvm.compiler.loop.LoopPolicies;
+import org.graalvm.compiler.loop.phases.LoopLockCoarseningPhase;
 import org.graalvm.compiler.loop.phases.LoopPartialUnrollPhase;
+import org.graalvm.compiler.loop.phases.LoopPredicationPhase;
 import org.graalvm.compiler.loop.phases.LoopSafepointEliminationPhase;
 import org.graalvm.compiler.loop.phases.ReassociateInvariantPhase;
+import org.graalvm.compiler.loop.phases.SpeculativeGuardMovementPhase;
 import org.graalvm.compiler.nodes.spi.LoweringTool;
 import org.graalvm.compiler.options.OptionValues;
 import org.graalvm.compiler.phases.PhaseSuite;
 import org.graalvm.compiler.phases.common.CanonicalizerPhase;
+import org.graalvm.compiler.phases.common.DeadStoreEliminationPhase;
 import org.graalvm.compiler.phases.common.DeoptimizationGroupingPhase;
 import org.graalvm.compiler.phases.common.FloatingReadPhase;
 import org.graalvm.compiler.phases.common.FrameStateAssignmentPhase;
@@ -76,6 +84,14 @@ public class MidTier extends PhaseSuite<MidTierContext> {
             appendPhase(new IterativeConditionalEliminationPhase(canonicalizer, true));
         }
 
+        if (OptLoopTransform.getValue(options) && LoopPredication.getValue(options)) {
+            appendPhase(new LoopPredicationPhase());
+        }
+
+        if (OptLoopTransform.getValue(options) && SpeculativeGuardMovement.getValue(options)) {
+            appendPhase(new SpeculativeGuardMovementPhase());
+        }
+
         appendPhase(new LoopSafepointEliminationPhase());
 
         appendPhase(new LoopSafepointInsertionPhase());
@@ -92,8 +108,16 @@ public class MidTier extends PhaseSuite<MidTierContext> {
 
         appendPhase(new LoweringPhase(canonicalizer, LoweringTool.StandardLoweringStage.MID_TIER));
 
+        if (OptLoopTransform.getValue(options) && OptLoopLockCoarsening.getValue(options)) {
+            appendPhase(new LoopLockCoarseningPhase());
+        }
+
         appendPhase(new FrameStateAssignmentPhase());
 
+        if (OptDeadStoreElimination.getValue(options)) {
+            appendPhase(new DeadStoreEliminationPhase());
+        }
+
         LoopPolicies loopPolicies = createLoopPolicies();
         if (OptLoopTransform.getValue(options)) {
             if (PartialUnroll.getValue(options)) {
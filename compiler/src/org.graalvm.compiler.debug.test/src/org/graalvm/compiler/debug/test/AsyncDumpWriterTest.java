@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.debug.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import org.graalvm.compiler.debug.AsyncDumpWriter;
+import org.graalvm.compiler.debug.DumpFileChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncDumpWriterTest {
+
+    private Path directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("AsyncDumpWriterTest");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private static byte[] bytes(int length, int seed) {
+        byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = (byte) (seed + i);
+        }
+        return result;
+    }
+
+    private static void write(WritableByteChannel channel, byte[] data) throws IOException {
+        assertEquals(data.length, channel.write(ByteBuffer.wrap(data)));
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    private static byte[] readCompressed(Path file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            byte[] buffer = new byte[256];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Once a buffer of a dump does not fit in the queue, the rest of that dump is dropped even if
+     * later buffers would fit. Other dumps are not affected.
+     */
+    @Test
+    public void testQueueDropPolicy() throws IOException {
+        // The writer thread is only started after the writes so that nothing leaves the queue.
+        AsyncDumpWriter writer = new AsyncDumpWriter(100, 0);
+        Path first = directory.resolve("first.bgv");
+        Path second = directory.resolve("second.bgv");
+        WritableByteChannel firstChannel = writer.open(first, false, 0);
+        WritableByteChannel secondChannel = writer.open(second, false, 0);
+
+        byte[] queued = bytes(60, 1);
+        write(firstChannel, queued);
+        write(firstChannel, bytes(60, 2));
+        byte[] otherDump = bytes(30, 3);
+        write(secondChannel, otherDump);
+        write(firstChannel, bytes(5, 4));
+        firstChannel.close();
+        secondChannel.close();
+        assertFalse(firstChannel.isOpen());
+
+        writer.start();
+        writer.shutdown();
+        assertEquals(65, writer.getDroppedBytes());
+        assertArrayEquals(queued, Files.readAllBytes(first));
+        assertArrayEquals(otherDump, Files.readAllBytes(second));
+    }
+
+    @Test(expected = IOException.class)
+    public void testWriteAfterClose() throws IOException {
+        AsyncDumpWriter writer = new AsyncDumpWriter(100, 0);
+        WritableByteChannel channel = writer.open(directory.resolve("closed.bgv"), false, 0);
+        channel.close();
+        write(channel, bytes(1, 0));
+    }
+
+    /**
+     * A file reaching the size limit keeps the buffers that were written completely before it.
+     */
+    @Test
+    public void testMaxFileSize() throws IOException {
+        byte[] kept = bytes(60, 1);
+        Path file = directory.resolve("truncated.bgv");
+        try (DumpFileChannel channel = new DumpFileChannel(file, false, 100)) {
+            write(channel, kept);
+            write(channel, bytes(60, 2));
+            // buffers that would still fit are dropped as well
+            write(channel, bytes(10, 3));
+        }
+        assertArrayEquals(kept, Files.readAllBytes(file));
+    }
+
+    /**
+     * The size limit applies to the uncompressed data.
+     */
+    @Test
+    public void testMaxFileSizeCompressed() throws IOException {
+        byte[] kept = concat(bytes(50, 1), bytes(50, 2));
+        Path file = directory.resolve("truncated.bgv.gz");
+        try (DumpFileChannel channel = new DumpFileChannel(file, true, 100)) {
+            write(channel, bytes(50, 1));
+            write(channel, bytes(50, 2));
+            write(channel, bytes(1, 3));
+        }
+        assertArrayEquals(kept, readCompressed(file));
+    }
+
+    @Test
+    public void testMaxFileSizeAsync() throws IOException {
+        AsyncDumpWriter writer = new AsyncDumpWriter(1000, 0);
+        writer.start();
+        byte[] kept = bytes(60, 1);
+        Path file = directory.resolve("truncated.bgv");
+        WritableByteChannel channel = writer.open(file, false, 100);
+        write(channel, kept);
+        write(channel, bytes(60, 2));
+        channel.close();
+        writer.shutdown();
+        assertArrayEquals(kept, Files.readAllBytes(file));
+    }
+
+    /**
+     * The oldest files are deleted once the total size exceeds the limit, but the newest file is
+     * always kept.
+     */
+    @Test
+    public void testMaxTotalSize() throws IOException {
+        AsyncDumpWriter writer = new AsyncDumpWriter(1000, 100);
+        writer.start();
+        Path[] files = new Path[4];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = directory.resolve("dump" + i + ".bgv");
+            WritableByteChannel channel = writer.open(files[i], false, 0);
+            // the last file alone exceeds the limit
+            write(channel, bytes(i == files.length - 1 ? 150 : 40, i));
+            channel.close();
+        }
+        writer.shutdown();
+        // 40 + 40 fit, the third file evicts the first and the last one evicts all others
+        assertFalse(Files.exists(files[0]));
+        assertFalse(Files.exists(files[1]));
+        assertFalse(Files.exists(files[2]));
+        assertTrue(Files.exists(files[3]));
+        assertEquals(150, Files.size(files[3]));
+    }
+
+    @Test
+    public void testMaxTotalSizeKeepsRecentFiles() throws IOException {
+        AsyncDumpWriter writer = new AsyncDumpWriter(1000, 100);
+        writer.start();
+        Path[] files = new Path[3];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = directory.resolve("dump" + i + ".bgv");
+            WritableByteChannel channel = writer.open(files[i], false, 0);
+            write(channel, bytes(40, i));
+            channel.close();
+        }
+        writer.shutdown();
+        assertFalse(Files.exists(files[0]));
+        assertTrue(Files.exists(files[1]));
+        assertTrue(Files.exists(files[2]));
+    }
+}
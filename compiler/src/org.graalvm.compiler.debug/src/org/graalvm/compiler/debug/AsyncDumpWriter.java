@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.debug;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.graalvm.collections.EconomicMap;
+import org.graalvm.compiler.options.OptionValues;
+
+/**
+ * Writes graph dump files on a background thread. Compiler threads hand over copies of the buffers
+ * written by the graph printer through a queue that is bounded by the number of bytes it holds.
+ * If the queue is full, the buffer and all later buffers of the same dump are dropped, since the
+ * dump format refers back to data written earlier in the same file. When the total size of the
+ * files written by this object exceeds {@link DebugOptions#PrintGraphMaxTotalSize}, the oldest
+ * files are deleted.
+ *
+ * The writers used for dumping are shared by all compilations that use the same
+ * {@link DebugOptions#PrintGraphAsyncQueueSize} and {@link DebugOptions#PrintGraphMaxTotalSize}.
+ * The total size limit only applies to the files written by one writer.
+ */
+public final class AsyncDumpWriter implements Runnable {
+
+    private static final long MB = 1024L * 1024L;
+
+    /**
+     * The shared writers keyed by their queue size and total size limit.
+     */
+    private static final EconomicMap<String, AsyncDumpWriter> instances = EconomicMap.create();
+
+    static synchronized AsyncDumpWriter getInstance(OptionValues options) {
+        long maxQueuedBytes = DebugOptions.PrintGraphAsyncQueueSize.getValue(options) * MB;
+        long maxTotalSize = DebugOptions.PrintGraphMaxTotalSize.getValue(options) * MB;
+        String key = maxQueuedBytes + ":" + maxTotalSize;
+        AsyncDumpWriter instance = instances.get(key);
+        if (instance == null) {
+            instance = new AsyncDumpWriter(maxQueuedBytes, maxTotalSize);
+            instance.start();
+            AsyncDumpWriter writer = instance;
+            try {
+                Runtime.getRuntime().addShutdownHook(new Thread(writer::shutdown, "Graal IGV dump writer shutdown"));
+            } catch (IllegalStateException | SecurityException e) {
+                // the dumps written when the VM exits may be incomplete
+            }
+            instances.put(key, instance);
+        }
+        return instance;
+    }
+
+    /**
+     * A request to the writer thread: a buffer to append to a dump, a request to close a dump or
+     * a request to stop the writer thread.
+     */
+    private static final class Request {
+        final DumpChannel channel;
+        final byte[] data;
+
+        Request(DumpChannel channel, byte[] data) {
+            this.channel = channel;
+            this.data = data;
+        }
+    }
+
+    private static final Request SHUTDOWN = new Request(null, null);
+
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final long maxQueuedBytes;
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicLong droppedBytes = new AtomicLong();
+
+    // The following fields are only accessed by the writer thread.
+    private final long maxTotalSize;
+    private final ArrayDeque<Path> writtenFiles = new ArrayDeque<>();
+    private final ArrayDeque<Long> writtenSizes = new ArrayDeque<>();
+    private long totalSize;
+    private final List<DumpChannel> openChannels = new ArrayList<>();
+
+    private Thread thread;
+
+    /**
+     * Creates a writer whose thread must be started with {@link #start()}.
+     *
+     * @param maxQueuedBytes the maximum number of bytes waiting to be written
+     * @param maxTotalSize the maximum total size of the files written by this object or 0 for no
+     *            limit
+     */
+    public AsyncDumpWriter(long maxQueuedBytes, long maxTotalSize) {
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.maxTotalSize = maxTotalSize;
+    }
+
+    /**
+     * Starts the writer thread.
+     */
+    public synchronized void start() {
+        assert thread == null : "writer thread already started";
+        thread = new Thread(this, "Graal IGV dump writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Gets the number of bytes dropped because the queue was full.
+     */
+    public long getDroppedBytes() {
+        return droppedBytes.get();
+    }
+
+    /**
+     * Creates a channel whose data is written to {@code path} by the writer thread.
+     *
+     * @param maxFileSize the maximum number of uncompressed bytes written to the file or 0 for no
+     *            limit
+     */
+    public WritableByteChannel open(Path path, boolean compress, long maxFileSize) {
+        return new DumpChannel(path, compress, maxFileSize);
+    }
+
+    private final class DumpChannel implements WritableByteChannel {
+        private final Path path;
+        private final boolean compress;
+        private final long maxFileSize;
+
+        // accessed by the compiler thread that owns the dump
+        private boolean open = true;
+        private boolean dropping;
+
+        // accessed by the writer thread
+        private DumpFileChannel file;
+        private boolean failed;
+
+        DumpChannel(Path path, boolean compress, long maxFileSize) {
+            this.path = path;
+            this.compress = compress;
+            this.maxFileSize = maxFileSize;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (!open) {
+                throw new IOException("Graph dump " + path + " is closed");
+            }
+            int length = src.remaining();
+            if (!dropping) {
+                if (queuedBytes.addAndGet(length) <= maxQueuedBytes) {
+                    byte[] data = new byte[length];
+                    src.get(data);
+                    queue.add(new Request(this, data));
+                    return length;
+                }
+                queuedBytes.addAndGet(-length);
+                dropping = true;
+                TTY.println("Graph dump queue is full, dropping the remaining graphs of %s", path);
+            }
+            droppedBytes.addAndGet(length);
+            src.position(src.limit());
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            if (open) {
+                open = false;
+                queue.add(new Request(this, null));
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            Request request;
+            try {
+                request = queue.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (request == SHUTDOWN) {
+                for (DumpChannel channel : new ArrayList<>(openChannels)) {
+                    close(channel);
+                }
+                return;
+            }
+            if (request.data != null) {
+                queuedBytes.addAndGet(-request.data.length);
+                write(request.channel, request.data);
+            } else {
+                close(request.channel);
+            }
+        }
+    }
+
+    private void write(DumpChannel channel, byte[] data) {
+        if (channel.failed) {
+            return;
+        }
+        try {
+            if (channel.file == null) {
+                channel.file = new DumpFileChannel(channel.path, channel.compress, channel.maxFileSize);
+                openChannels.add(channel);
+            }
+            channel.file.write(ByteBuffer.wrap(data));
+        } catch (IOException e) {
+            channel.failed = true;
+            TTY.println("Error writing graph dump %s: %s", channel.path, e);
+        }
+    }
+
+    private void close(DumpChannel channel) {
+        if (channel.file == null) {
+            return;
+        }
+        openChannels.remove(channel);
+        try {
+            channel.file.close();
+            fileWritten(channel.path);
+        } catch (IOException e) {
+            TTY.println("Error closing graph dump %s: %s", channel.path, e);
+        }
+        channel.file = null;
+    }
+
+    /**
+     * Records a completed dump file and deletes the oldest files while the total size is above
+     * the limit. The newest file is always kept.
+     */
+    private void fileWritten(Path path) throws IOException {
+        if (maxTotalSize <= 0) {
+            return;
+        }
+        long size = Files.size(path);
+        writtenFiles.add(path);
+        writtenSizes.add(size);
+        totalSize += size;
+        while (totalSize > maxTotalSize && writtenFiles.size() > 1) {
+            Path oldest = writtenFiles.poll();
+            totalSize -= writtenSizes.poll();
+            Files.deleteIfExists(oldest);
+        }
+    }
+
+    /**
+     * Writes and closes all pending dumps and stops the writer thread. Dumps that are not finished
+     * within 10 seconds may be incomplete.
+     */
+    public synchronized void shutdown() {
+        if (thread == null) {
+            return;
+        }
+        queue.add(SHUTDOWN);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            // give up waiting for pending dumps
+        }
+        thread = null;
+        if (droppedBytes.get() != 0) {
+            TTY.println("Dropped %d bytes of graph dumps because the dump queue was full", droppedBytes.get());
+        }
+    }
+}
@@ -124,7 +124,8 @@ public final class DebugContext implements AutoCloseable {
             return builder.build(parentOutput);
         } else {
             if (sharedChannel == null) {
-                sharedChannel = new IgvDumpChannel(() -> getDumpPath(".bgv", false), immutable.options);
+                String extension = DebugOptions.PrintGraphCompress.getValue(immutable.options) ? ".bgv.gz" : ".bgv";
+                sharedChannel = new IgvDumpChannel(() -> getDumpPath(extension, false), immutable.options);
             }
             final GraphOutput<G, M> output = builder.build(sharedChannel);
             parentOutput = output;
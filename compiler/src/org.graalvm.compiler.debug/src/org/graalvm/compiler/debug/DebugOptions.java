@@ -136,6 +136,18 @@ public class DebugOptions {
     public static final OptionKey<String> PrintGraphHost = new OptionKey<>("127.0.0.1");
     @Option(help = "Port part of the address to which graphs are dumped in binary format.", type = OptionType.Debug)
     public static final OptionKey<Integer> PrintBinaryGraphPort = new OptionKey<>(4445);
+    @Option(help = "Write graphs dumped to files on a background thread instead of the compiler thread.", type = OptionType.Debug)
+    public static final OptionKey<Boolean> PrintGraphAsync = new OptionKey<>(false);
+    @Option(help = "Maximum size in MB of the graph data waiting to be written by the background dump writer. " +
+                    "A dump whose data does not fit is truncated.", type = OptionType.Debug)
+    public static final OptionKey<Integer> PrintGraphAsyncQueueSize = new OptionKey<>(64);
+    @Option(help = "Compress graphs dumped to files with gzip. The files get a .bgv.gz extension.", type = OptionType.Debug)
+    public static final OptionKey<Boolean> PrintGraphCompress = new OptionKey<>(false);
+    @Option(help = "Maximum uncompressed size in MB of a single graph dump file (0 for no limit). A dump exceeding it is truncated.", type = OptionType.Debug)
+    public static final OptionKey<Integer> PrintGraphMaxFileSize = new OptionKey<>(0);
+    @Option(help = "Maximum total size in MB of the graph dump files written by the background dump writer (0 for no limit). " +
+                    "The oldest files are deleted to stay below it.", type = OptionType.Debug)
+    public static final OptionKey<Integer> PrintGraphMaxTotalSize = new OptionKey<>(0);
     @Option(help = "Schedule graphs as they are dumped.", type = OptionType.Debug)
     public static final OptionKey<Boolean> PrintGraphWithSchedule = new OptionKey<>(false);
 
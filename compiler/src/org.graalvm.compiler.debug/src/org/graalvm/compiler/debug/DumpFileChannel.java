@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.debug;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A channel to a graph dump file that optionally compresses the data and stops writing once a size
+ * limit is reached. The limit applies to the uncompressed data. Data beyond it is dropped, which
+ * leaves a dump that ends after the last complete buffer written by the printer.
+ */
+public final class DumpFileChannel implements WritableByteChannel {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path path;
+    private final OutputStream out;
+    private final long maxSize;
+    private long size;
+    private boolean truncated;
+    private boolean closed;
+
+    /**
+     * @param maxSize the maximum number of uncompressed bytes written to the file or 0 for no limit
+     */
+    public DumpFileChannel(Path path, boolean compress, long maxSize) throws IOException {
+        this.path = path;
+        this.maxSize = maxSize;
+        OutputStream file;
+        try {
+            file = new BufferedOutputStream(Files.newOutputStream(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE), BUFFER_SIZE);
+        } catch (IOException e) {
+            throw new IOException(String.format("Failed to open %s to dump IGV graphs", path), e);
+        }
+        this.out = compress ? new GZIPOutputStream(file, BUFFER_SIZE) : file;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int length = src.remaining();
+        if (truncated || (maxSize > 0 && size + length > maxSize)) {
+            if (!truncated) {
+                truncated = true;
+                TTY.println("Graph dump %s reached the size limit of %d bytes, dropping the remaining graphs", path, maxSize);
+            }
+            src.position(src.limit());
+            return length;
+        }
+        if (src.hasArray()) {
+            out.write(src.array(), src.arrayOffset() + src.position(), length);
+            src.position(src.limit());
+        } else {
+            byte[] bytes = new byte[length];
+            src.get(bytes);
+            out.write(bytes);
+        }
+        size += length;
+        return length;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+    }
+}
@@ -78,7 +78,7 @@ final class IgvDumpChannel implements WritableByteChannel {
         }
         if (sharedChannel == null) {
             if (DebugOptions.PrintGraphFile.getValue(options)) {
-                sharedChannel = createFileChannel(pathProvider);
+                sharedChannel = createFileChannel(pathProvider, options);
             } else {
                 sharedChannel = createNetworkChannel(pathProvider, options);
             }
@@ -102,15 +102,23 @@ final class IgvDumpChannel implements WritableByteChannel {
             return null;
         } catch (IOException e) {
             if (!DebugOptions.PrintGraphFile.hasBeenSet(options)) {
-                return createFileChannel(pathProvider);
+                return createFileChannel(pathProvider, options);
             } else {
                 throw new IOException(String.format("Could not connect to the IGV on %s:%d", host, port), e);
             }
         }
     }
 
-    private static WritableByteChannel createFileChannel(Supplier<Path> pathProvider) throws IOException {
+    private static WritableByteChannel createFileChannel(Supplier<Path> pathProvider, OptionValues options) throws IOException {
         Path path = pathProvider.get();
+        boolean compress = DebugOptions.PrintGraphCompress.getValue(options);
+        long maxFileSize = DebugOptions.PrintGraphMaxFileSize.getValue(options) * 1024L * 1024L;
+        if (DebugOptions.PrintGraphAsync.getValue(options)) {
+            return AsyncDumpWriter.getInstance(options).open(path, compress, maxFileSize);
+        }
+        if (compress || maxFileSize > 0) {
+            return new DumpFileChannel(path, compress, maxFileSize);
+        }
         try {
             return FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
         } catch (IOException e) {
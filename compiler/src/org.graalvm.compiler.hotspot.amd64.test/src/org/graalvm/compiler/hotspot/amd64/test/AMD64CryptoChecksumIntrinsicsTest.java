@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.hotspot.amd64.test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.zip.Checksum;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.graalvm.compiler.bytecode.ResolvedJavaMethodBytecode;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.hotspot.test.HotSpotGraalCompilerTest;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.graphbuilderconf.InvocationPlugin;
+import org.graalvm.compiler.nodes.graphbuilderconf.InvocationPlugins;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.replacements.IntrinsicGraphBuilder;
+import org.graalvm.compiler.replacements.amd64.AMD64AESCryptBlockNode;
+import org.graalvm.compiler.replacements.amd64.AMD64CRC32CUpdateNode;
+import org.graalvm.compiler.replacements.amd64.AMD64GraphBuilderPlugins;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import jdk.vm.ci.amd64.AMD64;
+import jdk.vm.ci.amd64.AMD64.CPUFeature;
+import jdk.vm.ci.code.InstalledCode;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Tests the LIR based AES and CRC32C intrinsics of {@link AMD64GraphBuilderPlugins} against the
+ * Java implementation. HotSpot normally uses its own stubs for these methods, so the intrinsic
+ * graphs are built with the AMD64 plugins directly and the resulting code is called explicitly.
+ */
+public class AMD64CryptoChecksumIntrinsicsTest extends HotSpotGraalCompilerTest {
+
+    @Before
+    public void checkAMD64() {
+        Assume.assumeTrue("skipping AMD64 specific test", getTarget().arch instanceof AMD64);
+    }
+
+    /**
+     * Compiles the intrinsic that {@code plugins} registers for {@code declaringClass.methodName}.
+     */
+    private InstalledCode compileIntrinsic(InvocationPlugins plugins, Class<? extends Node> intrinsicNode, Class<?> declaringClass, String methodName, Class<?>... parameterTypes) {
+        ResolvedJavaMethod method;
+        try {
+            method = getMetaAccess().lookupJavaMethod(declaringClass.getDeclaredMethod(methodName, parameterTypes));
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+        InvocationPlugin plugin = plugins.lookupInvocation(method);
+        Assume.assumeTrue("intrinsic not supported by this CPU", plugin != null);
+        OptionValues options = getInitialOptions();
+        StructuredGraph graph;
+        try (DebugContext debug = getDebugContext(options)) {
+            graph = new IntrinsicGraphBuilder(options, debug, getMetaAccess(), getConstantReflection(), getProviders().getConstantFieldProvider(), getProviders().getStampProvider(),
+                            new ResolvedJavaMethodBytecode(method), -1).buildGraph(plugin);
+        }
+        Assert.assertNotNull("plugin applied", graph);
+        Assert.assertTrue("intrinsic is used", graph.getNodes().filter(intrinsicNode).isNotEmpty());
+        return getCode(method, graph, true, false, options);
+    }
+
+    private static Object readField(Object object, Class<?> declaringClass, String name) throws NoSuchFieldException {
+        Field field = declaringClass.getDeclaredField(name);
+        return UNSAFE.getObject(object, UNSAFE.objectFieldOffset(field));
+    }
+
+    /**
+     * Gets the {@code com.sun.crypto.provider.AESCrypt} instance of an initialized AES/ECB cipher.
+     * Its constructor and initialization are not accessible from here.
+     */
+    private static Object getAESCrypt(Cipher cipher) throws Exception {
+        Object spi = readField(cipher, Cipher.class, "spi");
+        Object core = readField(spi, Class.forName("com.sun.crypto.provider.AESCipher"), "core");
+        Object feedbackCipher = readField(core, Class.forName("com.sun.crypto.provider.CipherCore"), "cipher");
+        return readField(feedbackCipher, Class.forName("com.sun.crypto.provider.FeedbackCipher"), "embeddedCipher");
+    }
+
+    private boolean isRegistered(InvocationPlugins plugins, Class<?> declaringClass, String methodName, Class<?>... parameterTypes) throws NoSuchMethodException {
+        return plugins.lookupInvocation(getMetaAccess().lookupJavaMethod(declaringClass.getDeclaredMethod(methodName, parameterTypes))) != null;
+    }
+
+    /**
+     * Native images target only SSE and SSE2 unless more features are requested with
+     * {@code -H:CPUFeatures}. Checks that the intrinsics are only registered for
+     * {@code -H:CPUFeatures=AES,SSSE3,SSE4_2} and not for the default feature set.
+     */
+    @Test
+    public void testRequiredCPUFeatures() throws Exception {
+        AMD64 defaultImageArch = new AMD64(EnumSet.of(CPUFeature.SSE, CPUFeature.SSE2), EnumSet.noneOf(AMD64.Flag.class));
+        AMD64 cryptoImageArch = new AMD64(EnumSet.of(CPUFeature.SSE, CPUFeature.SSE2, CPUFeature.AES, CPUFeature.SSSE3, CPUFeature.SSE4_2), EnumSet.noneOf(AMD64.Flag.class));
+        for (AMD64 arch : new AMD64[]{defaultImageArch, cryptoImageArch}) {
+            boolean expected = arch == cryptoImageArch;
+            InvocationPlugins plugins = new InvocationPlugins();
+            AMD64GraphBuilderPlugins.registerAESPlugins(plugins, arch);
+            AMD64GraphBuilderPlugins.registerCRC32CPlugins(plugins, arch);
+            try {
+                Class<?> aesCrypt = Class.forName("com.sun.crypto.provider.AESCrypt");
+                Assert.assertEquals(arch.getFeatures().toString(), expected,
+                                isRegistered(plugins, aesCrypt, Java8OrEarlier ? "encryptBlock" : "implEncryptBlock", byte[].class, int.class, byte[].class, int.class));
+            } catch (ClassNotFoundException e) {
+                // A different security provider may have been installed
+            }
+            if (!Java8OrEarlier) {
+                Class<?> crc32c = Class.forName("java.util.zip.CRC32C");
+                Assert.assertEquals(arch.getFeatures().toString(), expected, isRegistered(plugins, crc32c, "updateBytes", int.class, byte[].class, int.class, int.class));
+            }
+        }
+    }
+
+    private static final int AES_BLOCK_SIZE = 16;
+
+    @Test
+    public void testAES() throws Exception {
+        Class<?> aesCrypt;
+        try {
+            aesCrypt = Class.forName("com.sun.crypto.provider.AESCrypt");
+        } catch (ClassNotFoundException e) {
+            // A different security provider may have been installed
+            return;
+        }
+        InvocationPlugins plugins = new InvocationPlugins();
+        AMD64GraphBuilderPlugins.registerAESPlugins(plugins, (AMD64) getTarget().arch);
+        InstalledCode encrypt = compileIntrinsic(plugins, AMD64AESCryptBlockNode.class, aesCrypt, Java8OrEarlier ? "encryptBlock" : "implEncryptBlock", byte[].class, int.class, byte[].class,
+                        int.class);
+        InstalledCode decrypt = compileIntrinsic(plugins, AMD64AESCryptBlockNode.class, aesCrypt, Java8OrEarlier ? "decryptBlock" : "implDecryptBlock", byte[].class, int.class, byte[].class,
+                        int.class);
+        try {
+            Random random = new Random(42);
+            for (int keySize : new int[]{128, 192, 256}) {
+                byte[] keyBytes = new byte[keySize / 8];
+                random.nextBytes(keyBytes);
+                SecretKeySpec key = new SecretKeySpec(keyBytes, "AES");
+                Cipher encryptCipher = Cipher.getInstance("AES/ECB/NoPadding");
+                encryptCipher.init(Cipher.ENCRYPT_MODE, key);
+                Cipher decryptCipher = Cipher.getInstance("AES/ECB/NoPadding");
+                decryptCipher.init(Cipher.DECRYPT_MODE, key);
+                Object encryptCrypt = getAESCrypt(encryptCipher);
+                Object decryptCrypt = getAESCrypt(decryptCipher);
+
+                for (int inOffset : new int[]{0, 1, 7}) {
+                    for (int outOffset : new int[]{0, 3, 16}) {
+                        byte[] plain = new byte[inOffset + AES_BLOCK_SIZE + 5];
+                        random.nextBytes(plain);
+                        byte[] expected = encryptCipher.doFinal(plain, inOffset, AES_BLOCK_SIZE);
+
+                        byte[] cipherText = new byte[outOffset + AES_BLOCK_SIZE + 2];
+                        encrypt.executeVarargs(encryptCrypt, plain, inOffset, cipherText, outOffset);
+                        assertBlockEquals("AES-" + keySize + " encrypt", expected, cipherText, outOffset);
+
+                        byte[] decrypted = new byte[inOffset + AES_BLOCK_SIZE];
+                        decrypt.executeVarargs(decryptCrypt, cipherText, outOffset, decrypted, inOffset);
+                        assertBlockEquals("AES-" + keySize + " decrypt", decryptCipher.doFinal(cipherText, outOffset, AES_BLOCK_SIZE), decrypted, inOffset);
+                        assertBlockEquals("AES-" + keySize + " round trip", Arrays.copyOfRange(plain, inOffset, inOffset + AES_BLOCK_SIZE), decrypted, inOffset);
+                    }
+                }
+            }
+        } finally {
+            encrypt.invalidate();
+            decrypt.invalidate();
+        }
+    }
+
+    private static void assertBlockEquals(String message, byte[] expected, byte[] actual, int offset) {
+        for (int i = 0; i < AES_BLOCK_SIZE; i++) {
+            Assert.assertEquals(message + " byte " + i, expected[i], actual[offset + i]);
+        }
+    }
+
+    /**
+     * Computes the CRC32C of {@code [offset, end)} with {@code java.util.zip.CRC32C}.
+     */
+    private static int crc32c(byte[] buf, int offset, int end) throws Exception {
+        Checksum checksum = (Checksum) Class.forName("java.util.zip.CRC32C").getConstructor().newInstance();
+        checksum.update(buf, offset, end - offset);
+        // updateBytes works on the inverted checksum
+        return ~(int) checksum.getValue();
+    }
+
+    @Test
+    public void testCRC32C() throws Exception {
+        Assume.assumeFalse(Java8OrEarlier);
+        Class<?> crc32c = Class.forName("java.util.zip.CRC32C");
+        InvocationPlugins plugins = new InvocationPlugins();
+        AMD64GraphBuilderPlugins.registerCRC32CPlugins(plugins, (AMD64) getTarget().arch);
+        InstalledCode updateBytes = compileIntrinsic(plugins, AMD64CRC32CUpdateNode.class, crc32c, "updateBytes", int.class, byte[].class, int.class, int.class);
+        InstalledCode updateDirect = compileIntrinsic(plugins, AMD64CRC32CUpdateNode.class, crc32c, "updateDirectByteBuffer", int.class, long.class, int.class, int.class);
+
+        Random random = new Random(42);
+        byte[] buf = new byte[1031];
+        random.nextBytes(buf);
+        long address = UNSAFE.allocateMemory(buf.length);
+        try {
+            for (int i = 0; i < buf.length; i++) {
+                UNSAFE.putByte(address + i, buf[i]);
+            }
+            int[] lengths = {0, 1, 3, 7, 8, 9, 15, 17, 31, 63, 127, 255, 1000, 1023};
+            for (int offset = 0; offset < 8; offset++) {
+                for (int length : lengths) {
+                    int end = offset + length;
+                    int expected = crc32c(buf, offset, end);
+                    Assert.assertEquals("updateBytes offset " + offset + " length " + length, expected, (int) (Integer) updateBytes.executeVarargs(0xFFFFFFFF, buf, offset, end));
+                    Assert.assertEquals("updateDirectByteBuffer offset " + offset + " length " + length, expected, (int) (Integer) updateDirect.executeVarargs(0xFFFFFFFF, address, offset, end));
+                }
+            }
+        } finally {
+            UNSAFE.freeMemory(address);
+            updateBytes.invalidate();
+            updateDirect.invalidate();
+        }
+    }
+}
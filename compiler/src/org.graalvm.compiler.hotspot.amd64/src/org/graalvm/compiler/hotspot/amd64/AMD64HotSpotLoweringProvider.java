@@ -43,6 +43,7 @@ import org.graalvm.compiler.nodes.extended.ForeignCallNode;
 import org.graalvm.compiler.nodes.spi.LoweringTool;
 import org.graalvm.compiler.options.OptionValues;
 import org.graalvm.compiler.replacements.amd64.AMD64ConvertSnippets;
+import org.graalvm.compiler.replacements.nodes.StringConcatNode;
 import org.graalvm.compiler.replacements.nodes.UnaryMathIntrinsicNode;
 import org.graalvm.compiler.replacements.nodes.UnaryMathIntrinsicNode.UnaryOperation;
 import org.graalvm.compiler.serviceprovider.GraalServices;
@@ -57,6 +58,7 @@ public class AMD64HotSpotLoweringProvider extends DefaultHotSpotLoweringProvider
     private AMD64ConvertSnippets.Templates convertSnippets;
     private ProbabilisticProfileSnippets.Templates profileSnippets;
     private AMD64X87MathSnippets.Templates mathSnippets;
+    private AMD64StringConcatSnippets.Templates stringConcatSnippets;
 
     public AMD64HotSpotLoweringProvider(HotSpotGraalRuntimeProvider runtime, MetaAccessProvider metaAccess, ForeignCallsProvider foreignCalls, HotSpotRegistersProvider registers,
                     HotSpotConstantReflectionProvider constantReflection, TargetDescription target) {
@@ -70,6 +72,7 @@ public class AMD64HotSpotLoweringProvider extends DefaultHotSpotLoweringProvider
                         ? new ProbabilisticProfileSnippets.Templates(options, factories, providers, providers.getCodeCache().getTarget())
                         : null;
         mathSnippets = new AMD64X87MathSnippets.Templates(options, factories, providers, providers.getSnippetReflection(), providers.getCodeCache().getTarget());
+        stringConcatSnippets = !GraalServices.Java8OrEarlier ? new AMD64StringConcatSnippets.Templates(options, factories, providers, providers.getCodeCache().getTarget()) : null;
         super.initialize(options, factories, providers, config);
     }
 
@@ -79,6 +82,8 @@ public class AMD64HotSpotLoweringProvider extends DefaultHotSpotLoweringProvider
             convertSnippets.lower((FloatConvertNode) n, tool);
         } else if (profileSnippets != null && n instanceof ProfileNode) {
             profileSnippets.lower((ProfileNode) n, tool);
+        } else if (stringConcatSnippets != null && n instanceof StringConcatNode) {
+            stringConcatSnippets.lower((StringConcatNode) n, tool);
         } else if (n instanceof UnaryMathIntrinsicNode) {
             lowerUnaryMath((UnaryMathIntrinsicNode) n, tool);
         } else {
@@ -24,20 +24,52 @@
  */
 package org.graalvm.compiler.hotspot.amd64;
 
+import static org.graalvm.compiler.core.common.GraalOptions.OptimizeStringConcat;
+
+import java.util.ListIterator;
+
 import org.graalvm.compiler.core.amd64.AMD64SuitesCreator;
 import org.graalvm.compiler.debug.Assertions;
 import org.graalvm.compiler.hotspot.lir.HotSpotZapRegistersPhase;
 import org.graalvm.compiler.lir.phases.LIRSuites;
 import org.graalvm.compiler.nodes.graphbuilderconf.GraphBuilderConfiguration.Plugins;
 import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.BasePhase;
+import org.graalvm.compiler.phases.common.inlining.InliningPhase;
 import org.graalvm.compiler.phases.tiers.CompilerConfiguration;
+import org.graalvm.compiler.phases.tiers.HighTierContext;
+import org.graalvm.compiler.phases.tiers.Suites;
+import org.graalvm.compiler.replacements.OptimizeStringConcatPhase;
+import org.graalvm.compiler.serviceprovider.GraalServices;
 
 public class AMD64HotSpotSuitesCreator extends AMD64SuitesCreator {
 
+    /**
+     * Specifies if {@link OptimizeStringConcatPhase} is added to the high tier when
+     * {@link org.graalvm.compiler.core.common.GraalOptions#OptimizeStringConcat} is enabled.
+     */
+    static final boolean SUPPORTS_STRING_CONCAT_FUSION = !GraalServices.Java8OrEarlier;
+
     public AMD64HotSpotSuitesCreator(CompilerConfiguration compilerConfiguration, Plugins plugins) {
         super(compilerConfiguration, plugins);
     }
 
+    @Override
+    public Suites createSuites(OptionValues options) {
+        Suites suites = super.createSuites(options);
+        if (OptimizeStringConcat.getValue(options) && SUPPORTS_STRING_CONCAT_FUSION) {
+            // The StringBuilder calls must still be present, so fuse them before inlining.
+            ListIterator<BasePhase<? super HighTierContext>> position = suites.getHighTier().findPhase(InliningPhase.class);
+            if (position != null) {
+                position.previous();
+                position.add(new OptimizeStringConcatPhase());
+            } else {
+                suites.getHighTier().prependPhase(new OptimizeStringConcatPhase());
+            }
+        }
+        return suites;
+    }
+
     @Override
     public LIRSuites createLIRSuites(OptionValues options) {
         LIRSuites lirSuites = super.createLIRSuites(options);
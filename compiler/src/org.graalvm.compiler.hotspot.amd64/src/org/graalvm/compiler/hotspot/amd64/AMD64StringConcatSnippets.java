@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.hotspot.amd64;
+
+import static org.graalvm.compiler.hotspot.GraalHotSpotVMConfigBase.INJECTED_VMCONFIG;
+import static org.graalvm.compiler.nodes.extended.BranchProbabilityNode.SLOW_PATH_PROBABILITY;
+import static org.graalvm.compiler.nodes.extended.BranchProbabilityNode.probability;
+import static org.graalvm.compiler.replacements.SnippetTemplate.DEFAULT_REPLACER;
+
+import org.graalvm.compiler.api.replacements.Snippet;
+import org.graalvm.compiler.api.replacements.Snippet.VarargsParameter;
+import org.graalvm.compiler.core.common.type.StampFactory;
+import org.graalvm.compiler.core.common.type.TypeReference;
+import org.graalvm.compiler.debug.DebugHandlersFactory;
+import org.graalvm.compiler.hotspot.meta.HotSpotProviders;
+import org.graalvm.compiler.hotspot.replacements.HotSpotReplacementsUtil;
+import org.graalvm.compiler.nodes.DeoptimizeNode;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.java.NewArrayNode;
+import org.graalvm.compiler.nodes.spi.LoweringTool;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.replacements.JDK9StringSubstitutions;
+import org.graalvm.compiler.replacements.SnippetTemplate.AbstractTemplates;
+import org.graalvm.compiler.replacements.SnippetTemplate.Arguments;
+import org.graalvm.compiler.replacements.SnippetTemplate.SnippetInfo;
+import org.graalvm.compiler.replacements.Snippets;
+import org.graalvm.compiler.replacements.amd64.AMD64StringLatin1Substitutions;
+import org.graalvm.compiler.replacements.arraycopy.ArrayCopyCallNode;
+import org.graalvm.compiler.replacements.nodes.ExplodeLoopNode;
+import org.graalvm.compiler.replacements.nodes.StringConcatNode;
+
+import jdk.vm.ci.code.TargetDescription;
+import jdk.vm.ci.meta.DeoptimizationAction;
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Snippets for {@link StringConcatNode}. Parts with the coder of the result are copied with the
+ * array copy stubs, Latin1 parts of a UTF16 result are inflated with the
+ * {@code StringLatin1.inflate} intrinsic.
+ */
+public class AMD64StringConcatSnippets implements Snippets {
+
+    @Snippet
+    public static byte[] concat(int coder, @VarargsParameter String[] values) {
+        int length = 0;
+        ExplodeLoopNode.explodeLoop();
+        for (int i = 0; i < values.length; i++) {
+            String value = values[i];
+            length += JDK9StringSubstitutions.getValue(value).length >> JDK9StringSubstitutions.getCoder(value);
+            if (probability(SLOW_PATH_PROBABILITY, length < 0)) {
+                // Let the interpreter throw the OutOfMemoryError.
+                DeoptimizeNode.deopt(DeoptimizationAction.None, DeoptimizationReason.RuntimeConstraint);
+            }
+        }
+        if (probability(SLOW_PATH_PROBABILITY, length > (Integer.MAX_VALUE >> coder))) {
+            DeoptimizeNode.deopt(DeoptimizationAction.None, DeoptimizationReason.RuntimeConstraint);
+        }
+
+        // Every byte of the result is written below.
+        byte[] result = (byte[]) NewArrayNode.newUninitializedArray(Byte.TYPE, length << coder);
+        int offset = 0;
+        ExplodeLoopNode.explodeLoop();
+        for (int i = 0; i < values.length; i++) {
+            String value = values[i];
+            byte[] bytes = JDK9StringSubstitutions.getValue(value);
+            int valueCoder = JDK9StringSubstitutions.getCoder(value);
+            if (valueCoder == coder) {
+                ArrayCopyCallNode.disjointArraycopy(bytes, 0, result, offset << coder, bytes.length, JavaKind.Byte, HotSpotReplacementsUtil.getHeapWordSize(INJECTED_VMCONFIG));
+            } else {
+                // A Latin1 part of a UTF16 result.
+                AMD64StringLatin1Substitutions.inflate(bytes, 0, result, offset, bytes.length);
+            }
+            offset += bytes.length >> valueCoder;
+        }
+        return result;
+    }
+
+    public static class Templates extends AbstractTemplates {
+
+        private final SnippetInfo concat;
+
+        public Templates(OptionValues options, Iterable<DebugHandlersFactory> factories, HotSpotProviders providers, TargetDescription target) {
+            super(options, factories, providers, providers.getSnippetReflection(), target);
+            concat = snippet(AMD64StringConcatSnippets.class, "concat");
+        }
+
+        public void lower(StringConcatNode concatNode, LoweringTool tool) {
+            ValueNode[] values = concatNode.values().toArray(new ValueNode[concatNode.values().size()]);
+            Arguments args = new Arguments(concat, concatNode.graph().getGuardsStage(), tool.getLoweringStage());
+            args.add("coder", concatNode.coder());
+            args.addVarargs("values", String.class, StampFactory.objectNonNull(TypeReference.createExactTrusted(providers.getMetaAccess().lookupJavaType(String.class))), values);
+            template(concatNode, args).instantiate(providers.getMetaAccess(), concatNode, DEFAULT_REPLACER, args);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.hotspot.management;
+
+import java.util.List;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+
+import org.graalvm.compiler.debug.GraalError;
+import org.graalvm.compiler.hotspot.CompilationRecorder;
+import org.graalvm.compiler.hotspot.CompilationRecorder.MethodRecord;
+import org.graalvm.compiler.hotspot.CompilationRecorder.Record;
+
+/**
+ * Converts the data of a {@link CompilationRecorder} to open data so that generic JMX clients can
+ * display it.
+ */
+final class CompilationRecordData {
+
+    private static final String[] COMPILATION_ITEMS = {"id", "method", "entryBCI", "state", "queueTimeMillis", "compileTimeMillis", "codeSize", "failure"};
+    private static final String[] METHOD_ITEMS = {"method", "compilations", "failures", "totalCompileTimeMillis", "lastCompileTimeMillis", "lastCodeSize"};
+    private static final String[] HISTOGRAM_ITEMS = {"upperBoundMillis", "count"};
+
+    static final CompositeType COMPILATION_TYPE;
+    static final CompositeType METHOD_TYPE;
+    static final CompositeType HISTOGRAM_TYPE;
+
+    static {
+        try {
+            COMPILATION_TYPE = new CompositeType("Compilation", "A queued, running or finished compilation", COMPILATION_ITEMS,
+                            new String[]{"HotSpot compile id", "Compiled method", "Entry BCI, -1 for a normal compilation", "QUEUED, RUNNING, INSTALLED or FAILED",
+                                            "Time between accepting the request and starting to compile", "Time spent compiling and installing the code",
+                                            "Size of the installed code in bytes", "Reason the compilation failed"},
+                            new OpenType<?>[]{SimpleType.INTEGER, SimpleType.STRING, SimpleType.INTEGER, SimpleType.STRING, SimpleType.DOUBLE, SimpleType.DOUBLE, SimpleType.INTEGER,
+                                            SimpleType.STRING});
+            METHOD_TYPE = new CompositeType("MethodCompilations", "Compilation statistics of a method", METHOD_ITEMS,
+                            new String[]{"Compiled method", "Number of compilations", "Number of failed compilations", "Time spent in all compilations",
+                                            "Time spent in the last compilation", "Size of the last installed code in bytes"},
+                            new OpenType<?>[]{SimpleType.STRING, SimpleType.INTEGER, SimpleType.INTEGER, SimpleType.DOUBLE, SimpleType.DOUBLE, SimpleType.INTEGER});
+            HISTOGRAM_TYPE = new CompositeType("CompileTimeBucket", "Number of recent compilations below a compile time", HISTOGRAM_ITEMS,
+                            new String[]{"Exclusive upper bound of the bucket, -1 if unbounded", "Number of compilations in the bucket"},
+                            new OpenType<?>[]{SimpleType.LONG, SimpleType.LONG});
+        } catch (OpenDataException e) {
+            throw GraalError.shouldNotReachHere(e);
+        }
+    }
+
+    private CompilationRecordData() {
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000D;
+    }
+
+    static CompositeData[] compilations(CompilationRecorder recorder) throws OpenDataException {
+        List<Record> records = recorder.getRecentCompilations();
+        records.addAll(recorder.getActiveCompilations());
+        CompositeData[] result = new CompositeData[records.size()];
+        for (int i = 0; i < result.length; i++) {
+            Record r = records.get(i);
+            result[i] = new CompositeDataSupport(COMPILATION_TYPE, COMPILATION_ITEMS, new Object[]{r.getId(), r.getMethodName(), r.getEntryBCI(), r.getState().name(),
+                            millis(r.getQueueTimeNanos()), millis(r.getCompileTimeNanos()), r.getCodeSize(), r.getFailureMessage()});
+        }
+        return result;
+    }
+
+    static CompositeData[] methods(CompilationRecorder recorder, String filter) throws OpenDataException {
+        List<MethodRecord> records = recorder.getMethods(filter);
+        CompositeData[] result = new CompositeData[records.size()];
+        for (int i = 0; i < result.length; i++) {
+            MethodRecord r = records.get(i);
+            result[i] = new CompositeDataSupport(METHOD_TYPE, METHOD_ITEMS, new Object[]{r.getMethodName(), r.getCompilations(), r.getFailures(), millis(r.getTotalCompileTimeNanos()),
+                            millis(r.getLastCompileTimeNanos()), r.getLastCodeSize()});
+        }
+        return result;
+    }
+
+    static CompositeData[] histogram(CompilationRecorder recorder) throws OpenDataException {
+        long[] counts = recorder.getLatencyHistogram();
+        CompositeData[] result = new CompositeData[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            long upperBound = i == counts.length - 1 ? -1L : 1L << i;
+            result[i] = new CompositeDataSupport(HISTOGRAM_TYPE, HISTOGRAM_ITEMS, new Object[]{upperBound, counts[i]});
+        }
+        return result;
+    }
+}
@@ -42,10 +42,12 @@ import javax.management.MBeanOperationInfo;
 import javax.management.MBeanParameterInfo;
 import javax.management.ObjectName;
 import javax.management.ReflectionException;
+import javax.management.openmbean.CompositeData;
 
 import org.graalvm.collections.EconomicMap;
 import org.graalvm.compiler.core.common.SuppressFBWarnings;
 import org.graalvm.compiler.debug.TTY;
+import org.graalvm.compiler.hotspot.CompilationRecorder;
 import org.graalvm.compiler.hotspot.HotSpotGraalRuntime;
 import org.graalvm.compiler.options.OptionDescriptor;
 import org.graalvm.compiler.options.OptionDescriptors;
@@ -182,8 +184,15 @@ final class HotSpotGraalRuntimeMBean implements DynamicMBean {
                 System.out.printf("invoke: %s%s%n", actionName, Arrays.asList(params));
             }
             Object retvalue = null;
-            if ("dumpMethod".equals(actionName)) {
+            CompilationRecorder recorder = runtime.getCompilationRecorder();
+            if ("dumpMethod".equals(actionName) || "invalidateMethods".equals(actionName) || "recompileMethods".equals(actionName)) {
                 retvalue = runtime.invokeManagementAction(actionName, params);
+            } else if (recorder != null && "getCompilations".equals(actionName)) {
+                retvalue = CompilationRecordData.compilations(recorder);
+            } else if (recorder != null && "getMethodCompilations".equals(actionName)) {
+                retvalue = CompilationRecordData.methods(recorder, params == null || params.length == 0 ? null : (String) params[0]);
+            } else if (recorder != null && "getCompileTimeHistogram".equals(actionName)) {
+                retvalue = CompilationRecordData.histogram(recorder);
             } else {
                 boolean found = false;
                 for (HotSpotMBeanOperationProvider p : GraalServices.load(HotSpotMBeanOperationProvider.class)) {
@@ -247,6 +256,22 @@ final class HotSpotGraalRuntimeMBean implements DynamicMBean {
                         new MBeanParameterInfo("host", "java.lang.String", "The host where the IGV tool is running at"),
                         new MBeanParameterInfo("port", "int", "The port where the IGV tool is listening at"),
         }, "void", MBeanOperationInfo.ACTION));
+        if (runtime.getCompilationRecorder() != null) {
+            String compositeArray = CompositeData[].class.getName();
+            opts.add(new MBeanOperationInfo("getCompilations", "Queued and running compilations followed by the most recently finished ones", new MBeanParameterInfo[0],
+                            compositeArray, MBeanOperationInfo.INFO));
+            opts.add(new MBeanOperationInfo("getMethodCompilations", "Compile times and code sizes of the compiled methods", new MBeanParameterInfo[]{
+                            new MBeanParameterInfo("filter", "java.lang.String", "Method filter, all methods if empty"),
+            }, compositeArray, MBeanOperationInfo.INFO));
+            opts.add(new MBeanOperationInfo("getCompileTimeHistogram", "Histogram of the compile times of the most recent compilations", new MBeanParameterInfo[0],
+                            compositeArray, MBeanOperationInfo.INFO));
+            opts.add(new MBeanOperationInfo("invalidateMethods", "Invalidate the installed code of the methods matching the filter", new MBeanParameterInfo[]{
+                            new MBeanParameterInfo("filter", "java.lang.String", "Method filter"),
+            }, String[].class.getName(), MBeanOperationInfo.ACTION));
+            opts.add(new MBeanOperationInfo("recompileMethods", "Invalidate and recompile the methods matching the filter", new MBeanParameterInfo[]{
+                            new MBeanParameterInfo("filter", "java.lang.String", "Method filter"),
+            }, String[].class.getName(), MBeanOperationInfo.ACTION));
+        }
 
         for (HotSpotMBeanOperationProvider p : GraalServices.load(HotSpotMBeanOperationProvider.class)) {
             p.registerOperations(MBeanOperationInfo.class, opts);
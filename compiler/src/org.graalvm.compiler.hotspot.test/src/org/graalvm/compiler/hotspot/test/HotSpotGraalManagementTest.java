@@ -54,8 +54,13 @@ import javax.management.MBeanServer;
 import javax.management.MBeanServerFactory;
 import javax.management.ObjectInstance;
 import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import javax.management.openmbean.CompositeData;
 
 import org.graalvm.compiler.api.test.Graal;
+import org.graalvm.compiler.hotspot.CompilationRecorder;
+import org.graalvm.compiler.hotspot.CompilationTask;
+import org.graalvm.compiler.hotspot.HotSpotGraalCompiler;
 import org.graalvm.compiler.hotspot.HotSpotGraalManagementRegistration;
 import org.graalvm.compiler.hotspot.HotSpotGraalRuntime;
 import org.graalvm.compiler.options.EnumOptionKey;
@@ -68,6 +73,11 @@ import org.junit.Assert;
 import org.junit.AssumptionViolatedException;
 import org.junit.Test;
 
+import jdk.vm.ci.hotspot.HotSpotCompilationRequest;
+import jdk.vm.ci.hotspot.HotSpotJVMCIRuntime;
+import jdk.vm.ci.hotspot.HotSpotResolvedJavaMethod;
+import jdk.vm.ci.runtime.JVMCICompiler;
+
 public class HotSpotGraalManagementTest {
 
     private static final boolean DEBUG = Boolean.getBoolean(HotSpotGraalManagementTest.class.getSimpleName() + ".debug");
@@ -410,6 +420,104 @@ public class HotSpotGraalManagementTest {
         }
     }
 
+    @Test
+    public void compilationRecords() throws Exception {
+        assertNotNull("Server is started", ManagementFactory.getPlatformMBeanServer());
+
+        HotSpotJVMCIRuntime jvmciRuntime = HotSpotJVMCIRuntime.runtime();
+        HotSpotGraalCompiler compiler = (HotSpotGraalCompiler) jvmciRuntime.getCompiler();
+        HotSpotGraalRuntime runtime = (HotSpotGraalRuntime) compiler.getGraalRuntime();
+        HotSpotGraalManagementRegistration management = runtime.getManagement();
+        if (management == null) {
+            return;
+        }
+
+        ObjectName mbeanName;
+        assertNotNull("Bean is registered", mbeanName = (ObjectName) management.poll(true));
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        HotSpotResolvedJavaMethod method = (HotSpotResolvedJavaMethod) runtime.getHostProviders().getMetaAccess().lookupJavaMethod(Arrays.class.getMethod("asList", Object[].class));
+        HotSpotCompilationRequest request = new HotSpotCompilationRequest(method, JVMCICompiler.INVOCATION_ENTRY_BCI, 0L);
+        new CompilationTask(jvmciRuntime, compiler, request, true, false, runtime.getOptions()).runCompilation();
+
+        CompositeData[] methods = (CompositeData[]) server.invoke(mbeanName, "getMethodCompilations", new Object[]{"Arrays.asList"}, null);
+        assertEquals("one method matches", 1, methods.length);
+        assertTrue("compiled at least once", (Integer) methods[0].get("compilations") >= 1);
+        assertTrue("code was installed", (Integer) methods[0].get("lastCodeSize") > 0);
+
+        boolean found = false;
+        for (CompositeData compilation : (CompositeData[]) server.invoke(mbeanName, "getCompilations", new Object[0], null)) {
+            if (method.format("%H.%n(%p)").equals(compilation.get("method"))) {
+                found = true;
+                assertEquals("INSTALLED", compilation.get("state"));
+            }
+        }
+        assertTrue("compilation is recorded", found);
+
+        CompositeData[] histogram = (CompositeData[]) server.invoke(mbeanName, "getCompileTimeHistogram", new Object[0], null);
+        assertEquals(CompilationRecorder.LATENCY_BUCKETS, histogram.length);
+        long total = 0;
+        for (CompositeData bucket : histogram) {
+            total += (Long) bucket.get("count");
+        }
+        assertTrue("compile time is recorded", total >= 1);
+    }
+
+    @Test
+    public void invalidateAndRecompileMethods() throws Exception {
+        assertNotNull("Server is started", ManagementFactory.getPlatformMBeanServer());
+
+        HotSpotJVMCIRuntime jvmciRuntime = HotSpotJVMCIRuntime.runtime();
+        HotSpotGraalCompiler compiler = (HotSpotGraalCompiler) jvmciRuntime.getCompiler();
+        HotSpotGraalRuntime runtime = (HotSpotGraalRuntime) compiler.getGraalRuntime();
+        HotSpotGraalManagementRegistration management = runtime.getManagement();
+        if (management == null) {
+            return;
+        }
+
+        ObjectName mbeanName;
+        assertNotNull("Bean is registered", mbeanName = (ObjectName) management.poll(true));
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        for (String action : new String[]{"invalidateMethods", "recompileMethods"}) {
+            for (Object[] params : new Object[][]{{}, {null}, {""}}) {
+                try {
+                    server.invoke(mbeanName, action, params, null);
+                    Assert.fail(action + " must reject a missing filter");
+                } catch (ReflectionException e) {
+                    assertTrue(e.getCause() instanceof IllegalArgumentException);
+                }
+            }
+        }
+        try {
+            runtime.getCompilationRecorder().invalidate(" ");
+            Assert.fail("a blank filter must be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        HotSpotResolvedJavaMethod method = (HotSpotResolvedJavaMethod) runtime.getHostProviders().getMetaAccess().lookupJavaMethod(Arrays.class.getMethod("asList", Object[].class));
+        String name = method.format("%H.%n(%p)");
+        HotSpotCompilationRequest request = new HotSpotCompilationRequest(method, JVMCICompiler.INVOCATION_ENTRY_BCI, 0L);
+        new CompilationTask(jvmciRuntime, compiler, request, true, false, runtime.getOptions()).runCompilation();
+
+        String[] invalidated = (String[]) server.invoke(mbeanName, "invalidateMethods", new Object[]{"Arrays.asList"}, null);
+        assertEquals(Arrays.asList(name), Arrays.asList(invalidated));
+        invalidated = (String[]) server.invoke(mbeanName, "invalidateMethods", new Object[]{"Arrays.asList"}, null);
+        assertEquals("code is only invalidated once", 0, invalidated.length);
+
+        new CompilationTask(jvmciRuntime, compiler, request, true, false, runtime.getOptions()).runCompilation();
+        CompositeData[] before = (CompositeData[]) server.invoke(mbeanName, "getMethodCompilations", new Object[]{"Arrays.asList"}, null);
+        assertEquals("one method matches", 1, before.length);
+
+        String[] recompiled = (String[]) server.invoke(mbeanName, "recompileMethods", new Object[]{"Arrays.asList"}, null);
+        assertEquals(Arrays.asList(name), Arrays.asList(recompiled));
+        CompositeData[] after = (CompositeData[]) server.invoke(mbeanName, "getMethodCompilations", new Object[]{"Arrays.asList"}, null);
+        assertEquals("method was recompiled", (Integer) before[0].get("compilations") + 1, (int) (Integer) after[0].get("compilations"));
+        invalidated = (String[]) server.invoke(mbeanName, "invalidateMethods", new Object[]{"Arrays.asList"}, null);
+        assertEquals("recompiled code was installed", Arrays.asList(name), Arrays.asList(invalidated));
+    }
+
     static void deleteDirectory(Path toDelete) throws IOException {
         Files.walk(toDelete).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
     }
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.hotspot.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.graalvm.compiler.core.test.GraalCompilerTest;
+import org.graalvm.compiler.hotspot.TrainingProfile;
+import org.graalvm.compiler.hotspot.TrainingProfile.MethodProfile;
+import org.graalvm.compiler.hotspot.TrainingProfile.TypeProfile;
+import org.graalvm.compiler.test.SubprocessUtil;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import jdk.vm.ci.hotspot.HotSpotResolvedJavaMethod;
+import jdk.vm.ci.meta.JavaTypeProfile;
+import jdk.vm.ci.meta.ProfilingInfo;
+
+/**
+ * Tests that a {@link TrainingProfile} reads back what it recorded. The profiles are gathered by
+ * the interpreter as in {@code ProfilingInfoTest}.
+ */
+public class TrainingProfileTest extends GraalCompilerTest {
+
+    private static final int N = 10;
+    private static final double DELTA = 1d / Integer.MAX_VALUE;
+
+    public TrainingProfileTest() {
+        // With -Xcomp, the profiles are created by C1 compiled code.
+        Assume.assumeTrue(!SubprocessUtil.getVMCommandLine().contains("-Xcomp"));
+    }
+
+    public static int branchySnippet(int a) {
+        if (a > 10) {
+            return a * 2;
+        }
+        return a - 1;
+    }
+
+    public static int switchSnippet(int value) {
+        switch (value) {
+            case 0:
+                return -1;
+            case 1:
+                return -2;
+            default:
+                return -3;
+        }
+    }
+
+    public static boolean instanceOfSnippet(Object obj) {
+        return obj instanceof CharSequence;
+    }
+
+    /**
+     * Resets the profile of {@code methodName} and executes it {@link #N} times with each of
+     * {@code args}.
+     */
+    private HotSpotResolvedJavaMethod profile(String methodName, Object... args) {
+        HotSpotResolvedJavaMethod method = (HotSpotResolvedJavaMethod) getResolvedJavaMethod(methodName);
+        method.reprofile();
+        for (Object arg : args) {
+            for (int i = 0; i < N; i++) {
+                try {
+                    invoke(method, null, arg);
+                } catch (Throwable e) {
+                    Assert.fail("method should not throw an exception: " + e.toString());
+                }
+            }
+        }
+        return method;
+    }
+
+    private static MethodProfile roundTrip(HotSpotResolvedJavaMethod method) throws IOException {
+        TrainingProfile profile = new TrainingProfile();
+        profile.record(method);
+        Path file = Files.createTempFile("TrainingProfileTest", ".profile");
+        try {
+            profile.write(file);
+            Map<String, MethodProfile> profiles = TrainingProfile.read(file);
+            MethodProfile methodProfile = profiles.get(TrainingProfile.methodName(method));
+            Assert.assertNotNull("method is recorded", methodProfile);
+            return methodProfile;
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testBranch() throws IOException {
+        HotSpotResolvedJavaMethod method = profile("branchySnippet", 5, 20, 30);
+        MethodProfile methodProfile = roundTrip(method);
+
+        int ifBci = 3; // iload_0; bipush 10; if_icmple
+        ProfilingInfo info = method.getProfilingInfo();
+        Assert.assertEquals(1d / 3, info.getBranchTakenProbability(ifBci), DELTA);
+        Assert.assertEquals(info.getBranchTakenProbability(ifBci), methodProfile.getBranchTakenProbability(ifBci), 0.0);
+        Assert.assertEquals("only branches are recorded", -1, methodProfile.getBranchTakenProbability(0), 0.0);
+    }
+
+    @Test
+    public void testSwitch() throws IOException {
+        HotSpotResolvedJavaMethod method = profile("switchSnippet", 0, 2);
+        MethodProfile methodProfile = roundTrip(method);
+
+        int switchBci = 1; // iload_0; tableswitch
+        double[] expected = method.getProfilingInfo().getSwitchProbabilities(switchBci);
+        Assert.assertArrayEquals(new double[]{0.5, 0.0, 0.5}, expected, DELTA);
+        Assert.assertArrayEquals(expected, methodProfile.getSwitchProbabilities(switchBci), 0.0);
+    }
+
+    @Test
+    public void testType() throws IOException {
+        HotSpotResolvedJavaMethod method = profile("instanceOfSnippet", "ABC", new StringBuilder());
+        MethodProfile methodProfile = roundTrip(method);
+
+        int instanceOfBci = 1; // aload_0; instanceof
+        JavaTypeProfile expected = method.getProfilingInfo().getTypeProfile(instanceOfBci);
+        Assert.assertNotNull(expected);
+        Assert.assertEquals(2, expected.getTypes().length);
+        TypeProfile types = methodProfile.getTypeProfile(instanceOfBci);
+        Assert.assertNotNull("type profile is recorded", types);
+        Assert.assertEquals(expected.getNotRecordedProbability(), types.getNotRecordedProbability(), 0.0);
+        Assert.assertEquals(expected.getTypes().length, types.getTypeCount());
+        for (int i = 0; i < types.getTypeCount(); i++) {
+            Assert.assertEquals(expected.getTypes()[i].getType().getName(), types.getTypeName(i));
+            Assert.assertEquals(expected.getTypes()[i].getProbability(), types.getProbability(i), 0.0);
+        }
+    }
+}
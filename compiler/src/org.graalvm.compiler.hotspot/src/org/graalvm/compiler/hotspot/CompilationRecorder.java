@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.hotspot;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.graalvm.compiler.debug.MethodFilter;
+
+import jdk.vm.ci.hotspot.HotSpotCompilationRequestResult;
+import jdk.vm.ci.hotspot.HotSpotInstalledCode;
+import jdk.vm.ci.hotspot.HotSpotResolvedJavaMethod;
+import jdk.vm.ci.runtime.JVMCICompiler;
+
+/**
+ * Records the {@link CompilationTask}s of a {@link HotSpotGraalRuntime} for the management
+ * interface: the compilations currently in progress, the most recently finished ones, per-method
+ * compile times and code sizes, and a rolling window of compile latencies.
+ *
+ * HotSpot's compile broker queue is not visible to Graal, so a compilation is
+ * {@linkplain State#QUEUED queued} from the time the runtime accepts the request until the compiler
+ * starts working on it.
+ */
+public final class CompilationRecorder {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        INSTALLED,
+        FAILED
+    }
+
+    /**
+     * A single compilation. The record only refers to the method being compiled while the
+     * compilation is {@linkplain #getActiveCompilations() active} so that the
+     * {@linkplain #getRecentCompilations() recent compilations} do not keep classes from being
+     * unloaded.
+     */
+    public static final class Record {
+        private final int id;
+        private final String methodName;
+        private HotSpotResolvedJavaMethod method;
+        private final int entryBCI;
+        private final long queuedNanos;
+        private volatile State state = State.QUEUED;
+        private volatile long startNanos;
+        private volatile long endNanos;
+        private volatile int codeSize;
+        private volatile String failureMessage;
+
+        Record(int id, HotSpotResolvedJavaMethod method, int entryBCI) {
+            this.id = id;
+            this.methodName = method.format("%H.%n(%p)");
+            this.method = method;
+            this.entryBCI = entryBCI;
+            this.queuedNanos = System.nanoTime();
+        }
+
+        void started() {
+            startNanos = System.nanoTime();
+            state = State.RUNNING;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        public int getEntryBCI() {
+            return entryBCI;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        /**
+         * Gets the time spent compiling and installing the code, up to now if the compilation is
+         * still running.
+         */
+        public long getCompileTimeNanos() {
+            long start = startNanos;
+            if (start == 0) {
+                return 0;
+            }
+            long end = endNanos;
+            return (end == 0 ? System.nanoTime() : end) - start;
+        }
+
+        /**
+         * Gets the time between accepting the request and starting to compile it.
+         */
+        public long getQueueTimeNanos() {
+            long start = startNanos;
+            return (start == 0 ? System.nanoTime() : start) - queuedNanos;
+        }
+
+        /**
+         * Gets the size of the installed code, or 0 if no code was installed.
+         */
+        public int getCodeSize() {
+            return codeSize;
+        }
+
+        public String getFailureMessage() {
+            return failureMessage;
+        }
+    }
+
+    /**
+     * Compilation statistics of a single method.
+     *
+     * The record keeps the method and its last installed code so that they can be
+     * {@linkplain CompilationRecorder#invalidate(String) invalidated} and recompiled. This keeps
+     * the holders of at most {@link #MAX_METHODS} methods from being unloaded, which is accepted for
+     * a recorder that is only enabled through the management interface. The reference to the code
+     * is dropped once the code is invalidated.
+     */
+    public static final class MethodRecord {
+        private final String methodName;
+        private HotSpotResolvedJavaMethod method;
+        private int compilations;
+        private int failures;
+        private long totalCompileTimeNanos;
+        private long lastCompileTimeNanos;
+        private int lastCodeSize;
+        private HotSpotInstalledCode installedCode;
+
+        MethodRecord(String methodName, HotSpotResolvedJavaMethod method) {
+            this.methodName = methodName;
+            this.method = method;
+        }
+
+        public synchronized HotSpotResolvedJavaMethod getMethod() {
+            return method;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        public synchronized int getCompilations() {
+            return compilations;
+        }
+
+        public synchronized int getFailures() {
+            return failures;
+        }
+
+        public synchronized long getTotalCompileTimeNanos() {
+            return totalCompileTimeNanos;
+        }
+
+        public synchronized long getLastCompileTimeNanos() {
+            return lastCompileTimeNanos;
+        }
+
+        public synchronized int getLastCodeSize() {
+            return lastCodeSize;
+        }
+
+        /**
+         * Invalidates the last installed code of this method if it is still valid and drops the
+         * reference to the code.
+         *
+         * @return the method whose code was invalidated or {@code null} if there was no valid code
+         */
+        synchronized HotSpotResolvedJavaMethod invalidate() {
+            HotSpotResolvedJavaMethod invalidated = null;
+            if (installedCode != null && installedCode.isValid()) {
+                installedCode.invalidate();
+                invalidated = method;
+            }
+            installedCode = null;
+            return invalidated;
+        }
+
+        synchronized void update(Record record, HotSpotResolvedJavaMethod compiledMethod, HotSpotInstalledCode code) {
+            method = compiledMethod;
+            compilations++;
+            lastCompileTimeNanos = record.getCompileTimeNanos();
+            totalCompileTimeNanos += lastCompileTimeNanos;
+            if (record.getState() == State.INSTALLED) {
+                lastCodeSize = record.getCodeSize();
+                if (record.getEntryBCI() == JVMCICompiler.INVOCATION_ENTRY_BCI) {
+                    installedCode = code;
+                }
+            } else {
+                failures++;
+            }
+        }
+    }
+
+    /**
+     * Number of finished compilations kept for {@link #getRecentCompilations()}.
+     */
+    static final int RECENT_COMPILATIONS = 256;
+
+    /**
+     * Number of methods for which statistics are kept. The least recently compiled method is
+     * dropped first.
+     */
+    static final int MAX_METHODS = 4096;
+
+    /**
+     * Number of compile latencies in the window summarized by {@link #getLatencyHistogram()}.
+     */
+    static final int LATENCY_WINDOW = 1024;
+
+    /**
+     * Number of latency histogram buckets. Bucket {@code i < LATENCY_BUCKETS - 1} counts latencies
+     * below {@code 2^i} milliseconds, the last bucket counts all longer compilations.
+     */
+    public static final int LATENCY_BUCKETS = 16;
+
+    private final Set<Record> active = ConcurrentHashMap.newKeySet();
+    private final Record[] recent = new Record[RECENT_COMPILATIONS];
+    private int recentCount;
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencyCount;
+
+    private final LinkedHashMap<String, MethodRecord> methods = new LinkedHashMap<String, MethodRecord>(64, 0.75f, true) {
+        private static final long serialVersionUID = 4946125873436385472L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MethodRecord> eldest) {
+            return size() > MAX_METHODS;
+        }
+    };
+
+    Record queued(int id, HotSpotResolvedJavaMethod method, int entryBCI) {
+        Record record = new Record(id, method, entryBCI);
+        active.add(record);
+        return record;
+    }
+
+    void finished(Record record, HotSpotCompilationRequestResult result, HotSpotInstalledCode installedCode) {
+        long end = System.nanoTime();
+        boolean started = record.startNanos != 0;
+        if (!started) {
+            record.startNanos = end;
+        }
+        record.endNanos = end;
+        if (result != null && result.getFailureMessage() == null && installedCode != null) {
+            record.codeSize = installedCode.getSize();
+            record.state = State.INSTALLED;
+        } else {
+            record.failureMessage = result == null ? "exception during compilation" : result.getFailureMessage();
+            record.state = State.FAILED;
+        }
+        active.remove(record);
+        HotSpotResolvedJavaMethod method = record.method;
+        record.method = null;
+        MethodRecord methodRecord;
+        synchronized (this) {
+            recent[recentCount % RECENT_COMPILATIONS] = record;
+            recentCount++;
+            if (started) {
+                latencies[latencyCount % LATENCY_WINDOW] = record.getCompileTimeNanos();
+                latencyCount++;
+            }
+            methodRecord = methods.get(record.methodName);
+            if (methodRecord == null) {
+                methodRecord = new MethodRecord(record.methodName, method);
+                methods.put(record.methodName, methodRecord);
+            }
+        }
+        methodRecord.update(record, method, installedCode);
+    }
+
+    /**
+     * Gets the compilations that are queued or running.
+     */
+    public List<Record> getActiveCompilations() {
+        return new ArrayList<>(active);
+    }
+
+    /**
+     * Gets the most recently finished compilations, oldest first.
+     */
+    public synchronized List<Record> getRecentCompilations() {
+        int count = Math.min(recentCount, RECENT_COMPILATIONS);
+        List<Record> result = new ArrayList<>(count);
+        for (int i = recentCount - count; i < recentCount; i++) {
+            result.add(recent[i % RECENT_COMPILATIONS]);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the statistics of the compiled methods matching {@code filter}, a comma separated list
+     * of {@link MethodFilter} patterns. A {@code null} or empty filter matches all methods.
+     */
+    public synchronized List<MethodRecord> getMethods(String filter) {
+        MethodFilter[] filters = filter == null || filter.isEmpty() ? null : MethodFilter.parse(filter);
+        List<MethodRecord> result = new ArrayList<>();
+        for (MethodRecord methodRecord : methods.values()) {
+            if (filters == null || MethodFilter.matches(filters, methodRecord.getMethod())) {
+                result.add(methodRecord);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of compile latencies in each of the {@link #LATENCY_BUCKETS} buckets over the
+     * last {@link #LATENCY_WINDOW} compilations.
+     */
+    public synchronized long[] getLatencyHistogram() {
+        long[] histogram = new long[LATENCY_BUCKETS];
+        int count = Math.min(latencyCount, LATENCY_WINDOW);
+        for (int i = 0; i < count; i++) {
+            long millis = latencies[i] / 1_000_000L;
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKETS - 1 && millis >= (1L << bucket)) {
+                bucket++;
+            }
+            histogram[bucket]++;
+        }
+        return histogram;
+    }
+
+    /**
+     * Invalidates the code installed by the last compilation of each method matching
+     * {@code filter}. Unlike {@link #getMethods(String)}, an empty filter is rejected so that a
+     * missing argument cannot invalidate all compiled methods.
+     *
+     * @return the methods whose code was invalidated
+     * @throws IllegalArgumentException if {@code filter} is {@code null} or empty
+     */
+    public List<HotSpotResolvedJavaMethod> invalidate(String filter) {
+        if (filter == null || filter.trim().isEmpty()) {
+            throw new IllegalArgumentException("A method filter must be specified");
+        }
+        List<HotSpotResolvedJavaMethod> invalidated = new ArrayList<>();
+        for (MethodRecord methodRecord : getMethods(filter)) {
+            HotSpotResolvedJavaMethod method = methodRecord.invalidate();
+            if (method != null) {
+                invalidated.add(method);
+            }
+        }
+        return invalidated;
+    }
+}
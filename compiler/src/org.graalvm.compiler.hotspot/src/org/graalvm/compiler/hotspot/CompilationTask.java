@@ -47,6 +47,7 @@ import org.graalvm.compiler.debug.DebugContext;
 import org.graalvm.compiler.debug.DebugDumpScope;
 import org.graalvm.compiler.debug.GraalError;
 import org.graalvm.compiler.debug.TimerKey;
+import org.graalvm.compiler.nodes.InlineeGraphCache;
 import org.graalvm.compiler.options.EnumOptionKey;
 import org.graalvm.compiler.options.OptionKey;
 import org.graalvm.compiler.options.OptionValues;
@@ -302,8 +303,23 @@ public class CompilationTask {
         }
     }
 
-    @SuppressWarnings("try")
     public HotSpotCompilationRequestResult runCompilation(DebugContext debug) {
+        CompilationRecorder recorder = compiler.getGraalRuntime().getCompilationRecorder();
+        if (recorder == null) {
+            return runCompilation(debug, null);
+        }
+        CompilationRecorder.Record record = recorder.queued(getId(), getMethod(), getEntryBCI());
+        HotSpotCompilationRequestResult result = null;
+        try {
+            result = runCompilation(debug, record);
+            return result;
+        } finally {
+            recorder.finished(record, result, installedCode);
+        }
+    }
+
+    @SuppressWarnings("try")
+    private HotSpotCompilationRequestResult runCompilation(DebugContext debug, CompilationRecorder.Record record) {
         HotSpotGraalRuntimeProvider graalRuntime = compiler.getGraalRuntime();
         GraalHotSpotVMConfig config = graalRuntime.getVMConfig();
         int entryBCI = getEntryBCI();
@@ -326,7 +342,15 @@ public class CompilationTask {
             }
         }
 
+        TrainingProfile trainingProfile = graalRuntime.getTrainingProfile();
+        if (trainingProfile != null) {
+            trainingProfile.record(method);
+        }
+
         HotSpotCompilationWrapper compilation = new HotSpotCompilationWrapper(compilationEvent);
+        if (record != null) {
+            record.started();
+        }
         try (DebugCloseable a = CompilationTime.start(debug)) {
             return compilation.run(debug);
         } finally {
@@ -371,6 +395,16 @@ public class CompilationTask {
             installedCode = (HotSpotInstalledCode) backend.createInstalledCode(debug, getRequest().getMethod(), getRequest(), compResult,
                             getRequest().getMethod().getSpeculationLog(), null, installAsDefault, context);
         } catch (Throwable e) {
+            if (e instanceof BailoutException) {
+                /*
+                 * The dependencies of the code failed, possibly because a cached inlinee graph
+                 * contains a method that was redefined in the meantime.
+                 */
+                InlineeGraphCache cache = backend.getProviders().getReplacements().getInlineeGraphCache();
+                if (cache != null) {
+                    cache.clear();
+                }
+            }
             throw debug.handle(e);
         }
     }
@@ -36,8 +36,10 @@ import java.util.List;
 import org.graalvm.compiler.api.runtime.GraalJVMCICompiler;
 import org.graalvm.compiler.code.CompilationResult;
 import org.graalvm.compiler.core.GraalCompiler;
+import org.graalvm.compiler.core.GraphCorpus;
 import org.graalvm.compiler.core.common.CompilationIdentifier;
 import org.graalvm.compiler.core.common.util.CompilationAlarm;
+import org.graalvm.compiler.core.common.util.CompilationBudget;
 import org.graalvm.compiler.debug.DebugContext;
 import org.graalvm.compiler.debug.DebugContext.Activation;
 import org.graalvm.compiler.debug.DebugHandlersFactory;
@@ -127,7 +129,8 @@ public class HotSpotGraalCompiler implements GraalJVMCICompiler {
         HotSpotCompilationRequest hsRequest = (HotSpotCompilationRequest) request;
         try (CompilationWatchDog w1 = CompilationWatchDog.watch(method, hsRequest.getId(), options);
                         BootstrapWatchDog.Watch w2 = bootstrapWatchDog == null ? null : bootstrapWatchDog.watch(request);
-                        CompilationAlarm alarm = CompilationAlarm.trackCompilationPeriod(options);) {
+                        CompilationAlarm alarm = CompilationAlarm.trackCompilationPeriod(options);
+                        CompilationBudget budget = CompilationBudget.trackCompilationBudget(options);) {
             if (compilationCounters != null) {
                 compilationCounters.countCompilation(method);
             }
@@ -166,7 +169,7 @@ public class HotSpotGraalCompiler implements GraalJVMCICompiler {
         HotSpotProviders providers = backend.getProviders();
         final boolean isOSR = entryBCI != JVMCICompiler.INVOCATION_ENTRY_BCI;
 
-        Suites suites = getSuites(providers, options);
+        Suites suites = GraphCorpus.instrument(getSuites(providers, options), options, providers, providers.getSnippetReflection());
         LIRSuites lirSuites = getLIRSuites(providers, options);
         ProfilingInfo profilingInfo = useProfilingInfo ? method.getProfilingInfo(!isOSR, isOSR) : DefaultProfilingInfo.get(TriState.FALSE);
         OptimisticOptimizations optimisticOpts = getOptimisticOpts(profilingInfo, options);
@@ -29,7 +29,9 @@ import static jdk.vm.ci.hotspot.HotSpotJVMCIRuntime.runtime;
 import static org.graalvm.compiler.core.common.GraalOptions.GeneratePIC;
 import static org.graalvm.compiler.core.common.GraalOptions.HotSpotPrintInlining;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.List;
@@ -59,6 +61,7 @@ import org.graalvm.compiler.hotspot.CompilationStatistics.Options;
 import org.graalvm.compiler.hotspot.CompilerConfigurationFactory.BackendMap;
 import org.graalvm.compiler.hotspot.debug.BenchmarkCounters;
 import org.graalvm.compiler.hotspot.meta.HotSpotProviders;
+import org.graalvm.compiler.nodes.InlineeGraphCache;
 import org.graalvm.compiler.nodes.spi.StampProvider;
 import org.graalvm.compiler.options.EnumOptionKey;
 import org.graalvm.compiler.options.OptionDescriptor;
@@ -73,6 +76,7 @@ import org.graalvm.compiler.runtime.RuntimeProvider;
 import org.graalvm.compiler.serviceprovider.GraalServices;
 
 import jdk.vm.ci.code.Architecture;
+import jdk.vm.ci.code.CompilationRequestResult;
 import jdk.vm.ci.code.stack.StackIntrospection;
 import jdk.vm.ci.common.InitTimer;
 import jdk.vm.ci.hotspot.HotSpotCompilationRequest;
@@ -87,6 +91,7 @@ import jdk.vm.ci.meta.ResolvedJavaMethod;
 import jdk.vm.ci.meta.ResolvedJavaType;
 import jdk.vm.ci.runtime.JVMCI;
 import jdk.vm.ci.runtime.JVMCIBackend;
+import jdk.vm.ci.runtime.JVMCICompiler;
 
 //JaCoCo Exclude
 
@@ -160,6 +165,8 @@ public final class HotSpotGraalRuntime implements HotSpotGraalRuntimeProvider {
 
         compiler = new HotSpotGraalCompiler(jvmciRuntime, this, options);
         management = GraalServices.loadSingle(HotSpotGraalManagementRegistration.class, false);
+        compilationRecorder = management != null ? new CompilationRecorder() : null;
+        trainingProfile = TrainingProfile.Options.TrainingProfileFile.getValue(options) != null ? new TrainingProfile() : null;
         if (management != null) {
             management.initialize(this);
         }
@@ -386,6 +393,20 @@ public final class HotSpotGraalRuntime implements HotSpotGraalRuntimeProvider {
         }
         BenchmarkCounters.shutdown(runtime(), optionsRef.get(), runtimeStartTime);
 
+        if (trainingProfile != null) {
+            String file = TrainingProfile.Options.TrainingProfileFile.getValue(optionsRef.get());
+            try {
+                trainingProfile.write(Paths.get(file));
+            } catch (IOException e) {
+                TTY.println("Warning: could not write training profile to " + file + ": " + e);
+            }
+        }
+
+        InlineeGraphCache inlineeGraphCache = getHostProviders().getReplacements().getInlineeGraphCache();
+        if (inlineeGraphCache != null && InlineeGraphCache.Options.PrintInlineeGraphCacheStatistics.getValue(optionsRef.get())) {
+            TTY.println(inlineeGraphCache.toString());
+        }
+
         outputDirectory.close();
     }
 
@@ -431,6 +452,20 @@ public final class HotSpotGraalRuntime implements HotSpotGraalRuntimeProvider {
         return management;
     }
 
+    private final CompilationRecorder compilationRecorder;
+
+    @Override
+    public CompilationRecorder getCompilationRecorder() {
+        return compilationRecorder;
+    }
+
+    private final TrainingProfile trainingProfile;
+
+    @Override
+    public TrainingProfile getTrainingProfile() {
+        return trainingProfile;
+    }
+
     /**
      * Set of weak references to {@link ClassLoader}s available for resolving class names present in
      * management {@linkplain #invokeManagementAction(String, Object[]) action} arguments.
@@ -576,8 +611,36 @@ public final class HotSpotGraalRuntime implements HotSpotGraalRuntimeProvider {
         compiler.compileMethod(new HotSpotCompilationRequest(hotSpotMethod, -1, 0L), false, compileOptions);
     }
 
+    /**
+     * Invalidates the code installed for the methods matching {@code filter} and, if
+     * {@code recompile} is true, compiles them again with the current options.
+     *
+     * @return the names of the affected methods
+     */
+    private String[] invalidateMethods(String filter, boolean recompile) {
+        if (compilationRecorder == null) {
+            return new String[0];
+        }
+        List<String> names = new ArrayList<>();
+        for (HotSpotResolvedJavaMethod method : compilationRecorder.invalidate(filter)) {
+            String name = method.format("%H.%n(%p)");
+            if (recompile) {
+                CompilationRequestResult result = compiler.compileMethod(new HotSpotCompilationRequest(method, JVMCICompiler.INVOCATION_ENTRY_BCI, 0L), true, getOptions());
+                if (result.getFailure() != null) {
+                    name += " (recompilation failed: " + result.getFailure() + ")";
+                }
+            }
+            names.add(name);
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
     public Object invokeManagementAction(String actionName, Object[] params) throws Exception {
-        if ("dumpMethod".equals(actionName)) {
+        if ("invalidateMethods".equals(actionName)) {
+            return invalidateMethods(param(params, 0, "filter", String.class, null), false);
+        } else if ("recompileMethods".equals(actionName)) {
+            return invalidateMethods(param(params, 0, "filter", String.class, null), true);
+        } else if ("dumpMethod".equals(actionName)) {
             if (params.length != 0 && params[0] instanceof HotSpotResolvedJavaMethod) {
                 HotSpotResolvedJavaMethod method = param(params, 0, "method", HotSpotResolvedJavaMethod.class, null);
                 String filter = param(params, 1, "filter", String.class, ":3");
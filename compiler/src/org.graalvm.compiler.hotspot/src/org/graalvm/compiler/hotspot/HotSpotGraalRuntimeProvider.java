@@ -100,6 +100,18 @@ public interface HotSpotGraalRuntimeProvider extends GraalRuntime, RuntimeProvid
      */
     Map<ExceptionAction, Integer> getCompilationProblemsPerAction();
 
+    /**
+     * Gets the recorder of the compilations performed by this runtime for the management interface,
+     * or {@code null} if no management interface is available.
+     */
+    CompilationRecorder getCompilationRecorder();
+
+    /**
+     * Gets the profiles recorded for {@link TrainingProfile.Options#TrainingProfileFile} or
+     * {@code null} if no training profile is being recorded.
+     */
+    TrainingProfile getTrainingProfile();
+
     /**
      * Returns the unique compiler configuration name that is in use. Useful for users to find out
      * which configuration is in use.
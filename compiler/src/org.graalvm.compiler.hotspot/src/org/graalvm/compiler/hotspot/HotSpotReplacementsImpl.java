@@ -39,6 +39,7 @@ import org.graalvm.compiler.debug.GraalError;
 import org.graalvm.compiler.graph.NodeSourcePosition;
 import org.graalvm.compiler.hotspot.meta.HotSpotWordOperationPlugin;
 import org.graalvm.compiler.hotspot.word.HotSpotOperation;
+import org.graalvm.compiler.nodes.InlineeGraphCache;
 import org.graalvm.compiler.nodes.Invoke;
 import org.graalvm.compiler.nodes.StructuredGraph;
 import org.graalvm.compiler.nodes.graphbuilderconf.GraphBuilderContext;
@@ -59,13 +60,24 @@ import jdk.vm.ci.meta.ResolvedJavaMethod;
  * them.
  */
 public class HotSpotReplacementsImpl extends ReplacementsImpl {
+
+    private final InlineeGraphCache inlineeGraphCache;
+
     public HotSpotReplacementsImpl(OptionValues options, Providers providers, SnippetReflectionProvider snippetReflection, BytecodeProvider bytecodeProvider, TargetDescription target) {
         super(options, new GraalDebugHandlersFactory(snippetReflection), providers, snippetReflection, bytecodeProvider, target);
+        this.inlineeGraphCache = InlineeGraphCache.create(options, target.arch);
     }
 
     protected HotSpotReplacementsImpl(HotSpotReplacementsImpl replacements, Providers providers) {
         super(replacements.options, new GraalDebugHandlersFactory(replacements.snippetReflection), providers, replacements.snippetReflection,
                         replacements.getDefaultReplacementBytecodeProvider(), replacements.target);
+        // copies parse with their own providers, so they do not share parsed graphs
+        this.inlineeGraphCache = null;
+    }
+
+    @Override
+    public InlineeGraphCache getInlineeGraphCache() {
+        return inlineeGraphCache;
     }
 
     @Override
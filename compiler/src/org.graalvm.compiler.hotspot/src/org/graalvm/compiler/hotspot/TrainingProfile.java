@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.hotspot;
+
+import static org.graalvm.compiler.bytecode.Bytecodes.AASTORE;
+import static org.graalvm.compiler.bytecode.Bytecodes.CHECKCAST;
+import static org.graalvm.compiler.bytecode.Bytecodes.INSTANCEOF;
+import static org.graalvm.compiler.bytecode.Bytecodes.INVOKEINTERFACE;
+import static org.graalvm.compiler.bytecode.Bytecodes.INVOKEVIRTUAL;
+import static org.graalvm.compiler.bytecode.Bytecodes.LOOKUPSWITCH;
+import static org.graalvm.compiler.bytecode.Bytecodes.TABLESWITCH;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import org.graalvm.collections.EconomicMap;
+import org.graalvm.collections.MapCursor;
+import org.graalvm.compiler.bytecode.Bytecodes;
+import org.graalvm.compiler.bytecode.BytecodeStream;
+import org.graalvm.compiler.options.Option;
+import org.graalvm.compiler.options.OptionKey;
+import org.graalvm.compiler.options.OptionType;
+
+import jdk.vm.ci.hotspot.HotSpotResolvedJavaMethod;
+import jdk.vm.ci.meta.JavaTypeProfile;
+import jdk.vm.ci.meta.JavaTypeProfile.ProfiledType;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Profiles of the methods compiled during a training run, for use by {@code jaotc --profile}. Being
+ * compiled at all marks a method as hot. For each such method, the branch, switch and type
+ * profiles of its {@link ProfilingInfo} are recorded when the compilation starts. The profiles are
+ * written at VM exit to a line based file:
+ *
+ * <pre>
+ * method &lt;class&gt;.&lt;name&gt;&lt;descriptor&gt; &lt;code size&gt; &lt;code checksum&gt;
+ * branch &lt;bci&gt; &lt;taken probability&gt;
+ * switch &lt;bci&gt; &lt;probability&gt;...
+ * type &lt;bci&gt; &lt;not recorded probability&gt; [&lt;type name&gt; &lt;probability&gt;]...
+ * </pre>
+ *
+ * The {@code branch}, {@code switch} and {@code type} lines apply to the preceding {@code method}.
+ * The code size and the {@linkplain #codeChecksum checksum} of the bytecode identify the version of
+ * the method that was profiled. A profile does not {@linkplain MethodProfile#matches match} a
+ * method whose bytecode changed since.
+ */
+public final class TrainingProfile {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "File to which the profiles of the methods compiled by Graal are written at VM exit. " +
+                       "The file can be passed to jaotc with --profile.", type = OptionType.User)
+        public static final OptionKey<String> TrainingProfileFile = new OptionKey<>(null);
+        // @formatter:on
+    }
+
+    /**
+     * Recorded receiver or operand types at one bytecode.
+     */
+    public static final class TypeProfile {
+        private final double notRecordedProbability;
+        private final String[] typeNames;
+        private final double[] probabilities;
+
+        TypeProfile(double notRecordedProbability, String[] typeNames, double[] probabilities) {
+            this.notRecordedProbability = notRecordedProbability;
+            this.typeNames = typeNames;
+            this.probabilities = probabilities;
+        }
+
+        public double getNotRecordedProbability() {
+            return notRecordedProbability;
+        }
+
+        public int getTypeCount() {
+            return typeNames.length;
+        }
+
+        /**
+         * Gets the {@linkplain jdk.vm.ci.meta.JavaType#getName() name} of the {@code i}th type.
+         */
+        public String getTypeName(int i) {
+            return typeNames[i];
+        }
+
+        public double getProbability(int i) {
+            return probabilities[i];
+        }
+    }
+
+    /**
+     * The recorded profile of a single method.
+     */
+    public static final class MethodProfile {
+        private final String method;
+        private final int codeSize;
+        private final long codeChecksum;
+        private final EconomicMap<Integer, Double> branches = EconomicMap.create();
+        private final EconomicMap<Integer, double[]> switches = EconomicMap.create();
+        private final EconomicMap<Integer, TypeProfile> types = EconomicMap.create();
+
+        MethodProfile(String method, int codeSize, long codeChecksum) {
+            this.method = method;
+            this.codeSize = codeSize;
+            this.codeChecksum = codeChecksum;
+        }
+
+        /**
+         * Gets the name of the profiled method as returned by {@link TrainingProfile#methodName}.
+         */
+        public String getMethod() {
+            return method;
+        }
+
+        /**
+         * Determines if this profile was recorded for the current bytecode of {@code m}. The bcis
+         * of a profile recorded for different bytecode are meaningless.
+         */
+        public boolean matches(ResolvedJavaMethod m) {
+            byte[] code = m.getCode();
+            return code != null && code.length == codeSize && codeChecksum(code) == codeChecksum;
+        }
+
+        /**
+         * Gets the recorded taken probability of the branch at {@code bci} or -1 if there is none.
+         */
+        public double getBranchTakenProbability(int bci) {
+            Double probability = branches.get(bci);
+            return probability == null ? -1 : probability;
+        }
+
+        /**
+         * Gets the recorded probabilities of the switch at {@code bci} or {@code null}.
+         */
+        public double[] getSwitchProbabilities(int bci) {
+            double[] probabilities = switches.get(bci);
+            return probabilities == null ? null : probabilities.clone();
+        }
+
+        /**
+         * Gets the recorded types at {@code bci} or {@code null}.
+         */
+        public TypeProfile getTypeProfile(int bci) {
+            return types.get(bci);
+        }
+
+        void print(PrintWriter out) {
+            out.println("method " + method + " " + codeSize + " " + Long.toHexString(codeChecksum));
+            MapCursor<Integer, Double> branch = branches.getEntries();
+            while (branch.advance()) {
+                out.println("branch " + branch.getKey() + " " + branch.getValue());
+            }
+            MapCursor<Integer, double[]> switchProfile = switches.getEntries();
+            while (switchProfile.advance()) {
+                StringBuilder line = new StringBuilder("switch ").append(switchProfile.getKey());
+                for (double probability : switchProfile.getValue()) {
+                    line.append(' ').append(probability);
+                }
+                out.println(line);
+            }
+            MapCursor<Integer, TypeProfile> type = types.getEntries();
+            while (type.advance()) {
+                TypeProfile profile = type.getValue();
+                StringBuilder line = new StringBuilder("type ").append(type.getKey()).append(' ').append(profile.notRecordedProbability);
+                for (int i = 0; i < profile.typeNames.length; i++) {
+                    line.append(' ').append(profile.typeNames[i]).append(' ').append(profile.probabilities[i]);
+                }
+                out.println(line);
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<String, MethodProfile> methods = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the name under which the profile of {@code method} is recorded.
+     */
+    public static String methodName(ResolvedJavaMethod method) {
+        return method.getDeclaringClass().toClassName() + "." + method.getName() + method.getSignature().toMethodDescriptor();
+    }
+
+    /**
+     * Computes the checksum of {@code code} that identifies the profiled version of a method.
+     */
+    public static long codeChecksum(byte[] code) {
+        CRC32 crc = new CRC32();
+        crc.update(code, 0, code.length);
+        return crc.getValue();
+    }
+
+    /**
+     * Records the current profile of {@code method}, replacing one recorded by an earlier
+     * compilation.
+     */
+    public void record(HotSpotResolvedJavaMethod method) {
+        byte[] code = method.getCode();
+        if (code == null) {
+            return;
+        }
+        ProfilingInfo info = method.getProfilingInfo();
+        MethodProfile profile = new MethodProfile(methodName(method), code.length, codeChecksum(code));
+        BytecodeStream stream = new BytecodeStream(code);
+        while (stream.currentBC() != Bytecodes.END) {
+            int bci = stream.currentBCI();
+            int opcode = stream.currentBC();
+            if (Bytecodes.isIfBytecode(opcode)) {
+                double probability = info.getBranchTakenProbability(bci);
+                if (probability >= 0) {
+                    profile.branches.put(bci, probability);
+                }
+            } else if (opcode == TABLESWITCH || opcode == LOOKUPSWITCH) {
+                double[] probabilities = info.getSwitchProbabilities(bci);
+                if (probabilities != null) {
+                    profile.switches.put(bci, probabilities);
+                }
+            } else if (opcode == INVOKEVIRTUAL || opcode == INVOKEINTERFACE || opcode == CHECKCAST || opcode == INSTANCEOF || opcode == AASTORE) {
+                JavaTypeProfile typeProfile = info.getTypeProfile(bci);
+                if (typeProfile != null) {
+                    ProfiledType[] profiledTypes = typeProfile.getTypes();
+                    String[] typeNames = new String[profiledTypes.length];
+                    double[] probabilities = new double[profiledTypes.length];
+                    for (int i = 0; i < profiledTypes.length; i++) {
+                        typeNames[i] = profiledTypes[i].getType().getName();
+                        probabilities[i] = profiledTypes[i].getProbability();
+                    }
+                    profile.types.put(bci, new TypeProfile(typeProfile.getNotRecordedProbability(), typeNames, probabilities));
+                }
+            }
+            stream.next();
+        }
+        methods.put(profile.method, profile);
+    }
+
+    /**
+     * Writes the recorded profiles to {@code file}, sorted by method name.
+     */
+    public void write(Path file) throws IOException {
+        List<String> names = new ArrayList<>(methods.keySet());
+        Collections.sort(names);
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            for (String name : names) {
+                methods.get(name).print(out);
+            }
+        }
+    }
+
+    private static double parseProbability(String value) throws IOException {
+        double probability = Double.parseDouble(value);
+        if (!(probability >= 0 && probability <= 1)) {
+            throw new IOException("probability out of range: " + value);
+        }
+        return probability;
+    }
+
+    /**
+     * Reads the profiles written by {@link #write} to {@code file}. Probabilities must be in the
+     * range [0, 1]. Whether a switch profile has the right number of probabilities can only be
+     * checked against the bytecode of the method.
+     *
+     * @return the profiles keyed by {@linkplain #methodName method name}
+     */
+    public static Map<String, MethodProfile> read(Path file) throws IOException {
+        Map<String, MethodProfile> result = new HashMap<>();
+        MethodProfile current = null;
+        int lineNumber = 0;
+        try (BufferedReader in = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                String[] parts = line.trim().split("\\s+");
+                if (parts[0].isEmpty() || parts[0].startsWith("#")) {
+                    continue;
+                }
+                try {
+                    if (parts[0].equals("method") && parts.length == 4) {
+                        current = new MethodProfile(parts[1], Integer.parseInt(parts[2]), Long.parseLong(parts[3], 16));
+                        result.put(current.method, current);
+                    } else if (current == null) {
+                        throw new IOException("profile entry before the first method");
+                    } else if (parts[0].equals("branch") && parts.length == 3) {
+                        current.branches.put(Integer.parseInt(parts[1]), parseProbability(parts[2]));
+                    } else if (parts[0].equals("switch") && parts.length > 2) {
+                        double[] probabilities = new double[parts.length - 2];
+                        for (int i = 0; i < probabilities.length; i++) {
+                            probabilities[i] = parseProbability(parts[i + 2]);
+                        }
+                        current.switches.put(Integer.parseInt(parts[1]), probabilities);
+                    } else if (parts[0].equals("type") && parts.length > 2 && parts.length % 2 == 1) {
+                        int count = (parts.length - 3) / 2;
+                        String[] typeNames = new String[count];
+                        double[] probabilities = new double[count];
+                        for (int i = 0; i < count; i++) {
+                            typeNames[i] = parts[3 + 2 * i];
+                            probabilities[i] = parseProbability(parts[4 + 2 * i]);
+                        }
+                        current.types.put(Integer.parseInt(parts[1]), new TypeProfile(parseProbability(parts[2]), typeNames, probabilities));
+                    } else {
+                        throw new IOException("malformed profile entry");
+                    }
+                } catch (NumberFormatException | IOException e) {
+                    throw new IOException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -124,6 +124,19 @@ public class HotSpotGraphBuilderPlugins {
      */
     public static Plugins create(CompilerConfiguration compilerConfiguration, GraalHotSpotVMConfig config, HotSpotWordTypes wordTypes, MetaAccessProvider metaAccess,
                     ConstantReflectionProvider constantReflection, SnippetReflectionProvider snippetReflection, ForeignCallsProvider foreignCalls, ReplacementsImpl replacements) {
+        return create(compilerConfiguration, config, wordTypes, metaAccess, constantReflection, snippetReflection, foreignCalls, replacements, false);
+    }
+
+    /**
+     * Creates a {@link Plugins} object that should be used when running on HotSpot.
+     *
+     * @param keepStringConcatCalls specifies if the suites of the backend apply
+     *            {@link org.graalvm.compiler.replacements.OptimizeStringConcatPhase}
+     * @see InlineDuringParsingPlugin#InlineDuringParsingPlugin(boolean)
+     */
+    public static Plugins create(CompilerConfiguration compilerConfiguration, GraalHotSpotVMConfig config, HotSpotWordTypes wordTypes, MetaAccessProvider metaAccess,
+                    ConstantReflectionProvider constantReflection, SnippetReflectionProvider snippetReflection, ForeignCallsProvider foreignCalls, ReplacementsImpl replacements,
+                    boolean keepStringConcatCalls) {
         InvocationPlugins invocationPlugins = new HotSpotInvocationPlugins(config, compilerConfiguration);
 
         Plugins plugins = new Plugins(invocationPlugins);
@@ -139,7 +152,7 @@ public class HotSpotGraphBuilderPlugins {
         }
         plugins.appendInlineInvokePlugin(replacements);
         if (InlineDuringParsing.getValue(options)) {
-            plugins.appendInlineInvokePlugin(new InlineDuringParsingPlugin());
+            plugins.appendInlineInvokePlugin(new InlineDuringParsingPlugin(keepStringConcatCalls));
         }
 
         if (GeneratePIC.getValue(options)) {
@@ -114,6 +114,7 @@ import org.graalvm.compiler.nodes.extended.ForeignCallNode;
 import org.graalvm.compiler.nodes.extended.MembarNode;
 import org.graalvm.compiler.nodes.java.MethodCallTargetNode;
 import org.graalvm.compiler.nodes.java.MonitorExitNode;
+import org.graalvm.compiler.nodes.java.MonitorIdNode;
 import org.graalvm.compiler.nodes.java.RawMonitorEnterNode;
 import org.graalvm.compiler.nodes.spi.LoweringTool;
 import org.graalvm.compiler.nodes.type.StampTool;
@@ -597,6 +598,24 @@ public class MonitorSnippets implements Snippets {
         decCounter();
     }
 
+    /**
+     * Opens the lock scope of a monitor whose object is already locked by an enclosing monitor,
+     * see {@link MonitorIdNode#isEliminated()}. The lock slot is only used if deoptimization
+     * re-locks the object.
+     */
+    @Snippet
+    public static void monitorenterEliminated(@ConstantParameter int lockDepth) {
+        beginLockScope(lockDepth);
+    }
+
+    /**
+     * Closes the lock scope opened by {@link #monitorenterEliminated}.
+     */
+    @Snippet
+    public static void monitorexitEliminated() {
+        endLockScope();
+    }
+
     public static void traceObject(boolean enabled, String action, Object object, boolean enter) {
         if (doProfile(INJECTED_OPTIONVALUES)) {
             DynamicCounterNode.counter(enter ? "number of monitor enters" : "number of monitor exits", action, 1, PROFILE_CONTEXT);
@@ -725,6 +744,8 @@ public class MonitorSnippets implements Snippets {
         private final SnippetInfo monitorexit = snippet(MonitorSnippets.class, "monitorexit");
         private final SnippetInfo monitorenterStub = snippet(MonitorSnippets.class, "monitorenterStub");
         private final SnippetInfo monitorexitStub = snippet(MonitorSnippets.class, "monitorexitStub");
+        private final SnippetInfo monitorenterEliminated = snippet(MonitorSnippets.class, "monitorenterEliminated");
+        private final SnippetInfo monitorexitEliminated = snippet(MonitorSnippets.class, "monitorexitEliminated");
         private final SnippetInfo initCounter = snippet(MonitorSnippets.class, "initCounter");
         private final SnippetInfo checkCounter = snippet(MonitorSnippets.class, "checkCounter");
 
@@ -746,6 +767,12 @@ public class MonitorSnippets implements Snippets {
             assert ((ObjectStamp) monitorenterNode.object().stamp(NodeView.DEFAULT)).nonNull();
 
             Arguments args;
+            if (monitorenterNode.getMonitorId().isEliminated()) {
+                args = new Arguments(monitorenterEliminated, graph.getGuardsStage(), tool.getLoweringStage());
+                args.addConst("lockDepth", monitorenterNode.getMonitorId().getLockDepth());
+                template(monitorenterNode, args).instantiate(providers.getMetaAccess(), monitorenterNode, DEFAULT_REPLACER, args);
+                return;
+            }
             if (useFastLocking) {
                 args = new Arguments(monitorenter, graph.getGuardsStage(), tool.getLoweringStage());
                 args.add("object", monitorenterNode.object());
@@ -770,6 +797,11 @@ public class MonitorSnippets implements Snippets {
             StructuredGraph graph = monitorexitNode.graph();
 
             Arguments args;
+            if (monitorexitNode.getMonitorId().isEliminated()) {
+                args = new Arguments(monitorexitEliminated, graph.getGuardsStage(), tool.getLoweringStage());
+                template(monitorexitNode, args).instantiate(providers.getMetaAccess(), monitorexitNode, DEFAULT_REPLACER, args);
+                return;
+            }
             if (useFastLocking) {
                 args = new Arguments(monitorexit, graph.getGuardsStage(), tool.getLoweringStage());
             } else {
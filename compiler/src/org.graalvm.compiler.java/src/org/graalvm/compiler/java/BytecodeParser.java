@@ -718,7 +718,13 @@ public class BytecodeParser implements GraphBuilderContext {
         this.constantReflection = graphBuilderInstance.constantReflection;
         this.constantFieldProvider = graphBuilderInstance.constantFieldProvider;
         this.stream = new BytecodeStream(code.getCode());
-        this.profilingInfo = graph.useProfilingInfo() ? code.getProfilingInfo() : null;
+        if (!graph.useProfilingInfo()) {
+            this.profilingInfo = null;
+        } else if (graph.getProfileProvider() != null && intrinsicContext == null) {
+            this.profilingInfo = graph.getProfilingInfo(method);
+        } else {
+            this.profilingInfo = code.getProfilingInfo();
+        }
         this.constantPool = code.getConstantPool();
         this.intrinsicContext = intrinsicContext;
         this.entryBCI = entryBCI;
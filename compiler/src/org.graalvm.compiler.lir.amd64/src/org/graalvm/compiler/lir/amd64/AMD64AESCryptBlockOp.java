@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.lir.amd64;
+
+import static jdk.vm.ci.code.ValueUtil.asRegister;
+import static org.graalvm.compiler.lir.LIRInstruction.OperandFlag.REG;
+import static org.graalvm.compiler.lir.amd64.AMD64HotSpotHelper.pointerConstant;
+import static org.graalvm.compiler.lir.amd64.AMD64HotSpotHelper.recordExternalAddress;
+
+import org.graalvm.compiler.asm.Label;
+import org.graalvm.compiler.asm.amd64.AMD64Address;
+import org.graalvm.compiler.asm.amd64.AMD64Assembler.ConditionFlag;
+import org.graalvm.compiler.asm.amd64.AMD64MacroAssembler;
+import org.graalvm.compiler.core.common.LIRKind;
+import org.graalvm.compiler.lir.LIRInstructionClass;
+import org.graalvm.compiler.lir.Opcode;
+import org.graalvm.compiler.lir.asm.ArrayDataPointerConstant;
+import org.graalvm.compiler.lir.asm.CompilationResultBuilder;
+import org.graalvm.compiler.lir.gen.LIRGeneratorTool;
+
+import jdk.vm.ci.amd64.AMD64Kind;
+import jdk.vm.ci.code.Register;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.Value;
+
+/**
+ * Encrypts or decrypts a single 16 byte block with AES-NI using the expanded key of a
+ * {@code com.sun.crypto.provider.AESCrypt} object. The Java key schedule stores the round keys as
+ * big-endian ints, so every round key is byte swapped before use. For decryption, the Java key
+ * schedule is rotated by one round key with respect to what {@code aesdec} expects: decryption
+ * starts with the round key at offset 16 and finishes with the one at offset 0.
+ *
+ * The number of rounds is derived from the length of the key array: 44 ints for AES-128, 52 for
+ * AES-192 and 60 for AES-256.
+ */
+@Opcode("AES_CRYPT_BLOCK")
+public final class AMD64AESCryptBlockOp extends AMD64LIRInstruction {
+    public static final LIRInstructionClass<AMD64AESCryptBlockOp> TYPE = LIRInstructionClass.create(AMD64AESCryptBlockOp.class);
+
+    private static final int AES_BLOCK_SIZE = 16;
+    private static final int AES128_KEY_INTS = 44;
+    private static final int AES192_KEY_INTS = 52;
+
+    private final boolean encrypt;
+    private final int byteArrayBaseOffset;
+    private final int intArrayBaseOffset;
+
+    @Alive({REG}) private Value inValue;
+    @Alive({REG}) private Value inOffsetValue;
+    @Alive({REG}) private Value outValue;
+    @Alive({REG}) private Value outOffsetValue;
+    @Alive({REG}) private Value keyValue;
+    @Alive({REG}) private Value keyLengthValue;
+
+    @Temp({REG}) private Value offsetTemp;
+    @Temp({REG}) private Value resultTemp;
+    @Temp({REG}) private Value roundKeyTemp;
+    @Temp({REG}) private Value shuffleMaskTemp;
+
+    /**
+     * Mask for {@code pshufb} that reverses the bytes of each int of a round key.
+     */
+    private final ArrayDataPointerConstant keyShuffleMask = pointerConstant(16, new int[]{
+            // @formatter:off
+            0x00010203, 0x04050607, 0x08090a0b, 0x0c0d0e0f
+            // @formatter:on
+    });
+
+    public AMD64AESCryptBlockOp(LIRGeneratorTool tool, boolean encrypt, Value in, Value inOffset, Value out, Value outOffset, Value key, Value keyLength) {
+        super(TYPE);
+        this.encrypt = encrypt;
+        this.byteArrayBaseOffset = tool.getProviders().getMetaAccess().getArrayBaseOffset(JavaKind.Byte);
+        this.intArrayBaseOffset = tool.getProviders().getMetaAccess().getArrayBaseOffset(JavaKind.Int);
+        this.inValue = in;
+        this.inOffsetValue = inOffset;
+        this.outValue = out;
+        this.outOffsetValue = outOffset;
+        this.keyValue = key;
+        this.keyLengthValue = keyLength;
+        this.offsetTemp = tool.newVariable(LIRKind.value(AMD64Kind.QWORD));
+        this.resultTemp = tool.newVariable(LIRKind.value(AMD64Kind.V128_BYTE));
+        this.roundKeyTemp = tool.newVariable(LIRKind.value(AMD64Kind.V128_BYTE));
+        this.shuffleMaskTemp = tool.newVariable(LIRKind.value(AMD64Kind.V128_BYTE));
+    }
+
+    @Override
+    public void emitCode(CompilationResultBuilder crb, AMD64MacroAssembler masm) {
+        Register offset = asRegister(offsetTemp);
+        Register result = asRegister(resultTemp);
+        Register roundKey = asRegister(roundKeyTemp);
+        Register shuffleMask = asRegister(shuffleMaskTemp);
+        Register key = asRegister(keyValue);
+        Register keyLength = asRegister(keyLengthValue);
+
+        masm.movdqu(shuffleMask, recordExternalAddress(crb, keyShuffleMask));
+
+        // The offsets are known to be non-negative, so the zero extension of movl is sufficient.
+        masm.movl(offset, asRegister(inOffsetValue));
+        masm.movdqu(result, new AMD64Address(asRegister(inValue), offset, AMD64Address.Scale.Times1, byteArrayBaseOffset));
+
+        Label lastRound = new Label();
+        int firstKey = encrypt ? 0 : 1;
+        loadRoundKey(masm, roundKey, key, firstKey, shuffleMask);
+        masm.pxor(result, roundKey);
+        for (int round = firstKey + 1; round < firstKey + 10; round++) {
+            cryptRound(masm, result, roundKey, key, round, shuffleMask);
+        }
+        if (encrypt) {
+            // AES-128 finishes with round key 10, AES-192 with 12 and AES-256 with 14.
+            Label aes192LastRound = new Label();
+            masm.cmpl(keyLength, AES128_KEY_INTS);
+            masm.jcc(ConditionFlag.Equal, lastRound);
+            cryptRound(masm, result, roundKey, key, 10, shuffleMask);
+            cryptRound(masm, result, roundKey, key, 11, shuffleMask);
+            masm.cmpl(keyLength, AES192_KEY_INTS);
+            masm.jcc(ConditionFlag.Equal, aes192LastRound);
+            cryptRound(masm, result, roundKey, key, 12, shuffleMask);
+            cryptRound(masm, result, roundKey, key, 13, shuffleMask);
+            loadRoundKey(masm, roundKey, key, 14, shuffleMask);
+            Label done = new Label();
+            masm.jmp(done);
+            masm.bind(aes192LastRound);
+            loadRoundKey(masm, roundKey, key, 12, shuffleMask);
+            masm.jmp(done);
+            masm.bind(lastRound);
+            loadRoundKey(masm, roundKey, key, 10, shuffleMask);
+            masm.bind(done);
+            masm.aesenclast(result, roundKey);
+        } else {
+            // Decryption always finishes with the round key at offset 0.
+            masm.cmpl(keyLength, AES128_KEY_INTS);
+            masm.jcc(ConditionFlag.Equal, lastRound);
+            cryptRound(masm, result, roundKey, key, 11, shuffleMask);
+            cryptRound(masm, result, roundKey, key, 12, shuffleMask);
+            masm.cmpl(keyLength, AES192_KEY_INTS);
+            masm.jcc(ConditionFlag.Equal, lastRound);
+            cryptRound(masm, result, roundKey, key, 13, shuffleMask);
+            cryptRound(masm, result, roundKey, key, 14, shuffleMask);
+            masm.bind(lastRound);
+            loadRoundKey(masm, roundKey, key, 0, shuffleMask);
+            masm.aesdeclast(result, roundKey);
+        }
+
+        masm.movl(offset, asRegister(outOffsetValue));
+        masm.movdqu(new AMD64Address(asRegister(outValue), offset, AMD64Address.Scale.Times1, byteArrayBaseOffset), result);
+    }
+
+    private void loadRoundKey(AMD64MacroAssembler masm, Register roundKey, Register key, int index, Register shuffleMask) {
+        masm.movdqu(roundKey, new AMD64Address(key, intArrayBaseOffset + index * AES_BLOCK_SIZE));
+        masm.pshufb(roundKey, shuffleMask);
+    }
+
+    private void cryptRound(AMD64MacroAssembler masm, Register result, Register roundKey, Register key, int index, Register shuffleMask) {
+        loadRoundKey(masm, roundKey, key, index, shuffleMask);
+        if (encrypt) {
+            masm.aesenc(result, roundKey);
+        } else {
+            masm.aesdec(result, roundKey);
+        }
+    }
+}
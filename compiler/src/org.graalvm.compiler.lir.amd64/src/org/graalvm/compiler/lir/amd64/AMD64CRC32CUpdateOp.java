@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.lir.amd64;
+
+import static jdk.vm.ci.code.ValueUtil.asRegister;
+import static org.graalvm.compiler.lir.LIRInstruction.OperandFlag.REG;
+
+import org.graalvm.compiler.asm.Label;
+import org.graalvm.compiler.asm.amd64.AMD64Address;
+import org.graalvm.compiler.asm.amd64.AMD64Assembler.ConditionFlag;
+import org.graalvm.compiler.asm.amd64.AMD64MacroAssembler;
+import org.graalvm.compiler.core.common.LIRKind;
+import org.graalvm.compiler.lir.LIRInstructionClass;
+import org.graalvm.compiler.lir.Opcode;
+import org.graalvm.compiler.lir.asm.CompilationResultBuilder;
+import org.graalvm.compiler.lir.gen.LIRGeneratorTool;
+
+import jdk.vm.ci.amd64.AMD64Kind;
+import jdk.vm.ci.code.Register;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.Value;
+
+/**
+ * Updates a CRC32C checksum with a range of bytes using the SSE4.2 {@code crc32} instruction,
+ * eight bytes at a time followed by the remaining single bytes. The bytes are either in a
+ * {@code byte[]} or, for a direct buffer, at a raw address.
+ */
+@Opcode("CRC32C_UPDATE")
+public final class AMD64CRC32CUpdateOp extends AMD64LIRInstruction {
+    public static final LIRInstructionClass<AMD64CRC32CUpdateOp> TYPE = LIRInstructionClass.create(AMD64CRC32CUpdateOp.class);
+
+    private final int baseOffset;
+
+    @Def({REG}) private Value resultValue;
+    @Use({REG}) private Value crcValue;
+    @Alive({REG}) private Value bufferValue;
+    @Alive({REG}) private Value offsetValue;
+    @Alive({REG}) private Value lengthValue;
+
+    @Temp({REG}) private Value pointerTemp;
+    @Temp({REG}) private Value lengthTemp;
+
+    /**
+     * @param directBuffer if {@code buffer} is a raw address instead of a {@code byte[]}
+     */
+    public AMD64CRC32CUpdateOp(LIRGeneratorTool tool, Value result, Value crc, Value buffer, Value offset, Value length, boolean directBuffer) {
+        super(TYPE);
+        this.baseOffset = directBuffer ? 0 : tool.getProviders().getMetaAccess().getArrayBaseOffset(JavaKind.Byte);
+        this.resultValue = result;
+        this.crcValue = crc;
+        this.bufferValue = buffer;
+        this.offsetValue = offset;
+        this.lengthValue = length;
+        this.pointerTemp = tool.newVariable(LIRKind.value(AMD64Kind.QWORD));
+        this.lengthTemp = tool.newVariable(LIRKind.value(AMD64Kind.DWORD));
+    }
+
+    @Override
+    public void emitCode(CompilationResultBuilder crb, AMD64MacroAssembler masm) {
+        Register result = asRegister(resultValue);
+        Register pointer = asRegister(pointerTemp);
+        Register length = asRegister(lengthTemp);
+
+        // The crc input may share its register with a temporary, so it is consumed first.
+        masm.movl(result, asRegister(crcValue));
+        // The offset is known to be non-negative, so the zero extension of movl is sufficient.
+        masm.movl(pointer, asRegister(offsetValue));
+        masm.leaq(pointer, new AMD64Address(asRegister(bufferValue), pointer, AMD64Address.Scale.Times1, baseOffset));
+        masm.movl(length, asRegister(lengthValue));
+
+        Label quadwordLoop = new Label();
+        Label byteLoop = new Label();
+        Label tail = new Label();
+        Label done = new Label();
+
+        masm.cmpl(length, 8);
+        masm.jcc(ConditionFlag.Less, tail);
+        masm.bind(quadwordLoop);
+        masm.crc32q(result, new AMD64Address(pointer));
+        masm.addq(pointer, 8);
+        masm.subl(length, 8);
+        masm.cmpl(length, 8);
+        masm.jcc(ConditionFlag.GreaterEqual, quadwordLoop);
+
+        masm.bind(tail);
+        masm.testl(length, length);
+        masm.jcc(ConditionFlag.LessEqual, done);
+        masm.bind(byteLoop);
+        masm.crc32b(result, new AMD64Address(pointer));
+        masm.addq(pointer, 1);
+        masm.subl(length, 1);
+        masm.jcc(ConditionFlag.NotZero, byteLoop);
+        masm.bind(done);
+    }
+}
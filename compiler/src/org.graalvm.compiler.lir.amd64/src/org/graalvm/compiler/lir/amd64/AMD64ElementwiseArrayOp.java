@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.lir.amd64;
+
+import static jdk.vm.ci.code.ValueUtil.asRegister;
+import static org.graalvm.compiler.lir.LIRInstruction.OperandFlag.REG;
+
+import java.util.Objects;
+
+import org.graalvm.compiler.asm.Label;
+import org.graalvm.compiler.asm.amd64.AMD64Address;
+import org.graalvm.compiler.asm.amd64.AMD64Address.Scale;
+import org.graalvm.compiler.asm.amd64.AMD64Assembler.ConditionFlag;
+import org.graalvm.compiler.asm.amd64.AMD64Assembler.VexMoveOp;
+import org.graalvm.compiler.asm.amd64.AMD64Assembler.VexRMOp;
+import org.graalvm.compiler.asm.amd64.AMD64Assembler.VexRVMOp;
+import org.graalvm.compiler.asm.amd64.AMD64MacroAssembler;
+import org.graalvm.compiler.asm.amd64.AVXKind.AVXSize;
+import org.graalvm.compiler.core.common.LIRKind;
+import org.graalvm.compiler.core.common.type.ArithmeticOpTable.BinaryOp;
+import org.graalvm.compiler.debug.GraalError;
+import org.graalvm.compiler.lir.LIRInstructionClass;
+import org.graalvm.compiler.lir.Opcode;
+import org.graalvm.compiler.lir.asm.CompilationResultBuilder;
+import org.graalvm.compiler.lir.gen.LIRGeneratorTool;
+
+import jdk.vm.ci.amd64.AMD64;
+import jdk.vm.ci.amd64.AMD64.CPUFeature;
+import jdk.vm.ci.amd64.AMD64Kind;
+import jdk.vm.ci.code.Register;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.Value;
+
+/**
+ * Executes the iterations of {@code dst[i] = x[i] op y[i]} (or {@code x[i] op y} for a scalar
+ * {@code y}) from {@code start} towards {@code end} in whole SSE or AVX2 vectors. The result is the
+ * first index that was not processed. The remaining iterations are left to the scalar loop that
+ * follows this operation, which also takes care of any exceptions.
+ *
+ * Only {@code int} arrays are supported. Multiplication requires AVX2; if it is not available no
+ * iterations are executed.
+ */
+@Opcode("ELEMENTWISE_ARRAY_OP")
+public final class AMD64ElementwiseArrayOp extends AMD64LIRInstruction {
+    public static final LIRInstructionClass<AMD64ElementwiseArrayOp> TYPE = LIRInstructionClass.create(AMD64ElementwiseArrayOp.class);
+
+    private enum Operation {
+        ADD(VexRVMOp.VPADDD),
+        SUB(VexRVMOp.VPSUBD),
+        MUL(VexRVMOp.VPMULLD),
+        AND(VexRVMOp.VPAND),
+        OR(VexRVMOp.VPOR),
+        XOR(VexRVMOp.VPXOR);
+
+        final VexRVMOp avxOp;
+
+        Operation(VexRVMOp avxOp) {
+            this.avxOp = avxOp;
+        }
+
+        static Operation of(BinaryOp<?> op) {
+            if (op instanceof BinaryOp.Add) {
+                return ADD;
+            } else if (op instanceof BinaryOp.Sub) {
+                return SUB;
+            } else if (op instanceof BinaryOp.Mul) {
+                return MUL;
+            } else if (op instanceof BinaryOp.And) {
+                return AND;
+            } else if (op instanceof BinaryOp.Or) {
+                return OR;
+            } else if (op instanceof BinaryOp.Xor) {
+                return XOR;
+            }
+            throw GraalError.shouldNotReachHere("unsupported element-wise operation " + op);
+        }
+    }
+
+    private final Operation operation;
+    private final boolean yIsArray;
+    private final int arrayBaseOffset;
+    private final Scale arrayIndexScale;
+    private final AVXSize vectorSize;
+    private final int lanes;
+
+    @Def({REG}) private Value resultValue;
+    @Alive({REG}) private Value dstValue;
+    @Alive({REG}) private Value xValue;
+    @Alive({REG}) private Value yValue;
+    @Alive({REG}) private Value startValue;
+    @Alive({REG}) private Value endValue;
+
+    @Temp({REG}) private Value indexValue;
+    @Temp({REG}) private Value limitValue;
+    @Temp({REG}) private Value vectorTemp1;
+    @Temp({REG}) private Value vectorTemp2;
+
+    public AMD64ElementwiseArrayOp(LIRGeneratorTool tool, JavaKind kind, BinaryOp<?> op, Value result, Value dst, Value x, Value y, boolean yIsArray, Value start, Value end,
+                    int maxVectorSize) {
+        super(TYPE);
+        GraalError.guarantee(kind == JavaKind.Int, "unsupported element kind %s", kind);
+        this.operation = Operation.of(op);
+        this.yIsArray = yIsArray;
+        this.arrayBaseOffset = tool.getProviders().getMetaAccess().getArrayBaseOffset(kind);
+        this.arrayIndexScale = Objects.requireNonNull(Scale.fromInt(tool.getProviders().getMetaAccess().getArrayIndexScale(kind)));
+        boolean useAVX2 = ((AMD64) tool.target().arch).getFeatures().contains(CPUFeature.AVX2) && (maxVectorSize < 0 || maxVectorSize >= 32);
+        this.vectorSize = useAVX2 ? AVXSize.YMM : AVXSize.XMM;
+        this.lanes = vectorSize.getBytes() / kind.getByteCount();
+
+        this.resultValue = result;
+        this.dstValue = dst;
+        this.xValue = x;
+        this.yValue = y;
+        this.startValue = start;
+        this.endValue = end;
+
+        this.indexValue = tool.newVariable(LIRKind.value(AMD64Kind.QWORD));
+        this.limitValue = tool.newVariable(LIRKind.value(AMD64Kind.QWORD));
+        LIRKind vectorKind = LIRKind.value(useAVX2 ? AMD64Kind.V256_DWORD : AMD64Kind.V128_DWORD);
+        this.vectorTemp1 = tool.newVariable(vectorKind);
+        this.vectorTemp2 = tool.newVariable(vectorKind);
+    }
+
+    @Override
+    public void emitCode(CompilationResultBuilder crb, AMD64MacroAssembler masm) {
+        Register result = asRegister(resultValue);
+        Register dst = asRegister(dstValue);
+        Register x = asRegister(xValue);
+        Register y = asRegister(yValue);
+        Register start = asRegister(startValue);
+        Register end = asRegister(endValue);
+        Register index = asRegister(indexValue);
+        Register limit = asRegister(limitValue);
+        Register vector1 = asRegister(vectorTemp1);
+        Register vector2 = asRegister(vectorTemp2);
+
+        boolean useAVX = vectorSize == AVXSize.YMM;
+        masm.movl(result, start);
+        if (operation == Operation.MUL && !useAVX) {
+            // There is no packed 32-bit multiplication in SSE2, leave everything to the loop.
+            return;
+        }
+
+        Label done = new Label();
+        masm.testl(start, start);
+        masm.jcc(ConditionFlag.Less, done);
+        masm.cmpl(end, start);
+        masm.jcc(ConditionFlag.LessEqual, done);
+
+        // Round the number of iterations down to whole vectors.
+        masm.movl(limit, end);
+        masm.subl(limit, start);
+        masm.andl(limit, -lanes);
+        masm.jcc(ConditionFlag.Zero, done);
+        masm.addl(limit, start);
+        masm.movl(index, start);
+
+        if (!yIsArray) {
+            // Broadcast the scalar operand into all lanes.
+            masm.movdl(vector2, y);
+            if (useAVX) {
+                VexRMOp.VPBROADCASTD.emit(masm, vectorSize, vector2, vector2);
+            } else {
+                masm.pshufd(vector2, vector2, 0);
+            }
+        }
+
+        Label loop = new Label();
+        masm.align(crb.target.wordSize * 2);
+        masm.bind(loop);
+        AMD64Address xAddress = new AMD64Address(x, index, arrayIndexScale, arrayBaseOffset);
+        AMD64Address dstAddress = new AMD64Address(dst, index, arrayIndexScale, arrayBaseOffset);
+        if (useAVX) {
+            VexMoveOp.VMOVDQU.emit(masm, vectorSize, vector1, xAddress);
+            if (yIsArray) {
+                operation.avxOp.emit(masm, vectorSize, vector1, vector1, new AMD64Address(y, index, arrayIndexScale, arrayBaseOffset));
+            } else {
+                operation.avxOp.emit(masm, vectorSize, vector1, vector1, vector2);
+            }
+            VexMoveOp.VMOVDQU.emit(masm, vectorSize, dstAddress, vector1);
+        } else {
+            masm.movdqu(vector1, xAddress);
+            if (yIsArray) {
+                masm.movdqu(vector2, new AMD64Address(y, index, arrayIndexScale, arrayBaseOffset));
+            }
+            emitSSEOp(masm, vector1, vector2);
+            masm.movdqu(dstAddress, vector1);
+        }
+        masm.addq(index, lanes);
+        masm.cmpq(index, limit);
+        masm.jcc(ConditionFlag.Less, loop);
+
+        masm.movl(result, index);
+        masm.bind(done);
+    }
+
+    private void emitSSEOp(AMD64MacroAssembler masm, Register dst, Register src) {
+        switch (operation) {
+            case ADD:
+                masm.paddd(dst, src);
+                break;
+            case SUB:
+                masm.psubd(dst, src);
+                break;
+            case AND:
+                masm.pand(dst, src);
+                break;
+            case OR:
+                masm.por(dst, src);
+                break;
+            case XOR:
+                masm.pxor(dst, src);
+                break;
+            default:
+                throw GraalError.shouldNotReachHere(operation.toString());
+        }
+    }
+}
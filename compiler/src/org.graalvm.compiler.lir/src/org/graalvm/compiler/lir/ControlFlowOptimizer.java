@@ -103,7 +103,8 @@ public final class ControlFlowOptimizer extends PostAllocationOptimizationPhase
                     block.delete();
                     // adjust successor and predecessor lists
                     AbstractBlockBase<?> other = block.getSuccessors()[0];
-                    if (block.isAligned()) {
+                    if (block.isAligned() && !other.isCold()) {
+                        // cold code is not worth the alignment padding
                         alignBlock(other);
                     }
 
@@ -0,0 +1,1090 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.lir.alloc.irc;
+
+import static jdk.vm.ci.code.ValueUtil.asRegister;
+import static jdk.vm.ci.code.ValueUtil.isRegister;
+import static org.graalvm.compiler.lir.LIRValueUtil.asConstant;
+import static org.graalvm.compiler.lir.LIRValueUtil.asVariable;
+import static org.graalvm.compiler.lir.LIRValueUtil.isConstantValue;
+import static org.graalvm.compiler.lir.LIRValueUtil.isStackSlotValue;
+import static org.graalvm.compiler.lir.LIRValueUtil.isVariable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.graalvm.collections.EconomicMap;
+import org.graalvm.collections.Equivalence;
+import org.graalvm.compiler.core.common.alloc.RegisterAllocationConfig;
+import org.graalvm.compiler.core.common.cfg.AbstractBlockBase;
+import org.graalvm.compiler.core.common.util.IntList;
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.debug.Indent;
+import org.graalvm.compiler.lir.ConstantValue;
+import org.graalvm.compiler.lir.InstructionValueConsumer;
+import org.graalvm.compiler.lir.InstructionValueProcedure;
+import org.graalvm.compiler.lir.LIR;
+import org.graalvm.compiler.lir.LIRInstruction;
+import org.graalvm.compiler.lir.LIRInstruction.OperandFlag;
+import org.graalvm.compiler.lir.LIRInstruction.OperandMode;
+import org.graalvm.compiler.lir.StandardOp.BlockEndOp;
+import org.graalvm.compiler.lir.StandardOp.JumpOp;
+import org.graalvm.compiler.lir.StandardOp.LabelOp;
+import org.graalvm.compiler.lir.StandardOp.LoadConstantOp;
+import org.graalvm.compiler.lir.StandardOp.ValueMoveOp;
+import org.graalvm.compiler.lir.Variable;
+import org.graalvm.compiler.lir.VirtualStackSlot;
+import org.graalvm.compiler.lir.framemap.FrameMapBuilder;
+import org.graalvm.compiler.lir.gen.LIRGenerationResult;
+import org.graalvm.compiler.lir.gen.LIRGeneratorTool.MoveFactory;
+import org.graalvm.compiler.lir.ssa.SSAUtil;
+
+import jdk.vm.ci.code.Register;
+import jdk.vm.ci.code.RegisterArray;
+import jdk.vm.ci.code.TargetDescription;
+import jdk.vm.ci.meta.AllocatableValue;
+import jdk.vm.ci.meta.Constant;
+import jdk.vm.ci.meta.Value;
+import jdk.vm.ci.meta.ValueKind;
+
+/**
+ * Iterated register coalescing for one compilation.
+ *
+ * The SSA phis are first replaced by copies through a fresh variable per phi. Then the allocator
+ * repeatedly builds the interference graph, simplifies, coalesces, freezes and selects colors until
+ * no variable is spilled. Spilled variables are replaced by short-lived reload and store variables
+ * (or by a stack slot where the operand allows it) before the next round. Variables whose only
+ * definition loads a constant are rematerialized instead of being stored.
+ *
+ * Physical registers are not nodes of the graph. A variable that interferes with a fixed register
+ * (including the caller-saved registers destroyed by a call it is live across) simply may not be
+ * colored with that register. Moves between a variable and a fixed register are used as coloring
+ * hints.
+ */
+final class IteratedRegisterCoalescing {
+
+    private static final CounterKey rounds = DebugContext.counter("IRC[rounds]");
+    private static final CounterKey coalescedMoves = DebugContext.counter("IRC[coalescedMoves]");
+    private static final CounterKey spilledVariables = DebugContext.counter("IRC[spilledVariables]");
+    private static final CounterKey rematerializedVariables = DebugContext.counter("IRC[rematerializedVariables]");
+
+    private final LIR lir;
+    private final DebugContext debug;
+    private final FrameMapBuilder frameMapBuilder;
+    private final MoveFactory moveFactory;
+    private final RegisterAllocationConfig registerAllocationConfig;
+    /**
+     * Number of build-color-spill rounds after which the allocation is given up.
+     */
+    private final int maxRounds;
+    private final AbstractBlockBase<?>[] blocks;
+    private final RegisterArray registers;
+    /**
+     * Allocatable registers, indexed by {@link Register#number}.
+     */
+    private final BitSet allocatable = new BitSet();
+    private final BitSet callerSaved = new BitSet();
+    /**
+     * Variables introduced while spilling. Their live ranges are as short as possible so spilling
+     * them again cannot help.
+     */
+    private final BitSet noSpill = new BitSet();
+
+    private int numVariables;
+
+    /*
+     * State of the current round. Node numbers are variable indices; operands of the liveness sets
+     * are variable indices followed by the allocatable registers.
+     */
+    private int variableCount;
+    private ValueKind<?>[] kinds;
+    private Register[][] allowed;
+    private double[] spillCost;
+    private Constant[] rematerializable;
+    private int[] definitions;
+    private BitSet[] adjacent;
+    private int[] degree;
+    private int[] colors;
+    private BitSet[] forbidden;
+    private int[] hint;
+    private int[] alias;
+    private IntList[] moveList;
+    private IntList moveSources;
+    private IntList moveResults;
+    private BitSet worklistMoves;
+    private BitSet activeMoves;
+    private BitSet simplifyWorklist;
+    private BitSet freezeWorklist;
+    private BitSet spillWorklist;
+    private BitSet coalescedNodes;
+    private BitSet spilledNodes;
+    private BitSet onStack;
+    private IntList selectStack;
+
+    IteratedRegisterCoalescing(TargetDescription target, LIRGenerationResult lirGenRes, MoveFactory moveFactory, RegisterAllocationConfig registerAllocationConfig, int maxRounds) {
+        this.lir = lirGenRes.getLIR();
+        this.maxRounds = maxRounds;
+        this.debug = lir.getDebug();
+        this.frameMapBuilder = lirGenRes.getFrameMapBuilder();
+        this.moveFactory = moveFactory;
+        this.registerAllocationConfig = registerAllocationConfig;
+        this.blocks = lir.linearScanOrder();
+        this.registers = target.arch.getRegisters();
+        this.numVariables = lir.numVariables();
+        for (Register reg : registerAllocationConfig.getAllocatableRegisters()) {
+            allocatable.set(reg.number);
+        }
+        for (Register reg : registerAllocationConfig.getRegisterConfig().getCallerSaveRegisters()) {
+            if (allocatable.get(reg.number)) {
+                callerSaved.set(reg.number);
+            }
+        }
+    }
+
+    /**
+     * Allocates registers for the LIR.
+     *
+     * @return {@code false} if the allocation did not converge within the maximum number of rounds,
+     *         in which case the instructions of the LIR are restored to their state before the
+     *         allocation. Spill slots allocated by the failed attempt are not released.
+     */
+    @SuppressWarnings("try")
+    boolean allocate() {
+        try (Indent indent = debug.logAndIndent("iterated register coalescing")) {
+            LIRSnapshot snapshot = new LIRSnapshot(lir, blocks);
+            destroyPhis();
+            for (int round = 0;; round++) {
+                if (round == maxRounds) {
+                    debug.log("no convergence with %d variables after %d rounds", numVariables, round);
+                    snapshot.restore(lir, blocks);
+                    return false;
+                }
+                rounds.increment(debug);
+                build();
+                makeWorklist();
+                while (!simplifyWorklist.isEmpty() || !worklistMoves.isEmpty() || !freezeWorklist.isEmpty() || !spillWorklist.isEmpty()) {
+                    if (!simplifyWorklist.isEmpty()) {
+                        simplify();
+                    } else if (!worklistMoves.isEmpty()) {
+                        coalesce();
+                    } else if (!freezeWorklist.isEmpty()) {
+                        freeze();
+                    } else {
+                        selectSpill();
+                    }
+                }
+                assignColors();
+                if (spilledNodes.isEmpty()) {
+                    assignLocations();
+                    return true;
+                }
+                debug.log("round %d spills %s", round, spilledNodes);
+                rewriteSpilled();
+            }
+        }
+    }
+
+    private Variable newVariable(ValueKind<?> kind) {
+        Variable variable = new Variable(kind, numVariables++);
+        noSpill.set(variable.index);
+        return variable;
+    }
+
+    /**
+     * Replaces each phi by a copy into a fresh variable at the end of every predecessor and a copy
+     * from that variable into the phi right after the label of the merge.
+     */
+    private void destroyPhis() {
+        for (AbstractBlockBase<?> merge : blocks) {
+            if (merge.getPredecessorCount() < 2) {
+                continue;
+            }
+            LabelOp label = SSAUtil.phiIn(lir, merge);
+            ArrayList<LIRInstruction> mergeInstructions = lir.getLIRforBlock(merge);
+            for (int i = 0; i < label.getPhiSize(); i++) {
+                AllocatableValue phi = (AllocatableValue) label.getIncomingValue(i);
+                Variable copy = new Variable(phi.getValueKind(), numVariables++);
+                for (AbstractBlockBase<?> pred : merge.getPredecessors()) {
+                    JumpOp jump = SSAUtil.phiOut(lir, pred);
+                    ArrayList<LIRInstruction> predInstructions = lir.getLIRforBlock(pred);
+                    Value out = jump.getOutgoingValue(i);
+                    LIRInstruction move = isConstantValue(out) ? moveFactory.createLoad(copy, asConstant(out)) : moveFactory.createMove(copy, out);
+                    predInstructions.add(predInstructions.size() - 1, move);
+                }
+                mergeInstructions.add(1 + i, moveFactory.createMove(phi, copy));
+            }
+            for (AbstractBlockBase<?> pred : merge.getPredecessors()) {
+                SSAUtil.removePhiOut(lir, pred);
+            }
+            SSAUtil.removePhiIn(lir, merge);
+        }
+    }
+
+    private int operandNumber(Value value) {
+        if (isVariable(value)) {
+            return asVariable(value).index;
+        }
+        if (isRegister(value) && allocatable.get(asRegister(value).number)) {
+            return variableCount + asRegister(value).number;
+        }
+        return -1;
+    }
+
+    private static double blockWeight(AbstractBlockBase<?> block) {
+        return Math.pow(10, Math.min(block.getLoopDepth(), 6));
+    }
+
+    /**
+     * Computes liveness and builds the interference graph and the move lists.
+     */
+    @SuppressWarnings("try")
+    private void build() {
+        variableCount = numVariables;
+        kinds = new ValueKind<?>[variableCount];
+        allowed = new Register[variableCount][];
+        spillCost = new double[variableCount];
+        rematerializable = new Constant[variableCount];
+        definitions = new int[variableCount];
+        adjacent = new BitSet[variableCount];
+        degree = new int[variableCount];
+        colors = new int[variableCount];
+        forbidden = new BitSet[variableCount];
+        hint = new int[variableCount];
+        alias = new int[variableCount];
+        moveList = new IntList[variableCount];
+        moveSources = new IntList(16);
+        moveResults = new IntList(16);
+        Arrays.fill(colors, -1);
+        Arrays.fill(hint, -1);
+
+        int size = lir.getControlFlowGraph().getBlocks().length;
+        BitSet[] liveIn = new BitSet[size];
+        BitSet[] liveOut = new BitSet[size];
+        BitSet[] liveGen = new BitSet[size];
+        BitSet[] liveKill = new BitSet[size];
+
+        for (AbstractBlockBase<?> block : blocks) {
+            BitSet gen = new BitSet();
+            BitSet kill = new BitSet();
+            double weight = blockWeight(block);
+            InstructionValueConsumer useConsumer = (op, value, mode, flags) -> {
+                int number = operandNumber(value);
+                if (number >= 0) {
+                    if (!kill.get(number)) {
+                        gen.set(number);
+                    }
+                    recordOccurrence(value, weight);
+                }
+            };
+            InstructionValueConsumer defConsumer = (op, value, mode, flags) -> {
+                int number = operandNumber(value);
+                if (number >= 0) {
+                    kill.set(number);
+                    recordOccurrence(value, weight);
+                    if (number < variableCount && mode == OperandMode.DEF) {
+                        definitions[number]++;
+                        rematerializable[number] = LoadConstantOp.isLoadConstantOp(op) ? LoadConstantOp.asLoadConstantOp(op).getConstant() : null;
+                    }
+                }
+            };
+            for (LIRInstruction op : lir.getLIRforBlock(block)) {
+                op.visitEachInput(useConsumer);
+                op.visitEachAlive(useConsumer);
+                op.visitEachState(useConsumer);
+                op.visitEachTemp(defConsumer);
+                op.visitEachOutput(defConsumer);
+            }
+            liveGen[block.getId()] = gen;
+            liveKill[block.getId()] = kill;
+            liveIn[block.getId()] = new BitSet();
+            liveOut[block.getId()] = new BitSet();
+        }
+        for (int v = 0; v < variableCount; v++) {
+            if (definitions[v] != 1) {
+                rematerializable[v] = null;
+            }
+        }
+
+        boolean changed;
+        do {
+            changed = false;
+            for (int i = blocks.length - 1; i >= 0; i--) {
+                AbstractBlockBase<?> block = blocks[i];
+                BitSet out = liveOut[block.getId()];
+                for (AbstractBlockBase<?> succ : block.getSuccessors()) {
+                    out.or(liveIn[succ.getId()]);
+                }
+                BitSet in = (BitSet) out.clone();
+                in.andNot(liveKill[block.getId()]);
+                in.or(liveGen[block.getId()]);
+                if (!in.equals(liveIn[block.getId()])) {
+                    liveIn[block.getId()] = in;
+                    changed = true;
+                }
+            }
+        } while (changed);
+
+        BitSet defs = new BitSet();
+        BitSet uses = new BitSet();
+        BitSet alives = new BitSet();
+        InstructionValueConsumer defConsumer = (op, value, mode, flags) -> setOperand(defs, value);
+        InstructionValueConsumer useConsumer = (op, value, mode, flags) -> setOperand(uses, value);
+        InstructionValueConsumer aliveConsumer = (op, value, mode, flags) -> setOperand(alives, value);
+        for (AbstractBlockBase<?> block : blocks) {
+            BitSet live = (BitSet) liveOut[block.getId()].clone();
+            ArrayList<LIRInstruction> instructions = lir.getLIRforBlock(block);
+            for (int j = instructions.size() - 1; j >= 0; j--) {
+                LIRInstruction op = instructions.get(j);
+                defs.clear();
+                uses.clear();
+                alives.clear();
+                op.visitEachOutput(defConsumer);
+                op.visitEachTemp(defConsumer);
+                op.visitEachInput(useConsumer);
+                op.visitEachAlive(aliveConsumer);
+                op.visitEachState(aliveConsumer);
+
+                int moveSource = -1;
+                if (ValueMoveOp.isValueMoveOp(op)) {
+                    ValueMoveOp move = ValueMoveOp.asValueMoveOp(op);
+                    int source = operandNumber(move.getInput());
+                    int result = operandNumber(move.getResult());
+                    if (source >= 0 && result >= 0) {
+                        moveSource = source;
+                        addMove(source, result);
+                    }
+                }
+
+                for (int d = defs.nextSetBit(0); d >= 0; d = defs.nextSetBit(d + 1)) {
+                    for (int l = live.nextSetBit(0); l >= 0; l = live.nextSetBit(l + 1)) {
+                        if (l != moveSource) {
+                            interfere(d, l);
+                        }
+                    }
+                    for (int a = alives.nextSetBit(0); a >= 0; a = alives.nextSetBit(a + 1)) {
+                        interfere(d, a);
+                    }
+                    for (int o = defs.nextSetBit(d + 1); o >= 0; o = defs.nextSetBit(o + 1)) {
+                        interfere(d, o);
+                    }
+                }
+                if (op.destroysCallerSavedRegisters()) {
+                    BitSet across = (BitSet) live.clone();
+                    across.andNot(defs);
+                    across.or(alives);
+                    for (int v = across.nextSetBit(0); v >= 0 && v < variableCount; v = across.nextSetBit(v + 1)) {
+                        forbidden(v).or(callerSaved);
+                    }
+                }
+
+                live.andNot(defs);
+                live.or(uses);
+                live.or(alives);
+            }
+        }
+    }
+
+    private void recordOccurrence(Value value, double weight) {
+        if (isVariable(value)) {
+            int v = asVariable(value).index;
+            if (kinds[v] == null) {
+                kinds[v] = value.getValueKind();
+                allowed[v] = registerAllocationConfig.getAllocatableRegisters(value.getPlatformKind()).allocatableRegisters;
+            }
+            spillCost[v] += weight;
+        }
+    }
+
+    private void setOperand(BitSet set, Value value) {
+        int number = operandNumber(value);
+        if (number >= 0) {
+            set.set(number);
+        }
+    }
+
+    private BitSet forbidden(int v) {
+        if (forbidden[v] == null) {
+            forbidden[v] = new BitSet(registers.size());
+        }
+        return forbidden[v];
+    }
+
+    private IntList moveList(int v) {
+        if (moveList[v] == null) {
+            moveList[v] = new IntList(4);
+        }
+        return moveList[v];
+    }
+
+    private void addMove(int source, int result) {
+        if (source < variableCount && result < variableCount) {
+            if (source != result) {
+                int m = moveSources.size();
+                moveSources.add(source);
+                moveResults.add(result);
+                moveList(source).add(m);
+                moveList(result).add(m);
+            }
+        } else if (source < variableCount && result >= variableCount) {
+            if (hint[source] < 0) {
+                hint[source] = result - variableCount;
+            }
+        } else if (result < variableCount && source >= variableCount) {
+            if (hint[result] < 0) {
+                hint[result] = source - variableCount;
+            }
+        }
+    }
+
+    private boolean sameRegisterClass(int u, int v) {
+        return allowed[u] == allowed[v] || Arrays.equals(allowed[u], allowed[v]);
+    }
+
+    private void interfere(int a, int b) {
+        if (a == b) {
+            return;
+        }
+        if (a < variableCount && b < variableCount) {
+            if (sameRegisterClass(a, b)) {
+                addEdge(a, b);
+            }
+        } else if (a < variableCount) {
+            forbidden(a).set(b - variableCount);
+        } else if (b < variableCount) {
+            forbidden(b).set(a - variableCount);
+        }
+    }
+
+    private BitSet adjacent(int v) {
+        if (adjacent[v] == null) {
+            adjacent[v] = new BitSet();
+        }
+        return adjacent[v];
+    }
+
+    private void addEdge(int u, int v) {
+        if (u != v && !adjacent(u).get(v)) {
+            adjacent(u).set(v);
+            adjacent(v).set(u);
+            degree[u]++;
+            degree[v]++;
+        }
+    }
+
+    /**
+     * Number of registers {@code v} may be colored with.
+     */
+    private int colorCount(int v) {
+        int count = 0;
+        for (Register reg : allowed[v]) {
+            if (forbidden[v] == null || !forbidden[v].get(reg.number)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean isSignificant(int v) {
+        return degree[v] >= colorCount(v);
+    }
+
+    private void makeWorklist() {
+        worklistMoves = new BitSet(moveSources.size());
+        worklistMoves.set(0, moveSources.size());
+        activeMoves = new BitSet(moveSources.size());
+        simplifyWorklist = new BitSet(variableCount);
+        freezeWorklist = new BitSet(variableCount);
+        spillWorklist = new BitSet(variableCount);
+        coalescedNodes = new BitSet(variableCount);
+        spilledNodes = new BitSet(variableCount);
+        onStack = new BitSet(variableCount);
+        selectStack = new IntList(variableCount);
+        for (int v = 0; v < variableCount; v++) {
+            alias[v] = v;
+            if (kinds[v] == null) {
+                continue;
+            }
+            if (isSignificant(v)) {
+                spillWorklist.set(v);
+            } else if (isMoveRelated(v)) {
+                freezeWorklist.set(v);
+            } else {
+                simplifyWorklist.set(v);
+            }
+        }
+    }
+
+    private boolean isMoveRelated(int v) {
+        IntList moves = moveList[v];
+        if (moves != null) {
+            for (int i = 0; i < moves.size(); i++) {
+                int m = moves.get(i);
+                if (worklistMoves.get(m) || activeMoves.get(m)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isRemoved(int v) {
+        return onStack.get(v) || coalescedNodes.get(v);
+    }
+
+    private void simplify() {
+        int v = simplifyWorklist.nextSetBit(0);
+        simplifyWorklist.clear(v);
+        selectStack.add(v);
+        onStack.set(v);
+        BitSet neighbors = adjacent[v];
+        if (neighbors != null) {
+            for (int t = neighbors.nextSetBit(0); t >= 0; t = neighbors.nextSetBit(t + 1)) {
+                if (!isRemoved(t)) {
+                    decrementDegree(t);
+                }
+            }
+        }
+    }
+
+    private void decrementDegree(int v) {
+        boolean wasSignificant = isSignificant(v);
+        degree[v]--;
+        if (wasSignificant && !isSignificant(v)) {
+            enableMoves(v);
+            BitSet neighbors = adjacent[v];
+            if (neighbors != null) {
+                for (int t = neighbors.nextSetBit(0); t >= 0; t = neighbors.nextSetBit(t + 1)) {
+                    if (!isRemoved(t)) {
+                        enableMoves(t);
+                    }
+                }
+            }
+            spillWorklist.clear(v);
+            if (isMoveRelated(v)) {
+                freezeWorklist.set(v);
+            } else {
+                simplifyWorklist.set(v);
+            }
+        }
+    }
+
+    private void enableMoves(int v) {
+        IntList moves = moveList[v];
+        if (moves != null) {
+            for (int i = 0; i < moves.size(); i++) {
+                int m = moves.get(i);
+                if (activeMoves.get(m)) {
+                    activeMoves.clear(m);
+                    worklistMoves.set(m);
+                }
+            }
+        }
+    }
+
+    private int getAlias(int v) {
+        int a = v;
+        while (coalescedNodes.get(a)) {
+            a = alias[a];
+        }
+        return a;
+    }
+
+    private void addWorklist(int v) {
+        if (!isMoveRelated(v) && !isSignificant(v)) {
+            freezeWorklist.clear(v);
+            simplifyWorklist.set(v);
+        }
+    }
+
+    private void coalesce() {
+        int m = worklistMoves.nextSetBit(0);
+        worklistMoves.clear(m);
+        int u = getAlias(moveResults.get(m));
+        int v = getAlias(moveSources.get(m));
+        if (u == v) {
+            coalescedMoves.increment(debug);
+            addWorklist(u);
+        } else if (adjacent(u).get(v) || !sameRegisterClass(u, v) || noSpill.get(u) != noSpill.get(v)) {
+            addWorklist(u);
+            addWorklist(v);
+        } else if (canCoalesce(u, v)) {
+            coalescedMoves.increment(debug);
+            combine(u, v);
+            addWorklist(u);
+        } else {
+            activeMoves.set(m);
+        }
+    }
+
+    /**
+     * Briggs' conservative test: the combined node has fewer significant neighbors than colors.
+     */
+    private boolean canCoalesce(int u, int v) {
+        BitSet combinedForbidden = (BitSet) forbidden(u).clone();
+        combinedForbidden.or(forbidden(v));
+        int colorCount = 0;
+        for (Register reg : allowed[u]) {
+            if (!combinedForbidden.get(reg.number)) {
+                colorCount++;
+            }
+        }
+        BitSet neighbors = (BitSet) adjacent(u).clone();
+        neighbors.or(adjacent(v));
+        int significant = 0;
+        for (int t = neighbors.nextSetBit(0); t >= 0; t = neighbors.nextSetBit(t + 1)) {
+            if (!isRemoved(t) && isSignificant(t)) {
+                significant++;
+            }
+        }
+        return significant < colorCount;
+    }
+
+    private void combine(int u, int v) {
+        if (freezeWorklist.get(v)) {
+            freezeWorklist.clear(v);
+        } else {
+            spillWorklist.clear(v);
+        }
+        coalescedNodes.set(v);
+        alias[v] = u;
+        IntList moves = moveList[v];
+        if (moves != null) {
+            for (int i = 0; i < moves.size(); i++) {
+                moveList(u).add(moves.get(i));
+            }
+        }
+        forbidden(u).or(forbidden(v));
+        if (hint[u] < 0) {
+            hint[u] = hint[v];
+        }
+        spillCost[u] += spillCost[v];
+        enableMoves(v);
+        BitSet neighbors = adjacent(v);
+        for (int t = neighbors.nextSetBit(0); t >= 0; t = neighbors.nextSetBit(t + 1)) {
+            if (!isRemoved(t)) {
+                addEdge(t, u);
+                decrementDegree(t);
+            }
+        }
+        if (isSignificant(u) && freezeWorklist.get(u)) {
+            freezeWorklist.clear(u);
+            spillWorklist.set(u);
+        }
+    }
+
+    private void freeze() {
+        int v = freezeWorklist.nextSetBit(0);
+        freezeWorklist.clear(v);
+        simplifyWorklist.set(v);
+        freezeMoves(v);
+    }
+
+    private void freezeMoves(int u) {
+        IntList moves = moveList[u];
+        if (moves == null) {
+            return;
+        }
+        int aliasU = getAlias(u);
+        for (int i = 0; i < moves.size(); i++) {
+            int m = moves.get(i);
+            if (!worklistMoves.get(m) && !activeMoves.get(m)) {
+                continue;
+            }
+            worklistMoves.clear(m);
+            activeMoves.clear(m);
+            int source = getAlias(moveSources.get(m));
+            int v = source == aliasU ? getAlias(moveResults.get(m)) : source;
+            if (!isMoveRelated(v) && !isSignificant(v) && freezeWorklist.get(v)) {
+                freezeWorklist.clear(v);
+                simplifyWorklist.set(v);
+            }
+        }
+    }
+
+    /**
+     * Picks the spill candidate with the lowest use density. Variables that cannot get any register
+     * come first, variables introduced by spilling come last.
+     */
+    private void selectSpill() {
+        int candidate = -1;
+        double best = Double.POSITIVE_INFINITY;
+        for (int v = spillWorklist.nextSetBit(0); v >= 0; v = spillWorklist.nextSetBit(v + 1)) {
+            double priority;
+            if (noSpill.get(v)) {
+                priority = Double.MAX_VALUE;
+            } else if (colorCount(v) == 0) {
+                priority = Double.NEGATIVE_INFINITY;
+            } else {
+                priority = spillCost[v] / degree[v];
+            }
+            if (candidate < 0 || priority < best) {
+                candidate = v;
+                best = priority;
+            }
+        }
+        spillWorklist.clear(candidate);
+        simplifyWorklist.set(candidate);
+        freezeMoves(candidate);
+    }
+
+    private void assignColors() {
+        BitSet okColors = new BitSet(registers.size());
+        for (int i = selectStack.size() - 1; i >= 0; i--) {
+            int v = selectStack.get(i);
+            okColors.clear();
+            for (Register reg : allowed[v]) {
+                okColors.set(reg.number);
+            }
+            if (forbidden[v] != null) {
+                okColors.andNot(forbidden[v]);
+            }
+            BitSet neighbors = adjacent[v];
+            if (neighbors != null) {
+                for (int t = neighbors.nextSetBit(0); t >= 0; t = neighbors.nextSetBit(t + 1)) {
+                    int color = colors[getAlias(t)];
+                    if (color >= 0) {
+                        okColors.clear(color);
+                    }
+                }
+            }
+            if (okColors.isEmpty()) {
+                spilledNodes.set(v);
+            } else {
+                colors[v] = chooseColor(v, okColors);
+            }
+        }
+        for (int v = coalescedNodes.nextSetBit(0); v >= 0; v = coalescedNodes.nextSetBit(v + 1)) {
+            colors[v] = colors[getAlias(v)];
+        }
+    }
+
+    /**
+     * Prefers the color of a move partner, then the fixed register the node is moved from or to,
+     * then the first register in allocation order.
+     */
+    private int chooseColor(int v, BitSet okColors) {
+        IntList moves = moveList[v];
+        if (moves != null) {
+            for (int i = 0; i < moves.size(); i++) {
+                int m = moves.get(i);
+                int source = getAlias(moveSources.get(m));
+                int partner = source == v ? getAlias(moveResults.get(m)) : source;
+                if (colors[partner] >= 0 && okColors.get(colors[partner])) {
+                    return colors[partner];
+                }
+            }
+        }
+        if (hint[v] >= 0 && okColors.get(hint[v])) {
+            return hint[v];
+        }
+        for (Register reg : allowed[v]) {
+            if (okColors.get(reg.number)) {
+                return reg.number;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Rewrites the spilled variables. Rematerializable variables are reloaded from their constant,
+     * all others live in a spill slot and are loaded into and stored from fresh variables around
+     * each occurrence that requires a register.
+     */
+    private void rewriteSpilled() {
+        VirtualStackSlot[] slots = new VirtualStackSlot[variableCount];
+        for (int v = spilledNodes.nextSetBit(0); v >= 0; v = spilledNodes.nextSetBit(v + 1)) {
+            if (rematerializable[v] != null) {
+                rematerializedVariables.increment(debug);
+            } else {
+                slots[v] = frameMapBuilder.allocateSpillSlot(kinds[v]);
+                spilledVariables.increment(debug);
+            }
+        }
+
+        ArrayList<LIRInstruction> before = new ArrayList<>();
+        ArrayList<Variable> stores = new ArrayList<>();
+        EconomicMap<Variable, Variable> reloads = EconomicMap.create(Equivalence.DEFAULT);
+        InstructionValueProcedure operandProc = (op, value, mode, flags) -> {
+            if (!isVariable(value) || !spilledNodes.get(asVariable(value).index)) {
+                return value;
+            }
+            Variable variable = asVariable(value);
+            Constant constant = rematerializable[variable.index];
+            VirtualStackSlot slot = slots[variable.index];
+            if (slot != null && flags.contains(OperandFlag.STACK)) {
+                return slot;
+            }
+            switch (mode) {
+                case USE:
+                case ALIVE:
+                    Variable reload = reloads.get(variable);
+                    if (reload == null) {
+                        reload = newVariable(variable.getValueKind());
+                        reloads.put(variable, reload);
+                        before.add(constant != null ? moveFactory.createLoad(reload, constant) : moveFactory.createMove(reload, slot));
+                    }
+                    return reload;
+                case DEF:
+                    assert slot != null : "rematerializable variable defined by " + op;
+                    Variable store = newVariable(variable.getValueKind());
+                    stores.add(variable);
+                    stores.add(store);
+                    return store;
+                default:
+                    return newVariable(variable.getValueKind());
+            }
+        };
+        InstructionValueProcedure stateProc = (op, value, mode, flags) -> {
+            if (!isVariable(value) || !spilledNodes.get(asVariable(value).index)) {
+                return value;
+            }
+            int v = asVariable(value).index;
+            return rematerializable[v] != null ? new ConstantValue(value.getValueKind(), rematerializable[v]) : slots[v];
+        };
+
+        for (AbstractBlockBase<?> block : blocks) {
+            ArrayList<LIRInstruction> instructions = lir.getLIRforBlock(block);
+            ArrayList<LIRInstruction> rewritten = new ArrayList<>(instructions.size());
+            for (LIRInstruction op : instructions) {
+                if (rewriteMove(op, slots, rewritten)) {
+                    continue;
+                }
+                before.clear();
+                stores.clear();
+                reloads.clear();
+                op.forEachInput(operandProc);
+                op.forEachAlive(operandProc);
+                op.forEachTemp(operandProc);
+                op.forEachOutput(operandProc);
+                op.forEachState(stateProc);
+                rewritten.addAll(before);
+                rewritten.add(op);
+                if (!stores.isEmpty()) {
+                    if (op instanceof BlockEndOp) {
+                        for (AbstractBlockBase<?> succ : block.getSuccessors()) {
+                            assert succ.getPredecessorCount() == 1 : "critical edge from " + block + " to " + succ;
+                            lir.getLIRforBlock(succ).addAll(1, createStores(stores, slots));
+                        }
+                    } else {
+                        rewritten.addAll(createStores(stores, slots));
+                    }
+                }
+            }
+            instructions.clear();
+            instructions.addAll(rewritten);
+        }
+    }
+
+    private ArrayList<LIRInstruction> createStores(ArrayList<Variable> stores, VirtualStackSlot[] slots) {
+        ArrayList<LIRInstruction> moves = new ArrayList<>(stores.size() / 2);
+        for (int i = 0; i < stores.size(); i += 2) {
+            moves.add(moveFactory.createMove(slots[stores.get(i).index], stores.get(i + 1)));
+        }
+        return moves;
+    }
+
+    private Value spillLocation(Value value, VirtualStackSlot[] slots) {
+        if (isVariable(value) && spilledNodes.get(asVariable(value).index)) {
+            return slots[asVariable(value).index];
+        }
+        return value;
+    }
+
+    /**
+     * Replaces a move or constant load involving a spilled variable by a move from or to its spill
+     * slot, or drops it if it only defines a rematerializable variable.
+     *
+     * @return {@code true} if {@code op} was handled
+     */
+    private boolean rewriteMove(LIRInstruction op, VirtualStackSlot[] slots, ArrayList<LIRInstruction> rewritten) {
+        if (ValueMoveOp.isValueMoveOp(op)) {
+            ValueMoveOp move = ValueMoveOp.asValueMoveOp(op);
+            Value input = move.getInput();
+            AllocatableValue result = move.getResult();
+            boolean spilledInput = isVariable(input) && spilledNodes.get(asVariable(input).index);
+            boolean spilledResult = isVariable(result) && spilledNodes.get(asVariable(result).index);
+            if (!spilledInput && !spilledResult) {
+                return false;
+            }
+            AllocatableValue dst = (AllocatableValue) spillLocation(result, slots);
+            if (spilledInput && rematerializable[asVariable(input).index] != null) {
+                emitConstantMove(dst, rematerializable[asVariable(input).index], rewritten);
+            } else {
+                AllocatableValue src = (AllocatableValue) spillLocation(input, slots);
+                if (src.equals(dst)) {
+                    return true;
+                }
+                if (isStackSlotValue(src) && isStackSlotValue(dst)) {
+                    rewritten.add(moveFactory.createStackMove(dst, src));
+                } else {
+                    rewritten.add(moveFactory.createMove(dst, src));
+                }
+            }
+            return true;
+        }
+        if (LoadConstantOp.isLoadConstantOp(op)) {
+            LoadConstantOp load = LoadConstantOp.asLoadConstantOp(op);
+            AllocatableValue result = load.getResult();
+            if (!isVariable(result) || !spilledNodes.get(asVariable(result).index)) {
+                return false;
+            }
+            if (rematerializable[asVariable(result).index] == null) {
+                emitConstantMove(slots[asVariable(result).index], load.getConstant(), rewritten);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void emitConstantMove(AllocatableValue dst, Constant constant, ArrayList<LIRInstruction> rewritten) {
+        if (!isStackSlotValue(dst)) {
+            rewritten.add(moveFactory.createLoad(dst, constant));
+        } else if (moveFactory.allowConstantToStackMove(constant)) {
+            rewritten.add(moveFactory.createStackLoad(dst, constant));
+        } else {
+            Variable tmp = newVariable(dst.getValueKind());
+            rewritten.add(moveFactory.createLoad(tmp, constant));
+            rewritten.add(moveFactory.createMove(dst, tmp));
+        }
+    }
+
+    /**
+     * Replaces all variables by their registers and removes the moves that became redundant.
+     */
+    private void assignLocations() {
+        InstructionValueProcedure assignProc = (op, value, mode, flags) -> {
+            if (isVariable(value)) {
+                int color = colors[getAlias(asVariable(value).index)];
+                assert color >= 0 : "no register for " + value;
+                return registers.get(color).asValue(value.getValueKind());
+            }
+            return value;
+        };
+        for (AbstractBlockBase<?> block : blocks) {
+            ArrayList<LIRInstruction> instructions = lir.getLIRforBlock(block);
+            for (LIRInstruction op : instructions) {
+                op.forEachInput(assignProc);
+                op.forEachAlive(assignProc);
+                op.forEachTemp(assignProc);
+                op.forEachOutput(assignProc);
+                op.forEachState(assignProc);
+            }
+            instructions.removeIf(op -> {
+                if (ValueMoveOp.isValueMoveOp(op)) {
+                    ValueMoveOp move = ValueMoveOp.asValueMoveOp(op);
+                    return move.getInput().equals(move.getResult());
+                }
+                return false;
+            });
+        }
+    }
+
+    /**
+     * The instructions of a LIR and their operands. Allocation replaces operands in place and adds
+     * instructions, so both are recorded to be able to undo an allocation attempt.
+     */
+    private static final class LIRSnapshot {
+        private final ArrayList<LIRInstruction>[] instructions;
+        private final Value[][] operands;
+        private final Value[][] phis;
+
+        @SuppressWarnings("unchecked")
+        LIRSnapshot(LIR lir, AbstractBlockBase<?>[] blocks) {
+            instructions = new ArrayList[blocks.length];
+            operands = new Value[blocks.length][];
+            phis = new Value[blocks.length * 2][];
+            ArrayList<Value> values = new ArrayList<>();
+            InstructionValueConsumer collect = (op, value, mode, flags) -> values.add(value);
+            for (int b = 0; b < blocks.length; b++) {
+                ArrayList<LIRInstruction> blockInstructions = lir.getLIRforBlock(blocks[b]);
+                instructions[b] = new ArrayList<>(blockInstructions);
+                LIRInstruction first = blockInstructions.get(0);
+                if (first instanceof LabelOp && ((LabelOp) first).isPhiIn()) {
+                    phis[2 * b] = incomingValues((LabelOp) first);
+                }
+                LIRInstruction last = blockInstructions.get(blockInstructions.size() - 1);
+                if (last instanceof JumpOp && ((JumpOp) last).getPhiSize() > 0) {
+                    phis[2 * b + 1] = outgoingValues((JumpOp) last);
+                }
+                values.clear();
+                for (LIRInstruction op : blockInstructions) {
+                    op.visitEachInput(collect);
+                    op.visitEachAlive(collect);
+                    op.visitEachState(collect);
+                    op.visitEachTemp(collect);
+                    op.visitEachOutput(collect);
+                }
+                operands[b] = values.toArray(new Value[values.size()]);
+            }
+        }
+
+        private static Value[] incomingValues(LabelOp label) {
+            Value[] values = new Value[label.getIncomingSize()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = label.getIncomingValue(i);
+            }
+            return values;
+        }
+
+        private static Value[] outgoingValues(JumpOp jump) {
+            Value[] values = new Value[jump.getPhiSize()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = jump.getOutgoingValue(i);
+            }
+            return values;
+        }
+
+        void restore(LIR lir, AbstractBlockBase<?>[] blocks) {
+            for (int b = 0; b < blocks.length; b++) {
+                ArrayList<LIRInstruction> blockInstructions = lir.getLIRforBlock(blocks[b]);
+                blockInstructions.clear();
+                blockInstructions.addAll(instructions[b]);
+                if (phis[2 * b] != null) {
+                    LabelOp label = (LabelOp) blockInstructions.get(0);
+                    label.clearIncomingValues();
+                    label.setIncomingValues(phis[2 * b]);
+                }
+                if (phis[2 * b + 1] != null) {
+                    JumpOp jump = (JumpOp) blockInstructions.get(blockInstructions.size() - 1);
+                    jump.clearOutgoingValues();
+                    jump.setPhiValues(phis[2 * b + 1]);
+                }
+                Value[] blockOperands = operands[b];
+                int[] next = {0};
+                InstructionValueProcedure reset = (op, value, mode, flags) -> blockOperands[next[0]++];
+                for (LIRInstruction op : blockInstructions) {
+                    op.forEachInput(reset);
+                    op.forEachAlive(reset);
+                    op.forEachState(reset);
+                    op.forEachTemp(reset);
+                    op.forEachOutput(reset);
+                }
+                assert next[0] == blockOperands.length : "operand count changed";
+            }
+        }
+    }
+}
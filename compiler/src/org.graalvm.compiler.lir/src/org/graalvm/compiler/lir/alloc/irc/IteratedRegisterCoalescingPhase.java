@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.lir.alloc.irc;
+
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.lir.LIR;
+import org.graalvm.compiler.lir.alloc.RegisterAllocationPhase;
+import org.graalvm.compiler.lir.gen.LIRGenerationResult;
+import org.graalvm.compiler.options.Option;
+import org.graalvm.compiler.options.OptionKey;
+import org.graalvm.compiler.options.OptionType;
+import org.graalvm.compiler.options.OptionValues;
+
+import jdk.vm.ci.code.TargetDescription;
+
+/**
+ * Graph coloring register allocator based on iterated register coalescing (George and Appel,
+ * "Iterated Register Coalescing", TOPLAS 1996). It is more expensive than linear scan but coalesces
+ * moves more aggressively, so it is only used for compilations whose LIR has at most
+ * {@link Options#LIRIteratedRegisterCoalescingMaxVariables} variables. Larger compilations are
+ * handed to the {@code fallback} allocator, as are compilations for which the allocation does not
+ * converge within {@link Options#LIRIteratedRegisterCoalescingMaxRounds} rounds.
+ */
+public final class IteratedRegisterCoalescingPhase extends RegisterAllocationPhase {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Use the iterated register coalescing allocator for compilations that are small enough " +
+                       "(see LIRIteratedRegisterCoalescingMaxVariables) instead of linear scan.", type = OptionType.Expert)
+        public static final OptionKey<Boolean> LIROptIteratedRegisterCoalescing = new OptionKey<>(false);
+        @Option(help = "Maximum number of LIR variables of a compilation allocated with iterated register coalescing.", type = OptionType.Expert)
+        public static final OptionKey<Integer> LIRIteratedRegisterCoalescingMaxVariables = new OptionKey<>(1000);
+        @Option(help = "Maximum number of build-color-spill rounds of iterated register coalescing before falling back to linear scan.", type = OptionType.Expert)
+        public static final OptionKey<Integer> LIRIteratedRegisterCoalescingMaxRounds = new OptionKey<>(16);
+        // @formatter:on
+    }
+
+    private static final CounterKey notConverged = DebugContext.counter("IRC[notConverged]");
+
+    private final RegisterAllocationPhase fallback;
+
+    public IteratedRegisterCoalescingPhase(RegisterAllocationPhase fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    protected void run(TargetDescription target, LIRGenerationResult lirGenRes, AllocationContext context) {
+        LIR lir = lirGenRes.getLIR();
+        OptionValues options = lir.getOptions();
+        if (lir.numVariables() > Options.LIRIteratedRegisterCoalescingMaxVariables.getValue(options)) {
+            runFallback(target, lirGenRes, context);
+            return;
+        }
+        int maxRounds = Options.LIRIteratedRegisterCoalescingMaxRounds.getValue(options);
+        if (!new IteratedRegisterCoalescing(target, lirGenRes, context.spillMoveFactory, context.registerAllocationConfig, maxRounds).allocate()) {
+            notConverged.increment(lir.getDebug());
+            runFallback(target, lirGenRes, context);
+        }
+    }
+
+    private void runFallback(TargetDescription target, LIRGenerationResult lirGenRes, AllocationContext context) {
+        fallback.setNeverSpillConstants(getNeverSpillConstants());
+        fallback.apply(target, lirGenRes, context, false);
+    }
+}
@@ -509,6 +509,8 @@ public class CompilationResultBuilder {
 
     /**
      * Emits code for {@code lir} in its {@linkplain LIR#codeEmittingOrder() code emitting order}.
+     * The position of the first {@linkplain AbstractBlockBase#isCold() cold} block is recorded as
+     * the {@linkplain CompilationResult#setColdCodeStart(int) start of the cold code}.
      */
     public void emit(@SuppressWarnings("hiding") LIR lir) {
         assert this.lir == null;
@@ -518,6 +520,10 @@ public class CompilationResultBuilder {
         frameContext.enter(this);
         for (AbstractBlockBase<?> b : lir.codeEmittingOrder()) {
             assert (b == null && lir.codeEmittingOrder()[currentBlockIndex] == null) || lir.codeEmittingOrder()[currentBlockIndex].equals(b);
+            if (b != null && b.isCold() && !compilationResult.hasColdCode()) {
+                compilationResult.setColdCodeStart(asm.position());
+                blockComment("cold code");
+            }
             emitBlock(b);
             currentBlockIndex++;
         }
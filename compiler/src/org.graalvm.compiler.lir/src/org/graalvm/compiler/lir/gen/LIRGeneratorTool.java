@@ -34,6 +34,7 @@ import org.graalvm.compiler.core.common.cfg.AbstractBlockBase;
 import org.graalvm.compiler.core.common.spi.CodeGenProviders;
 import org.graalvm.compiler.core.common.spi.ForeignCallLinkage;
 import org.graalvm.compiler.core.common.spi.ForeignCallsProvider;
+import org.graalvm.compiler.core.common.type.ArithmeticOpTable.BinaryOp;
 import org.graalvm.compiler.core.common.type.Stamp;
 import org.graalvm.compiler.debug.GraalError;
 import org.graalvm.compiler.graph.NodeSourcePosition;
@@ -298,6 +299,35 @@ public interface LIRGeneratorTool extends DiagnosticLIRGeneratorTool, ValueKindF
         throw GraalError.unimplemented("StringUTF16.compress substitution is not implemented on this architecture");
     }
 
+    /**
+     * Encrypts or decrypts the 16 byte block at {@code in[inOffset]} into {@code out[outOffset]}
+     * using the expanded AES key {@code key} of length {@code keyLength}.
+     */
+    @SuppressWarnings("unused")
+    default void emitAESCryptBlock(boolean encrypt, Value in, Value inOffset, Value out, Value outOffset, Value key, Value keyLength) {
+        throw GraalError.unimplemented("AESCrypt substitution is not implemented on this architecture");
+    }
+
+    /**
+     * Updates the CRC32C checksum {@code crc} with {@code length} bytes starting at
+     * {@code buffer[offset]}, or at {@code buffer + offset} if {@code directBuffer} is true.
+     */
+    @SuppressWarnings("unused")
+    default Variable emitCRC32CUpdate(Value crc, Value buffer, Value offset, Value length, boolean directBuffer) {
+        throw GraalError.unimplemented("CRC32C substitution is not implemented on this architecture");
+    }
+
+    /**
+     * Emits vector code for the iterations of {@code dst[i] = x[i] op y[i]} (or {@code x[i] op y}
+     * if {@code yIsArray} is false) from {@code start} towards {@code end} that fill whole vectors.
+     *
+     * @return the first index that was not processed
+     */
+    @SuppressWarnings("unused")
+    default Variable emitElementwiseArrayOp(JavaKind kind, BinaryOp<?> op, Value dst, Value x, Value y, boolean yIsArray, Value start, Value end) {
+        throw GraalError.unimplemented("Loop vectorization is not implemented on this architecture");
+    }
+
     void emitBlackhole(Value operand);
 
     LIRKind getLIRKind(Stamp stamp);
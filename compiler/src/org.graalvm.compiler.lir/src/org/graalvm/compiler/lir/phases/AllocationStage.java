@@ -26,6 +26,7 @@ package org.graalvm.compiler.lir.phases;
 
 import org.graalvm.compiler.debug.Assertions;
 import org.graalvm.compiler.lir.alloc.AllocationStageVerifier;
+import org.graalvm.compiler.lir.alloc.irc.IteratedRegisterCoalescingPhase;
 import org.graalvm.compiler.lir.alloc.lsra.LinearScanPhase;
 import org.graalvm.compiler.lir.dfa.LocationMarkerPhase;
 import org.graalvm.compiler.lir.dfa.MarkBasePointersPhase;
@@ -38,7 +39,11 @@ public class AllocationStage extends LIRPhaseSuite<AllocationContext> {
 
     public AllocationStage(OptionValues options) {
         appendPhase(new MarkBasePointersPhase());
-        appendPhase(new LinearScanPhase());
+        if (IteratedRegisterCoalescingPhase.Options.LIROptIteratedRegisterCoalescing.getValue(options)) {
+            appendPhase(new IteratedRegisterCoalescingPhase(new LinearScanPhase()));
+        } else {
+            appendPhase(new LinearScanPhase());
+        }
 
         // build frame map
         if (LSStackSlotAllocator.Options.LIROptLSStackSlotAllocator.getValue(options)) {
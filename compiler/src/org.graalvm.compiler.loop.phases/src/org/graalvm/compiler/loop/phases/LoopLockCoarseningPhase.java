@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.loop.phases;
+
+import static org.graalvm.compiler.core.common.GraalOptions.LockCoarseningChunkSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.loop.LoopEx;
+import org.graalvm.compiler.loop.LoopsData;
+import org.graalvm.compiler.nodes.AbstractBeginNode;
+import org.graalvm.compiler.nodes.AbstractDeoptimizeNode;
+import org.graalvm.compiler.nodes.BeginNode;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.DeoptimizingNode;
+import org.graalvm.compiler.nodes.EndNode;
+import org.graalvm.compiler.nodes.FixedNode;
+import org.graalvm.compiler.nodes.FixedWithNextNode;
+import org.graalvm.compiler.nodes.IfNode;
+import org.graalvm.compiler.nodes.LogicNode;
+import org.graalvm.compiler.nodes.LoopBeginNode;
+import org.graalvm.compiler.nodes.LoopEndNode;
+import org.graalvm.compiler.nodes.LoopExitNode;
+import org.graalvm.compiler.nodes.MergeNode;
+import org.graalvm.compiler.nodes.NodeView;
+import org.graalvm.compiler.nodes.PiNode;
+import org.graalvm.compiler.nodes.SafepointNode;
+import org.graalvm.compiler.nodes.StateSplit;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.GuardsStage;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.ValuePhiNode;
+import org.graalvm.compiler.nodes.calc.AddNode;
+import org.graalvm.compiler.nodes.calc.IntegerEqualsNode;
+import org.graalvm.compiler.nodes.calc.IntegerLessThanNode;
+import org.graalvm.compiler.nodes.calc.IsNullNode;
+import org.graalvm.compiler.nodes.extended.OSRMonitorEnterNode;
+import org.graalvm.compiler.nodes.java.AccessMonitorNode;
+import org.graalvm.compiler.nodes.java.MonitorEnterNode;
+import org.graalvm.compiler.nodes.java.MonitorExitNode;
+import org.graalvm.compiler.nodes.java.RawMonitorEnterNode;
+import org.graalvm.compiler.nodes.memory.MemoryCheckpoint;
+import org.graalvm.compiler.nodes.util.GraphUtil;
+import org.graalvm.compiler.phases.Phase;
+
+/**
+ * Keeps the monitor of a loop whose body is a synchronized region locked across iterations. A
+ * loop of the form
+ *
+ * <pre>
+ * loop:
+ *   header; monitorenter(o); body; monitorexit(o); tail; goto loop;
+ * </pre>
+ *
+ * where {@code o} is loop invariant is rewritten so that the monitor is acquired in the first
+ * iteration of a chunk and released after at most {@code LockCoarseningChunkSize} iterations:
+ *
+ * <pre>
+ * held = 0
+ * loop:
+ *   header; if (held == 0) monitorenter(o); body;
+ *   if (held + 1 &lt; chunk) { held++; } else { monitorexit(o); safepoint; held = 0; }
+ *   tail; goto loop;
+ * </pre>
+ *
+ * Loop exits in the header release the monitor if it is still held. The frame states in the
+ * header and the tail do not list the held monitor, so neither may contain nodes that can
+ * deoptimize or have side effects, and the tail may not leave the loop. The only exception is a
+ * null check of the lock object, which cannot fail once the monitor is held. The back edge no
+ * longer polls for safepoints; the poll is moved to the point where the monitor is released.
+ *
+ * The phase must run after guard lowering and mid-tier lowering, so that every node that can
+ * deoptimize is fixed in the control flow, and before frame state assignment. Earlier, a phase
+ * that moves or introduces guards could place one in the header or the tail.
+ */
+public class LoopLockCoarseningPhase extends Phase {
+
+    private static final CounterKey CoarsenedLoops = DebugContext.counter("LoopLockCoarsening_CoarsenedLoops");
+
+    @Override
+    protected void run(StructuredGraph graph) {
+        int chunkSize = LockCoarseningChunkSize.getValue(graph.getOptions());
+        if (!graph.hasLoops() || graph.hasValueProxies() || graph.getGuardsStage() != GuardsStage.FIXED_DEOPTS || chunkSize <= 1) {
+            return;
+        }
+        LoopsData loops = new LoopsData(graph);
+        // Analyze all loops before changing the graph, the loop data does not see new nodes.
+        List<Candidate> candidates = new ArrayList<>();
+        for (LoopEx loop : loops.loops()) {
+            Candidate candidate = findCandidate(loop);
+            if (candidate != null) {
+                candidates.add(candidate);
+            }
+        }
+        for (Candidate candidate : candidates) {
+            coarsen(graph, candidate, chunkSize);
+            CoarsenedLoops.increment(graph.getDebug());
+        }
+        loops.deleteUnusedNodes();
+    }
+
+    private static final class Candidate {
+        final LoopBeginNode loopBegin;
+        final LoopEndNode loopEnd;
+        final AccessMonitorNode enter;
+        final MonitorExitNode exit;
+        final ValueNode object;
+        final List<LoopExitNode> headerExits;
+        /**
+         * The safepoint poll on the back edge, or null if the loop does not poll.
+         */
+        final SafepointNode safepoint;
+
+        Candidate(LoopBeginNode loopBegin, LoopEndNode loopEnd, AccessMonitorNode enter, MonitorExitNode exit, ValueNode object, List<LoopExitNode> headerExits, SafepointNode safepoint) {
+            this.loopBegin = loopBegin;
+            this.loopEnd = loopEnd;
+            this.enter = enter;
+            this.exit = exit;
+            this.object = object;
+            this.headerExits = headerExits;
+            this.safepoint = safepoint;
+        }
+    }
+
+    private static Candidate findCandidate(LoopEx loop) {
+        LoopBeginNode loopBegin = loop.loopBegin();
+        if (loopBegin.getLoopEndCount() != 1) {
+            return null;
+        }
+        LoopEndNode loopEnd = loopBegin.loopEnds().first();
+
+        // Walk backwards from the back edge to the monitorexit that ends the body.
+        FixedNode current = (FixedNode) loopEnd.predecessor();
+        SafepointNode safepoint = null;
+        if (current instanceof SafepointNode) {
+            // Inserted by LoopSafepointInsertionPhase
+            safepoint = (SafepointNode) current;
+            current = (FixedNode) current.predecessor();
+        }
+        while (!(current instanceof MonitorExitNode)) {
+            boolean plainBegin = current instanceof BeginNode && !(current.predecessor() instanceof IfNode);
+            if (!plainBegin && !isTransparent(current)) {
+                return null;
+            }
+            current = (FixedNode) current.predecessor();
+        }
+        MonitorExitNode exit = (MonitorExitNode) current;
+
+        // Walk forwards from the loop header to the monitorenter that starts the body.
+        List<LoopExitNode> headerExits = new ArrayList<>();
+        List<IfNode> nullChecks = new ArrayList<>();
+        current = loopBegin.next();
+        while (!(current instanceof AccessMonitorNode)) {
+            if (current instanceof IfNode && isDeoptimizingNullCheck((IfNode) current)) {
+                nullChecks.add((IfNode) current);
+                current = ((IfNode) current).falseSuccessor();
+            } else if (current instanceof IfNode) {
+                IfNode ifNode = (IfNode) current;
+                AbstractBeginNode stay;
+                LoopExitNode loopExit;
+                if (isExitOf(ifNode.falseSuccessor(), loopBegin) && !(ifNode.trueSuccessor() instanceof LoopExitNode)) {
+                    stay = ifNode.trueSuccessor();
+                    loopExit = (LoopExitNode) ifNode.falseSuccessor();
+                } else if (isExitOf(ifNode.trueSuccessor(), loopBegin) && !(ifNode.falseSuccessor() instanceof LoopExitNode)) {
+                    stay = ifNode.falseSuccessor();
+                    loopExit = (LoopExitNode) ifNode.trueSuccessor();
+                } else {
+                    return null;
+                }
+                if (loopExit.stateAfter() == null) {
+                    return null;
+                }
+                headerExits.add(loopExit);
+                current = stay;
+            } else if (current instanceof BeginNode) {
+                current = ((BeginNode) current).next();
+            } else if (isTransparent(current)) {
+                current = ((FixedWithNextNode) current).next();
+            } else {
+                return null;
+            }
+        }
+        if (!(current instanceof MonitorEnterNode || current instanceof RawMonitorEnterNode) || current instanceof OSRMonitorEnterNode) {
+            return null;
+        }
+        AccessMonitorNode enter = (AccessMonitorNode) current;
+        if (enter.getMonitorId() != exit.getMonitorId() || enter.getMonitorId().isEliminated() || enter.stateAfter() == null || exit.stateAfter() == null) {
+            return null;
+        }
+        ValueNode object = GraphUtil.unproxify(enter.object());
+        if (!loop.isOutsideLoop(object)) {
+            return null;
+        }
+        for (IfNode nullCheck : nullChecks) {
+            if (GraphUtil.unproxify(((IsNullNode) nullCheck.condition()).getValue()) != object) {
+                return null;
+            }
+        }
+        return new Candidate(loopBegin, loopEnd, enter, exit, object, headerExits, safepoint);
+    }
+
+    private static boolean isExitOf(AbstractBeginNode begin, LoopBeginNode loopBegin) {
+        return begin instanceof LoopExitNode && ((LoopExitNode) begin).loopBegin() == loopBegin;
+    }
+
+    /**
+     * Determines if {@code node} may execute while a monitor is held that is not listed in the
+     * frame states around it.
+     */
+    private static boolean isTransparent(FixedNode node) {
+        if (!(node instanceof FixedWithNextNode) || node instanceof AbstractBeginNode || node instanceof AccessMonitorNode || node instanceof MemoryCheckpoint) {
+            return false;
+        }
+        if (node instanceof StateSplit && ((StateSplit) node).hasSideEffect()) {
+            return false;
+        }
+        return !(node instanceof DeoptimizingNode && ((DeoptimizingNode) node).canDeoptimize());
+    }
+
+    /**
+     * Determines if {@code ifNode} is a lowered null check guard, i.e., it deoptimizes if its
+     * {@link IsNullNode} condition holds. A null check of the lock object cannot fail while the
+     * monitor is held.
+     */
+    private static boolean isDeoptimizingNullCheck(IfNode ifNode) {
+        return ifNode.condition() instanceof IsNullNode && ifNode.trueSuccessor() instanceof BeginNode && ifNode.trueSuccessor().next() instanceof AbstractDeoptimizeNode;
+    }
+
+    private static void coarsen(StructuredGraph graph, Candidate candidate, int chunkSize) {
+        ConstantNode zero = ConstantNode.forInt(0, graph);
+        ValuePhiNode held = graph.addWithoutUnique(new ValuePhiNode(zero.stamp(NodeView.DEFAULT).unrestricted(), candidate.loopBegin));
+        held.addInput(zero);
+        LogicNode notHeld = graph.addOrUniqueWithInputs(IntegerEqualsNode.create(held, zero, NodeView.DEFAULT));
+        double acquireProbability = 1.0 / chunkSize;
+
+        // if (held == 0) monitorenter(o)
+        AccessMonitorNode enter = candidate.enter;
+        FixedWithNextNode beforeEnter = (FixedWithNextNode) enter.predecessor();
+        FixedNode afterEnter = enter.next();
+        beforeEnter.setNext(null);
+        enter.setNext(null);
+        MergeNode acquired = diamond(graph, beforeEnter, notHeld, acquireProbability, enter, enter, null, null);
+        acquired.setStateAfter(enter.stateAfter());
+        acquired.setNext(afterEnter);
+
+        // if (held + 1 < chunk) { held++; } else { monitorexit(o); safepoint; held = 0; }
+        MonitorExitNode exit = candidate.exit;
+        FixedWithNextNode beforeExit = (FixedWithNextNode) exit.predecessor();
+        FixedNode afterExit = exit.next();
+        beforeExit.setNext(null);
+        exit.setNext(null);
+        FixedWithNextNode releaseLast = exit;
+        if (candidate.safepoint != null) {
+            graph.removeFixed(candidate.safepoint);
+            releaseLast = graph.add(new SafepointNode());
+            exit.setNext(releaseLast);
+        }
+        ValueNode incremented = graph.addOrUniqueWithInputs(AddNode.create(held, ConstantNode.forInt(1, graph), NodeView.DEFAULT));
+        LogicNode keep = graph.addOrUniqueWithInputs(IntegerLessThanNode.create(incremented, ConstantNode.forInt(chunkSize, graph), NodeView.DEFAULT));
+        MergeNode released = diamond(graph, beforeExit, keep, 1.0 - acquireProbability, null, null, exit, releaseLast);
+        released.setNext(afterExit);
+        held.addInput(graph.addWithoutUnique(new ValuePhiNode(held.stamp(NodeView.DEFAULT), released, new ValueNode[]{incremented, zero})));
+        candidate.loopEnd.disableSafepoint();
+
+        // if (held != 0) monitorexit(o) at the exits of the header
+        for (LoopExitNode loopExit : candidate.headerExits) {
+            FixedNode afterLoopExit = loopExit.next();
+            loopExit.setNext(null);
+            MonitorExitNode unlock = graph.add(new MonitorExitNode(candidate.object, exit.getMonitorId(), null));
+            unlock.setStateAfter(loopExit.stateAfter());
+            MergeNode merge = diamond(graph, loopExit, notHeld, acquireProbability, null, null, unlock, unlock);
+            unlock.setObject(graph.maybeAddOrUnique(PiNode.create(candidate.object, (ValueNode) unlock.predecessor())));
+            merge.setStateAfter(loopExit.stateAfter());
+            merge.setNext(afterLoopExit);
+        }
+    }
+
+    /**
+     * Appends {@code if (condition) {trueFirst..trueLast} else {falseFirst..falseLast}} to
+     * {@code predecessor} and returns the merge of the two branches. An empty branch is passed as
+     * a pair of {@code null}s.
+     */
+    private static MergeNode diamond(StructuredGraph graph, FixedWithNextNode predecessor, LogicNode condition, double trueProbability, FixedWithNextNode trueFirst, FixedWithNextNode trueLast,
+                    FixedWithNextNode falseFirst, FixedWithNextNode falseLast) {
+        MergeNode merge = graph.add(new MergeNode());
+        AbstractBeginNode trueBegin = branch(graph, merge, trueFirst, trueLast);
+        AbstractBeginNode falseBegin = branch(graph, merge, falseFirst, falseLast);
+        predecessor.setNext(graph.add(new IfNode(condition, trueBegin, falseBegin, trueProbability)));
+        return merge;
+    }
+
+    private static AbstractBeginNode branch(StructuredGraph graph, MergeNode merge, FixedWithNextNode first, FixedWithNextNode last) {
+        BeginNode begin = graph.add(new BeginNode());
+        EndNode end = graph.add(new EndNode());
+        if (first != null) {
+            begin.setNext(first);
+            last.setNext(end);
+        } else {
+            begin.setNext(end);
+        }
+        merge.addForwardEnd(end);
+        return begin;
+    }
+}
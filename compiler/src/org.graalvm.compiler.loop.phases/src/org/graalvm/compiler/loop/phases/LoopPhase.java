@@ -38,4 +38,9 @@ public abstract class LoopPhase<P extends LoopPolicies> extends BasePhase<PhaseC
     protected P getPolicies() {
         return policies;
     }
+
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
 }
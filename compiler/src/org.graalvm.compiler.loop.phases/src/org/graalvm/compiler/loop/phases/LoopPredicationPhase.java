@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.loop.phases;
+
+import org.graalvm.compiler.core.common.cfg.AbstractControlFlowGraph;
+import org.graalvm.compiler.core.common.type.IntegerStamp;
+import org.graalvm.compiler.core.common.type.Stamp;
+import org.graalvm.compiler.core.common.type.StampFactory;
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.loop.CountedLoopInfo;
+import org.graalvm.compiler.loop.DerivedOffsetInductionVariable;
+import org.graalvm.compiler.loop.InductionVariable;
+import org.graalvm.compiler.loop.InductionVariable.Direction;
+import org.graalvm.compiler.loop.LoopEx;
+import org.graalvm.compiler.loop.LoopsData;
+import org.graalvm.compiler.nodes.AbstractBeginNode;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.FrameState;
+import org.graalvm.compiler.nodes.GuardNode;
+import org.graalvm.compiler.nodes.LogicNode;
+import org.graalvm.compiler.nodes.NodeView;
+import org.graalvm.compiler.nodes.ShortCircuitOrNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.calc.AddNode;
+import org.graalvm.compiler.nodes.calc.IntegerBelowNode;
+import org.graalvm.compiler.nodes.calc.IntegerConvertNode;
+import org.graalvm.compiler.nodes.calc.IntegerLessThanNode;
+import org.graalvm.compiler.nodes.calc.IsNullNode;
+import org.graalvm.compiler.nodes.calc.SubNode;
+import org.graalvm.compiler.nodes.cfg.Block;
+import org.graalvm.compiler.nodes.cfg.ControlFlowGraph;
+import org.graalvm.compiler.nodes.util.GraphUtil;
+import org.graalvm.compiler.phases.BasePhase;
+import org.graalvm.compiler.phases.tiers.MidTierContext;
+
+import jdk.vm.ci.meta.DeoptimizationAction;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.SpeculationLog;
+
+/**
+ * Hoists range checks and null checks out of innermost counted loops. A guard in the loop body
+ * whose condition is {@code iv |<| length}, with {@code iv} the loop counter (optionally plus or
+ * minus a loop invariant offset) and {@code length} loop invariant, is replaced by a guard in front
+ * of the loop that checks the first and the last value of {@code iv}. A null check on a loop
+ * invariant value is moved in front of the loop unchanged.
+ *
+ * The hoisted guards fail even if the original check would only have failed in an iteration that
+ * is never reached, so they are speculative: they invalidate the compiled code and record a failed
+ * speculation for the loop, and the recompiled code keeps the checks inside the loop.
+ */
+public class LoopPredicationPhase extends BasePhase<MidTierContext> {
+
+    private static final CounterKey PredicatedGuards = DebugContext.counter("LoopPredication_PredicatedGuards");
+
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, MidTierContext context) {
+        SpeculationLog speculationLog = graph.getSpeculationLog();
+        if (speculationLog == null || !graph.getGuardsStage().allowsFloatingGuards() || !graph.hasLoops()) {
+            return;
+        }
+        if (!context.getOptimisticOptimizations().useLoopLimitChecks(graph.getOptions())) {
+            return;
+        }
+        LoopsData loops = new LoopsData(graph);
+        loops.detectedCountedLoops();
+        for (LoopEx loop : loops.countedLoops()) {
+            if (loop.loop().getChildren().isEmpty()) {
+                predicate(graph, loops.getCFG(), loop, speculationLog);
+            }
+        }
+        loops.deleteUnusedNodes();
+    }
+
+    private static void predicate(StructuredGraph graph, ControlFlowGraph cfg, LoopEx loop, SpeculationLog speculationLog) {
+        CountedLoopInfo counted = loop.counted();
+        InductionVariable counter = counted.getCounter();
+        if (counted.getStamp().getBits() != 32 || !counter.isConstantStride() || Math.abs(counter.constantStride()) != 1) {
+            return;
+        }
+        FrameState state = loop.loopBegin().stateAfter();
+        if (state == null) {
+            return;
+        }
+        Block body = cfg.blockFor(counted.getBody());
+        ValueNode[] range = null;
+        SpeculationLog.Speculation speculation = null;
+        for (GuardNode guard : graph.getNodes(GuardNode.TYPE).snapshot()) {
+            if (guard.getAnchor() == null || !guard.getAnchor().asNode().isAlive()) {
+                continue;
+            }
+            Block anchorBlock = cfg.blockFor(guard.getAnchor().asNode());
+            if (anchorBlock == null || !loop.loop().getBlocks().contains(anchorBlock) || !AbstractControlFlowGraph.dominates(body, anchorBlock)) {
+                continue;
+            }
+            LogicNode condition = guard.getCondition();
+            ValueNode length = null;
+            InductionVariable iv = null;
+            if (condition instanceof IntegerBelowNode && !guard.isNegated()) {
+                IntegerBelowNode below = (IntegerBelowNode) condition;
+                iv = loop.getInductionVariables().get(below.getX());
+                length = below.getY();
+                if (iv == null || !isPredicable(iv, counter) || !loop.isOutsideLoop(length) || !(length.stamp(NodeView.DEFAULT) instanceof IntegerStamp)) {
+                    continue;
+                }
+                IntegerStamp lengthStamp = (IntegerStamp) length.stamp(NodeView.DEFAULT);
+                if (lengthStamp.getBits() != 32 || lengthStamp.lowerBound() < 0) {
+                    continue;
+                }
+            } else if (condition instanceof IsNullNode && guard.isNegated()) {
+                if (!loop.isOutsideLoop(((IsNullNode) condition).getValue())) {
+                    continue;
+                }
+            } else {
+                continue;
+            }
+
+            if (speculation == null) {
+                LoopSpeculationReason reason = new LoopSpeculationReason(LoopPredicationPhase.class, state.getMethod(), state.bci);
+                if (!speculationLog.maySpeculate(reason)) {
+                    return;
+                }
+                speculation = speculationLog.speculate(reason);
+                range = counterRange(graph, counted);
+            }
+
+            ValueNode lo = range[0];
+            ValueNode hi = range[1];
+            LogicNode check;
+            if (iv != null) {
+                ValueNode[] ivRange = ivRange(graph, iv, counter, lo, hi);
+                ValueNode length64 = IntegerConvertNode.convert(length, StampFactory.forKind(JavaKind.Long), graph, NodeView.DEFAULT);
+                LogicNode first = IntegerBelowNode.create(ivRange[0], length64, NodeView.DEFAULT);
+                LogicNode last = IntegerBelowNode.create(ivRange[1], length64, NodeView.DEFAULT);
+                // !(!first || !last) == first && last
+                check = ShortCircuitOrNode.create(first, true, last, true, 0.0);
+            } else {
+                // the guard is negated, so the condition must not hold
+                check = condition;
+            }
+            LogicNode notEntered = IntegerLessThanNode.create(hi, lo, NodeView.DEFAULT);
+            LogicNode predicate = graph.addOrUniqueWithInputs(ShortCircuitOrNode.create(notEntered, false, check, true, 0.0));
+
+            GuardNode hoisted = graph.unique(new GuardNode(predicate, AbstractBeginNode.prevBegin(loop.entryPoint()), guard.getReason(), DeoptimizationAction.InvalidateRecompile, false,
+                            speculation, guard.getNoDeoptSuccessorPosition()));
+            guard.replaceAndDelete(hoisted);
+            GraphUtil.tryKillUnused(condition);
+            PredicatedGuards.increment(graph.getDebug());
+        }
+    }
+
+    /**
+     * Only the counter itself and values derived from it by adding or subtracting an invariant are
+     * handled, since their range can be computed without overflow in 64 bits.
+     */
+    private static boolean isPredicable(InductionVariable iv, InductionVariable counter) {
+        if (iv == counter) {
+            return true;
+        }
+        return iv instanceof DerivedOffsetInductionVariable && ((DerivedOffsetInductionVariable) iv).getBase() == counter &&
+                        ((IntegerStamp) iv.valueNode().stamp(NodeView.DEFAULT)).getBits() == 32;
+    }
+
+    /**
+     * Computes the smallest and the largest value the counter takes in the loop body as 64 bit
+     * values. The loop is not entered iff the largest value is smaller than the smallest one.
+     */
+    private static ValueNode[] counterRange(StructuredGraph graph, CountedLoopInfo counted) {
+        Stamp longStamp = StampFactory.forKind(JavaKind.Long);
+        ValueNode init = IntegerConvertNode.convert(counted.getStart(), longStamp, graph, NodeView.DEFAULT);
+        ValueNode limit = IntegerConvertNode.convert(counted.getLimit(), longStamp, graph, NodeView.DEFAULT);
+        ValueNode one = ConstantNode.forLong(1, graph);
+        if (counted.getDirection() == Direction.Up) {
+            ValueNode last = counted.isLimitIncluded() ? limit : graph.addOrUniqueWithInputs(SubNode.create(limit, one, NodeView.DEFAULT));
+            return new ValueNode[]{init, last};
+        } else {
+            assert counted.getDirection() == Direction.Down;
+            ValueNode last = counted.isLimitIncluded() ? limit : graph.addOrUniqueWithInputs(AddNode.create(limit, one, NodeView.DEFAULT));
+            return new ValueNode[]{last, init};
+        }
+    }
+
+    private static ValueNode[] ivRange(StructuredGraph graph, InductionVariable iv, InductionVariable counter, ValueNode lo, ValueNode hi) {
+        if (iv == counter) {
+            return new ValueNode[]{lo, hi};
+        }
+        DerivedOffsetInductionVariable derived = (DerivedOffsetInductionVariable) iv;
+        ValueNode offset = IntegerConvertNode.convert(derived.getOffset(), StampFactory.forKind(JavaKind.Long), graph, NodeView.DEFAULT);
+        ValueNode value = iv.valueNode();
+        if (value instanceof AddNode) {
+            return new ValueNode[]{AddNode.create(lo, offset, NodeView.DEFAULT), AddNode.create(hi, offset, NodeView.DEFAULT)};
+        }
+        assert value instanceof SubNode;
+        if (((SubNode) value).getX() == counter.valueNode()) {
+            return new ValueNode[]{SubNode.create(lo, offset, NodeView.DEFAULT), SubNode.create(hi, offset, NodeView.DEFAULT)};
+        }
+        return new ValueNode[]{SubNode.create(offset, hi, NodeView.DEFAULT), SubNode.create(offset, lo, NodeView.DEFAULT)};
+    }
+}
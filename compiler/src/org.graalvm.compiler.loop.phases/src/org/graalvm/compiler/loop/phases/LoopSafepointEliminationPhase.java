@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -24,36 +24,90 @@
  */
 package org.graalvm.compiler.loop.phases;
 
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.debug.GraalError;
+import org.graalvm.compiler.loop.BasicInductionVariable;
+import org.graalvm.compiler.loop.CountedLoopInfo;
+import org.graalvm.compiler.loop.InductionVariable;
+import org.graalvm.compiler.loop.InductionVariable.Direction;
 import org.graalvm.compiler.loop.LoopEx;
 import org.graalvm.compiler.loop.LoopsData;
+import org.graalvm.compiler.nodes.BeginNode;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.EndNode;
 import org.graalvm.compiler.nodes.FixedNode;
+import org.graalvm.compiler.nodes.FrameState;
+import org.graalvm.compiler.nodes.GuardPhiNode;
+import org.graalvm.compiler.nodes.IfNode;
 import org.graalvm.compiler.nodes.Invoke;
+import org.graalvm.compiler.nodes.LogicNode;
+import org.graalvm.compiler.nodes.LoopBeginNode;
 import org.graalvm.compiler.nodes.LoopEndNode;
+import org.graalvm.compiler.nodes.LoopExitNode;
+import org.graalvm.compiler.nodes.NodeView;
+import org.graalvm.compiler.nodes.PhiNode;
 import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.ValuePhiNode;
+import org.graalvm.compiler.nodes.calc.AddNode;
+import org.graalvm.compiler.nodes.calc.ConditionalNode;
+import org.graalvm.compiler.nodes.calc.IntegerBelowNode;
+import org.graalvm.compiler.nodes.calc.IntegerLessThanNode;
+import org.graalvm.compiler.nodes.calc.SubNode;
 import org.graalvm.compiler.nodes.cfg.Block;
 import org.graalvm.compiler.nodes.extended.ForeignCallNode;
+import org.graalvm.compiler.nodes.memory.MemoryPhiNode;
+import org.graalvm.compiler.options.Option;
+import org.graalvm.compiler.options.OptionKey;
+import org.graalvm.compiler.options.OptionType;
 import org.graalvm.compiler.phases.BasePhase;
 import org.graalvm.compiler.phases.tiers.MidTierContext;
 
 public class LoopSafepointEliminationPhase extends BasePhase<MidTierContext> {
 
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Instead of removing the safepoint poll from a counted loop, split the loop into chunks " +
+                       "and poll only when moving to the next chunk.", type = OptionType.Expert)
+        public static final OptionKey<Boolean> LoopStripMining = new OptionKey<>(false);
+        @Option(help = "Number of iterations of a strip mined loop between two safepoint polls.", type = OptionType.Expert)
+        public static final OptionKey<Integer> LoopStripMiningIterations = new OptionKey<>(1000);
+        // @formatter:on
+    }
+
+    private static final CounterKey StripMinedLoops = DebugContext.counter("StripMinedLoops");
+
     @Override
     protected void run(StructuredGraph graph, MidTierContext context) {
         LoopsData loops = new LoopsData(graph);
         if (context.getOptimisticOptimizations().useLoopLimitChecks(graph.getOptions()) && graph.getGuardsStage().allowsFloatingGuards()) {
             loops.detectedCountedLoops();
+            boolean stripMining = Options.LoopStripMining.getValue(graph.getOptions());
+            int iterations = Options.LoopStripMiningIterations.getValue(graph.getOptions());
+            boolean changed = false;
             for (LoopEx loop : loops.countedLoops()) {
-                if (loop.loop().getChildren().isEmpty() && loop.counted().getStamp().getBits() <= 32) {
+                if (loop.loop().getChildren().isEmpty()) {
                     boolean hasSafepoint = false;
                     for (LoopEndNode loopEnd : loop.loopBegin().loopEnds()) {
                         hasSafepoint |= loopEnd.canSafepoint();
                     }
-                    if (hasSafepoint) {
+                    if (!hasSafepoint) {
+                        continue;
+                    }
+                    if (stripMining && iterations > 0 && stripMine(loop, iterations)) {
+                        StripMinedLoops.increment(graph.getDebug());
+                        changed = true;
+                    } else if (loop.counted().getStamp().getBits() <= 32) {
                         loop.counted().createOverFlowGuard();
                         loop.loopBegin().disableSafepoint();
                     }
                 }
             }
+            if (changed) {
+                loops.deleteUnusedNodes();
+                loops = new LoopsData(graph);
+            }
         }
         for (LoopEx loop : loops.loops()) {
             for (LoopEndNode loopEnd : loop.loopBegin().loopEnds()) {
@@ -72,4 +126,129 @@ public class LoopSafepointEliminationPhase extends BasePhase<MidTierContext> {
         }
         loops.deleteUnusedNodes();
     }
+
+    /**
+     * Strip mines a loop of the form {@code for (i = init; i < limit; i++)} by nesting it in a new
+     * outer loop. The outer loop computes the end of the next chunk, {@code chunkEnd <= limit},
+     * which replaces {@code limit} in the header test of the original loop. Since
+     * {@code chunkEnd} is invariant in the original loop, it stays a counted loop that later loop
+     * transformations such as partial unrolling can handle. When the inner loop leaves a chunk,
+     * the outer loop exits if {@code i >= limit} and otherwise goes back to compute the next
+     * chunk. Only the outer back edge polls for safepoints, so the inner loop stays poll-free while
+     * at most {@code iterations} iterations run between two polls.
+     *
+     * <pre>
+     * outer:
+     *   chunkEnd = i &lt; limit &amp;&amp; iterations |&lt;| limit - i ? i + iterations : limit
+     *   inner:
+     *     if (i &lt; chunkEnd) { body; goto inner; }
+     *   if (i &lt; limit) { safepoint; goto outer; }
+     * exit:
+     * </pre>
+     *
+     * Other exits of the original loop leave both loops.
+     */
+    private static boolean stripMine(LoopEx loop, int iterations) {
+        CountedLoopInfo counted = loop.counted();
+        InductionVariable counter = counted.getCounter();
+        LoopBeginNode inner = loop.loopBegin();
+        if (!(counter instanceof BasicInductionVariable) || counter.direction() != Direction.Up || !counter.isConstantStride() || counter.constantStride() != 1 || counted.isLimitIncluded()) {
+            return false;
+        }
+        if (inner.forwardEndCount() != 1 || inner.getLoopEndCount() != 1) {
+            return false;
+        }
+        FrameState innerState = inner.stateAfter();
+        if (innerState == null || innerState.virtualObjectMappingCount() != 0) {
+            return false;
+        }
+        if (counted.isConstantMaxTripCount() && counted.constantMaxTripCount().isLessThan(iterations)) {
+            return false;
+        }
+        IfNode limitTest = counted.getLimitTest();
+        if (!(limitTest.condition() instanceof IntegerLessThanNode) || limitTest.trueSuccessor() != counted.getBody() || !(limitTest.falseSuccessor() instanceof LoopExitNode)) {
+            return false;
+        }
+        IntegerLessThanNode lessThan = (IntegerLessThanNode) limitTest.condition();
+        ValueNode phi = counter.valueNode();
+        ValueNode limit = counted.getLimit();
+        if (lessThan.getX() != phi || lessThan.getY() != limit) {
+            return false;
+        }
+
+        // Enter the original loop through the new outer loop.
+        StructuredGraph graph = inner.graph();
+        LoopBeginNode outer = graph.add(new LoopBeginNode());
+        EndNode entry = inner.forwardEndAt(0);
+        EndNode innerEntry = graph.add(new EndNode());
+        inner.replaceFirstInput(entry, innerEntry);
+        outer.addForwardEnd(entry);
+        outer.setNext(innerEntry);
+        LoopEndNode outerEnd = graph.add(new LoopEndNode(outer));
+
+        // Each loop variable gets an outer phi that carries its value from chunk to chunk.
+        FrameState outerState = innerState.duplicate();
+        ValueNode outerCounter = null;
+        for (PhiNode innerPhi : inner.phis().snapshot()) {
+            PhiNode outerPhi = createPhi(graph, innerPhi, outer);
+            outerPhi.addInput(innerPhi.valueAt(0));
+            outerPhi.addInput(innerPhi);
+            innerPhi.setValueAt(0, outerPhi);
+            for (int i = 0; i < outerState.values().size(); i++) {
+                if (outerState.values().get(i) == innerPhi) {
+                    outerState.values().set(i, outerPhi);
+                }
+            }
+            if (innerPhi == phi) {
+                outerCounter = outerPhi;
+            }
+        }
+        outer.setStateAfter(outerState);
+
+        LogicNode chunkTest = graph.unique(new IntegerLessThanNode(phi, chunkEnd(graph, outerCounter, limit, iterations)));
+        limitTest.setCondition(chunkTest);
+        if (lessThan.hasNoUsages()) {
+            lessThan.safeDelete();
+        }
+
+        // Leaving the chunk either continues with the next chunk or leaves both loops.
+        for (LoopExitNode innerExit : inner.loopExits().snapshot()) {
+            FixedNode next = innerExit.next();
+            innerExit.setNext(null);
+            LoopExitNode outerExit = graph.add(new LoopExitNode(outer));
+            outerExit.setStateAfter(innerExit.stateAfter());
+            outerExit.setNext(next);
+            if (innerExit == limitTest.falseSuccessor()) {
+                BeginNode nextChunk = graph.add(new BeginNode());
+                nextChunk.setNext(outerEnd);
+                LogicNode exitTest = graph.unique(new IntegerLessThanNode(phi, limit));
+                innerExit.setNext(graph.add(new IfNode(exitTest, nextChunk, outerExit, limitTest.getTrueSuccessorProbability())));
+            } else {
+                innerExit.setNext(outerExit);
+            }
+        }
+        inner.disableSafepoint();
+        return true;
+    }
+
+    private static PhiNode createPhi(StructuredGraph graph, PhiNode phi, LoopBeginNode merge) {
+        if (phi instanceof ValuePhiNode) {
+            return graph.addWithoutUnique(new ValuePhiNode(phi.stamp(NodeView.DEFAULT), merge));
+        } else if (phi instanceof MemoryPhiNode) {
+            return graph.addWithoutUnique(new MemoryPhiNode(merge, ((MemoryPhiNode) phi).getLocationIdentity()));
+        } else if (phi instanceof GuardPhiNode) {
+            return graph.addWithoutUnique(new GuardPhiNode(merge));
+        }
+        throw GraalError.shouldNotReachHere();
+    }
+
+    private static ValueNode chunkEnd(StructuredGraph graph, ValueNode start, ValueNode limit, int iterations) {
+        ValueNode length = ConstantNode.forIntegerStamp(start.stamp(NodeView.DEFAULT), iterations, graph);
+        ValueNode remaining = graph.addOrUniqueWithInputs(SubNode.create(limit, start, NodeView.DEFAULT));
+        ValueNode next = graph.addOrUniqueWithInputs(AddNode.create(start, length, NodeView.DEFAULT));
+        LogicNode fullChunk = graph.addOrUniqueWithInputs(IntegerBelowNode.create(length, remaining, NodeView.DEFAULT));
+        ValueNode end = graph.addOrUniqueWithInputs(ConditionalNode.create(fullChunk, next, limit, NodeView.DEFAULT));
+        LogicNode entered = graph.addOrUniqueWithInputs(IntegerLessThanNode.create(start, limit, NodeView.DEFAULT));
+        return graph.addOrUniqueWithInputs(ConditionalNode.create(entered, end, limit, NodeView.DEFAULT));
+    }
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.loop.phases;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.SpeculationLog.SpeculationReason;
+
+/**
+ * Reason for a speculation of a loop phase about the loop whose header is at {@code bci} of
+ * {@code method}. The speculations of different phases are distinct, so a failure only disables
+ * the transformation of the phase that made it.
+ */
+final class LoopSpeculationReason implements SpeculationReason {
+    private final Class<?> phase;
+    private final ResolvedJavaMethod method;
+    private final int bci;
+
+    LoopSpeculationReason(Class<?> phase, ResolvedJavaMethod method, int bci) {
+        this.phase = phase;
+        this.method = method;
+        this.bci = bci;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof LoopSpeculationReason) {
+            LoopSpeculationReason that = (LoopSpeculationReason) obj;
+            return this.phase == that.phase && this.bci == that.bci && this.method.equals(that.method);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return (phase.hashCode() * 31 + method.hashCode()) * 31 + bci;
+    }
+}
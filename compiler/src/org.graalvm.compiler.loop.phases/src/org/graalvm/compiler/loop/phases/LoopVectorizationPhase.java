@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.loop.phases;
+
+import org.graalvm.compiler.core.common.type.ArithmeticOpTable.BinaryOp;
+import org.graalvm.compiler.core.common.type.StampFactory;
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.loop.CountedLoopInfo;
+import org.graalvm.compiler.loop.InductionVariable;
+import org.graalvm.compiler.loop.InductionVariable.Direction;
+import org.graalvm.compiler.loop.LoopEx;
+import org.graalvm.compiler.loop.LoopsData;
+import org.graalvm.compiler.nodes.AbstractBeginNode;
+import org.graalvm.compiler.nodes.BeginNode;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.EndNode;
+import org.graalvm.compiler.nodes.FixedNode;
+import org.graalvm.compiler.nodes.FixedWithNextNode;
+import org.graalvm.compiler.nodes.FrameState;
+import org.graalvm.compiler.nodes.IfNode;
+import org.graalvm.compiler.nodes.LogicNode;
+import org.graalvm.compiler.nodes.LoopBeginNode;
+import org.graalvm.compiler.nodes.LoopEndNode;
+import org.graalvm.compiler.nodes.MergeNode;
+import org.graalvm.compiler.nodes.NodeView;
+import org.graalvm.compiler.nodes.ShortCircuitOrNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.ValuePhiNode;
+import org.graalvm.compiler.nodes.VirtualState.NodeClosure;
+import org.graalvm.compiler.nodes.calc.AddNode;
+import org.graalvm.compiler.nodes.calc.AndNode;
+import org.graalvm.compiler.nodes.calc.BinaryArithmeticNode;
+import org.graalvm.compiler.nodes.calc.ConditionalNode;
+import org.graalvm.compiler.nodes.calc.IntegerLessThanNode;
+import org.graalvm.compiler.nodes.calc.IsNullNode;
+import org.graalvm.compiler.nodes.calc.MulNode;
+import org.graalvm.compiler.nodes.calc.OrNode;
+import org.graalvm.compiler.nodes.calc.SubNode;
+import org.graalvm.compiler.nodes.calc.XorNode;
+import org.graalvm.compiler.nodes.extended.BranchProbabilityNode;
+import org.graalvm.compiler.nodes.extended.ElementwiseArrayOpNode;
+import org.graalvm.compiler.nodes.java.ArrayLengthNode;
+import org.graalvm.compiler.nodes.java.LoadIndexedNode;
+import org.graalvm.compiler.nodes.java.StoreIndexedNode;
+import org.graalvm.compiler.phases.BasePhase;
+import org.graalvm.compiler.phases.tiers.PhaseContext;
+
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Vectorizes counted loops of the form
+ *
+ * <pre>
+ * for (int i = start; i &lt; limit; i++) {
+ *     dst[i] = x[i] op y[i]; // or x[i] op y with a loop invariant y
+ * }
+ * </pre>
+ *
+ * on {@code int} arrays where {@code op} is one of {@code +, -, *, &, |, ^}. An
+ * {@link ElementwiseArrayOpNode} is inserted in front of the loop that executes as many iterations
+ * as possible in whole vectors, and the loop is entered with the first index that was not
+ * processed. The original loop thus acts as the post loop for the remaining iterations and is also
+ * responsible for throwing any exceptions, which is why the vector part only covers the iterations
+ * that are known to be in bounds of all arrays. Since all accesses use the same index, the
+ * transformation is also correct if the arrays alias.
+ *
+ * The phase must only be used with backends that implement
+ * {@link org.graalvm.compiler.lir.gen.LIRGeneratorTool#emitElementwiseArrayOp}.
+ */
+public class LoopVectorizationPhase extends BasePhase<PhaseContext> {
+
+    private static final CounterKey VECTORIZED_LOOPS = DebugContext.counter("VectorizedLoops");
+
+    /**
+     * Loops that are known to run fewer iterations than this are not worth the additional checks.
+     */
+    private static final int MIN_TRIP_COUNT = 16;
+
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, PhaseContext context) {
+        if (!graph.hasLoops()) {
+            return;
+        }
+        DebugContext debug = graph.getDebug();
+        LoopsData data = new LoopsData(graph);
+        data.detectedCountedLoops();
+        for (LoopEx loop : data.countedLoops()) {
+            ElementwiseLoop candidate = match(loop);
+            if (candidate != null) {
+                debug.log("Vectorizing %s", loop);
+                candidate.vectorize();
+                VECTORIZED_LOOPS.increment(debug);
+                debug.dump(DebugContext.DETAILED_LEVEL, graph, "Vectorized %s", loop);
+            }
+        }
+        data.deleteUnusedNodes();
+    }
+
+    private static ElementwiseLoop match(LoopEx loop) {
+        LoopBeginNode loopBegin = loop.loopBegin();
+        CountedLoopInfo counted = loop.counted();
+        InductionVariable counter = counted.getCounter();
+        if (loopBegin.stateAfter() == null || loopBegin.loopEnds().count() != 1 || loopBegin.loopExits().count() != 1) {
+            return null;
+        }
+        if (counter.direction() != Direction.Up || !counter.isConstantStride() || counter.constantStride() != 1 || !(counter.valueNode() instanceof ValuePhiNode)) {
+            return null;
+        }
+        ValuePhiNode phi = (ValuePhiNode) counter.valueNode();
+        if (phi.getStackKind() != JavaKind.Int || loopBegin.phis().count() != 1) {
+            // Other loop-carried values would have to be computed by the vector code as well.
+            return null;
+        }
+        if (counted.isConstantMaxTripCount() && counted.constantMaxTripCount().isLessThan(MIN_TRIP_COUNT)) {
+            return null;
+        }
+        if (loopBegin.next() != counted.getLimitTest()) {
+            return null;
+        }
+
+        /*
+         * The body must consist of nothing but the array accesses of a single element-wise
+         * operation. Anything else could have side effects or exit the loop.
+         */
+        StoreIndexedNode store = null;
+        int loads = 0;
+        FixedNode current = counted.getBody().next();
+        while (current != loopBegin.loopEnds().first()) {
+            if (current instanceof StoreIndexedNode && store == null) {
+                store = (StoreIndexedNode) current;
+            } else if (current instanceof LoadIndexedNode) {
+                loads++;
+            } else {
+                return null;
+            }
+            current = ((FixedWithNextNode) current).next();
+        }
+        if (store == null || store.elementKind() != JavaKind.Int || !isElementAccess(loop, store.array(), store.index(), phi)) {
+            return null;
+        }
+        if (!(store.value() instanceof BinaryArithmeticNode) || !isSupported((BinaryArithmeticNode<?>) store.value())) {
+            return null;
+        }
+        BinaryArithmeticNode<?> operation = (BinaryArithmeticNode<?>) store.value();
+        ValueNode x = operation.getX();
+        ValueNode y = operation.getY();
+        if (loop.isOutsideLoop(x) && operation.getArithmeticOp().isCommutative()) {
+            ValueNode tmp = x;
+            x = y;
+            y = tmp;
+        }
+        ValueNode xArray = loadedArray(loop, x, phi);
+        if (xArray == null) {
+            return null;
+        }
+        ValueNode yArray = loadedArray(loop, y, phi);
+        if (yArray == null && !loop.isOutsideLoop(y)) {
+            return null;
+        }
+        if (loads != (yArray != null && x != y ? 2 : 1)) {
+            /*
+             * Any other load could throw an exception in an iteration that the vector code has
+             * already executed.
+             */
+            return null;
+        }
+        return new ElementwiseLoop(loop, phi, operation.getArithmeticOp(), store.array(), xArray, yArray != null ? yArray : y, yArray != null);
+    }
+
+    private static boolean isSupported(BinaryArithmeticNode<?> operation) {
+        if (operation.getStackKind() != JavaKind.Int) {
+            return false;
+        }
+        return operation instanceof AddNode || operation instanceof SubNode || operation instanceof MulNode || operation instanceof AndNode || operation instanceof OrNode ||
+                        operation instanceof XorNode;
+    }
+
+    private static boolean isElementAccess(LoopEx loop, ValueNode array, ValueNode index, ValuePhiNode phi) {
+        return index == phi && loop.isOutsideLoop(array);
+    }
+
+    /**
+     * Returns the array if {@code value} is an {@code int} array element at the current index that
+     * is loaded in the loop body, {@code null} otherwise.
+     */
+    private static ValueNode loadedArray(LoopEx loop, ValueNode value, ValuePhiNode phi) {
+        if (value instanceof LoadIndexedNode && loop.whole().contains(value)) {
+            LoadIndexedNode load = (LoadIndexedNode) value;
+            if (load.elementKind() == JavaKind.Int && isElementAccess(loop, load.array(), load.index(), phi)) {
+                return load.array();
+            }
+        }
+        return null;
+    }
+
+    private static final class ElementwiseLoop {
+        private final LoopEx loop;
+        private final ValuePhiNode phi;
+        private final BinaryOp<?> op;
+        private final ValueNode dst;
+        private final ValueNode x;
+        private final ValueNode y;
+        private final boolean yIsArray;
+
+        ElementwiseLoop(LoopEx loop, ValuePhiNode phi, BinaryOp<?> op, ValueNode dst, ValueNode x, ValueNode y, boolean yIsArray) {
+            this.loop = loop;
+            this.phi = phi;
+            this.op = op;
+            this.dst = dst;
+            this.x = x;
+            this.y = y;
+            this.yIsArray = yIsArray;
+        }
+
+        /**
+         * Inserts the vector code in front of the loop:
+         *
+         * <pre>
+         * if (dst == null || x == null || y == null) {
+         *     newStart = start;
+         * } else {
+         *     newStart = vectorOp(dst, x, y, start, min(limit, dst.length, x.length, y.length));
+         * }
+         * for (int i = newStart; ...
+         * </pre>
+         */
+        void vectorize() {
+            LoopBeginNode loopBegin = loop.loopBegin();
+            StructuredGraph graph = loopBegin.graph();
+            EndNode forwardEnd = loopBegin.forwardEnd();
+            FixedWithNextNode predecessor = (FixedWithNextNode) forwardEnd.predecessor();
+            ValueNode start = phi.valueAt(forwardEnd);
+
+            LogicNode anyNull = isNull(graph, dst);
+            anyNull = orIsNull(graph, anyNull, x);
+            if (yIsArray) {
+                anyNull = orIsNull(graph, anyNull, y);
+            }
+
+            BeginNode nullBegin = graph.add(new BeginNode());
+            EndNode nullEnd = graph.add(new EndNode());
+            nullBegin.setNext(nullEnd);
+
+            BeginNode vectorBegin = graph.add(new BeginNode());
+            FixedWithNextNode last = vectorBegin;
+            CountedLoopInfo counted = loop.counted();
+            ValueNode end = counted.getLimit();
+            if (counted.isLimitIncluded()) {
+                // If the limit overflows, end becomes negative and the vector code does nothing.
+                end = graph.addOrUniqueWithInputs(AddNode.create(end, ConstantNode.forInt(1), NodeView.DEFAULT));
+            }
+            ValueNode[] arrays = yIsArray ? new ValueNode[]{dst, x, y} : new ValueNode[]{dst, x};
+            for (ValueNode array : arrays) {
+                ArrayLengthNode length = graph.add(new ArrayLengthNode(array));
+                last.setNext(length);
+                last = length;
+                end = min(graph, end, length);
+            }
+            ElementwiseArrayOpNode vectorOp = graph.add(new ElementwiseArrayOpNode(JavaKind.Int, op, dst, x, y, yIsArray, start, end));
+            vectorOp.setStateAfter(loopEntryState(loopBegin, vectorOp));
+            last.setNext(vectorOp);
+            EndNode vectorEnd = graph.add(new EndNode());
+            vectorOp.setNext(vectorEnd);
+
+            IfNode ifNode = graph.add(new IfNode(anyNull, nullBegin, vectorBegin, BranchProbabilityNode.VERY_SLOW_PATH_PROBABILITY));
+            MergeNode merge = graph.add(new MergeNode());
+            merge.addForwardEnd(nullEnd);
+            merge.addForwardEnd(vectorEnd);
+            ValuePhiNode newStart = graph.addWithoutUnique(new ValuePhiNode(StampFactory.forKind(JavaKind.Int), merge, new ValueNode[]{start, vectorOp}));
+            merge.setStateAfter(loopEntryState(loopBegin, newStart));
+
+            predecessor.setNext(ifNode);
+            merge.setNext(forwardEnd);
+            phi.setValueAt(forwardEnd, newStart);
+        }
+
+        /**
+         * Creates the state of the loop header on entry with the counter set to {@code index}.
+         */
+        private FrameState loopEntryState(LoopBeginNode loopBegin, ValueNode index) {
+            FrameState state = loopBegin.stateAfter().duplicateWithVirtualState();
+            state.applyToNonVirtual(new NodeClosure<ValueNode>() {
+
+                @Override
+                public void apply(Node from, ValueNode node) {
+                    if (node == phi) {
+                        from.replaceFirstInput(phi, index);
+                    }
+                }
+            });
+            return state;
+        }
+
+        private static LogicNode isNull(StructuredGraph graph, ValueNode value) {
+            return graph.addOrUniqueWithInputs(IsNullNode.create(value));
+        }
+
+        private static LogicNode orIsNull(StructuredGraph graph, LogicNode condition, ValueNode value) {
+            return graph.unique(new ShortCircuitOrNode(condition, false, isNull(graph, value), false, BranchProbabilityNode.NOT_FREQUENT_PROBABILITY));
+        }
+
+        private static ValueNode min(StructuredGraph graph, ValueNode a, ValueNode b) {
+            LogicNode lessThan = graph.addOrUniqueWithInputs(IntegerLessThanNode.create(a, b, NodeView.DEFAULT));
+            return graph.addOrUniqueWithInputs(ConditionalNode.create(lessThan, a, b, NodeView.DEFAULT));
+        }
+    }
+
+    @Override
+    public boolean checkContract() {
+        return false;
+    }
+}
@@ -37,6 +37,11 @@ import org.graalvm.compiler.phases.Phase;
  */
 public class ReassociateInvariantPhase extends Phase {
 
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
     @SuppressWarnings("try")
     @Override
     protected void run(StructuredGraph graph) {
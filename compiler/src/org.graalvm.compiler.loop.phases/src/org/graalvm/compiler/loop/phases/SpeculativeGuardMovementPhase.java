@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.loop.phases;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.graalvm.collections.EconomicMap;
+import org.graalvm.collections.Equivalence;
+import org.graalvm.compiler.core.common.cfg.Loop;
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.loop.LoopsData;
+import org.graalvm.compiler.nodes.AbstractBeginNode;
+import org.graalvm.compiler.nodes.FixedNode;
+import org.graalvm.compiler.nodes.FrameState;
+import org.graalvm.compiler.nodes.GuardNode;
+import org.graalvm.compiler.nodes.PhiNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.cfg.Block;
+import org.graalvm.compiler.nodes.cfg.ControlFlowGraph;
+import org.graalvm.compiler.phases.BasePhase;
+import org.graalvm.compiler.phases.tiers.MidTierContext;
+
+import jdk.vm.ci.meta.DeoptimizationAction;
+import jdk.vm.ci.meta.SpeculationLog;
+import jdk.vm.ci.meta.SpeculationLog.Speculation;
+
+/**
+ * Moves floating guards whose condition is loop invariant to the entry of the outermost loop in
+ * which the condition is still invariant. This also picks up guards that only became invariant
+ * because {@link LoopPredicationPhase} rewrote a check of an induction variable into a check in
+ * front of an inner loop.
+ *
+ * A hoisted guard fails even if the loop is never entered or the guarded code is not reached in
+ * any iteration, so the guard is speculative: it invalidates the compiled code and records a
+ * failed speculation for the loop it was moved out of. The recompiled code leaves the guards of
+ * that loop in place, which avoids deoptimization loops. This also applies to guards that already
+ * carry a speculation, e.g., from {@link LoopPredicationPhase}: their original speculation only
+ * covers the position they were created at, so they are only moved out of a loop whose own
+ * speculation has not failed and then carry that speculation instead.
+ */
+public class SpeculativeGuardMovementPhase extends BasePhase<MidTierContext> {
+
+    private static final CounterKey MovedGuards = DebugContext.counter("SpeculativeGuardMovement_MovedGuards");
+
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, MidTierContext context) {
+        SpeculationLog speculationLog = graph.getSpeculationLog();
+        if (speculationLog == null || !graph.getGuardsStage().allowsFloatingGuards() || !graph.hasLoops()) {
+            return;
+        }
+        if (!context.getOptimisticOptimizations().useLoopLimitChecks(graph.getOptions())) {
+            return;
+        }
+        LoopsData loops = new LoopsData(graph);
+        ControlFlowGraph cfg = loops.getCFG();
+        EconomicMap<Loop<Block>, EconomicMap<Node, Boolean>> invariants = EconomicMap.create(Equivalence.IDENTITY);
+        EconomicMap<Loop<Block>, Speculation> speculations = EconomicMap.create(Equivalence.IDENTITY);
+        for (GuardNode guard : graph.getNodes(GuardNode.TYPE).snapshot()) {
+            if (guard.getAnchor() == null || !guard.getAnchor().asNode().isAlive()) {
+                continue;
+            }
+            Block anchorBlock = cfg.blockFor(guard.getAnchor().asNode());
+            if (anchorBlock == null) {
+                continue;
+            }
+            List<Loop<Block>> candidates = new ArrayList<>();
+            for (Loop<Block> loop = anchorBlock.getLoop(); loop != null; loop = loop.getParent()) {
+                EconomicMap<Node, Boolean> cache = invariants.get(loop);
+                if (cache == null) {
+                    cache = EconomicMap.create(Equivalence.IDENTITY);
+                    invariants.put(loop, cache);
+                }
+                if (!isInvariant(guard.getCondition(), loop, cfg, cache)) {
+                    break;
+                }
+                candidates.add(loop);
+            }
+
+            /*
+             * Try the outermost loop first and fall back to inner loops whose speculation has not
+             * failed yet.
+             */
+            Loop<Block> target = null;
+            Speculation speculation = null;
+            for (int i = candidates.size() - 1; i >= 0 && target == null; i--) {
+                Loop<Block> loop = candidates.get(i);
+                if (speculations.containsKey(loop)) {
+                    target = loop;
+                    speculation = speculations.get(loop);
+                } else {
+                    FrameState state = loops.loop(loop).loopBegin().stateAfter();
+                    if (state != null) {
+                        LoopSpeculationReason reason = new LoopSpeculationReason(SpeculativeGuardMovementPhase.class, state.getMethod(), state.bci);
+                        if (speculationLog.maySpeculate(reason)) {
+                            target = loop;
+                            speculation = speculationLog.speculate(reason);
+                            speculations.put(loop, speculation);
+                        }
+                    }
+                }
+            }
+            if (target == null) {
+                continue;
+            }
+
+            AbstractBeginNode anchor = AbstractBeginNode.prevBegin(loops.loop(target).entryPoint());
+            GuardNode hoisted = graph.unique(new GuardNode(guard.getCondition(), anchor, guard.getReason(), DeoptimizationAction.InvalidateRecompile, guard.isNegated(), speculation,
+                            guard.getNoDeoptSuccessorPosition()));
+            guard.replaceAndDelete(hoisted);
+            MovedGuards.increment(graph.getDebug());
+        }
+    }
+
+    /**
+     * Determines whether {@code node} only depends on values computed outside of {@code loop}. The
+     * inputs of floating nodes are followed, so a value guarded or anchored inside the loop is not
+     * invariant. Phis are not followed since only their merge decides where they are computed.
+     */
+    private static boolean isInvariant(Node node, Loop<Block> loop, ControlFlowGraph cfg, EconomicMap<Node, Boolean> cache) {
+        Boolean cached = cache.get(node);
+        if (cached != null) {
+            return cached;
+        }
+        boolean invariant;
+        if (node instanceof FixedNode) {
+            Block block = cfg.blockFor(node);
+            invariant = block != null && !isInLoop(block, loop);
+        } else if (node instanceof PhiNode) {
+            invariant = isInvariant(((PhiNode) node).merge(), loop, cfg, cache);
+        } else {
+            invariant = true;
+            for (Node input : node.inputs()) {
+                if (!isInvariant(input, loop, cfg, cache)) {
+                    invariant = false;
+                    break;
+                }
+            }
+        }
+        cache.put(node, invariant);
+        return invariant;
+    }
+
+    private static boolean isInLoop(Block block, Loop<Block> loop) {
+        for (Loop<Block> l = block.getLoop(); l != null; l = l.getParent()) {
+            if (l == loop) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.loop.test;
+
+import org.graalvm.compiler.code.CompilationResult;
+import org.graalvm.compiler.core.common.GraalOptions;
+import org.graalvm.compiler.core.test.GraalCompilerTest;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.loop.phases.LoopPredicationPhase;
+import org.graalvm.compiler.nodes.GuardNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.common.FloatingReadPhase;
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.vm.ci.code.InstalledCode;
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.SpeculationLog;
+
+public class LoopPredicationTest extends GraalCompilerTest {
+
+    private final SpeculationLog speculationLog;
+
+    public LoopPredicationTest() {
+        speculationLog = getCodeCache().createSpeculationLog();
+    }
+
+    @Override
+    protected SpeculationLog getSpeculationLog() {
+        speculationLog.collectFailedSpeculations();
+        return speculationLog;
+    }
+
+    @Override
+    protected InstalledCode addMethod(DebugContext debug, final ResolvedJavaMethod method, final CompilationResult compilationResult) {
+        return getBackend().createInstalledCode(debug, method, compilationResult, speculationLog, null, false);
+    }
+
+    public static int sumSnippet(int[] a, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    public static int sumDownSnippet(int[] a, int start) {
+        int sum = 0;
+        for (int i = start; i >= 0; i--) {
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    public static int shiftedSnippet(int[] a, int[] b, int offset, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += a[i + offset] * b[n - i];
+        }
+        return sum;
+    }
+
+    public static int squareSnippet(int[] a, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += a[i * i];
+        }
+        return sum;
+    }
+
+    private static int[] array(int length) {
+        int[] array = new int[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = i * 31 + 7;
+        }
+        return array;
+    }
+
+    private int countPredicatedBoundsChecks(String snippet) {
+        StructuredGraph graph = parseEager(snippet, AllowAssumptions.NO);
+        createSuites(graph.getOptions()).getHighTier().apply(graph, getDefaultHighTierContext());
+        new FloatingReadPhase().apply(graph);
+        new LoopPredicationPhase().apply(graph, getDefaultMidTierContext());
+        int count = 0;
+        for (GuardNode guard : graph.getNodes(GuardNode.TYPE)) {
+            if (guard.getReason() == DeoptimizationReason.BoundsCheckException && guard.getSpeculation() != SpeculationLog.NO_SPECULATION) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testMatching() {
+        Assert.assertEquals(1, countPredicatedBoundsChecks("sumSnippet"));
+        Assert.assertEquals(1, countPredicatedBoundsChecks("sumDownSnippet"));
+        Assert.assertEquals(2, countPredicatedBoundsChecks("shiftedSnippet"));
+        Assert.assertEquals(0, countPredicatedBoundsChecks("squareSnippet"));
+    }
+
+    private OptionValues predicationOptions() {
+        return new OptionValues(getInitialOptions(), GraalOptions.LoopPredication, true);
+    }
+
+    @Test
+    public void testSum() {
+        OptionValues options = predicationOptions();
+        test(options, "sumSnippet", array(100), 0);
+        test(options, "sumSnippet", array(100), 100);
+        test(options, "sumSnippet", array(100), 101);
+        test(options, "sumSnippet", null, 0);
+        test(options, "sumSnippet", null, 10);
+    }
+
+    @Test
+    public void testSumDown() {
+        OptionValues options = predicationOptions();
+        test(options, "sumDownSnippet", array(100), 99);
+        test(options, "sumDownSnippet", array(100), -1);
+        test(options, "sumDownSnippet", array(100), 100);
+    }
+
+    @Test
+    public void testShifted() {
+        OptionValues options = predicationOptions();
+        test(options, "shiftedSnippet", array(100), array(100), 1, 50);
+        test(options, "shiftedSnippet", array(100), array(100), -1, 50);
+        test(options, "shiftedSnippet", array(100), array(100), Integer.MAX_VALUE, 50);
+        test(options, "shiftedSnippet", array(100), array(100), 0, 100);
+    }
+}
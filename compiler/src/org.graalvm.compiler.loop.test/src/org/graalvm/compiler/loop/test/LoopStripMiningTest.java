@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.loop.test;
+
+import org.graalvm.compiler.core.test.GraalCompilerTest;
+import org.graalvm.compiler.loop.LoopEx;
+import org.graalvm.compiler.loop.LoopsData;
+import org.graalvm.compiler.loop.phases.LoopSafepointEliminationPhase;
+import org.graalvm.compiler.nodes.LoopBeginNode;
+import org.graalvm.compiler.nodes.LoopEndNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.options.OptionValues;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LoopStripMiningTest extends GraalCompilerTest {
+
+    public static long sumSnippet(int start, int n) {
+        long sum = 0;
+        for (int i = start; i < n; i++) {
+            sum += i;
+        }
+        return sum;
+    }
+
+    public static long sumLongSnippet(long start, long n) {
+        long sum = 0;
+        for (long i = start; i < n; i++) {
+            sum += i ^ (sum >>> 3);
+        }
+        return sum;
+    }
+
+    public static int sumArraySnippet(int[] a) {
+        int sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    public static int shortLoopSnippet() {
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            sum += i * i;
+        }
+        return sum;
+    }
+
+    public static long inclusiveSnippet(int n) {
+        long sum = 0;
+        for (int i = 0; i <= n; i++) {
+            sum += i;
+        }
+        return sum;
+    }
+
+    private OptionValues stripMiningOptions(int iterations) {
+        return new OptionValues(getInitialOptions(), LoopSafepointEliminationPhase.Options.LoopStripMining, true,
+                        LoopSafepointEliminationPhase.Options.LoopStripMiningIterations, iterations);
+    }
+
+    private StructuredGraph stripMine(String snippet) {
+        StructuredGraph graph = parseEager(snippet, AllowAssumptions.NO, stripMiningOptions(1000));
+        createSuites(graph.getOptions()).getHighTier().apply(graph, getDefaultHighTierContext());
+        new LoopSafepointEliminationPhase().apply(graph, getDefaultMidTierContext());
+        return graph;
+    }
+
+    private static boolean canSafepoint(LoopBeginNode loopBegin) {
+        for (LoopEndNode loopEnd : loopBegin.loopEnds()) {
+            if (loopEnd.canSafepoint()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks that the single loop of the snippet was nested in a polling outer loop and that the
+     * inner loop is still counted, so that later loop transformations can handle it.
+     */
+    private void assertStripMined(String snippet) {
+        StructuredGraph graph = stripMine(snippet);
+        LoopsData loops = new LoopsData(graph);
+        loops.detectedCountedLoops();
+        Assert.assertEquals(2, loops.loops().size());
+        for (LoopEx loop : loops.loops()) {
+            if (loop.loop().getChildren().isEmpty()) {
+                Assert.assertTrue("inner loop must stay counted", loop.isCounted());
+                Assert.assertFalse(canSafepoint(loop.loopBegin()));
+            } else {
+                Assert.assertNull(loop.parent());
+                Assert.assertEquals(1, loop.loopBegin().getLoopEndCount());
+                Assert.assertTrue(canSafepoint(loop.loopBegin()));
+            }
+        }
+    }
+
+    @Test
+    public void testShape() {
+        assertStripMined("sumSnippet");
+        assertStripMined("sumLongSnippet");
+        assertStripMined("sumArraySnippet");
+        StructuredGraph graph = stripMine("shortLoopSnippet");
+        Assert.assertEquals(1, graph.getNodes(LoopBeginNode.TYPE).count());
+    }
+
+    @Test
+    public void testSum() {
+        for (int iterations : new int[]{1, 7, 1000}) {
+            OptionValues options = stripMiningOptions(iterations);
+            test(options, "sumSnippet", 0, 0);
+            test(options, "sumSnippet", 0, 1);
+            test(options, "sumSnippet", 0, 6999);
+            test(options, "sumSnippet", -5000, 5001);
+            test(options, "sumSnippet", 10, -10);
+            test(options, "sumSnippet", Integer.MAX_VALUE - 2500, Integer.MAX_VALUE);
+            test(options, "sumSnippet", Integer.MIN_VALUE, Integer.MIN_VALUE + 3000);
+        }
+    }
+
+    @Test
+    public void testSumLong() {
+        OptionValues options = stripMiningOptions(100);
+        test(options, "sumLongSnippet", 0L, 12345L);
+        test(options, "sumLongSnippet", Long.MAX_VALUE - 1234, Long.MAX_VALUE);
+        test(options, "sumLongSnippet", 5L, 5L);
+    }
+
+    @Test
+    public void testArray() {
+        OptionValues options = stripMiningOptions(16);
+        int[] array = new int[1001];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i * 7;
+        }
+        test(options, "sumArraySnippet", array);
+        test(options, "sumArraySnippet", new int[0]);
+    }
+
+    @Test
+    public void testInclusive() {
+        OptionValues options = stripMiningOptions(16);
+        test(options, "inclusiveSnippet", 5000);
+        test(options, "inclusiveSnippet", -1);
+    }
+}
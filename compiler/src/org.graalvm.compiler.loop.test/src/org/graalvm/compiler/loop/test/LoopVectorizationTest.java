@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.loop.test;
+
+import org.graalvm.compiler.core.common.GraalOptions;
+import org.graalvm.compiler.core.test.GraalCompilerTest;
+import org.graalvm.compiler.loop.phases.LoopVectorizationPhase;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.nodes.extended.ElementwiseArrayOpNode;
+import org.graalvm.compiler.options.OptionValues;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LoopVectorizationTest extends GraalCompilerTest {
+
+    public static int[] addSnippet(int[] dst, int[] x, int[] y, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[i] = x[i] + y[i];
+        }
+        return dst;
+    }
+
+    public static int[] subScalarSnippet(int[] dst, int[] x, int y, int start, int n) {
+        for (int i = start; i < n; i++) {
+            dst[i] = x[i] - y;
+        }
+        return dst;
+    }
+
+    public static int[] mulInPlaceSnippet(int[] x, int[] y, int n) {
+        for (int i = 0; i <= n; i++) {
+            x[i] = x[i] * y[i];
+        }
+        return x;
+    }
+
+    public static int[] xorScalarSnippet(int[] dst, int[] x, int y, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[i] = y ^ x[i];
+        }
+        return dst;
+    }
+
+    @SuppressWarnings("unused")
+    public static int[] extraLoadSnippet(int[] dst, int[] x, int[] y, int[] z, int n) {
+        for (int i = 0; i < n; i++) {
+            int unused = z[i];
+            dst[i] = x[i] + y[i];
+        }
+        return dst;
+    }
+
+    public static int[] shiftedSnippet(int[] dst, int[] x, int[] y, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[i] = x[i + 1] + y[i];
+        }
+        return dst;
+    }
+
+    private static int[] array(int length) {
+        int[] array = new int[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = i * 31 + 7;
+        }
+        return array;
+    }
+
+    private int countVectorOps(String snippet) {
+        StructuredGraph graph = parseEager(snippet, AllowAssumptions.NO);
+        new LoopVectorizationPhase().apply(graph, getDefaultHighTierContext());
+        return graph.getNodes().filter(ElementwiseArrayOpNode.class).count();
+    }
+
+    @Test
+    public void testMatching() {
+        Assert.assertEquals(1, countVectorOps("addSnippet"));
+        Assert.assertEquals(1, countVectorOps("subScalarSnippet"));
+        Assert.assertEquals(1, countVectorOps("mulInPlaceSnippet"));
+        Assert.assertEquals(1, countVectorOps("xorScalarSnippet"));
+        Assert.assertEquals(0, countVectorOps("extraLoadSnippet"));
+        Assert.assertEquals(0, countVectorOps("shiftedSnippet"));
+    }
+
+    private OptionValues vectorizeOptions() {
+        return new OptionValues(getInitialOptions(), GraalOptions.VectorizeLoops, true);
+    }
+
+    @Test
+    public void testAdd() {
+        OptionValues options = vectorizeOptions();
+        for (int n = 0; n < 40; n++) {
+            int length = n;
+            test(options, "addSnippet", supply(() -> new int[length]), array(n), array(n), n);
+        }
+        test(options, "addSnippet", supply(() -> new int[40]), array(40), array(20), 40);
+        test(options, "addSnippet", supply(() -> new int[40]), array(40), null, 40);
+        test(options, "addSnippet", null, array(40), array(40), 40);
+    }
+
+    @Test
+    public void testSubScalar() {
+        OptionValues options = vectorizeOptions();
+        for (int start = -1; start < 10; start++) {
+            int from = start;
+            test(options, "subScalarSnippet", supply(() -> new int[37]), array(37), 12345, from, 37);
+        }
+        test(options, "subScalarSnippet", supply(() -> new int[37]), array(37), 12345, 3, 38);
+    }
+
+    @Test
+    public void testMulInPlace() {
+        OptionValues options = vectorizeOptions();
+        test(options, "mulInPlaceSnippet", supply(() -> array(33)), array(33), 32);
+        test(options, "mulInPlaceSnippet", supply(() -> array(33)), array(33), 33);
+        test(options, "mulInPlaceSnippet", supply(() -> array(33)), array(33), Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testXorScalar() {
+        OptionValues options = vectorizeOptions();
+        test(options, "xorScalarSnippet", supply(() -> new int[100]), array(100), 0x5555, 100);
+        test(options, "xorScalarSnippet", supply(() -> new int[100]), array(100), 0x5555, 101);
+    }
+}
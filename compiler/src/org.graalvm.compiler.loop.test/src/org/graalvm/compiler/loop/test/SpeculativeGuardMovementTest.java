@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.loop.test;
+
+import org.graalvm.compiler.code.CompilationResult;
+import org.graalvm.compiler.core.common.GraalOptions;
+import org.graalvm.compiler.core.test.GraalCompilerTest;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.loop.phases.LoopPredicationPhase;
+import org.graalvm.compiler.loop.phases.SpeculativeGuardMovementPhase;
+import org.graalvm.compiler.nodes.GuardNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.nodes.cfg.ControlFlowGraph;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.common.FloatingReadPhase;
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.vm.ci.code.InstalledCode;
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.SpeculationLog;
+
+public class SpeculativeGuardMovementTest extends GraalCompilerTest {
+
+    private final SpeculationLog speculationLog;
+
+    public SpeculativeGuardMovementTest() {
+        speculationLog = getCodeCache().createSpeculationLog();
+    }
+
+    @Override
+    protected SpeculationLog getSpeculationLog() {
+        speculationLog.collectFailedSpeculations();
+        return speculationLog;
+    }
+
+    @Override
+    protected InstalledCode addMethod(DebugContext debug, final ResolvedJavaMethod method, final CompilationResult compilationResult) {
+        return getBackend().createInstalledCode(debug, method, compilationResult, speculationLog, null, false);
+    }
+
+    public static int invariantIndexSnippet(int[] a, int index, int n) {
+        int sum = 0;
+        int i = 0;
+        while (sum < n) {
+            sum += a[index] + i++;
+        }
+        return sum;
+    }
+
+    public static int nestedSnippet(int[][] m, int row, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                sum += m[row][j] * i;
+            }
+        }
+        return sum;
+    }
+
+    public static int variantIndexSnippet(int[] a, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += a[i * i];
+        }
+        return sum;
+    }
+
+    public static int predicatedSnippet(int[] a, int n, int m) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                sum += a[j];
+            }
+        }
+        return sum;
+    }
+
+    private static int[] array(int length) {
+        int[] array = new int[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = i * 31 + 7;
+        }
+        return array;
+    }
+
+    private static int[][] matrix(int length) {
+        int[][] matrix = new int[length][];
+        for (int i = 0; i < length; i++) {
+            matrix[i] = array(length);
+        }
+        return matrix;
+    }
+
+    private int countMovedBoundsChecks(String snippet) {
+        StructuredGraph graph = parseEager(snippet, AllowAssumptions.NO);
+        createSuites(graph.getOptions()).getHighTier().apply(graph, getDefaultHighTierContext());
+        new FloatingReadPhase().apply(graph);
+        new SpeculativeGuardMovementPhase().apply(graph, getDefaultMidTierContext());
+        int count = 0;
+        for (GuardNode guard : graph.getNodes(GuardNode.TYPE)) {
+            if (guard.getReason() == DeoptimizationReason.BoundsCheckException && guard.getSpeculation() != SpeculationLog.NO_SPECULATION) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the speculative bounds checks after loop predication and guard movement, and how
+     * many of them are anchored inside a loop.
+     */
+    private int[] countPredicatedBoundsChecks(String snippet) {
+        StructuredGraph graph = parseEager(snippet, AllowAssumptions.NO);
+        createSuites(graph.getOptions()).getHighTier().apply(graph, getDefaultHighTierContext());
+        new FloatingReadPhase().apply(graph);
+        new LoopPredicationPhase().apply(graph, getDefaultMidTierContext());
+        new SpeculativeGuardMovementPhase().apply(graph, getDefaultMidTierContext());
+        ControlFlowGraph cfg = ControlFlowGraph.compute(graph, true, true, false, false);
+        int[] counts = new int[2];
+        for (GuardNode guard : graph.getNodes(GuardNode.TYPE)) {
+            if (guard.getReason() == DeoptimizationReason.BoundsCheckException && guard.getSpeculation() != SpeculationLog.NO_SPECULATION) {
+                counts[0]++;
+                if (cfg.blockFor(guard.getAnchor().asNode()).getLoop() != null) {
+                    counts[1]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    @Test
+    public void testMatching() {
+        Assert.assertEquals(1, countMovedBoundsChecks("invariantIndexSnippet"));
+        Assert.assertEquals(1, countMovedBoundsChecks("nestedSnippet"));
+        Assert.assertEquals(0, countMovedBoundsChecks("variantIndexSnippet"));
+    }
+
+    private OptionValues guardMovementOptions() {
+        return new OptionValues(getInitialOptions(), GraalOptions.SpeculativeGuardMovement, true);
+    }
+
+    @Test
+    public void testInvariantIndex() {
+        OptionValues options = guardMovementOptions();
+        test(options, "invariantIndexSnippet", array(10), 3, 1000);
+        test(options, "invariantIndexSnippet", array(10), 10, 0);
+        test(options, "invariantIndexSnippet", array(10), -1, 1000);
+        test(options, "invariantIndexSnippet", null, 0, 0);
+    }
+
+    /**
+     * A guard created by loop predication in front of the inner loop is moved out of the outer
+     * loop with a speculation of its own. When that fails because the outer loop is not entered,
+     * only the movement out of the outer loop is disabled, not the predication.
+     */
+    @Test
+    public void testPredicatedGuard() {
+        Assert.assertArrayEquals(new int[]{1, 0}, countPredicatedBoundsChecks("predicatedSnippet"));
+        OptionValues options = new OptionValues(guardMovementOptions(), GraalOptions.LoopPredication, true);
+        test(options, "predicatedSnippet", array(10), 0, 100);
+        Assert.assertArrayEquals(new int[]{1, 1}, countPredicatedBoundsChecks("predicatedSnippet"));
+        test(options, "predicatedSnippet", array(10), 3, 10);
+        test(options, "predicatedSnippet", array(10), 3, 11);
+    }
+
+    @Test
+    public void testNested() {
+        OptionValues options = guardMovementOptions();
+        test(options, "nestedSnippet", matrix(10), 3, 10);
+        test(options, "nestedSnippet", matrix(10), 10, 0);
+        test(options, "nestedSnippet", matrix(10), 10, 5);
+        test(options, "nestedSnippet", null, 0, 0);
+    }
+}
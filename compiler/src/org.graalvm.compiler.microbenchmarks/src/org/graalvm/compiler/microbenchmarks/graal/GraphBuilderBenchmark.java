@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.microbenchmarks.graal;
+
+import java.util.HashMap;
+
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.debug.DebugHandlersFactory;
+import org.graalvm.compiler.java.GraphBuilderPhase;
+import org.graalvm.compiler.microbenchmarks.graal.util.GraalState;
+import org.graalvm.compiler.microbenchmarks.graal.util.GraalUtil;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.nodes.graphbuilderconf.GraphBuilderConfiguration;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.OptimisticOptimizations;
+import org.graalvm.compiler.phases.PhaseSuite;
+import org.graalvm.compiler.phases.tiers.HighTierContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Benchmarks parsing bytecode into a graph. Run with {@code -prof gc} to also report the memory
+ * allocated by the parser.
+ */
+@Warmup(iterations = 15)
+public class GraphBuilderBenchmark extends GraalBenchmark {
+
+    @State(Scope.Thread)
+    public static class ParseState {
+        GraalState graal;
+        OptionValues options;
+        DebugContext debug;
+        ResolvedJavaMethod method;
+        PhaseSuite<HighTierContext> graphBuilderSuite;
+        HighTierContext context;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            graal = new GraalState();
+            options = graal.options;
+            debug = DebugContext.create(options, DebugHandlersFactory.LOADER);
+            method = graal.metaAccess.lookupJavaMethod(GraalUtil.getMethod(HashMap.class, "putVal", int.class, Object.class, Object.class, boolean.class, boolean.class));
+            graphBuilderSuite = new PhaseSuite<>();
+            graphBuilderSuite.appendPhase(new GraphBuilderPhase(GraphBuilderConfiguration.getDefault(graal.providers.getReplacements().getGraphBuilderPlugins())));
+            context = new HighTierContext(graal.providers, graphBuilderSuite, OptimisticOptimizations.ALL);
+        }
+    }
+
+    @Benchmark
+    public StructuredGraph putVal(ParseState s) {
+        StructuredGraph graph = new StructuredGraph.Builder(s.options, s.debug, AllowAssumptions.YES).method(s.method).build();
+        s.graphBuilderSuite.apply(graph, s.context);
+        return graph;
+    }
+}
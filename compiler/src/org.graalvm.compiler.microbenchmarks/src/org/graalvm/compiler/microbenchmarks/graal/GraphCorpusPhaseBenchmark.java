@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.microbenchmarks.graal;
+
+import org.graalvm.compiler.microbenchmarks.graal.util.GraphCorpusState;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Measures a single phase over the graphs of a {@linkplain org.graalvm.compiler.core.GraphCorpus
+ * graph corpus}. The corpus is recorded by compiling a workload with
+ *
+ * <pre>
+ * -Dgraal.RecordGraphCorpus=corpus.graphs -Dgraal.RecordGraphCorpusPhase=ConditionalEliminationPhase
+ * </pre>
+ *
+ * which captures each graph just before the named phase runs. The benchmark replays the recorded
+ * graphs through that phase; the corpus is selected with the system property described in
+ * {@link GraphCorpusState}, for example {@code -Dgraal.benchmark.corpus=corpus.graphs}.
+ *
+ * The time of one operation is the time to apply the phase to the whole corpus. Run with the JMH
+ * {@code gc} profiler ({@code -prof gc}) to also report the memory allocated by the phase.
+ */
+public class GraphCorpusPhaseBenchmark extends GraalBenchmark {
+
+    @Benchmark
+    public void applyPhase(GraphCorpusState s) {
+        s.applyPhase();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.microbenchmarks.graal;
+
+import org.graalvm.compiler.microbenchmarks.lir.GraalCompilerState;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.phases.PhaseSuite;
+import org.graalvm.compiler.phases.tiers.HighTierContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Measures the front end compile time of methods that inline many callees. Run with
+ * {@code -Dgraal.InlineeGraphCacheSize=1024} and without to compare compilations that reuse the
+ * graphs of their inlinees with compilations that parse every inlinee.
+ */
+public class InlineeGraphCacheBenchmark extends GraalBenchmark {
+
+    public static class FrontEndState extends GraalCompilerState.FrontEndOnly {
+        @MethodDescString @Param({
+                        "java.util.HashMap#computeIfAbsent",
+                        "java.util.HashMap#putAll",
+                        "java.lang.String#equals"
+        }) public String method;
+
+        private PhaseSuite<HighTierContext> graphBuilderSuite;
+
+        /**
+         * Cached graphs are only shared between compilations that use the same graph builder suite.
+         */
+        @Override
+        protected PhaseSuite<HighTierContext> getDefaultGraphBuilderSuite() {
+            if (graphBuilderSuite == null) {
+                graphBuilderSuite = super.getDefaultGraphBuilderSuite();
+            }
+            return graphBuilderSuite;
+        }
+    }
+
+    @Benchmark
+    public StructuredGraph frontend(FrontEndState s) {
+        return s.compile();
+    }
+}
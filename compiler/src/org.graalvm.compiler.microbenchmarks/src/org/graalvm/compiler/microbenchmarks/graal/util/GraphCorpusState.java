@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+package org.graalvm.compiler.microbenchmarks.graal.util;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.graalvm.compiler.api.replacements.SnippetReflectionProvider;
+import org.graalvm.compiler.api.test.Graal;
+import org.graalvm.compiler.core.GraphCorpus;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.phases.BasePhase;
+import org.graalvm.compiler.phases.OptimisticOptimizations;
+import org.graalvm.compiler.phases.PhaseSuite;
+import org.graalvm.compiler.phases.tiers.HighTierContext;
+import org.graalvm.compiler.phases.tiers.LowTierContext;
+import org.graalvm.compiler.phases.tiers.MidTierContext;
+import org.graalvm.compiler.phases.tiers.Suites;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * State providing the graphs of a {@linkplain GraphCorpus graph corpus} together with the phase
+ * they were recorded before. The corpus file is specified by the {@value #CORPUS_PROPERTY} system
+ * property. The phase is the first top level phase of that name in the default suites of this VM,
+ * applied with a context built in this VM. Mid tier phases therefore see the profiles of this VM
+ * through {@link MidTierContext#getProfilingInfo()}, while the graphs themselves are those of the
+ * recording VM.
+ */
+@State(Scope.Thread)
+public class GraphCorpusState {
+
+    public static final String CORPUS_PROPERTY = "graal.benchmark.corpus";
+
+    /**
+     * A phase of the default suites together with the context it is applied with.
+     */
+    private static final class TierPhase<C> {
+        private final BasePhase<? super C> phase;
+        private final C context;
+
+        TierPhase(BasePhase<? super C> phase, C context) {
+            this.phase = phase;
+            this.context = context;
+        }
+
+        void apply(StructuredGraph graph) {
+            phase.apply(graph, context);
+        }
+    }
+
+    private final GraalState graal;
+    private final List<StructuredGraph> originalGraphs = new ArrayList<>();
+
+    /**
+     * The phase under measurement for each graph of {@link #originalGraphs}, applied with the
+     * context of that graph.
+     */
+    private final List<TierPhase<?>> phases = new ArrayList<>();
+
+    /**
+     * The graphs processed by the benchmark.
+     */
+    public StructuredGraph[] graphs;
+
+    public GraphCorpusState() {
+        graal = new GraalState();
+    }
+
+    @Setup(Level.Trial)
+    public void prepareGraphs() {
+        String corpus = System.getProperty(CORPUS_PROPERTY);
+        if (corpus == null) {
+            throw new IllegalArgumentException("The graph corpus must be specified with -D" + CORPUS_PROPERTY + "=<file>");
+        }
+        SnippetReflectionProvider snippetReflection = Graal.getRequiredCapability(SnippetReflectionProvider.class);
+        GraphCorpus.Replay replay = new GraphCorpus.Replay(graal.options, graal.debug, graal.providers, snippetReflection, Thread.currentThread().getContextClassLoader());
+        GraphCorpus.Contents contents = GraphCorpus.read(Paths.get(corpus), replay);
+        if (contents.graphs.isEmpty()) {
+            throw new IllegalArgumentException("No graph of graph corpus " + corpus + " could be rebuilt in this VM");
+        }
+        if (contents.skipped != 0) {
+            System.out.printf("Skipped %d of %d graphs of graph corpus %s%n", contents.skipped, contents.skipped + contents.graphs.size(), corpus);
+        }
+
+        PhaseSuite<HighTierContext> graphBuilderSuite = graal.backend.getSuites().getDefaultGraphBuilderSuite();
+        Suites suites = graal.backend.getSuites().getDefaultSuites(graal.options);
+        HighTierContext highTierContext = new HighTierContext(graal.providers, graphBuilderSuite, OptimisticOptimizations.ALL);
+        LowTierContext lowTierContext = new LowTierContext(graal.providers, graal.backend);
+        for (StructuredGraph graph : contents.graphs) {
+            TierPhase<?> phase = findPhase(suites.getHighTier(), contents.phaseName, highTierContext);
+            if (phase == null) {
+                MidTierContext midTierContext = new MidTierContext(graal.providers, graal.backend, OptimisticOptimizations.ALL, graph.getProfilingInfo());
+                phase = findPhase(suites.getMidTier(), contents.phaseName, midTierContext);
+            }
+            if (phase == null) {
+                phase = findPhase(suites.getLowTier(), contents.phaseName, lowTierContext);
+            }
+            if (phase == null) {
+                throw new IllegalArgumentException("Phase " + contents.phaseName + " of graph corpus " + corpus + " is not a top level phase of the default suites");
+            }
+            phases.add(phase);
+            originalGraphs.add(graph);
+        }
+        graphs = new StructuredGraph[originalGraphs.size()];
+    }
+
+    private static <C> TierPhase<C> findPhase(PhaseSuite<C> tier, String phaseName, C context) {
+        for (BasePhase<? super C> phase : tier.getPhases()) {
+            if (phase.getClass().getSimpleName().equals(phaseName)) {
+                return new TierPhase<>(phase, context);
+            }
+        }
+        return null;
+    }
+
+    @Setup(Level.Invocation)
+    public void beforeInvocation() {
+        for (int i = 0; i < graphs.length; i++) {
+            StructuredGraph original = originalGraphs.get(i);
+            graphs[i] = (StructuredGraph) original.copy(original.getDebug());
+        }
+    }
+
+    /**
+     * Applies the phase under measurement to all graphs of the corpus.
+     */
+    public void applyPhase() {
+        for (int i = 0; i < graphs.length; i++) {
+            phases.get(i).apply(graphs[i]);
+        }
+    }
+}
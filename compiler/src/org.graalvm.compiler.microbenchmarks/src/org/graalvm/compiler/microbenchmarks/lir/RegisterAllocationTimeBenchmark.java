@@ -24,13 +24,33 @@
  */
 package org.graalvm.compiler.microbenchmarks.lir;
 
+import static org.graalvm.compiler.lir.LIRValueUtil.isStackSlotValue;
+
+import org.graalvm.compiler.core.common.cfg.AbstractBlockBase;
+import org.graalvm.compiler.lir.LIR;
+import org.graalvm.compiler.lir.LIRInstruction;
+import org.graalvm.compiler.lir.StandardOp;
+import org.graalvm.compiler.lir.alloc.irc.IteratedRegisterCoalescingPhase;
 import org.graalvm.compiler.lir.gen.LIRGenerationResult;
 import org.graalvm.compiler.microbenchmarks.graal.GraalBenchmark;
+import org.graalvm.compiler.options.OptionValues;
+import org.openjdk.jmh.annotations.AuxCounters;
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.Warmup;
 
+/**
+ * Compares the time spent in the allocation stage by linear scan and by iterated register
+ * coalescing. The {@code spillMoves} secondary result reports the moves from or to a stack slot in
+ * the allocated LIR, summed over all operations of an iteration. The number of spill moves
+ * executed by the resulting code can be compared by running the compiled methods with
+ * {@code -Dgraal.LIRProfileMoves=true}, with and without
+ * {@code -Dgraal.LIROptIteratedRegisterCoalescing=true}.
+ */
 @Warmup(iterations = 10)
 @Measurement(iterations = 10)
 public class RegisterAllocationTimeBenchmark extends GraalBenchmark {
@@ -42,8 +62,59 @@ public class RegisterAllocationTimeBenchmark extends GraalBenchmark {
         }) public String method;
     }
 
+    /**
+     * Counts the spill moves of the allocated LIR.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    public static class SpillMoves {
+        public long spillMoves;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            spillMoves = 0;
+        }
+
+        LIRGenerationResult count(LIRGenerationResult lirGenRes) {
+            LIR lir = lirGenRes.getLIR();
+            for (AbstractBlockBase<?> block : lir.linearScanOrder()) {
+                for (LIRInstruction op : lir.getLIRforBlock(block)) {
+                    if (isSpillMove(op)) {
+                        spillMoves++;
+                    }
+                }
+            }
+            return lirGenRes;
+        }
+
+        private static boolean isSpillMove(LIRInstruction op) {
+            if (StandardOp.ValueMoveOp.isValueMoveOp(op)) {
+                StandardOp.ValueMoveOp move = StandardOp.ValueMoveOp.asValueMoveOp(op);
+                return isStackSlotValue(move.getInput()) || isStackSlotValue(move.getResult());
+            }
+            return StandardOp.LoadConstantOp.isLoadConstantOp(op) && isStackSlotValue(StandardOp.LoadConstantOp.asLoadConstantOp(op).getResult());
+        }
+    }
+
+    @Benchmark
+    public LIRGenerationResult allocateRegisters(State s, SpillMoves spills) {
+        return spills.count(s.compile());
+    }
+
+    public static class IteratedRegisterCoalescingState extends GraalCompilerState.AllocationStage {
+        @MethodDescString @Param({
+                        "java.lang.String#equals",
+                        "java.util.HashMap#computeIfAbsent"
+        }) public String method;
+
+        @Override
+        protected OptionValues getOptions() {
+            return new OptionValues(super.getOptions(), IteratedRegisterCoalescingPhase.Options.LIROptIteratedRegisterCoalescing, true);
+        }
+    }
+
     @Benchmark
-    public LIRGenerationResult allocateRegisters(State s) {
-        return s.compile();
+    public LIRGenerationResult allocateRegistersIteratedRegisterCoalescing(IteratedRegisterCoalescingState s, SpillMoves spills) {
+        return spills.count(s.compile());
     }
 }
@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.nodes;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.graalvm.compiler.options.Option;
+import org.graalvm.compiler.options.OptionKey;
+import org.graalvm.compiler.options.OptionType;
+import org.graalvm.compiler.options.OptionValues;
+
+import jdk.vm.ci.code.Architecture;
+import jdk.vm.ci.meta.Assumptions;
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+
+/**
+ * A bounded cache of graphs that were parsed from bytecode for inlining, shared by all compilations
+ * of a runtime. Graphs are stored in their {@linkplain GraphEncoder encoded} form and
+ * {@linkplain GraphDecoder decoded} into a fresh graph for each use, so a cached graph is never
+ * modified by a compilation.
+ *
+ * A graph is only reused for a graph that is built with the same options, source position
+ * tracking, profiling, assumption and unsafe access tracking settings and the same parse
+ * configuration (the graph builder suite and optimistic optimizations when inlining). It is parsed
+ * again once the deoptimization counts in the profile of the method change or the entry gets older
+ * than {@link Options#InlineeGraphCacheTimeToLive}. Graphs that record assumptions or accessed
+ * fields are not cached since they may be invalid in a later compilation.
+ *
+ * A redefined method has a new {@link ResolvedJavaMethod} and therefore misses the cache. A graph
+ * of another method can still contain an inlined copy of the old code, which makes the installation
+ * of the compiled code fail; the runtime should {@linkplain #clear() clear} the cache in that case.
+ */
+public final class InlineeGraphCache {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Maximum number of graphs parsed for inlining that are cached across compilations (0 disables the cache).", type = OptionType.Expert)
+        public static final OptionKey<Integer> InlineeGraphCacheSize = new OptionKey<>(0);
+        @Option(help = "Time in milliseconds after which a cached inlinee graph is parsed again to pick up profile changes.", type = OptionType.Expert)
+        public static final OptionKey<Integer> InlineeGraphCacheTimeToLive = new OptionKey<>(30000);
+        @Option(help = "Print the hit rate of the inlinee graph cache when the runtime shuts down.", type = OptionType.Debug)
+        public static final OptionKey<Boolean> PrintInlineeGraphCacheStatistics = new OptionKey<>(false);
+        // @formatter:on
+    }
+
+    /**
+     * Creates a cache as configured by {@code options}.
+     *
+     * @return {@code null} if the cache is disabled
+     */
+    public static InlineeGraphCache create(OptionValues options, Architecture architecture) {
+        int capacity = Options.InlineeGraphCacheSize.getValue(options);
+        if (capacity <= 0) {
+            return null;
+        }
+        return new InlineeGraphCache(architecture, capacity, TimeUnit.MILLISECONDS.toNanos(Options.InlineeGraphCacheTimeToLive.getValue(options)));
+    }
+
+    private final Architecture architecture;
+    private final long timeToLiveNanos;
+    private final Map<Key, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @SuppressWarnings("serial")
+    public InlineeGraphCache(Architecture architecture, int capacity, long timeToLiveNanos) {
+        this.architecture = architecture;
+        this.timeToLiveNanos = timeToLiveNanos;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > capacity) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Decodes the cached graph of {@code method} into {@code target} if there is one that matches
+     * the configuration of {@code target}.
+     *
+     * @param target an empty graph for {@code method}
+     * @param parseConfiguration additional state that influences parsing, compared with
+     *            {@link Object#equals(Object)}
+     * @return {@code true} if {@code target} was populated from the cache
+     */
+    public boolean decode(ResolvedJavaMethod method, Object parseConfiguration, StructuredGraph target) {
+        Key key = new Key(method, parseConfiguration, target);
+        long profile = profileStamp(method, target.useProfilingInfo());
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && (entry.profile != profile || System.nanoTime() - entry.created > timeToLiveNanos)) {
+                entries.remove(key);
+                invalidations.incrementAndGet();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return false;
+        }
+        hits.incrementAndGet();
+        EncodedGraph cached = entry.graph;
+        /*
+         * The decoder caches the node offsets in the encoded graph, so each decoding works on its
+         * own copy, which shares the encoding.
+         */
+        EncodedGraph copy = new EncodedGraph(cached.getEncoding(), cached.getStartOffset(), cached.getObjects(), cached.getNodeClasses(), cached.getAssumptions(),
+                        cached.getInlinedMethods(), cached.getFields(), cached.hasUnsafeAccess(), cached.trackNodeSourcePosition());
+        new GraphDecoder(architecture, target).decode(copy);
+        if (cached.getInlinedMethods() != null) {
+            for (ResolvedJavaMethod inlined : cached.getInlinedMethods()) {
+                target.recordMethod(inlined);
+            }
+        }
+        if (cached.hasUnsafeAccess()) {
+            target.markUnsafeAccess();
+        }
+        return true;
+    }
+
+    /**
+     * Caches {@code graph}, a graph that was just parsed for {@code graph.method()}.
+     *
+     * @param parseConfiguration the same state as passed to {@link #decode} for this graph
+     */
+    public void put(Object parseConfiguration, StructuredGraph graph) {
+        Assumptions assumptions = graph.getAssumptions();
+        if ((assumptions != null && !assumptions.isEmpty()) || graph.getFields() != null) {
+            return;
+        }
+        ResolvedJavaMethod method = graph.method();
+        long profile = profileStamp(method, graph.useProfilingInfo());
+        EncodedGraph encoded = GraphEncoder.encodeSingleGraph(graph, architecture);
+        /*
+         * The graph may still be modified by inlining into it, so keep a snapshot of the methods
+         * that were inlined while parsing it.
+         */
+        List<ResolvedJavaMethod> inlinedMethods = encoded.getInlinedMethods() == null ? null : new ArrayList<>(encoded.getInlinedMethods());
+        EncodedGraph snapshot = new EncodedGraph(encoded.getEncoding(), encoded.getStartOffset(), encoded.getObjects(), encoded.getNodeClasses(), null, inlinedMethods, null,
+                        encoded.hasUnsafeAccess(), encoded.trackNodeSourcePosition());
+        Entry entry = new Entry(snapshot, profile, System.nanoTime());
+        synchronized (entries) {
+            entries.put(new Key(method, parseConfiguration, graph), entry);
+        }
+    }
+
+    /**
+     * Removes all graphs of methods declared by {@code type} and all graphs into which such a
+     * method was inlined.
+     */
+    public void invalidate(ResolvedJavaType type) {
+        synchronized (entries) {
+            Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Key, Entry> e = iterator.next();
+                if (e.getKey().method.getDeclaringClass().equals(type) || inlines(e.getValue(), type)) {
+                    iterator.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static boolean inlines(Entry entry, ResolvedJavaType type) {
+        if (entry.graph.getInlinedMethods() != null) {
+            for (ResolvedJavaMethod inlined : entry.graph.getInlinedMethods()) {
+                if (inlined.getDeclaringClass().equals(type)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all graphs from the cache.
+     */
+    public void clear() {
+        synchronized (entries) {
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Gets the fraction of lookups that were served from the cache.
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("InlineeGraphCache[size=%d, hits=%d, misses=%d, hitRate=%.2f%%, invalidations=%d, evictions=%d]", size(), getHits(), getMisses(), getHitRate() * 100,
+                        getInvalidations(), getEvictions());
+    }
+
+    /**
+     * Summarizes the parts of the profile of {@code method} that the bytecode parser bases
+     * speculative decisions on.
+     */
+    private static long profileStamp(ResolvedJavaMethod method, boolean useProfilingInfo) {
+        if (!useProfilingInfo) {
+            return 0;
+        }
+        ProfilingInfo profile = method.getProfilingInfo();
+        long stamp = profile.isMature() ? 1 : 0;
+        for (DeoptimizationReason reason : DeoptimizationReason.values()) {
+            stamp = stamp * 31 + profile.getDeoptimizationCount(reason);
+        }
+        return stamp;
+    }
+
+    private static final class Key {
+        private final ResolvedJavaMethod method;
+        private final Object parseConfiguration;
+        private final OptionValues options;
+        private final boolean trackNodeSourcePosition;
+        private final boolean useProfilingInfo;
+        private final boolean allowAssumptions;
+        private final boolean trackUnsafeAccess;
+
+        Key(ResolvedJavaMethod method, Object parseConfiguration, StructuredGraph graph) {
+            this.method = method;
+            this.parseConfiguration = parseConfiguration;
+            this.options = graph.getOptions();
+            this.trackNodeSourcePosition = graph.trackNodeSourcePosition();
+            this.useProfilingInfo = graph.useProfilingInfo();
+            this.allowAssumptions = graph.getAssumptions() != null;
+            this.trackUnsafeAccess = graph.isUnsafeAccessTrackingEnabled();
+        }
+
+        @Override
+        public int hashCode() {
+            return method.hashCode() * 31 + Objects.hashCode(parseConfiguration);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Key) {
+                Key that = (Key) obj;
+                return this.method.equals(that.method) && Objects.equals(this.parseConfiguration, that.parseConfiguration) && this.options == that.options &&
+                                this.trackNodeSourcePosition == that.trackNodeSourcePosition && this.useProfilingInfo == that.useProfilingInfo &&
+                                this.allowAssumptions == that.allowAssumptions && this.trackUnsafeAccess == that.trackUnsafeAccess;
+            }
+            return false;
+        }
+    }
+
+    private static final class Entry {
+        private final EncodedGraph graph;
+        private final long profile;
+        private final long created;
+
+        Entry(EncodedGraph graph, long profile, long created) {
+            this.graph = graph;
+            this.profile = profile;
+            this.created = created;
+        }
+    }
+}
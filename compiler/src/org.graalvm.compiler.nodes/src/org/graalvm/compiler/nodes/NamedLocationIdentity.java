@@ -26,7 +26,7 @@ package org.graalvm.compiler.nodes;
 
 import java.util.EnumMap;
 
-import org.graalvm.collections.EconomicSet;
+import org.graalvm.collections.EconomicMap;
 import org.graalvm.collections.Equivalence;
 import org.graalvm.word.LocationIdentity;
 
@@ -39,17 +39,24 @@ import jdk.vm.ci.meta.JavaKind.FormatWithToString;
 public class NamedLocationIdentity extends LocationIdentity implements FormatWithToString {
 
     /**
-     * Map for asserting all {@link NamedLocationIdentity} instances have a unique name.
+     * Map from names to {@link NamedLocationIdentity} instances, used for asserting that all
+     * instances have a unique name and for {@linkplain NamedLocationIdentity#lookup looking up}
+     * instances by name.
      */
     static class DB {
-        private static final EconomicSet<String> map = EconomicSet.create(Equivalence.DEFAULT);
+        private static final EconomicMap<String, NamedLocationIdentity> map = EconomicMap.create(Equivalence.DEFAULT);
 
-        static boolean checkUnique(String name) {
-            if (!map.add(name)) {
-                throw new AssertionError("identity " + name + " already exists");
+        static synchronized boolean register(NamedLocationIdentity identity) {
+            if (map.containsKey(identity.name)) {
+                return false;
             }
+            map.put(identity.name, identity);
             return true;
         }
+
+        static synchronized NamedLocationIdentity lookup(String name) {
+            return map.get(name);
+        }
     }
 
     /**
@@ -73,7 +80,8 @@ public class NamedLocationIdentity extends LocationIdentity implements FormatWit
     protected NamedLocationIdentity(String name, boolean immutable) {
         this.name = name;
         this.immutable = immutable;
-        assert DB.checkUnique(name);
+        boolean unique = DB.register(this);
+        assert unique : "identity " + name + " already exists";
     }
 
     /**
@@ -107,6 +115,19 @@ public class NamedLocationIdentity extends LocationIdentity implements FormatWit
         return new NamedLocationIdentity(name, immutable);
     }
 
+    /**
+     * Gets the location identity named {@code name}.
+     *
+     * @return {@code null} if no location identity of that name has been created yet
+     */
+    public static NamedLocationIdentity lookup(String name) {
+        return DB.lookup(name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
     @Override
     public boolean isImmutable() {
         return immutable;
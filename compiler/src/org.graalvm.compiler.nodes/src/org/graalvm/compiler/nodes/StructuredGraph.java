@@ -170,6 +170,15 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
         }
     }
 
+    /**
+     * Provides the {@link ProfilingInfo} of the methods parsed into a graph in place of their
+     * {@linkplain ResolvedJavaMethod#getProfilingInfo() current profiles}, e.g. profiles recorded by
+     * an earlier run of the application.
+     */
+    public interface ProfileProvider {
+        ProfilingInfo getProfilingInfo(ResolvedJavaMethod method);
+    }
+
     /**
      * Object used to create a {@link StructuredGraph}.
      */
@@ -181,6 +190,7 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
         private CompilationIdentifier compilationId = CompilationIdentifier.INVALID_COMPILATION_ID;
         private int entryBCI = JVMCICompiler.INVOCATION_ENTRY_BCI;
         private boolean useProfilingInfo = true;
+        private ProfileProvider profileProvider;
         private boolean recordInlinedMethods = true;
         private boolean trackNodeSourcePosition;
         private final OptionValues options;
@@ -284,6 +294,18 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
             return this;
         }
 
+        public ProfileProvider getProfileProvider() {
+            return profileProvider;
+        }
+
+        /**
+         * @see StructuredGraph#getProfileProvider()
+         */
+        public Builder profileProvider(ProfileProvider provider) {
+            this.profileProvider = provider;
+            return this;
+        }
+
         public boolean getRecordInlinedMethods() {
             return recordInlinedMethods;
         }
@@ -314,6 +336,7 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
                             assumptions,
                             speculationLog,
                             useProfilingInfo,
+                            profileProvider,
                             isSubstitution,
                             inlinedMethods,
                             trackNodeSourcePosition,
@@ -340,6 +363,7 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
     private boolean hasValueProxies = true;
     private boolean isAfterExpandLogic = false;
     private final boolean useProfilingInfo;
+    private final ProfileProvider profileProvider;
     private final Cancellable cancellable;
     private final boolean isSubstitution;
 
@@ -389,6 +413,7 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
                     Assumptions assumptions,
                     SpeculationLog speculationLog,
                     boolean useProfilingInfo,
+                    ProfileProvider profileProvider,
                     boolean isSubstitution,
                     List<ResolvedJavaMethod> methods,
                     boolean trackNodeSourcePosition,
@@ -407,6 +432,7 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
         this.methods = methods;
         this.speculationLog = speculationLog;
         this.useProfilingInfo = useProfilingInfo;
+        this.profileProvider = profileProvider;
         this.isSubstitution = isSubstitution;
         assert checkIsSubstitutionInvariants(method, isSubstitution);
         this.cancellable = cancellable;
@@ -568,6 +594,7 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
                         assumptions == null ? null : new Assumptions(),
                         speculationLog,
                         useProfilingInfo,
+                        profileProvider,
                         isSubstitution,
                         methods != null ? new ArrayList<>(methods) : null,
                         trackNodeSourcePosition,
@@ -579,6 +606,7 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
         copy.hasUnsafeAccess = hasUnsafeAccess;
         copy.setGuardsStage(getGuardsStage());
         copy.isAfterFloatingReadPhase = isAfterFloatingReadPhase;
+        copy.isAfterFixedReadPhase = isAfterFixedReadPhase;
         copy.hasValueProxies = hasValueProxies;
         copy.isAfterExpandLogic = isAfterExpandLogic;
         copy.trackNodeSourcePosition = trackNodeSourcePosition;
@@ -892,6 +920,14 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
         return useProfilingInfo;
     }
 
+    /**
+     * Gets the source of the {@link ProfilingInfo} used for this graph or {@code null} if the
+     * methods' own profiles are used.
+     */
+    public ProfileProvider getProfileProvider() {
+        return profileProvider;
+    }
+
     /**
      * Returns true if this graph is built without parsing the {@linkplain #method() root method} or
      * if the root method is annotated by {@link Snippet} or {@link MethodSubstitution}. This is
@@ -914,7 +950,7 @@ public final class StructuredGraph extends Graph implements JavaMethodContext {
      */
     public ProfilingInfo getProfilingInfo(ResolvedJavaMethod m) {
         if (useProfilingInfo && m != null) {
-            return m.getProfilingInfo();
+            return profileProvider != null ? profileProvider.getProfilingInfo(m) : m.getProfilingInfo();
         } else {
             return DefaultProfilingInfo.get(TriState.UNKNOWN);
         }
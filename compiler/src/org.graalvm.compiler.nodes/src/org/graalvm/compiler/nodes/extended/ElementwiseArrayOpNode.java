@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.nodes.extended;
+
+import static org.graalvm.compiler.nodeinfo.InputType.Memory;
+import static org.graalvm.compiler.nodeinfo.NodeCycles.CYCLES_UNKNOWN;
+import static org.graalvm.compiler.nodeinfo.NodeSize.SIZE_64;
+
+import org.graalvm.compiler.core.common.type.ArithmeticOpTable.BinaryOp;
+import org.graalvm.compiler.core.common.type.StampFactory;
+import org.graalvm.compiler.graph.NodeClass;
+import org.graalvm.compiler.nodeinfo.NodeInfo;
+import org.graalvm.compiler.nodes.NamedLocationIdentity;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.memory.AbstractMemoryCheckpoint;
+import org.graalvm.compiler.nodes.memory.MemoryCheckpoint;
+import org.graalvm.compiler.nodes.spi.LIRLowerable;
+import org.graalvm.compiler.nodes.spi.NodeLIRBuilderTool;
+import org.graalvm.word.LocationIdentity;
+
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.Value;
+
+/**
+ * Performs the iterations of the loop {@code for (i = start; i < end; i++) dst[i] = x[i] op y[i]}
+ * (or {@code x[i] op y} if {@link #y} is not an array) that can be done in whole vectors, starting
+ * at {@code start}. The value of this node is the first index that has not been processed, which is
+ * {@code start} if no iteration was executed. The remaining iterations must be executed by the
+ * caller.
+ *
+ * All arrays must be non-null and {@code end} must not be larger than the length of any of the
+ * arrays. No iterations are executed if {@code start} is negative.
+ */
+@NodeInfo(allowedUsageTypes = Memory, cycles = CYCLES_UNKNOWN, size = SIZE_64)
+public final class ElementwiseArrayOpNode extends AbstractMemoryCheckpoint implements LIRLowerable, MemoryCheckpoint.Single {
+
+    public static final NodeClass<ElementwiseArrayOpNode> TYPE = NodeClass.create(ElementwiseArrayOpNode.class);
+
+    protected final JavaKind elementKind;
+    protected final BinaryOp<?> op;
+    protected final boolean yIsArray;
+
+    @Input ValueNode dst;
+    @Input ValueNode x;
+    @Input ValueNode y;
+    @Input ValueNode start;
+    @Input ValueNode end;
+
+    public ElementwiseArrayOpNode(JavaKind elementKind, BinaryOp<?> op, ValueNode dst, ValueNode x, ValueNode y, boolean yIsArray, ValueNode start, ValueNode end) {
+        super(TYPE, StampFactory.forKind(JavaKind.Int));
+        this.elementKind = elementKind;
+        this.op = op;
+        this.yIsArray = yIsArray;
+        this.dst = dst;
+        this.x = x;
+        this.y = y;
+        this.start = start;
+        this.end = end;
+    }
+
+    public JavaKind getElementKind() {
+        return elementKind;
+    }
+
+    public BinaryOp<?> getOp() {
+        return op;
+    }
+
+    @Override
+    public LocationIdentity getLocationIdentity() {
+        return NamedLocationIdentity.getArrayLocation(elementKind);
+    }
+
+    @Override
+    public void generate(NodeLIRBuilderTool gen) {
+        Value result = gen.getLIRGeneratorTool().emitElementwiseArrayOp(elementKind, op, gen.operand(dst), gen.operand(x), gen.operand(y), yIsArray, gen.operand(start), gen.operand(end));
+        gen.setResult(this, result);
+    }
+}
@@ -31,6 +31,7 @@ import org.graalvm.compiler.bytecode.BytecodeProvider;
 import org.graalvm.compiler.core.common.CompilationIdentifier;
 import org.graalvm.compiler.debug.DebugContext;
 import org.graalvm.compiler.graph.NodeSourcePosition;
+import org.graalvm.compiler.nodes.InlineeGraphCache;
 import org.graalvm.compiler.nodes.StructuredGraph;
 import org.graalvm.compiler.nodes.graphbuilderconf.GraphBuilderConfiguration;
 import org.graalvm.compiler.nodes.graphbuilderconf.GraphBuilderPlugin;
@@ -155,4 +156,14 @@ public interface Replacements {
      */
     default void closeSnippetRegistration() {
     }
+
+    /**
+     * Gets the cache of graphs parsed for inlining that is shared by the compilations using this
+     * object.
+     *
+     * @return {@code null} if parsed graphs are not cached
+     */
+    default InlineeGraphCache getInlineeGraphCache() {
+        return null;
+    }
 }
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.phases.common;
+
+import java.nio.ByteOrder;
+
+import org.graalvm.compiler.core.common.type.IntegerStamp;
+import org.graalvm.compiler.core.common.type.Stamp;
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.DeoptimizingNode;
+import org.graalvm.compiler.nodes.FixedNode;
+import org.graalvm.compiler.nodes.FixedWithNextNode;
+import org.graalvm.compiler.nodes.NodeView;
+import org.graalvm.compiler.nodes.StateSplit;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.memory.HeapAccess.BarrierType;
+import org.graalvm.compiler.nodes.memory.MemoryCheckpoint;
+import org.graalvm.compiler.nodes.memory.ReadNode;
+import org.graalvm.compiler.nodes.memory.WriteNode;
+import org.graalvm.compiler.nodes.memory.address.AddressNode;
+import org.graalvm.compiler.nodes.memory.address.OffsetAddressNode;
+import org.graalvm.compiler.nodes.util.GraphUtil;
+import org.graalvm.compiler.phases.BasePhase;
+import org.graalvm.compiler.phases.tiers.MidTierContext;
+import org.graalvm.word.LocationIdentity;
+
+import jdk.vm.ci.code.CodeUtil;
+
+/**
+ * Removes writes that are overwritten before they can be observed and merges adjacent constant
+ * writes into wider ones.
+ *
+ * A write is dead if a later write to the same address with a compatible access stamp follows in
+ * the same straight-line code and nothing in between can observe the memory: no read of an
+ * overlapping location, no other memory checkpoint and no node that can deoptimize. Unlike
+ * {@link WriteNode#canonical}, the two writes need not be adjacent.
+ *
+ * Two adjacent writes of 8, 16 or 32 bit constants to neighbouring offsets of the same base and
+ * the same location are merged into one write of twice the width if the combined write is
+ * naturally aligned. Repeating this turns initialization sequences of narrow array elements into
+ * a few wide stores.
+ *
+ * The phase expects fixed guards and frame states at deoptimization points only, i.e., it runs
+ * after {@link FrameStateAssignmentPhase}.
+ */
+public class DeadStoreEliminationPhase extends BasePhase<MidTierContext> {
+
+    private static final CounterKey DeadWrites = DebugContext.counter("DeadStoreElimination_DeadWrites");
+    private static final CounterKey CoalescedWrites = DebugContext.counter("DeadStoreElimination_CoalescedWrites");
+
+    /**
+     * Number of fixed nodes searched for an overwriting write.
+     */
+    private static final int MAX_DISTANCE = 32;
+
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, MidTierContext context) {
+        if (!graph.hasNode(WriteNode.TYPE)) {
+            return;
+        }
+        for (WriteNode write : graph.getNodes(WriteNode.TYPE).snapshot()) {
+            if (write.isAlive() && isDead(write)) {
+                for (Node usage : write.usages().snapshot()) {
+                    ((WriteNode) usage).setLastLocationAccess(write.getLastLocationAccess());
+                }
+                GraphUtil.removeFixedWithUnusedInputs(write);
+                DeadWrites.increment(graph.getDebug());
+            }
+        }
+        ByteOrder byteOrder = context.getTarget().arch.getByteOrder();
+        boolean changed = true;
+        // every round can double the width of the coalesced writes, from 8 up to 64 bits
+        for (int round = 0; round < 3 && changed; round++) {
+            changed = false;
+            for (WriteNode write : graph.getNodes(WriteNode.TYPE).snapshot()) {
+                if (write.isAlive() && coalesce(write, byteOrder)) {
+                    CoalescedWrites.increment(graph.getDebug());
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private static boolean isCandidate(WriteNode write) {
+        return !write.getNullCheck() && write.getLocationIdentity().isSingle() && write.getLocationIdentity().isMutable();
+    }
+
+    private static boolean isDead(WriteNode write) {
+        if (!isCandidate(write)) {
+            return false;
+        }
+        LocationIdentity location = write.getLocationIdentity();
+        FixedNode current = write.next();
+        for (int i = 0; i < MAX_DISTANCE && current instanceof FixedWithNextNode; i++) {
+            if (current instanceof WriteNode) {
+                WriteNode other = (WriteNode) current;
+                if (other.getNullCheck()) {
+                    return false;
+                }
+                if (other.getLocationIdentity().equals(location) && other.getAddress() == write.getAddress() && write.getAccessStamp().isCompatible(other.getAccessStamp())) {
+                    return onlyOverwritten(write, other);
+                }
+                if (other.getLocationIdentity().overlaps(location) && !disjoint(write, other)) {
+                    return false;
+                }
+            } else if (current instanceof ReadNode) {
+                ReadNode read = (ReadNode) current;
+                if (read.getNullCheck() || read.getLocationIdentity().overlaps(location)) {
+                    return false;
+                }
+            } else if (current instanceof MemoryCheckpoint) {
+                return false;
+            } else if (current instanceof DeoptimizingNode && ((DeoptimizingNode) current).canDeoptimize()) {
+                return false;
+            } else if (current instanceof StateSplit && ((StateSplit) current).hasSideEffect()) {
+                return false;
+            }
+            current = ((FixedWithNextNode) current).next();
+        }
+        return false;
+    }
+
+    /**
+     * Checks that the only memory usages of {@code write} are writes between it and
+     * {@code overwrite}, including {@code overwrite} itself. A floating read or a memory phi using
+     * the write means that the written value is observed.
+     */
+    private static boolean onlyOverwritten(WriteNode write, WriteNode overwrite) {
+        for (Node usage : write.usages()) {
+            if (!(usage instanceof WriteNode) || ((WriteNode) usage).getLastLocationAccess() != write) {
+                return false;
+            }
+            boolean between = false;
+            for (FixedNode current = write.next(); current != overwrite.next(); current = ((FixedWithNextNode) current).next()) {
+                if (current == usage) {
+                    between = true;
+                    break;
+                }
+            }
+            if (!between) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long constantOffset(AddressNode address) {
+        return ((OffsetAddressNode) address).getOffset().asJavaConstant().asLong();
+    }
+
+    private static boolean hasConstantOffset(AddressNode address) {
+        return address instanceof OffsetAddressNode && ((OffsetAddressNode) address).getOffset().isJavaConstant();
+    }
+
+    private static ValueNode base(AddressNode address) {
+        return ((OffsetAddressNode) address).getBase();
+    }
+
+    private static int accessBytes(WriteNode write) {
+        Stamp stamp = write.getAccessStamp();
+        if (stamp instanceof IntegerStamp) {
+            return ((IntegerStamp) stamp).getBits() / 8;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if both writes access the same base at constant offsets and the accessed ranges
+     * do not overlap.
+     */
+    private static boolean disjoint(WriteNode a, WriteNode b) {
+        if (!hasConstantOffset(a.getAddress()) || !hasConstantOffset(b.getAddress()) || base(a.getAddress()) != base(b.getAddress())) {
+            return false;
+        }
+        int sizeA = accessBytes(a);
+        int sizeB = accessBytes(b);
+        if (sizeA <= 0 || sizeB <= 0) {
+            return false;
+        }
+        long offsetA = constantOffset(a.getAddress());
+        long offsetB = constantOffset(b.getAddress());
+        return offsetA + sizeA <= offsetB || offsetB + sizeB <= offsetA;
+    }
+
+    /**
+     * Merges {@code first} with the write that directly follows it, if both write constants of the
+     * same width to neighbouring offsets.
+     */
+    private static boolean coalesce(WriteNode first, ByteOrder byteOrder) {
+        if (!(first.next() instanceof WriteNode)) {
+            return false;
+        }
+        WriteNode second = (WriteNode) first.next();
+        if (!isCandidate(first) || !isCandidate(second) || !first.getLocationIdentity().equals(second.getLocationIdentity())) {
+            return false;
+        }
+        if (first.getBarrierType() != BarrierType.NONE || second.getBarrierType() != BarrierType.NONE) {
+            return false;
+        }
+        if (second.getLastLocationAccess() != first || !first.hasExactlyOneUsage()) {
+            return false;
+        }
+        if (!first.value().isJavaConstant() || !second.value().isJavaConstant()) {
+            return false;
+        }
+        if (!hasConstantOffset(first.getAddress()) || !hasConstantOffset(second.getAddress()) || base(first.getAddress()) != base(second.getAddress())) {
+            return false;
+        }
+        int bytes = accessBytes(first);
+        if (bytes <= 0 || bytes > 4 || bytes != accessBytes(second)) {
+            return false;
+        }
+        long firstOffset = constantOffset(first.getAddress());
+        long secondOffset = constantOffset(second.getAddress());
+        WriteNode low;
+        WriteNode high;
+        if (firstOffset + bytes == secondOffset) {
+            low = first;
+            high = second;
+        } else if (secondOffset + bytes == firstOffset) {
+            low = second;
+            high = first;
+        } else {
+            return false;
+        }
+        if (constantOffset(low.getAddress()) % (2 * bytes) != 0) {
+            return false;
+        }
+
+        int bits = bytes * 8;
+        long lowBits = low.value().asJavaConstant().asLong() & CodeUtil.mask(bits);
+        long highBits = high.value().asJavaConstant().asLong() & CodeUtil.mask(bits);
+        long combined = byteOrder == ByteOrder.LITTLE_ENDIAN ? (highBits << bits) | lowBits : (lowBits << bits) | highBits;
+
+        StructuredGraph graph = first.graph();
+        ValueNode value = ConstantNode.forIntegerBits(2 * bits, combined, graph);
+        WriteNode wide = graph.add(new WriteNode(low.getAddress(), first.getLocationIdentity(), value, BarrierType.NONE));
+        wide.setLastLocationAccess(first.getLastLocationAccess());
+        wide.setStateAfter(second.stateAfter());
+        wide.setGuard(second.getGuard() != null ? second.getGuard() : first.getGuard());
+        graph.addBeforeFixed(first, wide);
+        second.replaceAtUsages(wide);
+        GraphUtil.removeFixedWithUnusedInputs(second);
+        GraphUtil.removeFixedWithUnusedInputs(first);
+        return true;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.phases.common;
+
+import static org.graalvm.compiler.core.common.GraalOptions.IfConversionMaxMoves;
+import static org.graalvm.compiler.core.common.GraalOptions.IfConversionMispredictCost;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.graalvm.compiler.core.common.type.AbstractPointerStamp;
+import org.graalvm.compiler.core.common.type.IntegerStamp;
+import org.graalvm.compiler.core.common.type.Stamp;
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.graph.NodeBitMap;
+import org.graalvm.compiler.nodes.AbstractBeginNode;
+import org.graalvm.compiler.nodes.AbstractMergeNode;
+import org.graalvm.compiler.nodes.BeginNode;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.EndNode;
+import org.graalvm.compiler.nodes.FixedNode;
+import org.graalvm.compiler.nodes.IfNode;
+import org.graalvm.compiler.nodes.LogicNode;
+import org.graalvm.compiler.nodes.MergeNode;
+import org.graalvm.compiler.nodes.NodeView;
+import org.graalvm.compiler.nodes.PhiNode;
+import org.graalvm.compiler.nodes.ProxyNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.ValuePhiNode;
+import org.graalvm.compiler.nodes.calc.CompareNode;
+import org.graalvm.compiler.nodes.calc.ConditionalNode;
+import org.graalvm.compiler.nodes.calc.FloatingNode;
+import org.graalvm.compiler.nodes.calc.IntegerTestNode;
+import org.graalvm.compiler.nodes.calc.IsNullNode;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.Phase;
+
+/**
+ * Replaces diamonds whose branches contain no fixed nodes by {@link ConditionalNode conditional
+ * moves} for all phis that merge different values. Unlike the canonicalization in
+ * {@link IfNode}, several phis can be converted at once and the values may be computed by floating
+ * nodes that are only needed on one side.
+ *
+ * A conversion executes the floating nodes of both sides and the conditional moves regardless of
+ * the condition, but can no longer mispredict. The branch probability of the {@link IfNode}, which
+ * contains both the profile and any {@code BranchProbabilityNode} injection, is used to estimate
+ * how often a predictor based on the branch history would miss: a branch taken with probability
+ * {@code p} is assumed to mispredict with probability {@code min(p, 1 - p)}. The conversion is done
+ * if the expected misprediction cost saved is larger than the additional work, i.e., the cycles of
+ * the side that would not have been executed and one cycle per conditional move.
+ *
+ * Only phis of integer and pointer values are converted since not all backends can emit a
+ * conditional move of floating point registers. Floating point arithmetic feeding integer phis, or
+ * floating point comparisons as condition, are supported.
+ *
+ * The phase expects floating reads to be fixed again, i.e., it runs after {@link FixReadsPhase} so
+ * that every memory access pins its branch.
+ */
+public class IfConversionPhase extends Phase {
+
+    private static final CounterKey ConvertedIfs = DebugContext.counter("IfConversion_ConvertedIfs");
+    private static final CounterKey ConditionalMoves = DebugContext.counter("IfConversion_ConditionalMoves");
+
+    /**
+     * Maximum number of floating nodes visited when computing the work of one side of a diamond.
+     */
+    private static final int MAX_SPECULATED_NODES = 16;
+
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
+    @Override
+    protected void run(StructuredGraph graph) {
+        OptionValues options = graph.getOptions();
+        int mispredictCost = IfConversionMispredictCost.getValue(options);
+        int maxMoves = IfConversionMaxMoves.getValue(options);
+        List<IfNode> ifs = graph.getNodes(IfNode.TYPE).snapshot();
+        // visit inner diamonds before the diamonds enclosing them
+        for (int i = ifs.size() - 1; i >= 0; i--) {
+            IfNode ifNode = ifs.get(i);
+            if (ifNode.isAlive() && tryConvert(ifNode, mispredictCost, maxMoves)) {
+                ConvertedIfs.increment(graph.getDebug());
+            }
+        }
+    }
+
+    private static boolean tryConvert(IfNode ifNode, int mispredictCost, int maxMoves) {
+        LogicNode condition = ifNode.condition();
+        if (!(condition instanceof CompareNode || condition instanceof IntegerTestNode || condition instanceof IsNullNode)) {
+            return false;
+        }
+        EndNode trueEnd = emptyBranchEnd(ifNode.trueSuccessor());
+        EndNode falseEnd = emptyBranchEnd(ifNode.falseSuccessor());
+        if (trueEnd == null || falseEnd == null || trueEnd.merge() != falseEnd.merge() || !(trueEnd.merge() instanceof MergeNode)) {
+            return false;
+        }
+        AbstractMergeNode merge = trueEnd.merge();
+        List<ValuePhiNode> phis = new ArrayList<>();
+        for (PhiNode phi : merge.phis()) {
+            if (phi.valueAt(trueEnd) == phi.valueAt(falseEnd)) {
+                continue;
+            }
+            if (!(phi instanceof ValuePhiNode) || !canMove(phi.stamp(NodeView.DEFAULT))) {
+                return false;
+            }
+            phis.add((ValuePhiNode) phi);
+        }
+        if (phis.isEmpty() || phis.size() > maxMoves) {
+            // diamonds without distinct values are removed by the canonicalizer
+            return false;
+        }
+
+        int trueCycles = speculatedCycles(merge, phis, trueEnd);
+        int falseCycles = speculatedCycles(merge, phis, falseEnd);
+        if (trueCycles < 0 || falseCycles < 0) {
+            return false;
+        }
+        double trueProbability = ifNode.getTrueSuccessorProbability();
+        double saved = Math.min(trueProbability, 1 - trueProbability) * mispredictCost;
+        double added = trueProbability * falseCycles + (1 - trueProbability) * trueCycles + phis.size();
+        if (added >= saved) {
+            return false;
+        }
+
+        StructuredGraph graph = ifNode.graph();
+        for (ValuePhiNode phi : phis) {
+            ValueNode conditional = graph.unique(new ConditionalNode(condition, phi.valueAt(trueEnd), phi.valueAt(falseEnd)));
+            phi.setValueAt(trueEnd, conditional);
+            ConditionalMoves.increment(graph.getDebug());
+        }
+        graph.getDebug().log("Converted %s with %d phis (p=%f, saved=%f, added=%f)", ifNode, phis.size(), trueProbability, saved, added);
+        graph.removeSplitPropagate(ifNode, ifNode.trueSuccessor());
+        return true;
+    }
+
+    /**
+     * Returns the end of a branch that consists of begin nodes only, or {@code null}. Loop exits
+     * and begins that anchor other nodes are not empty.
+     */
+    private static EndNode emptyBranchEnd(AbstractBeginNode begin) {
+        FixedNode current = begin;
+        while (current instanceof BeginNode) {
+            if (current.hasUsages()) {
+                return null;
+            }
+            current = ((BeginNode) current).next();
+        }
+        return current instanceof EndNode ? (EndNode) current : null;
+    }
+
+    private static boolean canMove(Stamp stamp) {
+        return stamp instanceof IntegerStamp || stamp instanceof AbstractPointerStamp;
+    }
+
+    private static boolean isSpeculationCandidate(Node node) {
+        return node instanceof FloatingNode && !(node instanceof PhiNode) && !(node instanceof ProxyNode) && !(node instanceof ConstantNode);
+    }
+
+    /**
+     * Estimates the cycles of the floating nodes that are only needed for the values merged from
+     * {@code end}. These nodes are scheduled into the branch today and are executed
+     * unconditionally after the conversion. Returns -1 if the values are too complex.
+     */
+    private static int speculatedCycles(AbstractMergeNode merge, List<ValuePhiNode> phis, EndNode end) {
+        NodeBitMap speculated = merge.graph().createNodeBitMap();
+        List<Node> candidates = new ArrayList<>();
+        List<Node> worklist = new ArrayList<>();
+        for (ValuePhiNode phi : phis) {
+            worklist.add(phi.valueAt(end));
+        }
+        while (!worklist.isEmpty()) {
+            Node node = worklist.remove(worklist.size() - 1);
+            if (speculated.isMarked(node) || !isSpeculationCandidate(node)) {
+                continue;
+            }
+            if (candidates.size() == MAX_SPECULATED_NODES) {
+                return -1;
+            }
+            speculated.mark(node);
+            candidates.add(node);
+            for (Node input : node.inputs()) {
+                worklist.add(input);
+            }
+        }
+
+        // nodes that are also used outside of the branch are computed anyway
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Node node : candidates) {
+                if (!speculated.isMarked(node)) {
+                    continue;
+                }
+                for (Node usage : node.usages()) {
+                    if (!speculated.isMarked(usage) && !(usage instanceof PhiNode && ((PhiNode) usage).merge() == merge)) {
+                        speculated.clear(node);
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        int cycles = 0;
+        for (Node node : speculated) {
+            cycles += node.estimatedNodeCycles().value;
+        }
+        return cycles;
+    }
+}
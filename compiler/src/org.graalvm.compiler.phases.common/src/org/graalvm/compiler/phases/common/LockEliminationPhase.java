@@ -24,7 +24,14 @@
  */
 package org.graalvm.compiler.phases.common;
 
+import static org.graalvm.compiler.core.common.GraalOptions.OptEliminateNestedLocks;
+
+import org.graalvm.collections.EconomicSet;
+import org.graalvm.collections.Equivalence;
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
 import org.graalvm.compiler.nodes.FixedNode;
+import org.graalvm.compiler.nodes.FrameState;
 import org.graalvm.compiler.nodes.StructuredGraph;
 import org.graalvm.compiler.nodes.ValueNode;
 import org.graalvm.compiler.nodes.extended.OSRMonitorEnterNode;
@@ -38,6 +45,8 @@ import org.graalvm.compiler.phases.Phase;
 
 public class LockEliminationPhase extends Phase {
 
+    private static final CounterKey EliminatedNestedLocks = DebugContext.counter("LockElimination_NestedLocks");
+
     @Override
     protected void run(StructuredGraph graph) {
         for (MonitorExitNode monitorExitNode : graph.getNodes(MonitorExitNode.TYPE)) {
@@ -62,6 +71,51 @@ public class LockEliminationPhase extends Phase {
                 }
             }
         }
+        if (OptEliminateNestedLocks.getValue(graph.getOptions())) {
+            eliminateNestedLocks(graph);
+        }
+    }
+
+    /**
+     * Marks the monitors as {@linkplain MonitorIdNode#isEliminated() eliminated} whose object is
+     * already locked by an enclosing monitor of the same compilation unit whenever they are
+     * entered. Such a lock is recursive and has no effect, so the lowering of the enter and the
+     * exits emits no locking code. The monitors stay in the frame states so that deoptimization
+     * can re-lock them.
+     */
+    private static void eliminateNestedLocks(StructuredGraph graph) {
+        EconomicSet<MonitorIdNode> nested = EconomicSet.create(Equivalence.IDENTITY);
+        EconomicSet<MonitorIdNode> notNested = EconomicSet.create(Equivalence.IDENTITY);
+        for (AccessMonitorNode monitorEnter : graph.getNodes().filter(AccessMonitorNode.class)) {
+            if (!(monitorEnter instanceof MonitorEnterNode || monitorEnter instanceof RawMonitorEnterNode)) {
+                continue;
+            }
+            if (monitorEnter instanceof OSRMonitorEnterNode || !isLockedByEnclosingMonitor(monitorEnter)) {
+                notNested.add(monitorEnter.getMonitorId());
+            } else {
+                nested.add(monitorEnter.getMonitorId());
+            }
+        }
+        for (MonitorIdNode monitorId : nested) {
+            if (!notNested.contains(monitorId) && !monitorId.isEliminated()) {
+                monitorId.setEliminated();
+                EliminatedNestedLocks.increment(graph.getDebug());
+            }
+        }
+    }
+
+    private static boolean isLockedByEnclosingMonitor(AccessMonitorNode monitorEnter) {
+        MonitorIdNode monitorId = monitorEnter.getMonitorId();
+        ValueNode object = GraphUtil.unproxify(monitorEnter.object());
+        for (FrameState state = monitorEnter.stateAfter(); state != null; state = state.outerFrameState()) {
+            for (int i = 0; i < state.locksSize(); i++) {
+                MonitorIdNode enclosing = state.monitorIdAt(i);
+                if (enclosing != monitorId && enclosing.getLockDepth() < monitorId.getLockDepth() && GraphUtil.unproxify(state.lockAt(i)) == object) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /**
@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.phases.common;
+
+import static org.graalvm.compiler.core.common.GraalOptions.TailDuplicationMaxGraphGrowth;
+import static org.graalvm.compiler.core.common.GraalOptions.TailDuplicationMaxSize;
+import static org.graalvm.compiler.core.common.GraalOptions.TailDuplicationProbability;
+import static org.graalvm.compiler.core.common.GraalOptions.TailDuplicationTrivialSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.graalvm.collections.EconomicMap;
+import org.graalvm.collections.Equivalence;
+import org.graalvm.collections.UnmodifiableEconomicMap;
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.graph.NodeBitMap;
+import org.graalvm.compiler.nodes.AbstractBeginNode;
+import org.graalvm.compiler.nodes.BeginNode;
+import org.graalvm.compiler.nodes.ControlSinkNode;
+import org.graalvm.compiler.nodes.EndNode;
+import org.graalvm.compiler.nodes.FixedNode;
+import org.graalvm.compiler.nodes.FixedWithNextNode;
+import org.graalvm.compiler.nodes.FrameState;
+import org.graalvm.compiler.nodes.Invoke;
+import org.graalvm.compiler.nodes.LoopExitNode;
+import org.graalvm.compiler.nodes.MergeNode;
+import org.graalvm.compiler.nodes.NodeView;
+import org.graalvm.compiler.nodes.PhiNode;
+import org.graalvm.compiler.nodes.ProxyNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.VirtualState;
+import org.graalvm.compiler.nodes.cfg.ControlFlowGraph;
+import org.graalvm.compiler.nodes.java.MonitorEnterNode;
+import org.graalvm.compiler.nodes.java.MonitorExitNode;
+import org.graalvm.compiler.nodes.util.GraphUtil;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.BasePhase;
+import org.graalvm.compiler.phases.contract.NodeCostUtil;
+import org.graalvm.compiler.phases.tiers.PhaseContext;
+
+/**
+ * Duplicates the code following a merge into the predecessors of the merge. A phi loses the
+ * precise stamps of the values flowing into it, so usages of the phi after the merge cannot be
+ * canonicalized even if every single input would allow it. After duplication, each copy of the
+ * tail uses the phi input of its predecessor directly, which lets a subsequent canonicalization
+ * fold constants, remove type checks or pick up allocated objects for read elimination.
+ *
+ * Only tails without control splits are duplicated: a merge followed by straight-line code that
+ * ends in a {@linkplain ControlSinkNode control sink} or an {@linkplain EndNode end} of another
+ * merge. The size of a tail is estimated with {@linkplain NodeCostUtil node costs}; tails up to
+ * {@link org.graalvm.compiler.core.common.GraalOptions#TailDuplicationTrivialSize} are always
+ * duplicated, larger ones only at merges that are executed frequently. The total growth of the
+ * graph is bounded relative to its size before the phase.
+ */
+public class TailDuplicationPhase extends BasePhase<PhaseContext> {
+
+    private static final CounterKey DuplicatedTails = DebugContext.counter("TailDuplication_DuplicatedTails");
+    private static final CounterKey DuplicatedSize = DebugContext.counter("TailDuplication_DuplicatedSize");
+
+    /**
+     * Bounds the number of copies made of a single tail.
+     */
+    private static final int MAX_PREDECESSORS = 8;
+
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, PhaseContext context) {
+        if (!graph.hasNode(MergeNode.TYPE)) {
+            return;
+        }
+        OptionValues options = graph.getOptions();
+        ControlFlowGraph cfg = ControlFlowGraph.compute(graph, true, true, false, false);
+        List<MergeNode> merges = new ArrayList<>();
+        List<Double> frequencies = new ArrayList<>();
+        for (MergeNode merge : graph.getNodes(MergeNode.TYPE)) {
+            merges.add(merge);
+            frequencies.add(cfg.blockFor(merge).getRelativeFrequency());
+        }
+        int budget = (int) (NodeCostUtil.computeGraphSize(graph) * TailDuplicationMaxGraphGrowth.getValue(options));
+        for (int i = 0; i < merges.size() && budget > 0; i++) {
+            MergeNode merge = merges.get(i);
+            if (!merge.isAlive() || merge.forwardEndCount() < 2 || merge.forwardEndCount() > MAX_PREDECESSORS) {
+                continue;
+            }
+            Tail tail = Tail.collect(merge);
+            if (tail == null || !tail.isProfitable()) {
+                continue;
+            }
+            if (tail.size > TailDuplicationMaxSize.getValue(options)) {
+                continue;
+            }
+            if (tail.size > TailDuplicationTrivialSize.getValue(options) && frequencies.get(i) < TailDuplicationProbability.getValue(options)) {
+                continue;
+            }
+            int growth = tail.size * (merge.forwardEndCount() - 1);
+            if (growth > budget) {
+                continue;
+            }
+            budget -= growth;
+            DuplicatedTails.increment(graph.getDebug());
+            DuplicatedSize.add(graph.getDebug(), growth);
+            tail.duplicate();
+            graph.getDebug().dump(DebugContext.DETAILED_LEVEL, graph, "After duplicating tail of %s", merge);
+        }
+    }
+
+    private static final class Tail {
+
+        private final MergeNode merge;
+        private final NodeBitMap nodes;
+        /**
+         * The end at which the tail flows into another merge, or {@code null} if it ends in a
+         * control sink.
+         */
+        private final EndNode end;
+        private final int size;
+
+        private Tail(MergeNode merge, NodeBitMap nodes, EndNode end, int size) {
+            this.merge = merge;
+            this.nodes = nodes;
+            this.end = end;
+            this.size = size;
+        }
+
+        /**
+         * Collects the fixed nodes following {@code merge} together with all floating nodes that
+         * depend on the merge, its phis or these fixed nodes. Returns {@code null} if the tail
+         * cannot be duplicated.
+         */
+        static Tail collect(MergeNode merge) {
+            StructuredGraph graph = merge.graph();
+            NodeBitMap nodes = graph.createNodeBitMap();
+            List<Node> worklist = new ArrayList<>();
+            nodes.mark(merge);
+            worklist.add(merge);
+            for (PhiNode phi : merge.phis()) {
+                nodes.mark(phi);
+                worklist.add(phi);
+            }
+
+            FixedNode current = merge.next();
+            EndNode end = null;
+            while (true) {
+                if (current instanceof EndNode) {
+                    end = (EndNode) current;
+                    if (!(end.merge() instanceof MergeNode) || end.merge() == merge) {
+                        return null;
+                    }
+                    break;
+                } else if (current instanceof ControlSinkNode) {
+                    break;
+                } else if (current instanceof FixedWithNextNode && !(current instanceof AbstractBeginNode) && !(current instanceof Invoke) && !(current instanceof MonitorEnterNode) &&
+                                !(current instanceof MonitorExitNode)) {
+                    nodes.mark(current);
+                    worklist.add(current);
+                    current = ((FixedWithNextNode) current).next();
+                } else {
+                    return null;
+                }
+            }
+            nodes.mark(current);
+            worklist.add(current);
+
+            while (!worklist.isEmpty()) {
+                Node node = worklist.remove(worklist.size() - 1);
+                for (Node usage : node.usages()) {
+                    if (nodes.isMarked(usage) || (end != null && usage == end.merge())) {
+                        continue;
+                    }
+                    if (end != null && usage instanceof PhiNode && ((PhiNode) usage).merge() == end.merge()) {
+                        continue;
+                    }
+                    if (usage instanceof FixedNode || usage instanceof PhiNode || usage instanceof ProxyNode || usage instanceof LoopExitNode) {
+                        return null;
+                    }
+                    nodes.mark(usage);
+                    worklist.add(usage);
+                }
+            }
+            if (end != null) {
+                // The tail's values may only flow into the phis of the next merge through its end.
+                for (PhiNode phi : end.merge().phis()) {
+                    for (int i = 0; i < phi.valueCount(); i++) {
+                        if (phi.merge().phiPredecessorAt(i) != end && nodes.isMarked(phi.valueAt(i))) {
+                            return null;
+                        }
+                    }
+                }
+            }
+
+            int size = 0;
+            for (Node node : nodes) {
+                if (node != merge && !(node instanceof PhiNode) && !(node instanceof VirtualState)) {
+                    size += node.estimatedNodeSize().value;
+                }
+            }
+            return new Tail(merge, nodes, end, size);
+        }
+
+        /**
+         * Duplication pays off if a phi has a real usage in the tail and at least one of its
+         * inputs has a more precise stamp than the phi.
+         */
+        boolean isProfitable() {
+            for (PhiNode phi : merge.phis()) {
+                boolean used = false;
+                for (Node usage : phi.usages()) {
+                    if (!(usage instanceof VirtualState)) {
+                        used = true;
+                        break;
+                    }
+                }
+                if (!used) {
+                    continue;
+                }
+                for (ValueNode value : phi.values()) {
+                    if (value.isConstant() || !value.stamp(NodeView.DEFAULT).equals(phi.stamp(NodeView.DEFAULT))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        void duplicate() {
+            StructuredGraph graph = merge.graph();
+            List<Node> toDuplicate = new ArrayList<>();
+            for (Node node : nodes) {
+                if (node != merge && !(node instanceof PhiNode && ((PhiNode) node).merge() == merge)) {
+                    toDuplicate.add(node);
+                }
+            }
+            FrameState mergeState = merge.stateAfter();
+            for (int index = 0; index < merge.forwardEndCount(); index++) {
+                EndNode predecessorEnd = merge.forwardEndAt(index);
+                BeginNode begin = graph.add(new BeginNode());
+                EconomicMap<Node, Node> replacements = EconomicMap.create(Equivalence.IDENTITY);
+                replacements.put(merge, begin);
+                for (PhiNode phi : merge.phis()) {
+                    replacements.put(phi, phi.valueAt(index));
+                }
+                UnmodifiableEconomicMap<Node, Node> duplicates = graph.addDuplicates(toDuplicate, graph, toDuplicate.size(), replacements);
+                begin.setNext((FixedNode) duplicates.get(merge.next()));
+                if (end != null) {
+                    EndNode newEnd = (EndNode) duplicates.get(end);
+                    MergeNode next = (MergeNode) end.merge();
+                    next.addForwardEnd(newEnd);
+                    for (PhiNode phi : next.phis()) {
+                        ValueNode value = phi.valueAt(end);
+                        if (duplicates.containsKey(value)) {
+                            value = (ValueNode) duplicates.get(value);
+                        } else if (replacements.containsKey(value)) {
+                            value = (ValueNode) replacements.get(value);
+                        }
+                        phi.addInput(value);
+                    }
+                }
+                if (mergeState != null && duplicates.containsKey(mergeState)) {
+                    GraphUtil.tryKillUnused(duplicates.get(mergeState));
+                }
+                predecessorEnd.predecessor().replaceFirstSuccessor(predecessorEnd, begin);
+            }
+            for (EndNode predecessorEnd : merge.forwardEnds().snapshot()) {
+                merge.removeEnd(predecessorEnd);
+                predecessorEnd.safeDelete();
+            }
+            GraphUtil.killCFG(merge);
+        }
+    }
+}
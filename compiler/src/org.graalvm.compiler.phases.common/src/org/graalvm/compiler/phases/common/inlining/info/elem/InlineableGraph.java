@@ -27,6 +27,7 @@ package org.graalvm.compiler.phases.common.inlining.info.elem;
 import static org.graalvm.compiler.phases.common.DeadCodeEliminationPhase.Optionality.Optional;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.graalvm.compiler.core.common.type.Stamp;
@@ -34,6 +35,7 @@ import org.graalvm.compiler.debug.DebugContext;
 import org.graalvm.compiler.graph.Node;
 import org.graalvm.compiler.graph.NodeInputList;
 import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.InlineeGraphCache;
 import org.graalvm.compiler.nodes.Invoke;
 import org.graalvm.compiler.nodes.NodeView;
 import org.graalvm.compiler.nodes.ParameterNode;
@@ -192,11 +194,20 @@ public class InlineableGraph implements Inlineable {
     private static StructuredGraph parseBytecodes(ResolvedJavaMethod method, HighTierContext context, CanonicalizerPhase canonicalizer, StructuredGraph caller, boolean trackNodeSourcePosition) {
         DebugContext debug = caller.getDebug();
         StructuredGraph newGraph = new StructuredGraph.Builder(caller.getOptions(), debug, AllowAssumptions.ifNonNull(caller.getAssumptions())).method(method).trackNodeSourcePosition(
-                        trackNodeSourcePosition).useProfilingInfo(caller.useProfilingInfo()).build();
+                        trackNodeSourcePosition).useProfilingInfo(caller.useProfilingInfo()).profileProvider(caller.getProfileProvider()).build();
         try (DebugContext.Scope s = debug.scope("InlineGraph", newGraph)) {
             if (!caller.isUnsafeAccessTrackingEnabled()) {
                 newGraph.disableUnsafeAccessTracking();
             }
+            InlineeGraphCache cache = context.getGraphBuilderSuite() != null ? context.getReplacements().getInlineeGraphCache() : null;
+            /*
+             * Suites and profile providers are compared by identity, so graphs are only shared by
+             * compilations that use the same graph builder suite and profiles.
+             */
+            List<Object> parseConfiguration = cache != null ? Arrays.asList(context.getGraphBuilderSuite(), context.getOptimisticOptimizations(), caller.getProfileProvider()) : null;
+            if (cache != null && cache.decode(method, parseConfiguration, newGraph)) {
+                return newGraph;
+            }
             if (context.getGraphBuilderSuite() != null) {
                 context.getGraphBuilderSuite().apply(newGraph, context);
             }
@@ -206,6 +217,10 @@ public class InlineableGraph implements Inlineable {
 
             canonicalizer.apply(newGraph, context);
 
+            if (cache != null) {
+                cache.put(parseConfiguration, newGraph);
+            }
+
             return newGraph;
         } catch (Throwable e) {
             throw debug.handle(e);
@@ -26,6 +26,7 @@ package org.graalvm.compiler.phases;
 
 import java.util.regex.Pattern;
 
+import org.graalvm.compiler.core.common.util.CompilationBudget;
 import org.graalvm.compiler.debug.CounterKey;
 import org.graalvm.compiler.debug.DebugCloseable;
 import org.graalvm.compiler.debug.DebugContext;
@@ -286,6 +287,14 @@ public abstract class BasePhase<C> implements PhaseSizeContract {
 
     protected abstract void run(StructuredGraph graph, C context);
 
+    /**
+     * Determines if this phase only improves the generated code and may therefore be skipped
+     * once the {@linkplain CompilationBudget compilation budget} is exhausted.
+     */
+    public boolean isOptional() {
+        return false;
+    }
+
     @Override
     public String contractorName() {
         return getName().toString();
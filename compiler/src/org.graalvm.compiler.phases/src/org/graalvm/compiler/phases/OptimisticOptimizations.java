@@ -139,4 +139,14 @@ public final class OptimisticOptimizations {
     public String toString() {
         return enabledOpts.toString();
     }
+
+    @Override
+    public int hashCode() {
+        return enabledOpts.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof OptimisticOptimizations && enabledOpts.equals(((OptimisticOptimizations) obj).enabledOpts);
+    }
 }
@@ -29,6 +29,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.ListIterator;
 
+import org.graalvm.compiler.core.common.util.CompilationBudget;
 import org.graalvm.compiler.nodes.StructuredGraph;
 
 /**
@@ -206,9 +207,18 @@ public class PhaseSuite<C> extends BasePhase<C> {
         return false;
     }
 
+    /**
+     * Applies the phases of this suite in order. {@linkplain BasePhase#isOptional() Optional}
+     * phases are skipped once the current {@link CompilationBudget} is exhausted.
+     */
     @Override
     protected void run(StructuredGraph graph, C context) {
+        CompilationBudget budget = CompilationBudget.current();
         for (BasePhase<? super C> phase : phases) {
+            if (phase.isOptional() && budget.isExhausted()) {
+                budget.phaseSkipped(graph.getDebug(), graph, phase.getName());
+                continue;
+            }
             phase.apply(graph, context);
         }
     }
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.replacements.amd64;
+
+import static org.graalvm.compiler.nodeinfo.InputType.Memory;
+import static org.graalvm.compiler.nodeinfo.NodeCycles.CYCLES_UNKNOWN;
+import static org.graalvm.compiler.nodeinfo.NodeSize.SIZE_16;
+
+import org.graalvm.compiler.core.common.type.StampFactory;
+import org.graalvm.compiler.graph.NodeClass;
+import org.graalvm.compiler.nodeinfo.NodeInfo;
+import org.graalvm.compiler.nodes.FixedWithNextNode;
+import org.graalvm.compiler.nodes.NamedLocationIdentity;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.ValueNodeUtil;
+import org.graalvm.compiler.nodes.memory.MemoryAccess;
+import org.graalvm.compiler.nodes.memory.MemoryNode;
+import org.graalvm.compiler.nodes.spi.LIRLowerable;
+import org.graalvm.compiler.nodes.spi.NodeLIRBuilderTool;
+import org.graalvm.word.LocationIdentity;
+
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Updates a CRC32C checksum with the bytes {@code [offset, offset + length)} of a {@code byte[]}
+ * or, if {@link #directBuffer} is set, of the memory at the raw address {@code buffer}.
+ */
+@NodeInfo(allowedUsageTypes = Memory, size = SIZE_16, cycles = CYCLES_UNKNOWN)
+public final class AMD64CRC32CUpdateNode extends FixedWithNextNode implements LIRLowerable, MemoryAccess {
+
+    public static final NodeClass<AMD64CRC32CUpdateNode> TYPE = NodeClass.create(AMD64CRC32CUpdateNode.class);
+
+    @Input private ValueNode crc;
+    @Input private ValueNode buffer;
+    @Input private ValueNode offset;
+    @Input private ValueNode length;
+
+    private final boolean directBuffer;
+
+    @OptionalInput(Memory) private MemoryNode lla; // Last access location registered.
+
+    public AMD64CRC32CUpdateNode(ValueNode crc, ValueNode buffer, ValueNode offset, ValueNode length, boolean directBuffer) {
+        super(TYPE, StampFactory.forKind(JavaKind.Int));
+        this.crc = crc;
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.directBuffer = directBuffer;
+    }
+
+    @Override
+    public LocationIdentity getLocationIdentity() {
+        return directBuffer ? LocationIdentity.any() : NamedLocationIdentity.getArrayLocation(JavaKind.Byte);
+    }
+
+    @Override
+    public void generate(NodeLIRBuilderTool gen) {
+        gen.setResult(this, gen.getLIRGeneratorTool().emitCRC32CUpdate(gen.operand(crc), gen.operand(buffer), gen.operand(offset), gen.operand(length), directBuffer));
+    }
+
+    @Override
+    public MemoryNode getLastLocationAccess() {
+        return lla;
+    }
+
+    @Override
+    public void setLastLocationAccess(MemoryNode newlla) {
+        updateUsages(ValueNodeUtil.asNode(lla), ValueNodeUtil.asNode(newlla));
+        lla = newlla;
+    }
+}
@@ -40,16 +40,24 @@ import java.util.Arrays;
 
 import org.graalvm.compiler.bytecode.BytecodeProvider;
 import org.graalvm.compiler.lir.amd64.AMD64ArithmeticLIRGeneratorTool.RoundingMode;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.FixedGuardNode;
+import org.graalvm.compiler.nodes.LogicNode;
+import org.graalvm.compiler.nodes.NodeView;
 import org.graalvm.compiler.nodes.PauseNode;
 import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.calc.IntegerLessThanNode;
+import org.graalvm.compiler.nodes.calc.SubNode;
 import org.graalvm.compiler.nodes.graphbuilderconf.GraphBuilderConfiguration.Plugins;
 import org.graalvm.compiler.nodes.graphbuilderconf.GraphBuilderContext;
 import org.graalvm.compiler.nodes.graphbuilderconf.InvocationPlugin;
 import org.graalvm.compiler.nodes.graphbuilderconf.InvocationPlugin.Receiver;
 import org.graalvm.compiler.nodes.graphbuilderconf.InvocationPlugins;
 import org.graalvm.compiler.nodes.graphbuilderconf.InvocationPlugins.Registration;
+import org.graalvm.compiler.nodes.java.ArrayLengthNode;
 import org.graalvm.compiler.nodes.java.AtomicReadAndAddNode;
 import org.graalvm.compiler.nodes.java.AtomicReadAndWriteNode;
+import org.graalvm.compiler.nodes.java.LoadFieldNode;
 import org.graalvm.compiler.nodes.memory.address.OffsetAddressNode;
 import org.graalvm.compiler.replacements.ArraysSubstitutions;
 import org.graalvm.compiler.replacements.IntegerSubstitutions;
@@ -65,13 +73,31 @@ import org.graalvm.compiler.replacements.nodes.UnaryMathIntrinsicNode.UnaryOpera
 
 import jdk.vm.ci.amd64.AMD64;
 import jdk.vm.ci.amd64.AMD64.CPUFeature;
+import jdk.vm.ci.meta.DeoptimizationAction;
+import jdk.vm.ci.meta.DeoptimizationReason;
 import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.ResolvedJavaField;
 import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
 import sun.misc.Unsafe;
 
 public class AMD64GraphBuilderPlugins {
 
     public static void register(Plugins plugins, BytecodeProvider replacementsBytecodeProvider, AMD64 arch, boolean explicitUnsafeNullChecks) {
+        register(plugins, replacementsBytecodeProvider, arch, explicitUnsafeNullChecks, false, false);
+    }
+
+    /**
+     * Registers the AMD64 specific plugins.
+     *
+     * @param registerAES register LIR based intrinsics for single block AES encryption and
+     *            decryption. This must be false if the runtime registers its own intrinsics for
+     *            {@code com.sun.crypto.provider.AESCrypt}.
+     * @param registerCRC32C register LIR based intrinsics for {@code java.util.zip.CRC32C}.
+     *            This must be false if the runtime registers its own intrinsics for it.
+     */
+    public static void register(Plugins plugins, BytecodeProvider replacementsBytecodeProvider, AMD64 arch, boolean explicitUnsafeNullChecks, boolean registerAES,
+                    boolean registerCRC32C) {
         InvocationPlugins invocationPlugins = plugins.getInvocationPlugins();
         invocationPlugins.defer(new Runnable() {
             @Override
@@ -87,6 +113,12 @@ public class AMD64GraphBuilderPlugins {
                 registerStringUTF16Plugins(invocationPlugins, replacementsBytecodeProvider);
                 registerMathPlugins(invocationPlugins, arch, replacementsBytecodeProvider);
                 registerArraysEqualsPlugins(invocationPlugins, replacementsBytecodeProvider);
+                if (registerAES) {
+                    registerAESPlugins(invocationPlugins, arch);
+                }
+                if (registerCRC32C) {
+                    registerCRC32CPlugins(invocationPlugins, arch);
+                }
             }
         });
     }
@@ -287,4 +319,93 @@ public class AMD64GraphBuilderPlugins {
         r.registerMethodSubstitution(ArraysSubstitutions.class, "equals", float[].class, float[].class);
         r.registerMethodSubstitution(ArraysSubstitutions.class, "equals", double[].class, double[].class);
     }
+
+    /**
+     * Registers the LIR based intrinsics for {@code com.sun.crypto.provider.AESCrypt} if
+     * {@code arch} supports them. Tests use this to exercise the intrinsics on a runtime that has
+     * its own.
+     */
+    public static void registerAESPlugins(InvocationPlugins plugins, AMD64 arch) {
+        if (arch.getFeatures().contains(CPUFeature.AES) && arch.getFeatures().contains(CPUFeature.SSSE3)) {
+            String encryptName = Java8OrEarlier ? "encryptBlock" : "implEncryptBlock";
+            String decryptName = Java8OrEarlier ? "decryptBlock" : "implDecryptBlock";
+            Registration r = new Registration(plugins, "com.sun.crypto.provider.AESCrypt");
+            r.register5(encryptName, Receiver.class, byte[].class, int.class, byte[].class, int.class, new AESCryptBlockPlugin(true));
+            r.register5(decryptName, Receiver.class, byte[].class, int.class, byte[].class, int.class, new AESCryptBlockPlugin(false));
+        }
+    }
+
+    private static final class AESCryptBlockPlugin implements InvocationPlugin {
+
+        private static final int AES_BLOCK_SIZE = 16;
+
+        private final boolean encrypt;
+
+        AESCryptBlockPlugin(boolean encrypt) {
+            this.encrypt = encrypt;
+        }
+
+        @Override
+        public boolean apply(GraphBuilderContext b, ResolvedJavaMethod targetMethod, Receiver receiver, ValueNode in, ValueNode inOffset, ValueNode out, ValueNode outOffset) {
+            ResolvedJavaField keyField = findInstanceField(targetMethod.getDeclaringClass(), "K");
+            if (keyField == null) {
+                return false;
+            }
+            ValueNode key = b.nullCheckedValue(b.add(LoadFieldNode.create(b.getAssumptions(), receiver.get(), keyField)));
+            ValueNode nonNullIn = b.nullCheckedValue(in);
+            ValueNode nonNullOut = b.nullCheckedValue(out);
+            checkBlockBounds(b, nonNullIn, inOffset);
+            checkBlockBounds(b, nonNullOut, outOffset);
+            ValueNode keyLength = b.add(ArrayLengthNode.create(key, b.getConstantReflection()));
+            b.add(new AMD64AESCryptBlockNode(nonNullIn, inOffset, nonNullOut, outOffset, key, keyLength, encrypt));
+            return true;
+        }
+
+        /**
+         * Deoptimizes unless {@code 0 <= offset && offset <= array.length - AES_BLOCK_SIZE}.
+         */
+        private static void checkBlockBounds(GraphBuilderContext b, ValueNode array, ValueNode offset) {
+            LogicNode negativeOffset = b.add(IntegerLessThanNode.create(offset, ConstantNode.forInt(0, b.getGraph()), NodeView.DEFAULT));
+            b.add(new FixedGuardNode(negativeOffset, DeoptimizationReason.BoundsCheckException, DeoptimizationAction.InvalidateReprofile, true));
+            ValueNode length = b.add(ArrayLengthNode.create(array, b.getConstantReflection()));
+            ValueNode lastOffset = b.add(SubNode.create(length, ConstantNode.forInt(AES_BLOCK_SIZE, b.getGraph()), NodeView.DEFAULT));
+            LogicNode tooLarge = b.add(IntegerLessThanNode.create(lastOffset, offset, NodeView.DEFAULT));
+            b.add(new FixedGuardNode(tooLarge, DeoptimizationReason.BoundsCheckException, DeoptimizationAction.InvalidateReprofile, true));
+        }
+
+        private static ResolvedJavaField findInstanceField(ResolvedJavaType type, String name) {
+            for (ResolvedJavaField field : type.getInstanceFields(false)) {
+                if (field.getName().equals(name)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Registers the LIR based intrinsics for {@code java.util.zip.CRC32C} if {@code arch} supports
+     * them.
+     */
+    public static void registerCRC32CPlugins(InvocationPlugins plugins, AMD64 arch) {
+        if (!Java8OrEarlier && arch.getFeatures().contains(CPUFeature.SSE4_2)) {
+            Registration r = new Registration(plugins, "java.util.zip.CRC32C");
+            r.register4("updateBytes", int.class, byte[].class, int.class, int.class, new InvocationPlugin() {
+                @Override
+                public boolean apply(GraphBuilderContext b, ResolvedJavaMethod targetMethod, Receiver receiver, ValueNode crc, ValueNode buf, ValueNode off, ValueNode end) {
+                    ValueNode length = b.add(SubNode.create(end, off, NodeView.DEFAULT));
+                    b.addPush(JavaKind.Int, new AMD64CRC32CUpdateNode(crc, b.nullCheckedValue(buf), off, length, false));
+                    return true;
+                }
+            });
+            r.register4("updateDirectByteBuffer", int.class, long.class, int.class, int.class, new InvocationPlugin() {
+                @Override
+                public boolean apply(GraphBuilderContext b, ResolvedJavaMethod targetMethod, Receiver receiver, ValueNode crc, ValueNode address, ValueNode off, ValueNode end) {
+                    ValueNode length = b.add(SubNode.create(end, off, NodeView.DEFAULT));
+                    b.addPush(JavaKind.Int, new AMD64CRC32CUpdateNode(crc, address, off, length, true));
+                    return true;
+                }
+            });
+        }
+    }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.replacements.test;
+
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import org.graalvm.compiler.core.common.GraalOptions;
+import org.graalvm.compiler.core.test.GraalCompilerTest;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.nodes.java.NewInstanceNode;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.tiers.PhaseContext;
+import org.graalvm.compiler.replacements.OptimizeStringConcatPhase;
+import org.graalvm.compiler.replacements.nodes.StringConcatNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import jdk.vm.ci.amd64.AMD64;
+
+/**
+ * Tests {@link OptimizeStringConcatPhase}.
+ */
+public class OptimizeStringConcatTest extends GraalCompilerTest {
+
+    @Before
+    public void checkAMD64() {
+        assumeFalse(Java8OrEarlier);
+        // The lowering of StringConcatNode is (currently) AMD64 only.
+        assumeTrue(getTarget().arch instanceof AMD64);
+    }
+
+    private static OptionValues optimizeStringConcat() {
+        return new OptionValues(getInitialOptions(), GraalOptions.OptimizeStringConcat, true);
+    }
+
+    public static String chainSnippet(String a, String b) {
+        return new StringBuilder().append(a).append(',').append(b).toString();
+    }
+
+    public static String statementsSnippet(String a, String b) {
+        StringBuilder sb = new StringBuilder("[");
+        sb.append(a);
+        sb.append(b);
+        sb.append("]");
+        return sb.toString();
+    }
+
+    public static String escapeSnippet(String a, StringBuilder[] escape) {
+        StringBuilder sb = new StringBuilder();
+        escape[0] = sb;
+        return sb.append(a).toString();
+    }
+
+    public static String variableCharSnippet(String a, char c) {
+        return new StringBuilder().append(a).append(c).toString();
+    }
+
+    @Test
+    public void testChain() {
+        OptionValues options = optimizeStringConcat();
+        String[] values = {"", "latin1", "utf16 \u20ac", null};
+        for (String a : values) {
+            for (String b : values) {
+                test(options, "chainSnippet", a, b);
+                test(options, "statementsSnippet", a, b);
+            }
+        }
+    }
+
+    @Test
+    public void testFused() {
+        assertFused("chainSnippet", true);
+        assertFused("statementsSnippet", true);
+    }
+
+    @Test
+    public void testNotFused() {
+        assertFused("escapeSnippet", false);
+        assertFused("variableCharSnippet", false);
+        test(optimizeStringConcat(), "escapeSnippet", "a", new StringBuilder[1]);
+        test(optimizeStringConcat(), "variableCharSnippet", "a", '\u20ac');
+    }
+
+    private void assertFused(String snippet, boolean fused) {
+        StructuredGraph graph = parseEager(snippet, AllowAssumptions.YES, optimizeStringConcat());
+        new OptimizeStringConcatPhase().apply(graph, new PhaseContext(getProviders()));
+        boolean hasBuilder = false;
+        for (NewInstanceNode allocation : graph.getNodes().filter(NewInstanceNode.class)) {
+            hasBuilder |= allocation.instanceClass().equals(getMetaAccess().lookupJavaType(StringBuilder.class));
+        }
+        assertTrue(hasBuilder != fused, "unexpected StringBuilder allocation state in %s", snippet);
+        assertTrue(graph.getNodes().filter(StringConcatNode.class).isNotEmpty() == fused, "unexpected StringConcatNode state in %s", snippet);
+    }
+}
@@ -24,6 +24,7 @@
  */
 package org.graalvm.compiler.replacements;
 
+import static org.graalvm.compiler.core.common.GraalOptions.OptimizeStringConcat;
 import static org.graalvm.compiler.core.common.GraalOptions.TrivialInliningSize;
 import static org.graalvm.compiler.java.BytecodeParserOptions.InlineDuringParsingMaxDepth;
 import static org.graalvm.compiler.nodes.graphbuilderconf.InlineInvokePlugin.InlineInfo.createStandardInlineInfo;
@@ -47,8 +48,27 @@ public final class InlineDuringParsingPlugin implements InlineInvokePlugin {
 
     private static final int MaxDepthAfterBudgetExceeded = Integer.getInteger("InlineDuringParsingPlugin.MaxDepthAfterBudgetExceeded", 3);
 
+    private final boolean keepStringConcatCalls;
+
+    public InlineDuringParsingPlugin() {
+        this(false);
+    }
+
+    /**
+     * @param keepStringConcatCalls specifies if the suites apply {@link OptimizeStringConcatPhase}
+     *            when {@link org.graalvm.compiler.core.common.GraalOptions#OptimizeStringConcat} is
+     *            enabled, in which case the calls fused by that phase are not inlined
+     */
+    public InlineDuringParsingPlugin(boolean keepStringConcatCalls) {
+        this.keepStringConcatCalls = keepStringConcatCalls;
+    }
+
     @Override
     public InlineInfo shouldInlineInvoke(GraphBuilderContext b, ResolvedJavaMethod method, ValueNode[] args) {
+        if (keepStringConcatCalls && OptimizeStringConcat.getValue(b.getOptions()) && OptimizeStringConcatPhase.isFusibleMethod(method)) {
+            // Keep the calls for OptimizeStringConcatPhase.
+            return null;
+        }
         // @formatter:off
         if (method.hasBytecodes() &&
             method.getDeclaringClass().isLinked() &&
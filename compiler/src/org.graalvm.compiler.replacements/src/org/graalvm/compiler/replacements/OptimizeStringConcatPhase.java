@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.replacements;
+
+import static org.graalvm.compiler.serviceprovider.GraalServices.Java8OrEarlier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.graalvm.collections.EconomicSet;
+import org.graalvm.collections.Equivalence;
+import org.graalvm.compiler.core.common.type.StampFactory;
+import org.graalvm.compiler.core.common.type.StampTool;
+import org.graalvm.compiler.core.common.type.TypeReference;
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.debug.GraalError;
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.nodes.CallTargetNode;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.FixedGuardNode;
+import org.graalvm.compiler.nodes.FixedNode;
+import org.graalvm.compiler.nodes.FixedWithNextNode;
+import org.graalvm.compiler.nodes.FrameState;
+import org.graalvm.compiler.nodes.Invoke;
+import org.graalvm.compiler.nodes.InvokeNode;
+import org.graalvm.compiler.nodes.LogicNode;
+import org.graalvm.compiler.nodes.NodeView;
+import org.graalvm.compiler.nodes.PiNode;
+import org.graalvm.compiler.nodes.StateSplit;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.calc.ConditionalNode;
+import org.graalvm.compiler.nodes.calc.IsNullNode;
+import org.graalvm.compiler.nodes.calc.OrNode;
+import org.graalvm.compiler.nodes.java.FinalFieldBarrierNode;
+import org.graalvm.compiler.nodes.java.LoadFieldNode;
+import org.graalvm.compiler.nodes.java.MethodCallTargetNode;
+import org.graalvm.compiler.nodes.java.NewInstanceNode;
+import org.graalvm.compiler.nodes.java.StoreFieldNode;
+import org.graalvm.compiler.nodes.util.GraphUtil;
+import org.graalvm.compiler.phases.BasePhase;
+import org.graalvm.compiler.phases.tiers.PhaseContext;
+import org.graalvm.compiler.replacements.nodes.StringConcatNode;
+
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.ResolvedJavaField;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+
+/**
+ * Replaces {@code new StringBuilder().append(a).append(b).toString()} chains with a single
+ * {@link StringConcatNode} that allocates the {@code byte[]} of the result string once, followed
+ * by the allocation of the result string itself. This removes the builder, its capacity growth
+ * and the copy of its contents in {@link StringBuilder#toString()}.
+ *
+ * A chain is fused if it consists of a {@link StringBuilder} allocation, a call to
+ * {@code <init>()} or {@code <init>(String)} with a non-null argument, calls to
+ * {@code append(String)} or to {@code append(char)} with a constant argument, and a final call to
+ * {@code toString()}. The builder must not escape the chain and the fixed nodes between the
+ * allocation and {@code toString()} must be free of side effects, so that a deoptimization in the
+ * fused code can re-execute the whole chain. The phase must run before inlining, which is why
+ * {@link InlineDuringParsingPlugin} leaves these calls alone when the phase is enabled.
+ *
+ * Only the layout of {@link String} used since JDK 9 is supported.
+ */
+public class OptimizeStringConcatPhase extends BasePhase<PhaseContext> {
+
+    private static final CounterKey counterChainsFused = DebugContext.counter("StringConcat_ChainsFused");
+    private static final CounterKey counterPartsFused = DebugContext.counter("StringConcat_PartsFused");
+
+    private static final String BUILDER_TYPE = "Ljava/lang/StringBuilder;";
+
+    /**
+     * Determines if {@code method} is one of the {@link StringBuilder} methods that this phase
+     * can fuse.
+     */
+    public static boolean isFusibleMethod(ResolvedJavaMethod method) {
+        if (!method.getDeclaringClass().getName().equals(BUILDER_TYPE)) {
+            return false;
+        }
+        return getOperation(method) != null;
+    }
+
+    private enum Operation {
+        INIT,
+        INIT_STRING,
+        APPEND_STRING,
+        APPEND_CHAR,
+        TO_STRING
+    }
+
+    private static Operation getOperation(ResolvedJavaMethod method) {
+        String descriptor = method.getSignature().toMethodDescriptor();
+        switch (method.getName()) {
+            case "<init>":
+                if (descriptor.equals("()V")) {
+                    return Operation.INIT;
+                } else if (descriptor.equals("(Ljava/lang/String;)V")) {
+                    return Operation.INIT_STRING;
+                }
+                return null;
+            case "append":
+                if (descriptor.equals("(Ljava/lang/String;)" + BUILDER_TYPE)) {
+                    return Operation.APPEND_STRING;
+                } else if (descriptor.equals("(C)" + BUILDER_TYPE)) {
+                    return Operation.APPEND_CHAR;
+                }
+                return null;
+            case "toString":
+                return descriptor.equals("()Ljava/lang/String;") ? Operation.TO_STRING : null;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, PhaseContext context) {
+        if (Java8OrEarlier) {
+            return;
+        }
+        ResolvedJavaType builderType = context.getMetaAccess().lookupJavaType(StringBuilder.class);
+        for (NewInstanceNode newBuilder : graph.getNodes().filter(NewInstanceNode.class).snapshot()) {
+            if (newBuilder.isAlive() && newBuilder.instanceClass().equals(builderType)) {
+                Chain chain = Chain.match(newBuilder, context);
+                if (chain != null) {
+                    chain.replace(graph, context);
+                    counterChainsFused.increment(graph.getDebug());
+                    counterPartsFused.add(graph.getDebug(), chain.parts.size());
+                }
+            }
+        }
+    }
+
+    private static final class Chain {
+
+        private final NewInstanceNode newBuilder;
+        /** The calls of the chain in execution order, ending with {@code toString()}. */
+        private final List<InvokeNode> calls = new ArrayList<>();
+        /** The string parts of the result in order. Constants may not be added to the graph yet. */
+        private final List<ValueNode> parts = new ArrayList<>();
+        /** The builder, the values returned by {@code append} and {@link PiNode}s of these. */
+        private final EconomicSet<ValueNode> aliases = EconomicSet.create(Equivalence.IDENTITY);
+        /** The fixed nodes between the builder allocation and {@code toString()}. */
+        private final EconomicSet<FixedNode> body = EconomicSet.create(Equivalence.IDENTITY);
+        /** The null checks of values returned by {@code append}. */
+        private final List<FixedGuardNode> nullChecks = new ArrayList<>();
+
+        private Chain(NewInstanceNode newBuilder) {
+            this.newBuilder = newBuilder;
+            aliases.add(newBuilder);
+        }
+
+        static Chain match(NewInstanceNode newBuilder, PhaseContext context) {
+            Chain chain = new Chain(newBuilder);
+            boolean initialized = false;
+            FixedNode current = newBuilder.next();
+            while (true) {
+                chain.body.add(current);
+                if (current instanceof Invoke) {
+                    if (!(current instanceof InvokeNode) || !(((Invoke) current).callTarget() instanceof MethodCallTargetNode)) {
+                        return null;
+                    }
+                    InvokeNode invoke = (InvokeNode) current;
+                    MethodCallTargetNode callTarget = (MethodCallTargetNode) invoke.callTarget();
+                    if (callTarget.arguments().isEmpty() || !chain.aliases.contains(GraphUtil.skipPi(callTarget.arguments().get(0))) || !isFusibleMethod(callTarget.targetMethod())) {
+                        return null;
+                    }
+                    Operation operation = getOperation(callTarget.targetMethod());
+                    if ((operation == Operation.INIT || operation == Operation.INIT_STRING) == initialized) {
+                        // The constructor must be the first call on the builder.
+                        return null;
+                    }
+                    initialized = true;
+                    chain.calls.add(invoke);
+                    switch (operation) {
+                        case INIT:
+                            break;
+                        case INIT_STRING:
+                            ValueNode initial = callTarget.arguments().get(1);
+                            if (!StampTool.isPointerNonNull(initial)) {
+                                // Leave the NullPointerException to the constructor.
+                                return null;
+                            }
+                            chain.parts.add(initial);
+                            break;
+                        case APPEND_STRING:
+                            chain.parts.add(callTarget.arguments().get(1));
+                            chain.aliases.add(invoke);
+                            break;
+                        case APPEND_CHAR:
+                            ValueNode c = callTarget.arguments().get(1);
+                            if (!c.isJavaConstant()) {
+                                return null;
+                            }
+                            String s = String.valueOf((char) c.asJavaConstant().asInt());
+                            chain.parts.add(ConstantNode.forConstant(context.getConstantReflection().forString(s), context.getMetaAccess()));
+                            chain.aliases.add(invoke);
+                            break;
+                        case TO_STRING:
+                            return chain.isConfined() ? chain : null;
+                    }
+                    current = invoke.next();
+                } else if (current instanceof FixedWithNextNode && !(current instanceof StateSplit && ((StateSplit) current).hasSideEffect())) {
+                    current = ((FixedWithNextNode) current).next();
+                } else {
+                    return null;
+                }
+            }
+        }
+
+        /**
+         * Checks that the builder is only used as the receiver of the calls in the chain, in the
+         * frame states of these calls and in null checks of the values returned by
+         * {@code append}.
+         */
+        private boolean isConfined() {
+            EconomicSet<Node> callNodes = EconomicSet.create(Equivalence.IDENTITY);
+            callNodes.addAll(calls);
+            List<ValueNode> worklist = new ArrayList<>();
+            for (ValueNode alias : aliases) {
+                worklist.add(alias);
+            }
+            while (!worklist.isEmpty()) {
+                ValueNode alias = worklist.remove(worklist.size() - 1);
+                for (Node usage : alias.usages()) {
+                    if (usage instanceof MethodCallTargetNode) {
+                        MethodCallTargetNode callTarget = (MethodCallTargetNode) usage;
+                        if (!callNodes.contains(callTarget.invoke().asNode())) {
+                            return false;
+                        }
+                        for (int i = 1; i < callTarget.arguments().size(); i++) {
+                            if (callTarget.arguments().get(i) == alias) {
+                                return false;
+                            }
+                        }
+                    } else if (usage instanceof FrameState) {
+                        for (Node stateUsage : usage.usages()) {
+                            if (!callNodes.contains(stateUsage)) {
+                                return false;
+                            }
+                        }
+                    } else if (usage instanceof PiNode && ((PiNode) usage).object() == alias) {
+                        if (aliases.add((PiNode) usage)) {
+                            worklist.add((PiNode) usage);
+                        }
+                    } else if (usage instanceof IsNullNode) {
+                        for (Node check : usage.usages()) {
+                            if (!(check instanceof FixedGuardNode) || !body.contains((FixedGuardNode) check) || !((FixedGuardNode) check).isNegated()) {
+                                return false;
+                            }
+                            nullChecks.add((FixedGuardNode) check);
+                        }
+                    } else {
+                        return false;
+                    }
+                }
+            }
+            // The state after toString() is reused for the stores into the result string.
+            for (FrameState state = last().stateAfter(); state != null; state = state.outerFrameState()) {
+                for (ValueNode value : state.values()) {
+                    if (value != null && aliases.contains(value)) {
+                        return false;
+                    }
+                }
+            }
+            return !parts.isEmpty();
+        }
+
+        private InvokeNode last() {
+            return calls.get(calls.size() - 1);
+        }
+
+        void replace(StructuredGraph graph, PhaseContext context) {
+            InvokeNode toString = last();
+            ResolvedJavaType stringType = context.getMetaAccess().lookupJavaType(String.class);
+            ResolvedJavaField valueField = findField(stringType, "value");
+            ResolvedJavaField coderField = findField(stringType, "coder");
+            JavaConstant nullString = context.getConstantReflection().forString("null");
+
+            ValueNode[] values = new ValueNode[parts.size()];
+            ValueNode coder = null;
+            for (int i = 0; i < values.length; i++) {
+                ValueNode part = parts.get(i);
+                if (part.graph() == null) {
+                    part = graph.unique((ConstantNode) part);
+                } else if (!StampTool.isPointerNonNull(part)) {
+                    // append(String) appends "null" for a null argument.
+                    ConstantNode nullConstant = ConstantNode.forConstant(nullString, context.getMetaAccess(), graph);
+                    ValueNode nonNull = graph.unique(new ConditionalNode(graph.unique(new IsNullNode(part)), nullConstant, part));
+                    part = graph.unique(new PiNode(nonNull, StampFactory.objectNonNull(TypeReference.createExactTrusted(stringType))));
+                }
+                values[i] = part;
+                ValueNode partCoder = LoadFieldNode.create(context.getConstantFieldProvider(), context.getConstantReflection(), context.getMetaAccess(), graph.getOptions(),
+                                graph.getAssumptions(), part, coderField, false, false);
+                if (partCoder instanceof FixedWithNextNode) {
+                    graph.addBeforeFixed(toString, graph.add((FixedWithNextNode) partCoder));
+                } else {
+                    partCoder = graph.addOrUniqueWithInputs(partCoder);
+                }
+                coder = coder == null ? partCoder : graph.addOrUniqueWithInputs(OrNode.create(coder, partCoder, NodeView.DEFAULT));
+            }
+
+            ResolvedJavaType byteArrayType = context.getMetaAccess().lookupJavaType(byte[].class);
+            StringConcatNode concat = graph.add(new StringConcatNode(byteArrayType, coder, values));
+            graph.addBeforeFixed(toString, concat);
+            NewInstanceNode result = graph.add(new NewInstanceNode(stringType, true));
+            graph.addBeforeFixed(toString, result);
+            toString.replaceAtUsages(result);
+
+            FrameState stateAfter = toString.stateAfter();
+            toString.setStateAfter(null);
+            graph.addBeforeFixed(toString, graph.add(new StoreFieldNode(result, valueField, concat, stateAfter.duplicate(), false)));
+            graph.addBeforeFixed(toString, graph.add(new StoreFieldNode(result, coderField, coder, stateAfter, false)));
+            graph.addBeforeFixed(toString, graph.add(new FinalFieldBarrierNode(result)));
+
+            // append returns the builder, so all its aliases can be folded into the allocation.
+            for (ValueNode alias : aliases) {
+                if (alias != newBuilder) {
+                    alias.replaceAtUsages(newBuilder);
+                }
+            }
+            for (ValueNode alias : aliases) {
+                if (alias instanceof PiNode) {
+                    GraphUtil.killWithUnusedFloatingInputs(alias);
+                }
+            }
+            for (FixedGuardNode nullCheck : nullChecks) {
+                if (nullCheck.isAlive()) {
+                    LogicNode condition = nullCheck.condition();
+                    graph.removeFixed(nullCheck);
+                    GraphUtil.tryKillUnused(condition);
+                }
+            }
+            for (int i = calls.size() - 1; i >= 0; i--) {
+                InvokeNode call = calls.get(i);
+                CallTargetNode callTarget = call.callTarget();
+                FrameState state = call.stateAfter();
+                graph.removeFixed(call);
+                GraphUtil.killWithUnusedFloatingInputs(callTarget);
+                if (state != null) {
+                    GraphUtil.tryKillUnused(state);
+                }
+            }
+            FrameState stateBefore = newBuilder.stateBefore();
+            graph.removeFixed(newBuilder);
+            if (stateBefore != null) {
+                GraphUtil.tryKillUnused(stateBefore);
+            }
+        }
+
+        private static ResolvedJavaField findField(ResolvedJavaType type, String name) {
+            for (ResolvedJavaField field : type.getInstanceFields(false)) {
+                if (field.getName().equals(name)) {
+                    return field;
+                }
+            }
+            throw new GraalError("field %s not found in %s", name, type.toJavaName());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.replacements.nodes;
+
+import static org.graalvm.compiler.nodeinfo.NodeCycles.CYCLES_UNKNOWN;
+import static org.graalvm.compiler.nodeinfo.NodeSize.SIZE_UNKNOWN;
+
+import org.graalvm.compiler.core.common.type.StampFactory;
+import org.graalvm.compiler.core.common.type.TypeReference;
+import org.graalvm.compiler.graph.NodeClass;
+import org.graalvm.compiler.graph.NodeInputList;
+import org.graalvm.compiler.nodeinfo.NodeInfo;
+import org.graalvm.compiler.nodes.DeoptimizingFixedWithNextNode;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.spi.Lowerable;
+import org.graalvm.compiler.nodes.spi.LoweringTool;
+
+import jdk.vm.ci.meta.ResolvedJavaType;
+
+/**
+ * Computes the contents of the concatenation of a list of strings. The node produces the
+ * {@code byte[]} backing the result string of a fused {@link StringBuilder} chain: the final
+ * length is computed up front, the array is allocated once and the contents of each part are
+ * copied, or inflated from Latin1 to UTF16, directly into it.
+ *
+ * The parts must not be null and {@link #coder()} must be the bitwise or of the coders of all
+ * parts. Since JDK 9.
+ */
+@NodeInfo(cycles = CYCLES_UNKNOWN, size = SIZE_UNKNOWN)
+public final class StringConcatNode extends DeoptimizingFixedWithNextNode implements Lowerable {
+
+    public static final NodeClass<StringConcatNode> TYPE = NodeClass.create(StringConcatNode.class);
+
+    @Input ValueNode coder;
+    @Input NodeInputList<ValueNode> values;
+
+    public StringConcatNode(ResolvedJavaType byteArrayType, ValueNode coder, ValueNode[] values) {
+        super(TYPE, StampFactory.objectNonNull(TypeReference.createExactTrusted(byteArrayType)));
+        assert values.length > 0;
+        this.coder = coder;
+        this.values = new NodeInputList<>(this, values);
+    }
+
+    /**
+     * The coder of the result, {@code 0} for Latin1 and {@code 1} for UTF16.
+     */
+    public ValueNode coder() {
+        return coder;
+    }
+
+    public NodeInputList<ValueNode> values() {
+        return values;
+    }
+
+    @Override
+    public boolean canDeoptimize() {
+        return true;
+    }
+
+    @Override
+    public void lower(LoweringTool tool) {
+        tool.getLowerer().lower(this, tool);
+    }
+}
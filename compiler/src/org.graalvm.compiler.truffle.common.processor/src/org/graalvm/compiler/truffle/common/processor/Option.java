@@ -97,6 +97,24 @@ public class Option {
             .def("3")
             .help("Delay compilation after a node replacement"),
 
+        option("TruffleInvalidationBackoffThreshold")
+            .type("Integer")
+            .category("EXPERT")
+            .def("4")
+            .help("Number of invalidations of a call target after which the reprofiling delay doubles with each further invalidation"),
+
+        option("TruffleSpeculationBackoffThreshold")
+            .type("Integer")
+            .category("EXPERT")
+            .def("10")
+            .help("Number of invalidations of a call target after which argument and return type speculation is disabled for it"),
+
+        option("TruffleMaximumRecompilations")
+            .type("Integer")
+            .category("EXPERT")
+            .def("0")
+            .help("Number of invalidations of a call target after which it is no longer compiled (0 disables the limit)"),
+
         option("TruffleFunctionInlining")
             .type("Boolean")
             .category("DEBUG")
@@ -310,6 +328,24 @@ public class Option {
             .def("false")
             .help("Print additional more verbose Truffle compilation statistics at the end of a run."),
 
+        option("TruffleCompilationTelemetryFile")
+            .type("String")
+            .category("DEBUG")
+            .def("null")
+            .help("Write a JSON record for each compilation, invalidation and dequeue event to this file, one record per line."),
+
+        option("TruffleCompilationTelemetryFileSize")
+            .type("Integer")
+            .category("DEBUG")
+            .def("64")
+            .help("Size in megabytes after which the compilation telemetry file is rotated (0 means unlimited)."),
+
+        option("TruffleCompilationTelemetryFileCount")
+            .type("Integer")
+            .category("DEBUG")
+            .def("5")
+            .help("Number of compilation telemetry files kept when rotating, including the current one."),
+
         option("TruffleProfilingEnabled")
             .type("Boolean")
             .category("DEBUG")
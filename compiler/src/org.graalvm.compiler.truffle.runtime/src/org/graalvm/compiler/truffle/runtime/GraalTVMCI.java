@@ -144,8 +144,26 @@ final class GraalTVMCI extends TVMCI {
      * per engine.
      */
     static class EngineData {
+        /**
+         * Maximum number of AST nodes that may be created by splitting, grows with the size of the
+         * ASTs created in the engine.
+         */
         int splitLimit;
+        /**
+         * Number of AST nodes created by splitting.
+         */
         int splitCount;
+        /**
+         * Number of splits, broken down by what triggered them.
+         */
+        int regularSplits;
+        int forcedSplits;
+        int polymorphicSplits;
+        /**
+         * Number of splits that were refused because they would have exceeded
+         * {@link #splitLimit}.
+         */
+        int splitsOverBudget;
     }
 
     private static final Supplier<EngineData> engineDataConstructor = new Supplier<EngineData>() {
@@ -58,6 +58,7 @@ import org.graalvm.compiler.truffle.common.TruffleCompiler;
 import org.graalvm.compiler.truffle.common.TruffleCompilerRuntime;
 import org.graalvm.compiler.truffle.common.TruffleDebugContext;
 import org.graalvm.compiler.truffle.common.TruffleDebugJavaMethod;
+import org.graalvm.compiler.truffle.runtime.debug.CompilationTelemetryListener;
 import org.graalvm.compiler.truffle.runtime.debug.StatisticsListener;
 import org.graalvm.compiler.truffle.runtime.debug.TraceASTCompilationListener;
 import org.graalvm.compiler.truffle.runtime.debug.TraceCallTreeListener;
@@ -397,6 +398,7 @@ public abstract class GraalTruffleRuntime implements TruffleRuntime, TruffleComp
         TraceSplittingListener.install(this);
         StatisticsListener.install(this);
         TraceASTCompilationListener.install(this);
+        CompilationTelemetryListener.install(this);
         installShutdownHooks();
     }
 
@@ -498,6 +500,11 @@ public abstract class GraalTruffleRuntime implements TruffleRuntime, TruffleComp
         return new OptimizedAssumption(name);
     }
 
+    @Override
+    public void invalidateAssumptions(Iterable<? extends Assumption> assumptions, String message) {
+        OptimizedAssumption.invalidateAll(assumptions, message);
+    }
+
     public GraalTruffleRuntimeListener getListener() {
         return listeners;
     }
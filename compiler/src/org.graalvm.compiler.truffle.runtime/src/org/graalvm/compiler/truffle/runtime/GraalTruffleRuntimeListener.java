@@ -160,6 +160,23 @@ public interface GraalTruffleRuntimeListener {
     default void onCompilationDeoptimized(OptimizedCallTarget target, Frame frame) {
     }
 
+    /**
+     * Notifies this object when {@code target} has been invalidated so often that its
+     * recompilation is being backed off.
+     *
+     * @param target the call target that keeps being invalidated and recompiled
+     * @param invalidationCount the number of times the compiled code of {@code target} has been
+     *            invalidated so far
+     * @param reason a textual description of the reason for the most recent invalidation. May be
+     *            {@code null}.
+     * @param speculationDisabled specifies if argument and return type speculation is now disabled
+     *            for {@code target}
+     * @param compilationDisabled specifies if {@code target} will no longer be compiled and keeps
+     *            executing in the Truffle interpreter
+     */
+    default void onCompilationDeoptimizationLoop(OptimizedCallTarget target, int invalidationCount, CharSequence reason, boolean speculationDisabled, boolean compilationDisabled) {
+    }
+
     /**
      * Notifies this object the {@link GraalTruffleRuntime} is being shut down.
      */
@@ -117,6 +117,13 @@ final class GraalTruffleRuntimeListenerDispatcher extends ArrayList<GraalTruffle
         }
     }
 
+    @Override
+    public void onCompilationDeoptimizationLoop(OptimizedCallTarget target, int invalidationCount, CharSequence reason, boolean speculationDisabled, boolean compilationDisabled) {
+        for (GraalTruffleRuntimeListener l : this) {
+            l.onCompilationDeoptimizationLoop(target, invalidationCount, reason, speculationDisabled, compilationDisabled);
+        }
+    }
+
     @Override
     public void onShutdown() {
         for (GraalTruffleRuntimeListener l : this) {
@@ -27,10 +27,15 @@ package org.graalvm.compiler.truffle.runtime;
 import static org.graalvm.compiler.truffle.runtime.SharedTruffleRuntimeOptions.TraceTruffleAssumptions;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
 
+import org.graalvm.collections.EconomicSet;
+import org.graalvm.collections.Equivalence;
 import org.graalvm.compiler.truffle.common.OptimizedAssumptionDependency;
 
+import com.oracle.truffle.api.Assumption;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.impl.AbstractAssumption;
@@ -162,19 +167,30 @@ public final class OptimizedAssumption extends AbstractAssumption implements For
             return;
         }
 
+        boolean invalidatedADependency = invalidateDependencies(message, null);
+
+        if (TruffleRuntimeOptions.getValue(TraceTruffleAssumptions)) {
+            if (invalidatedADependency) {
+                logStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Invalidates all registered dependencies that are not in {@code invalidated} and marks this
+     * assumption as invalid. Must be called while holding the lock of this assumption.
+     *
+     * @param invalidated the dependencies already invalidated as part of a batch, or {@code null}
+     * @return whether a dependency was invalidated
+     */
+    private boolean invalidateDependencies(String message, EconomicSet<OptimizedAssumptionDependency> invalidated) {
         boolean invalidatedADependency = false;
         Entry e = dependencies;
         while (e != null) {
             OptimizedAssumptionDependency dependency = e.awaitDependency();
-            if (dependency != null) {
-                OptimizedCallTarget callTarget = invalidateWithReason(dependency, "assumption invalidated");
+            if (dependency != null && (invalidated == null || invalidated.add(dependency))) {
+                invalidateDependency(dependency, message);
                 invalidatedADependency = true;
-                if (TruffleRuntimeOptions.getValue(TraceTruffleAssumptions)) {
-                    logInvalidatedDependency(dependency, message);
-                }
-                if (callTarget != null) {
-                    callTarget.getCompilationProfile().reportInvalidated();
-                }
             }
             e = e.next;
         }
@@ -182,6 +198,71 @@ public final class OptimizedAssumption extends AbstractAssumption implements For
         size = 0;
         sizeAfterLastRemove = 0;
         isValid = false;
+        return invalidatedADependency;
+    }
+
+    private void invalidateDependency(OptimizedAssumptionDependency dependency, String message) {
+        boolean wasValid = dependency.isValid();
+        OptimizedCallTarget callTarget = invalidateWithReason(dependency, "assumption invalidated");
+        if (TruffleRuntimeOptions.getValue(TraceTruffleAssumptions)) {
+            logInvalidatedDependency(dependency, message);
+        }
+        // Code that was already invalid must not count as another invalidation.
+        if (callTarget != null && wasValid) {
+            callTarget.getCompilationProfile().reportInvalidated(callTarget);
+        }
+    }
+
+    /**
+     * Invalidates {@code assumptions} as one batch. The code depending on any of the assumptions is
+     * collected first and each piece of code is invalidated only once, no matter on how many of the
+     * assumptions it depends. Only then are the assumptions marked as invalid. Code registered
+     * while the batch is in progress is invalidated when the assumption is marked as invalid.
+     *
+     * @see com.oracle.truffle.api.TruffleRuntime#invalidateAssumptions(Iterable, String)
+     */
+    @TruffleBoundary
+    static void invalidateAll(Iterable<? extends Assumption> assumptions, String message) {
+        List<OptimizedAssumption> batch = new ArrayList<>();
+        for (Assumption assumption : assumptions) {
+            if (assumption instanceof OptimizedAssumption) {
+                if (assumption.isValid()) {
+                    batch.add((OptimizedAssumption) assumption);
+                }
+            } else {
+                assumption.invalidate(message);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        EconomicSet<OptimizedAssumptionDependency> invalidated = EconomicSet.create(Equivalence.IDENTITY);
+        List<OptimizedAssumptionDependency> collected = new ArrayList<>();
+        List<OptimizedAssumption> collectedFrom = new ArrayList<>();
+        for (OptimizedAssumption assumption : batch) {
+            synchronized (assumption) {
+                for (Entry e = assumption.dependencies; e != null; e = e.next) {
+                    OptimizedAssumptionDependency dependency = e.awaitDependency();
+                    if (dependency != null && invalidated.add(dependency)) {
+                        collected.add(dependency);
+                        collectedFrom.add(assumption);
+                    }
+                }
+            }
+        }
+
+        boolean invalidatedADependency = !collected.isEmpty();
+        for (int i = 0; i < collected.size(); i++) {
+            collectedFrom.get(i).invalidateDependency(collected.get(i), message);
+        }
+        for (OptimizedAssumption assumption : batch) {
+            synchronized (assumption) {
+                if (assumption.isValid) {
+                    invalidatedADependency |= assumption.invalidateDependencies(message, invalidated);
+                }
+            }
+        }
 
         if (TruffleRuntimeOptions.getValue(TraceTruffleAssumptions)) {
             if (invalidatedADependency) {
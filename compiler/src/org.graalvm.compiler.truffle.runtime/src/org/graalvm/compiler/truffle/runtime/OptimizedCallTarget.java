@@ -121,6 +121,10 @@ public abstract class OptimizedCallTarget implements CompilableTruffleAST, RootC
 
     private final List<WeakReference<OptimizedDirectCallNode>> knownCallNodes;
     private boolean needsSplit;
+    /**
+     * Number of polymorphic specializations reported by nodes of this call target.
+     */
+    private int polymorphicSpecializeCount;
     private static final String SPLIT_LOG_FORMAT = "[truffle] [poly-event] %-70s %s";
 
     public OptimizedCallTarget(OptimizedCallTarget sourceCallTarget, RootNode rootNode) {
@@ -404,6 +408,10 @@ public abstract class OptimizedCallTarget implements CompilableTruffleAST, RootC
         cachedNonTrivialNodeCount = -1;
         if (isValid()) {
             invalidateCode();
+            OptimizedCompilationProfile profile = compilationProfile;
+            if (profile != null) {
+                profile.reportInvalidationReason(reason);
+            }
             runtime().getListener().onCompilationInvalidated(this, source, reason);
         }
         runtime().cancelInstalledTask(this, source, reason);
@@ -581,7 +589,7 @@ public abstract class OptimizedCallTarget implements CompilableTruffleAST, RootC
         if (profile != null) {
             profile.reportNodeReplaced();
             if (cancelInstalledTask(newNode, reason)) {
-                profile.reportInvalidated();
+                profile.reportInvalidated(this);
             }
         }
         return false;
@@ -724,8 +732,13 @@ public abstract class OptimizedCallTarget implements CompilableTruffleAST, RootC
         return needsSplit;
     }
 
+    int getPolymorphicSpecializeCount() {
+        return polymorphicSpecializeCount;
+    }
+
     void polymorphicSpecialize(Node source) {
         assert RuntimeOptionsCache.isExperimentalSplitting();
+        polymorphicSpecializeCount++;
         List<Node> toDump = null;
         if (RuntimeOptionsCache.isExperimentalSplittingDumpDecisions()) {
             toDump = new ArrayList<>();
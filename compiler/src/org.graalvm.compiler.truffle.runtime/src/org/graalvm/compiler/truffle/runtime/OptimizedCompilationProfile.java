@@ -25,6 +25,7 @@
 package org.graalvm.compiler.truffle.runtime;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,11 +41,20 @@ import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.nodes.ExplodeLoop;
 
 public final class OptimizedCompilationProfile {
+    private static final int MAX_BACKOFF_SHIFT = 16;
+    private static final int MAX_INVALIDATION_REASONS = 16;
+
     /**
      * Number of times an installed code for this tree was seen invalidated.
      */
     private int invalidationCount;
 
+    /**
+     * Number of invalidations per reason. Only accessed while holding the lock of this profile.
+     */
+    private Map<String, Integer> invalidationReasons;
+    private CharSequence lastInvalidationReason;
+
     private int callCount;
     private int callAndLoopCount;
     private int lastTierCompilationCallAndLoopThreshold;
@@ -74,7 +84,12 @@ public final class OptimizedCompilationProfile {
     @CompilationFinal private Class<?> exceptionType;
 
     private volatile boolean compilationFailed;
+    /**
+     * Set once the call target was invalidated too often and keeps executing in the interpreter.
+     */
+    private volatile boolean permanentlyInterpreted;
     @CompilationFinal private boolean callProfiled;
+    private volatile boolean speculationDisabled;
 
     public OptimizedCompilationProfile(OptionValues options) {
         boolean compileImmediately = TruffleRuntimeOptions.getValue(SharedTruffleRuntimeOptions.TruffleCompileImmediately);
@@ -282,10 +297,61 @@ public final class OptimizedCompilationProfile {
         callAndLoopCount += count;
     }
 
-    void reportInvalidated() {
-        invalidationCount++;
+    void reportInvalidated(OptimizedCallTarget callTarget) {
+        int count = ++invalidationCount;
         int reprofile = TruffleRuntimeOptions.getValue(SharedTruffleRuntimeOptions.TruffleInvalidationReprofileCount);
-        ensureProfiling(reprofile, reprofile);
+        int backoffThreshold = TruffleRuntimeOptions.getValue(SharedTruffleRuntimeOptions.TruffleInvalidationBackoffThreshold);
+        if (count <= backoffThreshold) {
+            ensureProfiling(reprofile, reprofile);
+            return;
+        }
+        /*
+         * The call target keeps getting invalidated and recompiled. Back off exponentially to avoid
+         * burning compiler threads, then stop speculating on profiles and finally stop compiling it
+         * at all.
+         */
+        int backoff = reprofile << Math.min(count - backoffThreshold, MAX_BACKOFF_SHIFT);
+        ensureProfiling(backoff, backoff);
+        if (!speculationDisabled && count >= TruffleRuntimeOptions.getValue(SharedTruffleRuntimeOptions.TruffleSpeculationBackoffThreshold)) {
+            disableSpeculation();
+        }
+        int maximumRecompilations = TruffleRuntimeOptions.getValue(SharedTruffleRuntimeOptions.TruffleMaximumRecompilations);
+        if (maximumRecompilations > 0 && count >= maximumRecompilations) {
+            permanentlyInterpreted = true;
+        }
+        OptimizedCallTarget.runtime().getListener().onCompilationDeoptimizationLoop(callTarget, count, lastInvalidationReason, speculationDisabled, permanentlyInterpreted);
+    }
+
+    synchronized void reportInvalidationReason(CharSequence reason) {
+        String key = reason == null ? "unknown" : reason.toString();
+        if (invalidationReasons == null) {
+            invalidationReasons = new LinkedHashMap<>();
+        }
+        if (!invalidationReasons.containsKey(key) && invalidationReasons.size() >= MAX_INVALIDATION_REASONS) {
+            key = "other";
+        }
+        invalidationReasons.merge(key, 1, Integer::sum);
+        lastInvalidationReason = reason;
+    }
+
+    /**
+     * Permanently disables argument and return type speculation. The assumptions are invalidated
+     * before the profiles are cleared, see the comment on {@link #profiledArgumentTypes}.
+     */
+    private void disableSpeculation() {
+        speculationDisabled = true;
+        if (profiledArgumentTypesAssumption == null) {
+            profiledArgumentTypesAssumption = createInvalidAssumption("Profiled Argument Types");
+        } else {
+            profiledArgumentTypesAssumption.invalidate();
+        }
+        profiledArgumentTypes = null;
+        if (profiledReturnTypeAssumption == null) {
+            profiledReturnTypeAssumption = createInvalidAssumption("Profiled Return Type");
+        } else {
+            profiledReturnTypeAssumption.invalidate();
+        }
+        profiledReturnType = null;
     }
 
     void reportNodeReplaced() {
@@ -302,7 +368,7 @@ public final class OptimizedCompilationProfile {
     boolean firstTierCall(OptimizedCallTarget callTarget) {
         // The increment and the check must be inlined into the compilation unit.
         int totalCallCount = ++callCount;
-        if (totalCallCount >= lastTierCompilationCallAndLoopThreshold && !callTarget.isCompiling() && !compilationFailed) {
+        if (totalCallCount >= lastTierCompilationCallAndLoopThreshold && !callTarget.isCompiling() && !compilationFailed && !permanentlyInterpreted) {
             return firstTierCompile(callTarget);
         }
         return false;
@@ -312,7 +378,7 @@ public final class OptimizedCompilationProfile {
     boolean interpreterCall(OptimizedCallTarget callTarget) {
         int intCallCount = ++callCount;
         int intAndLoopCallCount = ++callAndLoopCount;
-        if (!callTarget.isCompiling() && !compilationFailed) {
+        if (!callTarget.isCompiling() && !compilationFailed && !permanentlyInterpreted) {
             // Check if call target is hot enough to compile, but took not too long to get hot.
             int callThreshold = compilationCallThreshold; // 0 if TruffleCompileImmediately
             int callAndLoopThreshold = compilationCallAndLoopThreshold;
@@ -406,6 +472,31 @@ public final class OptimizedCompilationProfile {
         return invalidationCount;
     }
 
+    /**
+     * Gets the number of invalidations of this profile's call target grouped by reason.
+     */
+    public synchronized Map<String, Integer> getInvalidationReasons() {
+        if (invalidationReasons == null) {
+            return Collections.emptyMap();
+        }
+        return new LinkedHashMap<>(invalidationReasons);
+    }
+
+    /**
+     * Determines if argument and return type speculation was disabled because the call target was
+     * invalidated too often.
+     */
+    public boolean isSpeculationDisabled() {
+        return speculationDisabled;
+    }
+
+    /**
+     * Determines if the call target is no longer compiled because it was invalidated too often.
+     */
+    public boolean isPermanentlyInterpreted() {
+        return permanentlyInterpreted;
+    }
+
     public int getCallAndLoopCount() {
         return callAndLoopCount;
     }
@@ -46,6 +46,7 @@ final class TruffleSplittingStrategy {
     private static SplitStatisticsReporter reporter = new SplitStatisticsReporter();
     private static final int RECURSIVE_SPLIT_DEPTH = 2;
     private static final int EXPERIMENTAL_RECURSIVE_SPLIT_DEPTH = 3;
+    private static final int MAX_POLYMORPHIC_CALLEE_SIZE_FACTOR = 4;
 
     static void beforeCall(OptimizedDirectCallNode call, GraalTVMCI tvmci) {
         if (RuntimeOptionsCache.isTraceSplittingSummary()) {
@@ -59,6 +60,7 @@ final class TruffleSplittingStrategy {
             if (shouldSplitDueToPolymorphicSpecializations(call, tvmci)) {
                 final GraalTVMCI.EngineData engineData = tvmci.getEngineData(call.getRootNode());
                 engineData.splitCount += call.getCallTarget().getUninitializedNodeCount();
+                engineData.polymorphicSplits++;
                 doSplit(call);
             }
             return;
@@ -67,6 +69,7 @@ final class TruffleSplittingStrategy {
             final GraalTVMCI.EngineData engineData = getEngineData(call, tvmci);
             if (shouldSplit(call, engineData)) {
                 engineData.splitCount += call.getCurrentCallTarget().getUninitializedNodeCount();
+                engineData.regularSplits++;
                 doSplit(call);
             }
         }
@@ -93,11 +96,28 @@ final class TruffleSplittingStrategy {
         if (!callTarget.isNeedsSplit()) {
             return false;
         }
-        final GraalTVMCI.EngineData engineData = getEngineData(call, tvmci);
-        if (!canSplit(call) || isRecursiveSplit(call, EXPERIMENTAL_RECURSIVE_SPLIT_DEPTH) || engineData.splitCount + call.getCallTarget().getUninitializedNodeCount() >= engineData.splitLimit) {
+        if (!canSplit(call) || isRecursiveSplit(call, EXPERIMENTAL_RECURSIVE_SPLIT_DEPTH)) {
             return false;
         }
-        if (callTarget.getUninitializedNodeCount() > RuntimeOptionsCache.getSplittingMaxCalleeSize()) {
+        if (callTarget.getUninitializedNodeCount() > maxPolymorphicCalleeSize(call.getCallTarget())) {
+            return false;
+        }
+        return isWithinBudget(getEngineData(call, tvmci), call.getCallTarget());
+    }
+
+    /**
+     * Callees that repeatedly report polymorphic specializations are typically megamorphic helpers
+     * that profit most from splitting, so they may exceed the regular callee size limit. The
+     * engine-wide budget still bounds the total number of nodes created by splitting.
+     */
+    private static int maxPolymorphicCalleeSize(OptimizedCallTarget callTarget) {
+        int factor = Math.min(Math.max(1, callTarget.getPolymorphicSpecializeCount()), MAX_POLYMORPHIC_CALLEE_SIZE_FACTOR);
+        return RuntimeOptionsCache.getSplittingMaxCalleeSize() * factor;
+    }
+
+    private static boolean isWithinBudget(GraalTVMCI.EngineData engineData, OptimizedCallTarget callTarget) {
+        if (engineData.splitCount + callTarget.getUninitializedNodeCount() > engineData.splitLimit) {
+            engineData.splitsOverBudget++;
             return false;
         }
         return true;
@@ -110,6 +130,7 @@ final class TruffleSplittingStrategy {
             }
             final GraalTVMCI.EngineData engineData = getEngineData(call, tvmci);
             engineData.splitCount += call.getCurrentCallTarget().getUninitializedNodeCount();
+            engineData.forcedSplits++;
             doSplit(call);
             if (RuntimeOptionsCache.isTraceSplittingSummary()) {
                 reporter.forcedSplitCount++;
@@ -137,9 +158,6 @@ final class TruffleSplittingStrategy {
             return false;
         }
 
-        if (engineData.splitCount + call.getCurrentCallTarget().getUninitializedNodeCount() > engineData.splitLimit) {
-            return false;
-        }
         if (!canSplit(call)) {
             return false;
         }
@@ -167,10 +185,10 @@ final class TruffleSplittingStrategy {
         }
 
         // max one child call and callCount > 2 and kind of small number of nodes
-        if (isMaxSingleCall(call)) {
-            return true;
+        if (!isMaxSingleCall(call) && countPolymorphic(call) == 0) {
+            return false;
         }
-        return countPolymorphic(call) >= 1;
+        return isWithinBudget(engineData, call.getCurrentCallTarget());
     }
 
     private static boolean isRecursiveSplit(OptimizedDirectCallNode call, int allowedDepth) {
@@ -295,6 +313,11 @@ final class TruffleSplittingStrategy {
             for (GraalTVMCI.EngineData engineData : engineDataSet) {
                 rt.log(String.format(D_FORMAT, "Split count", engineData.splitCount));
                 rt.log(String.format(D_FORMAT, "Split limit", engineData.splitLimit));
+                rt.log(String.format(P_FORMAT, "Split budget used", (engineData.splitCount * 100.0) / engineData.splitLimit));
+                rt.log(String.format(D_FORMAT, "Regular splits", engineData.regularSplits));
+                rt.log(String.format(D_FORMAT, "Forced splits", engineData.forcedSplits));
+                rt.log(String.format(D_FORMAT, "Polymorphism driven splits", engineData.polymorphicSplits));
+                rt.log(String.format(D_FORMAT, "Splits refused over budget", engineData.splitsOverBudget));
             }
             rt.log(String.format(D_FORMAT, "Splits", splitCount));
             rt.log(String.format(D_FORMAT, "Forced splits", forcedSplitCount));
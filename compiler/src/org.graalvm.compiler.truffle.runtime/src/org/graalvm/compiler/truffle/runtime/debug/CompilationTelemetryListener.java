@@ -0,0 +1,421 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.truffle.runtime.debug;
+
+import static org.graalvm.compiler.truffle.runtime.SharedTruffleRuntimeOptions.TruffleCompilationTelemetryFile;
+import static org.graalvm.compiler.truffle.runtime.SharedTruffleRuntimeOptions.TruffleCompilationTelemetryFileCount;
+import static org.graalvm.compiler.truffle.runtime.SharedTruffleRuntimeOptions.TruffleCompilationTelemetryFileSize;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.graalvm.compiler.truffle.common.TruffleCompilerListener.CompilationResultInfo;
+import org.graalvm.compiler.truffle.common.TruffleCompilerListener.GraphInfo;
+import org.graalvm.compiler.truffle.runtime.AbstractGraalTruffleRuntimeListener;
+import org.graalvm.compiler.truffle.runtime.GraalTruffleRuntime;
+import org.graalvm.compiler.truffle.runtime.OptimizedCallTarget;
+import org.graalvm.compiler.truffle.runtime.TruffleInlining;
+import org.graalvm.compiler.truffle.runtime.TruffleInliningDecision;
+import org.graalvm.compiler.truffle.runtime.TruffleRuntimeOptions;
+
+/**
+ * Writes one JSON record per line for each compilation, dequeue, invalidation and deoptimization
+ * loop event to a file that is rotated once it exceeds a size limit. The records are meant to be
+ * processed by tools rather than read by humans. The listener is only installed if
+ * {@code TruffleCompilationTelemetryFile} is set, so it has no overhead otherwise.
+ */
+public final class CompilationTelemetryListener extends AbstractGraalTruffleRuntimeListener {
+
+    private final RotatingFileWriter writer;
+
+    /**
+     * Time at which a call target was queued for compilation, removed when the compilation starts.
+     */
+    private final Map<OptimizedCallTarget, Long> queueTimes = new WeakHashMap<>();
+
+    /**
+     * Identifier of the most recent successful compilation of a call target, used to relate a
+     * later invalidation to the compilation that produced the invalidated code.
+     */
+    private final Map<OptimizedCallTarget, Long> lastCompilation = new WeakHashMap<>();
+
+    private final ThreadLocal<Times> currentCompilation = new ThreadLocal<>();
+
+    private long compilationCounter;
+
+    private CompilationTelemetryListener(GraalTruffleRuntime runtime, RotatingFileWriter writer) {
+        super(runtime);
+        this.writer = writer;
+    }
+
+    public static void install(GraalTruffleRuntime runtime) {
+        String fileName = TruffleRuntimeOptions.getValue(TruffleCompilationTelemetryFile);
+        if (fileName != null) {
+            long sizeLimit = TruffleRuntimeOptions.getValue(TruffleCompilationTelemetryFileSize) * 1024L * 1024L;
+            int fileCount = TruffleRuntimeOptions.getValue(TruffleCompilationTelemetryFileCount);
+            runtime.addListener(new CompilationTelemetryListener(runtime, new RotatingFileWriter(new File(fileName), sizeLimit, fileCount)));
+        }
+    }
+
+    @Override
+    public synchronized void onCompilationQueued(OptimizedCallTarget target) {
+        queueTimes.put(target, System.nanoTime());
+    }
+
+    @Override
+    public void onCompilationDequeued(OptimizedCallTarget target, Object source, CharSequence reason) {
+        synchronized (this) {
+            queueTimes.remove(target);
+        }
+        JSONRecord record = new JSONRecord("dequeued");
+        record.put("target", target.toString());
+        record.put("reason", reason);
+        write(record);
+    }
+
+    @Override
+    public void onCompilationStarted(OptimizedCallTarget target) {
+        Times times = new Times();
+        synchronized (this) {
+            times.id = ++compilationCounter;
+            Long queued = queueTimes.remove(target);
+            times.queued = queued != null ? queued : times.compilationStarted;
+        }
+        currentCompilation.set(times);
+    }
+
+    @Override
+    public void onCompilationTruffleTierFinished(OptimizedCallTarget target, TruffleInlining inliningDecision, GraphInfo graph) {
+        Times times = currentCompilation.get();
+        if (times != null) {
+            times.truffleTierFinished = System.nanoTime();
+            times.truffleTierNodeCount = graph.getNodeCount();
+        }
+    }
+
+    @Override
+    public void onCompilationGraalTierFinished(OptimizedCallTarget target, GraphInfo graph) {
+        Times times = currentCompilation.get();
+        if (times != null) {
+            times.graalTierFinished = System.nanoTime();
+            times.graalTierNodeCount = graph.getNodeCount();
+        }
+    }
+
+    @Override
+    public void onCompilationSuccess(OptimizedCallTarget target, TruffleInlining inliningDecision, GraphInfo graph, CompilationResultInfo result) {
+        long compilationDone = System.nanoTime();
+        Times times = currentCompilation.get();
+        currentCompilation.set(null);
+        JSONRecord record = new JSONRecord("compilation");
+        if (times != null) {
+            synchronized (this) {
+                lastCompilation.put(target, times.id);
+            }
+            record.put("id", times.id);
+        }
+        record.put("target", target.toString());
+        record.put("result", "success");
+        if (times != null) {
+            record.put("queueWaitNs", times.compilationStarted - times.queued);
+            record.put("truffleTierNs", times.truffleTierFinished - times.compilationStarted);
+            record.put("graalTierNs", times.graalTierFinished - times.truffleTierFinished);
+            record.put("installNs", compilationDone - times.graalTierFinished);
+        }
+        record.put("astNodes", target.getNonTrivialNodeCount());
+        if (times != null) {
+            record.put("truffleTierNodes", times.truffleTierNodeCount);
+            record.put("graalTierNodes", times.graalTierNodeCount);
+        }
+        if (inliningDecision != null) {
+            record.put("inlinedCalls", inliningDecision.countInlinedCalls());
+            record.put("dispatchedCalls", inliningDecision.countCalls() - inliningDecision.countInlinedCalls());
+            record.putRaw("inlining", inliningDecisions(inliningDecision));
+        }
+        record.put("codeSize", result.getTargetCodeSize());
+        record.put("frameSize", result.getTotalFrameSize());
+        write(record);
+    }
+
+    @Override
+    public void onCompilationFailed(OptimizedCallTarget target, String reason, boolean bailout, boolean permanentBailout) {
+        Times times = currentCompilation.get();
+        currentCompilation.set(null);
+        JSONRecord record = new JSONRecord("compilation");
+        if (times != null) {
+            record.put("id", times.id);
+            record.put("queueWaitNs", times.compilationStarted - times.queued);
+            record.put("compilationNs", System.nanoTime() - times.compilationStarted);
+        }
+        record.put("target", target.toString());
+        record.put("result", bailout ? "bailout" : "failure");
+        record.put("permanent", !bailout || permanentBailout);
+        record.put("reason", reason);
+        write(record);
+    }
+
+    @Override
+    public void onCompilationInvalidated(OptimizedCallTarget target, Object source, CharSequence reason) {
+        Long id;
+        synchronized (this) {
+            id = lastCompilation.remove(target);
+        }
+        JSONRecord record = new JSONRecord("invalidation");
+        if (id != null) {
+            record.put("id", id);
+        }
+        record.put("target", target.toString());
+        record.put("source", source != null ? source.getClass().getSimpleName() : null);
+        record.put("reason", reason);
+        write(record);
+    }
+
+    @Override
+    public void onCompilationDeoptimizationLoop(OptimizedCallTarget target, int invalidationCount, CharSequence reason, boolean speculationDisabled, boolean compilationDisabled) {
+        JSONRecord record = new JSONRecord("deoptimizationLoop");
+        record.put("target", target.toString());
+        record.put("invalidations", invalidationCount);
+        record.put("reason", reason);
+        record.put("speculationDisabled", speculationDisabled);
+        record.put("compilationDisabled", compilationDisabled);
+        write(record);
+    }
+
+    @Override
+    public void onShutdown() {
+        writer.close();
+    }
+
+    private void write(JSONRecord record) {
+        if (!writer.write(record.finish())) {
+            runtime.log("[truffle] compilation telemetry disabled: cannot write to " + writer.file);
+        }
+    }
+
+    private static String inliningDecisions(Iterable<TruffleInliningDecision> decisions) {
+        StringBuilder sb = new StringBuilder("[");
+        String sep = "";
+        for (TruffleInliningDecision decision : decisions) {
+            sb.append(sep).append("{\"target\":");
+            JSONRecord.quote(sb, decision.getProfile().getCallNode().getCurrentCallTarget().toString());
+            sb.append(",\"inlined\":").append(decision.shouldInline());
+            if (decision.shouldInline()) {
+                sb.append(",\"callees\":").append(inliningDecisions(decision));
+            } else {
+                sb.append(",\"reason\":");
+                JSONRecord.quote(sb, decision.getProfile().getFailedReason());
+            }
+            sb.append('}');
+            sep = ",";
+        }
+        return sb.append(']').toString();
+    }
+
+    private static final class Times {
+        final long compilationStarted = System.nanoTime();
+        long id;
+        long queued;
+        long truffleTierFinished;
+        long graalTierFinished;
+        int truffleTierNodeCount;
+        int graalTierNodeCount;
+    }
+
+    /**
+     * A single-line JSON object under construction. Strings are escaped as required by RFC 8259.
+     * Other non-ASCII characters are kept and encoded as UTF-8 by the {@link RotatingFileWriter},
+     * except for unpaired surrogates, which cannot be encoded and are escaped instead.
+     */
+    public static final class JSONRecord {
+        private final StringBuilder sb = new StringBuilder(256);
+
+        public JSONRecord(String event) {
+            sb.append("{\"event\":");
+            quote(sb, event);
+            sb.append(",\"timestamp\":").append(System.currentTimeMillis());
+        }
+
+        public void put(String key, Object value) {
+            sb.append(",\"").append(key).append("\":");
+            if (value == null) {
+                sb.append("null");
+            } else if (value instanceof Number || value instanceof Boolean) {
+                sb.append(value);
+            } else {
+                quote(sb, value.toString());
+            }
+        }
+
+        public void putRaw(String key, String json) {
+            sb.append(",\"").append(key).append("\":").append(json);
+        }
+
+        public String finish() {
+            return sb.append('}').toString();
+        }
+
+        public static void quote(StringBuilder sb, String value) {
+            if (value == null) {
+                sb.append("null");
+                return;
+            }
+            sb.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        sb.append("\\\"");
+                        break;
+                    case '\\':
+                        sb.append("\\\\");
+                        break;
+                    case '\n':
+                        sb.append("\\n");
+                        break;
+                    case '\r':
+                        sb.append("\\r");
+                        break;
+                    case '\t':
+                        sb.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20 || (Character.isSurrogate(c) && !isSurrogatePair(value, i))) {
+                            sb.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            sb.append(c);
+                        }
+                }
+            }
+            sb.append('"');
+        }
+
+        /**
+         * Determines if the surrogate at {@code index} is part of a surrogate pair.
+         */
+        private static boolean isSurrogatePair(String value, int index) {
+            char c = value.charAt(index);
+            if (Character.isHighSurrogate(c)) {
+                return index + 1 < value.length() && Character.isLowSurrogate(value.charAt(index + 1));
+            }
+            return index > 0 && Character.isHighSurrogate(value.charAt(index - 1));
+        }
+    }
+
+    /**
+     * Appends UTF-8 encoded lines to {@link #file}. Once the file exceeds {@link #sizeLimit} bytes
+     * it is renamed to {@code file.1}, existing rotated files are shifted by one and files beyond
+     * {@link #fileCount} are deleted. Lines are buffered and only flushed when the file is rotated
+     * or the writer is closed, so writing a line does not hit the disk while holding the lock.
+     */
+    public static final class RotatingFileWriter {
+        final File file;
+        private final long sizeLimit;
+        private final int fileCount;
+        private OutputStream out;
+        private long size;
+        private boolean failed;
+
+        /**
+         * @param sizeLimit the size in bytes after which the file is rotated or 0 for no limit
+         * @param fileCount the number of files kept, including {@code file}
+         */
+        public RotatingFileWriter(File file, long sizeLimit, int fileCount) {
+            this.file = file;
+            this.sizeLimit = sizeLimit;
+            this.fileCount = Math.max(1, fileCount);
+        }
+
+        /**
+         * Writes {@code line} followed by a line separator.
+         *
+         * @return {@code false} if this is the first write that failed, {@code true} otherwise
+         */
+        public synchronized boolean write(String line) {
+            if (failed) {
+                return true;
+            }
+            try {
+                if (out == null) {
+                    open();
+                } else if (sizeLimit > 0 && size >= sizeLimit) {
+                    out.close();
+                    rotate();
+                    open();
+                }
+                byte[] bytes = (line + '\n').getBytes(StandardCharsets.UTF_8);
+                out.write(bytes);
+                size += bytes.length;
+                return true;
+            } catch (IOException e) {
+                failed = true;
+                close();
+                return false;
+            }
+        }
+
+        public synchronized void close() {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // nothing to do
+                }
+                out = null;
+            }
+        }
+
+        private void open() throws IOException {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            size = file.length();
+            out = new BufferedOutputStream(new FileOutputStream(file, true));
+        }
+
+        private void rotate() throws IOException {
+            File oldest = rotated(fileCount - 1);
+            if (oldest.exists() && !oldest.delete()) {
+                throw new IOException("Cannot delete " + oldest);
+            }
+            for (int i = fileCount - 2; i >= 0; i--) {
+                File source = rotated(i);
+                if (source.exists() && !source.renameTo(rotated(i + 1))) {
+                    throw new IOException("Cannot rename " + source);
+                }
+            }
+        }
+
+        private File rotated(int index) {
+            return index == 0 ? file : new File(file.getPath() + "." + index);
+        }
+    }
+}
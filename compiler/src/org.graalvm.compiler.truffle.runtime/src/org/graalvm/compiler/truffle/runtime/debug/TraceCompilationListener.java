@@ -163,6 +163,16 @@ public final class TraceCompilationListener extends AbstractGraalTruffleRuntimeL
         runtime.logEvent(0, "opt invalidated", target.toString(), properties);
     }
 
+    @Override
+    public void onCompilationDeoptimizationLoop(OptimizedCallTarget target, int invalidationCount, CharSequence reason, boolean speculationDisabled, boolean compilationDisabled) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("Inval#", invalidationCount);
+        properties.put("Reason", reason);
+        properties.put("Reasons", target.getCompilationProfile().getInvalidationReasons());
+        properties.put("Action", compilationDisabled ? "interpret" : speculationDisabled ? "no speculation" : "backoff");
+        runtime.logEvent(0, "opt deopt loop", target.toString(), properties);
+    }
+
     private static void addSourceInfo(Map<String, Object> properties, Object source) {
         if (source != null) {
             properties.put("SourceClass", source.getClass().getSimpleName());
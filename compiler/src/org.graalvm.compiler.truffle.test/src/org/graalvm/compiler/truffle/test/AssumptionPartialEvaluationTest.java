@@ -25,6 +25,8 @@
 package org.graalvm.compiler.truffle.test;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.graalvm.compiler.truffle.common.OptimizedAssumptionDependency;
 import org.graalvm.compiler.truffle.runtime.OptimizedAssumption;
@@ -88,10 +90,12 @@ public class AssumptionPartialEvaluationTest extends PartialEvaluationTest {
 
     static class TestOptimizedAssumptionDependency implements OptimizedAssumptionDependency {
         boolean valid = true;
+        int invalidations;
 
         @Override
         public void invalidate() {
             valid = false;
+            invalidations++;
         }
 
         @Override
@@ -151,4 +155,31 @@ public class AssumptionPartialEvaluationTest extends PartialEvaluationTest {
         }
 
     }
+
+    @Test
+    public void testBatchInvalidation() {
+        List<Assumption> assumptions = new ArrayList<>();
+        TestOptimizedAssumptionDependency shared = new TestOptimizedAssumptionDependency();
+        TestOptimizedAssumptionDependency[] exclusive = new TestOptimizedAssumptionDependency[10];
+        for (int i = 0; i < exclusive.length; i++) {
+            OptimizedAssumption assumption = (OptimizedAssumption) Truffle.getRuntime().createAssumption("batch" + i);
+            assumption.registerDependency().accept(shared);
+            exclusive[i] = new TestOptimizedAssumptionDependency();
+            assumption.registerDependency().accept(exclusive[i]);
+            assumptions.add(assumption);
+        }
+        assumptions.add(assumptions.get(0));
+        assumptions.get(1).invalidate();
+        Assert.assertEquals(1, shared.invalidations);
+
+        Truffle.getRuntime().invalidateAssumptions(assumptions, "batch");
+        for (Assumption assumption : assumptions) {
+            Assert.assertFalse(assumption.isValid());
+        }
+        Assert.assertEquals(2, shared.invalidations);
+        for (int i = 0; i < exclusive.length; i++) {
+            Assert.assertFalse(exclusive[i].isValid());
+            Assert.assertEquals(1, exclusive[i].invalidations);
+        }
+    }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.truffle.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.graalvm.compiler.truffle.runtime.debug.CompilationTelemetryListener.JSONRecord;
+import org.graalvm.compiler.truffle.runtime.debug.CompilationTelemetryListener.RotatingFileWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompilationTelemetryListenerTest {
+
+    private File directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("CompilationTelemetryListenerTest").toFile();
+    }
+
+    @After
+    public void deleteDirectory() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private static String quote(String value) {
+        StringBuilder sb = new StringBuilder();
+        JSONRecord.quote(sb, value);
+        return sb.toString();
+    }
+
+    @Test
+    public void testQuoteSpecialCharacters() {
+        assertEquals("\"a\\\"b\\\\c/\"", quote("a\"b\\c/"));
+        assertEquals("null", quote(null));
+    }
+
+    @Test
+    public void testQuoteControlCharacters() {
+        assertEquals("\"\\n\\r\\t\\u0000\\u0008\\u000c\\u001f\"", quote("\n\r\t\u0000\b\f\u001f"));
+        // DEL is not a control character in JSON
+        assertEquals("\"\u007f\"", quote("\u007f"));
+    }
+
+    @Test
+    public void testQuoteNonASCII() {
+        assertEquals("\"\u00e9\u4e2d\ud83d\ude00\"", quote("\u00e9\u4e2d\ud83d\ude00"));
+        // unpaired surrogates cannot be encoded as UTF-8
+        assertEquals("\"\\ud800x\\udc00\"", quote("\ud800x\udc00"));
+        assertEquals("\"\\ude00\\ud83d\"", quote("\ude00\ud83d"));
+    }
+
+    @Test
+    public void testRecord() {
+        JSONRecord record = new JSONRecord("test");
+        record.put("string", "line\nbreak");
+        record.put("number", 42);
+        record.put("flag", true);
+        record.put("missing", null);
+        record.putRaw("raw", "[1,2]");
+        String json = record.finish();
+        assertTrue(json, json.startsWith("{\"event\":\"test\",\"timestamp\":"));
+        assertTrue(json, json.endsWith(",\"string\":\"line\\nbreak\",\"number\":42,\"flag\":true,\"missing\":null,\"raw\":[1,2]}"));
+        assertFalse(json, json.contains("\n"));
+    }
+
+    private File file(String name) {
+        return new File(directory, name);
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testRotation() throws IOException {
+        File file = file("telemetry.json");
+        RotatingFileWriter writer = new RotatingFileWriter(file, 10, 2);
+        assertTrue(writer.write("aaaa"));
+        assertTrue(writer.write("bbbb"));
+        // the file has reached 10 bytes
+        assertTrue(writer.write("cccc"));
+        assertTrue(writer.write("dddd"));
+        assertTrue(writer.write("eeee"));
+        writer.close();
+        assertEquals("eeee\n", read(file));
+        assertEquals("cccc\ndddd\n", read(file("telemetry.json.1")));
+        assertFalse(file("telemetry.json.2").exists());
+    }
+
+    @Test
+    public void testRotationAppendsToExistingFile() throws IOException {
+        File file = file("telemetry.json");
+        Files.write(file.toPath(), "0123456789\n".getBytes(StandardCharsets.UTF_8));
+        RotatingFileWriter writer = new RotatingFileWriter(file, 10, 3);
+        assertTrue(writer.write("a"));
+        assertTrue(writer.write("b"));
+        writer.close();
+        assertEquals("b\n", read(file));
+        assertEquals("0123456789\na\n", read(file("telemetry.json.1")));
+    }
+
+    /**
+     * The size limit counts the bytes of the UTF-8 encoding, not characters.
+     */
+    @Test
+    public void testRotationCountsEncodedBytes() throws IOException {
+        File file = file("telemetry.json");
+        RotatingFileWriter writer = new RotatingFileWriter(file, 8, 2);
+        // 4 characters but 8 bytes
+        String line = "\u00e9\u00e9\u00e9\u00e9";
+        assertTrue(writer.write(line));
+        assertTrue(writer.write("x"));
+        writer.close();
+        assertEquals("x\n", read(file));
+        assertArrayEquals((line + "\n").getBytes(StandardCharsets.UTF_8), Files.readAllBytes(file("telemetry.json.1").toPath()));
+    }
+
+    @Test
+    public void testFlushOnClose() throws IOException {
+        File file = file("telemetry.json");
+        RotatingFileWriter writer = new RotatingFileWriter(file, 0, 1);
+        assertTrue(writer.write("a"));
+        assertEquals("", read(file));
+        writer.close();
+        assertEquals("a\n", read(file));
+    }
+
+    @Test
+    public void testWriteFailure() {
+        // a directory cannot be opened for writing
+        RotatingFileWriter writer = new RotatingFileWriter(directory, 0, 1);
+        assertFalse(writer.write("a"));
+        // the failure is only reported once
+        assertTrue(writer.write("b"));
+    }
+}
@@ -33,6 +33,7 @@ import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.nodes.DirectCallNode;
 import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeUtil;
 import com.oracle.truffle.api.nodes.RootNode;
 import org.graalvm.compiler.truffle.runtime.TruffleRuntimeOptions;
 import org.graalvm.compiler.truffle.runtime.SharedTruffleRuntimeOptions;
@@ -178,6 +179,17 @@ public class ExperimentalSplittingStrategyTest extends AbstractSplittingStrategy
         }
     }
 
+    static class TwoTurnPolymorphicOnZeroNode extends SplittingTestNode {
+        @Child private SplittingTestNode first = ExperimentalSplittingStrategyTestFactory.TurnsPolymorphicOnZeroNodeGen.create(new ReturnsArgumentNode());
+        @Child private SplittingTestNode second = ExperimentalSplittingStrategyTestFactory.TurnsPolymorphicOnZeroNodeGen.create(new ReturnsArgumentNode());
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            first.execute(frame);
+            return second.execute(frame);
+        }
+    }
+
     private static Boolean getNeedsSplit(OptimizedCallTarget callTarget) {
         try {
             return (Boolean) reflectivelyGetField(callTarget, "needsSplit");
@@ -404,4 +416,24 @@ public class ExperimentalSplittingStrategyTest extends AbstractSplittingStrategy
         callTarget.call(noArguments);
         rootNode.report();
     }
+
+    @Test
+    public void testSplitsLargerCalleesWithRepeatedPolymorphism() {
+        final SplittingTestRootNode rootNode = new SplittingTestRootNode(new TwoTurnPolymorphicOnZeroNode());
+        final int nodeCount = NodeUtil.countNodes(rootNode);
+        final OptimizedCallTarget callTarget = (OptimizedCallTarget) runtime.createCallTarget(rootNode);
+        // Too big for a single polymorphic report, but not for two.
+        try (TruffleRuntimeOptions.TruffleRuntimeOptionsOverrideScope s = TruffleRuntimeOptions.overrideOptions(SharedTruffleRuntimeOptions.TruffleSplittingMaxCalleeSize,
+                        (nodeCount + 1) / 2)) {
+            // two callers for a target are needed
+            runtime.createDirectCallNode(callTarget);
+            final DirectCallNode directCallNode = runtime.createDirectCallNode(callTarget);
+            directCallNode.call(new Object[]{1});
+            directCallNode.call(new Object[]{1});
+            directCallNode.call(new Object[]{0});
+            Assert.assertTrue("Target does not need split after the nodes went polymorphic", getNeedsSplit(callTarget));
+            directCallNode.call(new Object[]{0});
+            Assert.assertTrue("Target reported polymorphism twice but was not split", directCallNode.isCallTargetCloned());
+        }
+    }
 }
@@ -32,12 +32,15 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import org.graalvm.compiler.core.common.util.Util;
 import org.graalvm.compiler.truffle.runtime.GraalTruffleRuntime;
+import org.graalvm.compiler.truffle.runtime.GraalTruffleRuntimeListener;
 import org.graalvm.compiler.truffle.runtime.OptimizedCallTarget;
 import org.graalvm.compiler.truffle.runtime.OptimizedOSRLoopNode;
 import org.graalvm.compiler.truffle.runtime.TruffleRuntimeOptions;
@@ -53,6 +56,7 @@ import org.junit.Test;
 import com.oracle.truffle.api.Assumption;
 import com.oracle.truffle.api.CallTarget;
 import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.frame.FrameDescriptor;
 import com.oracle.truffle.api.frame.VirtualFrame;
@@ -504,4 +508,61 @@ public class OptimizedCallTargetTest extends TestWithSynchronousCompiling {
         Assert.assertEquals(0, innerMethod[0]);
         Assert.assertEquals(0, innerBoundary[0]);
     }
+
+    private static final class AssumptionRootNode extends RootNode {
+        @CompilationFinal Assumption assumption;
+
+        AssumptionRootNode() {
+            super(null);
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            return assumption.isValid() ? 42 : 0;
+        }
+    }
+
+    @Test
+    public void testDeoptimizationLoopBackoff() {
+        final int maximumRecompilations = 4;
+        try (TruffleRuntimeOptionsOverrideScope s = TruffleRuntimeOptions.overrideOptions(SharedTruffleRuntimeOptions.TruffleInvalidationBackoffThreshold, 1,
+                        SharedTruffleRuntimeOptions.TruffleSpeculationBackoffThreshold, 2, SharedTruffleRuntimeOptions.TruffleMaximumRecompilations, maximumRecompilations)) {
+            AssumptionRootNode rootNode = new AssumptionRootNode();
+            OptimizedCallTarget target = (OptimizedCallTarget) runtime.createCallTarget(rootNode);
+            List<Boolean> compilationDisabledEvents = new ArrayList<>();
+            GraalTruffleRuntimeListener listener = new GraalTruffleRuntimeListener() {
+                @Override
+                public void onCompilationDeoptimizationLoop(OptimizedCallTarget t, int invalidationCount, CharSequence reason, boolean speculationDisabled, boolean compilationDisabled) {
+                    if (t == target) {
+                        compilationDisabledEvents.add(compilationDisabled);
+                    }
+                }
+            };
+            runtime.addListener(listener);
+            try {
+                for (int i = 0; i < maximumRecompilations; i++) {
+                    rootNode.assumption = Truffle.getRuntime().createAssumption("testDeoptimizationLoopBackoff");
+                    target.call();
+                    target.compile(true);
+                    assertCompiled(target);
+                    rootNode.assumption.invalidate();
+                    assertNotCompiled(target);
+                }
+            } finally {
+                runtime.removeListener(listener);
+            }
+            assertEquals(maximumRecompilations, target.getCompilationProfile().getInvalidationCount());
+            assertEquals(maximumRecompilations - 1, compilationDisabledEvents.size());
+            assertTrue(compilationDisabledEvents.get(compilationDisabledEvents.size() - 1));
+            assertTrue(target.getCompilationProfile().isSpeculationDisabled());
+            assertTrue(target.getCompilationProfile().isPermanentlyInterpreted());
+            assertEquals(Collections.singletonMap("assumption invalidated", maximumRecompilations), target.getCompilationProfile().getInvalidationReasons());
+
+            final int compilationThreshold = TruffleRuntimeOptions.getValue(SharedTruffleRuntimeOptions.TruffleCompilationThreshold);
+            for (int i = 0; i < compilationThreshold * 2; i++) {
+                target.call();
+            }
+            assertNotCompiled(target);
+        }
+    }
 }
@@ -28,6 +28,7 @@ import static org.graalvm.compiler.phases.common.DeadCodeEliminationPhase.Option
 
 import org.graalvm.collections.EconomicSet;
 import org.graalvm.compiler.core.common.util.CompilationAlarm;
+import org.graalvm.compiler.core.common.util.CompilationBudget;
 import org.graalvm.compiler.debug.DebugContext;
 import org.graalvm.compiler.graph.Graph.NodeEventScope;
 import org.graalvm.compiler.graph.Node;
@@ -77,8 +78,13 @@ public abstract class EffectsPhase<PhaseContextT extends PhaseContext> extends B
     public boolean runAnalysis(StructuredGraph graph, PhaseContextT context) {
         boolean changed = false;
         CompilationAlarm compilationAlarm = CompilationAlarm.current();
+        CompilationBudget budget = CompilationBudget.current();
         DebugContext debug = graph.getDebug();
         for (int iteration = 0; iteration < maxIterations && !compilationAlarm.hasExpired(); iteration++) {
+            if (iteration > 0 && budget.isExhausted()) {
+                budget.phaseSkipped(debug, graph, getName() + " iterations " + iteration + " to " + (maxIterations - 1));
+                break;
+            }
             try (DebugContext.Scope s = debug.scope(debug.areScopesEnabled() ? "iteration " + iteration : null)) {
                 ScheduleResult schedule;
                 ControlFlowGraph cfg;
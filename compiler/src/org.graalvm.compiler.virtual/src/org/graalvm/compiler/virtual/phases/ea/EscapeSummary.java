@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.virtual.phases.ea;
+
+import java.util.Arrays;
+
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.graph.NodeBitMap;
+import org.graalvm.compiler.graph.NodeStack;
+import org.graalvm.compiler.nodes.AbstractDeoptimizeNode;
+import org.graalvm.compiler.nodes.FixedGuardNode;
+import org.graalvm.compiler.nodes.GuardNode;
+import org.graalvm.compiler.nodes.ParameterNode;
+import org.graalvm.compiler.nodes.ReturnNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.UnaryOpLogicNode;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.ValuePhiNode;
+import org.graalvm.compiler.nodes.VirtualState;
+import org.graalvm.compiler.nodes.calc.CompareNode;
+import org.graalvm.compiler.nodes.calc.ConditionalNode;
+import org.graalvm.compiler.nodes.extended.GetClassNode;
+import org.graalvm.compiler.nodes.extended.LoadHubNode;
+import org.graalvm.compiler.nodes.java.ArrayLengthNode;
+import org.graalvm.compiler.nodes.java.LoadFieldNode;
+import org.graalvm.compiler.nodes.java.LoadIndexedNode;
+import org.graalvm.compiler.nodes.java.StoreFieldNode;
+import org.graalvm.compiler.nodes.java.StoreIndexedNode;
+import org.graalvm.compiler.nodes.spi.ValueProxy;
+
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Describes what a method does with the objects passed as its parameters. The summary is computed
+ * from a graph of the method that was parsed without profiling information and speculation, so it
+ * holds for every execution of the method, not only for one compiled version of it.
+ */
+public final class EscapeSummary {
+
+    /**
+     * The parameter may be stored into the heap, passed to another method, locked or used in any
+     * other way the analysis does not understand.
+     */
+    public static final int ESCAPES = 1;
+
+    /**
+     * The parameter may be returned.
+     */
+    public static final int RETURNED = 2;
+
+    /**
+     * Fields or elements of the parameter may be written.
+     */
+    public static final int WRITTEN = 4;
+
+    /**
+     * The summary of a method that could not be analyzed.
+     */
+    public static final EscapeSummary UNKNOWN = new EscapeSummary(new int[0]);
+
+    private final int[] parameters;
+
+    private EscapeSummary(int[] parameters) {
+        this.parameters = parameters;
+    }
+
+    /**
+     * Returns the {@link #ESCAPES}, {@link #RETURNED} and {@link #WRITTEN} flags of the parameter
+     * with the given index, where the receiver of an instance method has index 0.
+     */
+    public int getFlags(int index) {
+        return index < parameters.length ? parameters[index] : ESCAPES;
+    }
+
+    /**
+     * Determines if the method at most reads the fields and elements of the object passed as the
+     * parameter with the given index, and does not keep a reference to it after it returns.
+     */
+    public boolean isReadOnly(int index) {
+        return getFlags(index) == 0;
+    }
+
+    /**
+     * Computes the summary of the method of {@code graph}, which must have been parsed without
+     * profiling information and without speculative optimizations.
+     */
+    public static EscapeSummary compute(StructuredGraph graph) {
+        for (Node node : graph.getNodes()) {
+            if (node instanceof AbstractDeoptimizeNode || node instanceof FixedGuardNode || node instanceof GuardNode) {
+                // code that is not part of the graph could do anything with the parameters
+                return UNKNOWN;
+            }
+        }
+        int count = 0;
+        for (ParameterNode parameter : graph.getNodes(ParameterNode.TYPE)) {
+            count = Math.max(count, parameter.index() + 1);
+        }
+        int[] parameters = new int[count];
+        Arrays.fill(parameters, ESCAPES);
+        for (ParameterNode parameter : graph.getNodes(ParameterNode.TYPE)) {
+            if (parameter.getStackKind() == JavaKind.Object) {
+                parameters[parameter.index()] = analyze(graph, parameter);
+            }
+        }
+        if (graph.method().isSynchronized() && !graph.method().isStatic() && count > 0) {
+            parameters[0] |= ESCAPES;
+        }
+        return new EscapeSummary(parameters);
+    }
+
+    private static int analyze(StructuredGraph graph, ParameterNode parameter) {
+        int flags = 0;
+        NodeBitMap visited = graph.createNodeBitMap();
+        NodeStack aliases = new NodeStack();
+        visited.mark(parameter);
+        aliases.push(parameter);
+        while (!aliases.isEmpty()) {
+            ValueNode alias = (ValueNode) aliases.pop();
+            for (Node usage : alias.usages()) {
+                if (usage instanceof VirtualState) {
+                    continue;
+                } else if (usage instanceof ValuePhiNode || usage instanceof ValueProxy || usage instanceof ConditionalNode) {
+                    if (!visited.isMarked(usage)) {
+                        visited.mark(usage);
+                        aliases.push(usage);
+                    }
+                } else if (usage instanceof LoadFieldNode || usage instanceof LoadIndexedNode || usage instanceof ArrayLengthNode || usage instanceof UnaryOpLogicNode ||
+                                usage instanceof CompareNode || usage instanceof LoadHubNode || usage instanceof GetClassNode) {
+                    continue;
+                } else if (usage instanceof StoreFieldNode) {
+                    flags |= ((StoreFieldNode) usage).value() == alias ? ESCAPES : WRITTEN;
+                } else if (usage instanceof StoreIndexedNode) {
+                    flags |= ((StoreIndexedNode) usage).value() == alias ? ESCAPES : WRITTEN;
+                } else if (usage instanceof ReturnNode) {
+                    flags |= RETURNED;
+                } else {
+                    flags |= ESCAPES;
+                }
+                if ((flags & ESCAPES) != 0) {
+                    return flags;
+                }
+            }
+        }
+        return flags;
+    }
+
+    @Override
+    public String toString() {
+        return "EscapeSummary" + Arrays.toString(parameters);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.virtual.phases.ea;
+
+import static org.graalvm.compiler.core.common.GraalOptions.EscapeSummaryMaxBytecodeSize;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.graalvm.compiler.debug.CounterKey;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.OptimisticOptimizations;
+import org.graalvm.compiler.phases.tiers.HighTierContext;
+import org.graalvm.compiler.phases.util.Providers;
+
+import jdk.vm.ci.code.BailoutException;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Computes {@link EscapeSummary escape summaries} on demand and caches them per method. The cache
+ * is shared by all compilations that use the same {@link PartialEscapePhase} and is dropped
+ * completely when it reaches its maximum size.
+ */
+public final class EscapeSummaryCache {
+
+    private static final CounterKey SummariesComputed = DebugContext.counter("EscapeSummariesComputed");
+
+    private static final int MAX_SIZE = 4096;
+
+    private final ConcurrentHashMap<ResolvedJavaMethod, EscapeSummary> summaries = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the summary of {@code method}, parsing it with the graph builder suite of
+     * {@code context} if it is not cached yet.
+     */
+    public EscapeSummary get(ResolvedJavaMethod method, HighTierContext context, OptionValues options, DebugContext debug) {
+        EscapeSummary summary = summaries.get(method);
+        if (summary == null) {
+            summary = compute(method, context, options, debug);
+            if (summaries.size() >= MAX_SIZE) {
+                summaries.clear();
+            }
+            summaries.put(method, summary);
+        }
+        return summary;
+    }
+
+    private static EscapeSummary compute(ResolvedJavaMethod method, HighTierContext context, OptionValues options, DebugContext debug) {
+        if (!method.hasBytecodes() || method.getCodeSize() > EscapeSummaryMaxBytecodeSize.getValue(options) || context.getGraphBuilderSuite() == null) {
+            return EscapeSummary.UNKNOWN;
+        }
+        if (method.getExceptionHandlers().length != 0) {
+            // implicit exceptions are not part of the graph, so their handlers would not be either
+            return EscapeSummary.UNKNOWN;
+        }
+        SummariesComputed.increment(debug);
+        // The summary must hold for every execution of the method, so do not speculate.
+        StructuredGraph graph = new StructuredGraph.Builder(options, debug, AllowAssumptions.NO).method(method).useProfilingInfo(false).build();
+        try (DebugContext.Scope s = debug.scope("EscapeSummary", graph)) {
+            context.getGraphBuilderSuite().apply(graph, new HighTierContext(new Providers(context), context.getGraphBuilderSuite(), OptimisticOptimizations.NONE));
+            return EscapeSummary.compute(graph);
+        } catch (BailoutException e) {
+            return EscapeSummary.UNKNOWN;
+        } catch (Throwable e) {
+            throw debug.handle(e);
+        }
+    }
+}
@@ -244,6 +244,45 @@ public abstract class PartialEscapeBlockState<T extends PartialEscapeBlockState<
         });
     }
 
+    /**
+     * Materializes a copy of the given virtual object and produces the necessary effects in the
+     * effects list, but leaves the state of the virtual object unchanged. The object must not be
+     * locked and must not reference other virtual objects.
+     *
+     * @return the materialized copy, or {@code null} if the object cannot be copied
+     */
+    @SuppressWarnings("try")
+    public ValueNode materializeCopyBefore(FixedNode fixed, VirtualObjectNode virtual, GraphEffectList materializeEffects) {
+        ObjectState obj = getObjectState(virtual);
+        assert obj.isVirtual() && !obj.hasLocks() : obj;
+        ValueNode[] entries = obj.getEntries().clone();
+        ValueNode representation = virtual.getMaterializedRepresentation(fixed, entries, null);
+        if (!(representation instanceof AllocatedObjectNode)) {
+            return null;
+        }
+        AllocatedObjectNode copy = (AllocatedObjectNode) representation;
+        materializeEffects.addVirtualizationDelta(-1);
+        materializeEffects.add("materializeCopyBefore", new Effect() {
+            @Override
+            public void apply(StructuredGraph graph, ArrayList<Node> obsoleteNodes) {
+                CommitAllocationNode commit;
+                try (DebugCloseable context = graph.withNodeSourcePosition(NodeSourcePosition.placeholder(graph.method()))) {
+                    commit = graph.add(new CommitAllocationNode());
+                    graph.addBeforeFixed(fixed, commit);
+                }
+                graph.addWithoutUnique(copy);
+                commit.getVirtualObjects().add(virtual);
+                copy.setCommit(commit);
+                for (ValueNode entry : entries) {
+                    commit.getValues().add(graph.addOrUniqueWithInputs(entry));
+                }
+                commit.addLocks(new ArrayList<>());
+                commit.getEnsureVirtual().add(false);
+            }
+        });
+        return copy;
+    }
+
     private void materializeWithCommit(FixedNode fixed, VirtualObjectNode virtual, List<AllocatedObjectNode> objects, List<List<MonitorIdNode>> locks, List<ValueNode> values,
                     List<Boolean> ensureVirtual, List<ValueNode> otherAllocations) {
         ObjectState obj = getObjectState(virtual);
@@ -87,6 +87,7 @@ public abstract class PartialEscapeClosure<BlockT extends PartialEscapeBlockStat
     public static final CounterKey COUNTER_MATERIALIZATIONS_UNHANDLED = DebugContext.counter("MaterializationsUnhandled");
     public static final CounterKey COUNTER_MATERIALIZATIONS_LOOP_REITERATION = DebugContext.counter("MaterializationsLoopReiteration");
     public static final CounterKey COUNTER_MATERIALIZATIONS_LOOP_END = DebugContext.counter("MaterializationsLoopEnd");
+    public static final CounterKey COUNTER_MATERIALIZATIONS_READ_ONLY_ARGUMENT = DebugContext.counter("MaterializationsReadOnlyArgument");
     public static final CounterKey COUNTER_ALLOCATION_REMOVED = DebugContext.counter("AllocationsRemoved");
     public static final CounterKey COUNTER_MEMORYCHECKPOINT = DebugContext.counter("MemoryCheckpoint");
 
@@ -206,7 +207,13 @@ public abstract class PartialEscapeClosure<BlockT extends PartialEscapeBlockStat
         if (node instanceof CallTargetNode || node instanceof FrameState || node instanceof ConstantNode) {
             return false;
         } else if (node instanceof Invoke) {
-            processNodeInternal(((Invoke) node).callTarget(), state, effects, lastFixedNode);
+            CallTargetNode callTarget = ((Invoke) node).callTarget();
+            EscapeSummary summary = hasVirtualInputs.isMarked(callTarget) ? tool.getEscapeSummary(callTarget) : null;
+            if (summary != null) {
+                processArguments(callTarget, summary, lastFixedNode == null ? null : lastFixedNode.next(), state, effects);
+            } else {
+                processNodeInternal(callTarget, state, effects, lastFixedNode);
+            }
         }
         return processNodeInternal(node, state, effects, lastFixedNode);
     }
@@ -367,6 +374,58 @@ public abstract class PartialEscapeClosure<BlockT extends PartialEscapeBlockStat
         }
     }
 
+    /**
+     * Like {@link #processNodeInputs}, but passes a materialized copy for a virtual argument that
+     * the callee only reads. The callee cannot observe the identity of the copy after it returns,
+     * so the object can stay virtual after the call.
+     */
+    private void processArguments(CallTargetNode callTarget, EscapeSummary summary, FixedNode insertBefore, BlockT state, GraphEffectList effects) {
+        VirtualUtil.trace(callTarget.getOptions(), debug, "processing arguments: %s %s", callTarget, summary);
+        List<ValueNode> arguments = callTarget.arguments();
+        for (int i = 0; i < arguments.size(); i++) {
+            ValueNode argument = arguments.get(i);
+            ValueNode alias = getAlias(argument);
+            if (alias instanceof VirtualObjectNode) {
+                VirtualObjectNode virtual = (VirtualObjectNode) alias;
+                if (summary.isReadOnly(i) && canPassCopy(state, virtual, arguments)) {
+                    ValueNode copy = state.materializeCopyBefore(insertBefore, virtual, effects);
+                    if (copy != null) {
+                        COUNTER_MATERIALIZATIONS_READ_ONLY_ARGUMENT.increment(debug);
+                        effects.replaceFirstInput(callTarget, argument, copy);
+                        VirtualUtil.trace(callTarget.getOptions(), debug, "passing copy of %s to %s", virtual, callTarget);
+                        continue;
+                    }
+                }
+                int id = virtual.getObjectId();
+                ensureMaterialized(state, id, insertBefore, effects, COUNTER_MATERIALIZATIONS_UNHANDLED);
+                effects.replaceFirstInput(callTarget, argument, state.getObjectState(id).getMaterializedValue());
+            }
+        }
+    }
+
+    /**
+     * A copy can only stand in for an object that no other object or argument refers to, because
+     * the copy and the object would then be observably different.
+     */
+    private boolean canPassCopy(BlockT state, VirtualObjectNode virtual, List<ValueNode> arguments) {
+        ObjectState obj = state.getObjectState(virtual);
+        if (!obj.isVirtual() || obj.hasLocks() || state.contains(virtual)) {
+            return false;
+        }
+        for (ValueNode entry : obj.getEntries()) {
+            if (entry instanceof VirtualObjectNode) {
+                return false;
+            }
+        }
+        int uses = 0;
+        for (ValueNode argument : arguments) {
+            if (getAlias(argument) == virtual) {
+                uses++;
+            }
+        }
+        return uses == 1;
+    }
+
     private void processNodeWithState(NodeWithState nodeWithState, BlockT state, GraphEffectList effects) {
         for (FrameState fs : nodeWithState.states()) {
             FrameState frameState = getUniqueFramestate(nodeWithState, fs);
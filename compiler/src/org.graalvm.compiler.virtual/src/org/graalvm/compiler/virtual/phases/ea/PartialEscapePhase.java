@@ -25,6 +25,7 @@
 package org.graalvm.compiler.virtual.phases.ea;
 
 import static org.graalvm.compiler.core.common.GraalOptions.EscapeAnalysisIterations;
+import static org.graalvm.compiler.core.common.GraalOptions.EscapeAnalysisSummaries;
 import static org.graalvm.compiler.core.common.GraalOptions.EscapeAnalyzeOnly;
 
 import org.graalvm.collections.EconomicSet;
@@ -39,6 +40,7 @@ import org.graalvm.compiler.options.OptionType;
 import org.graalvm.compiler.options.OptionValues;
 import org.graalvm.compiler.phases.BasePhase;
 import org.graalvm.compiler.phases.common.CanonicalizerPhase;
+import org.graalvm.compiler.phases.tiers.HighTierContext;
 import org.graalvm.compiler.phases.tiers.PhaseContext;
 
 public class PartialEscapePhase extends EffectsPhase<PhaseContext> {
@@ -52,6 +54,7 @@ public class PartialEscapePhase extends EffectsPhase<PhaseContext> {
 
     private final boolean readElimination;
     private final BasePhase<PhaseContext> cleanupPhase;
+    private final EscapeSummaryCache escapeSummaries;
 
     public PartialEscapePhase(boolean iterative, CanonicalizerPhase canonicalizer, OptionValues options) {
         this(iterative, Options.OptEarlyReadElimination.getValue(options), canonicalizer, null, options);
@@ -65,6 +68,7 @@ public class PartialEscapePhase extends EffectsPhase<PhaseContext> {
         super(iterative ? EscapeAnalysisIterations.getValue(options) : 1, canonicalizer);
         this.readElimination = readElimination;
         this.cleanupPhase = cleanupPhase;
+        this.escapeSummaries = EscapeAnalysisSummaries.getValue(options) ? new EscapeSummaryCache() : null;
     }
 
     @Override
@@ -90,11 +94,17 @@ public class PartialEscapePhase extends EffectsPhase<PhaseContext> {
             virtual.resetObjectId();
         }
         assert schedule != null;
+        PartialEscapeClosure<?> closure;
         if (readElimination) {
-            return new PEReadEliminationClosure(schedule, context.getMetaAccess(), context.getConstantReflection(), context.getConstantFieldProvider(), context.getLowerer());
+            closure = new PEReadEliminationClosure(schedule, context.getMetaAccess(), context.getConstantReflection(), context.getConstantFieldProvider(), context.getLowerer());
         } else {
-            return new PartialEscapeClosure.Final(schedule, context.getMetaAccess(), context.getConstantReflection(), context.getConstantFieldProvider(), context.getLowerer());
+            closure = new PartialEscapeClosure.Final(schedule, context.getMetaAccess(), context.getConstantReflection(), context.getConstantFieldProvider(), context.getLowerer());
         }
+        if (escapeSummaries != null && context instanceof HighTierContext) {
+            // summaries are computed by parsing the called methods
+            closure.tool.setEscapeSummaries(escapeSummaries, (HighTierContext) context);
+        }
+        return closure;
     }
 
     @Override
@@ -32,6 +32,7 @@ import org.graalvm.compiler.core.common.spi.ConstantFieldProvider;
 import org.graalvm.compiler.debug.DebugContext;
 import org.graalvm.compiler.graph.Node;
 import org.graalvm.compiler.graph.spi.CanonicalizerTool;
+import org.graalvm.compiler.nodes.CallTargetNode;
 import org.graalvm.compiler.nodes.ConstantNode;
 import org.graalvm.compiler.nodes.FixedNode;
 import org.graalvm.compiler.nodes.FixedWithNextNode;
@@ -39,12 +40,14 @@ import org.graalvm.compiler.nodes.NodeView;
 import org.graalvm.compiler.nodes.ValueNode;
 import org.graalvm.compiler.nodes.calc.FloatingNode;
 import org.graalvm.compiler.nodes.calc.UnpackEndianHalfNode;
+import org.graalvm.compiler.nodes.java.MethodCallTargetNode;
 import org.graalvm.compiler.nodes.java.MonitorIdNode;
 import org.graalvm.compiler.nodes.spi.LoweringProvider;
 import org.graalvm.compiler.nodes.spi.VirtualizerTool;
 import org.graalvm.compiler.nodes.virtual.VirtualInstanceNode;
 import org.graalvm.compiler.nodes.virtual.VirtualObjectNode;
 import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.tiers.HighTierContext;
 
 import jdk.vm.ci.meta.Assumptions;
 import jdk.vm.ci.meta.ConstantReflectionProvider;
@@ -66,6 +69,8 @@ class VirtualizerToolImpl implements VirtualizerTool, CanonicalizerTool {
     private final DebugContext debug;
     private final LoweringProvider loweringProvider;
     private ConstantNode illegalConstant;
+    private EscapeSummaryCache escapeSummaries;
+    private HighTierContext escapeSummaryContext;
 
     VirtualizerToolImpl(MetaAccessProvider metaAccess, ConstantReflectionProvider constantReflection, ConstantFieldProvider constantFieldProvider, PartialEscapeClosure<?> closure,
                     Assumptions assumptions, OptionValues options, DebugContext debug, LoweringProvider loweringProvider) {
@@ -112,6 +117,26 @@ class VirtualizerToolImpl implements VirtualizerTool, CanonicalizerTool {
         return deleted;
     }
 
+    public void setEscapeSummaries(EscapeSummaryCache summaries, HighTierContext context) {
+        this.escapeSummaries = summaries;
+        this.escapeSummaryContext = context;
+    }
+
+    /**
+     * Returns the escape summary of the method called through {@code callTarget}, or {@code null}
+     * if summaries are not available or the called method is not known exactly.
+     */
+    public EscapeSummary getEscapeSummary(CallTargetNode callTarget) {
+        if (escapeSummaries == null || !(callTarget instanceof MethodCallTargetNode)) {
+            return null;
+        }
+        MethodCallTargetNode methodCallTarget = (MethodCallTargetNode) callTarget;
+        if (!methodCallTarget.invokeKind().isDirect()) {
+            return null;
+        }
+        return escapeSummaries.get(methodCallTarget.targetMethod(), escapeSummaryContext, options, debug);
+    }
+
     @Override
     public ValueNode getAlias(ValueNode value) {
         return closure.getAliasAndResolve(state, value);
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package micro.benchmarks;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Element-wise {@code int} array kernels. Run with {@code -Dgraal.VectorizeLoops=true} and without
+ * to compare the vectorized and the scalar loops.
+ */
+@State(Scope.Thread)
+public class ArrayKernelBenchmark extends BenchmarkBase {
+
+    private static final int SIZE = 4096;
+
+    private int[] a;
+    private int[] b;
+    private int[] c;
+    private int scalar;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        a = new int[SIZE];
+        b = new int[SIZE];
+        c = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            a[i] = random.nextInt();
+            b[i] = random.nextInt();
+        }
+        scalar = random.nextInt();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int[] add() {
+        int[] x = a;
+        int[] y = b;
+        int[] dst = c;
+        int n = dst.length;
+        for (int i = 0; i < n; i++) {
+            dst[i] = x[i] + y[i];
+        }
+        return dst;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int[] mul() {
+        int[] x = a;
+        int[] y = b;
+        int[] dst = c;
+        int n = dst.length;
+        for (int i = 0; i < n; i++) {
+            dst[i] = x[i] * y[i];
+        }
+        return dst;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int[] xorScalar() {
+        int[] x = a;
+        int[] dst = c;
+        int y = scalar;
+        int n = dst.length;
+        for (int i = 0; i < n; i++) {
+            dst[i] = x[i] ^ y;
+        }
+        return dst;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int[] subInPlace() {
+        int[] x = a;
+        int[] y = b;
+        int n = x.length;
+        for (int i = 0; i < n; i++) {
+            x[i] = x[i] - y[i];
+        }
+        return x;
+    }
+}
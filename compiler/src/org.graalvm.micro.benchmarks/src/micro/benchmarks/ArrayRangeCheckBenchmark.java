@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package micro.benchmarks;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Array loops whose range checks cannot be proven redundant by the compiler because the loop bound
+ * is not the array length. Run with {@code -Dgraal.LoopPredication=true} and without to compare
+ * predicated loops with loops that check every access.
+ */
+@State(Scope.Thread)
+public class ArrayRangeCheckBenchmark extends BenchmarkBase {
+
+    private static final int SIZE = 4096;
+
+    private int[] a;
+    private int[] b;
+    private int offset;
+    private int n;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        a = new int[SIZE];
+        b = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            a[i] = random.nextInt();
+            b[i] = random.nextInt();
+        }
+        offset = 1;
+        n = SIZE - offset;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int sum() {
+        int[] x = a;
+        int limit = n;
+        int sum = 0;
+        for (int i = 0; i < limit; i++) {
+            sum += x[i];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int dotShifted() {
+        int[] x = a;
+        int[] y = b;
+        int off = offset;
+        int limit = n;
+        int sum = 0;
+        for (int i = 0; i < limit; i++) {
+            sum += x[i + off] * y[i];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int reverse() {
+        int[] x = a;
+        int[] y = b;
+        int last = n - 1;
+        int sum = 0;
+        for (int i = 0; i <= last; i++) {
+            sum += x[i] ^ y[last - i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package micro.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.Checksum;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks AES block encryption and CRC32C. The {@code graal*} variants disable the HotSpot
+ * stubs so that the AMD64 LIR intrinsics of the compiler are used instead.
+ */
+public class CryptoChecksumBenchmark extends BenchmarkBase {
+
+    static final int LENGTH = 4096;
+
+    @State(Scope.Benchmark)
+    public static class AESState {
+        @Param({"128", "192", "256"}) int keySize;
+
+        Cipher encrypt;
+        Cipher decrypt;
+        byte[] plain;
+        byte[] encrypted;
+        byte[] result = new byte[LENGTH];
+
+        @Setup
+        public void setup() throws Exception {
+            Random random = new Random(42);
+            byte[] keyBytes = new byte[keySize / 8];
+            random.nextBytes(keyBytes);
+            SecretKeySpec key = new SecretKeySpec(keyBytes, "AES");
+            encrypt = Cipher.getInstance("AES/ECB/NoPadding");
+            encrypt.init(Cipher.ENCRYPT_MODE, key);
+            decrypt = Cipher.getInstance("AES/ECB/NoPadding");
+            decrypt.init(Cipher.DECRYPT_MODE, key);
+            plain = new byte[LENGTH];
+            random.nextBytes(plain);
+            encrypted = encrypt.doFinal(plain);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class CRC32CState {
+        Checksum checksum;
+        byte[] data;
+        ByteBuffer direct;
+
+        @Setup
+        public void setup() throws Exception {
+            // CRC32C only exists on JDK 9 and later
+            checksum = (Checksum) Class.forName("java.util.zip.CRC32C").getConstructor().newInstance();
+            data = new byte[LENGTH];
+            new Random(42).nextBytes(data);
+            direct = ByteBuffer.allocateDirect(LENGTH);
+            direct.put(data);
+        }
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5)
+    public byte[] aesEncrypt(AESState state) throws Exception {
+        state.encrypt.doFinal(state.plain, 0, LENGTH, state.result);
+        return state.result;
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5)
+    public byte[] aesDecrypt(AESState state) throws Exception {
+        state.decrypt.doFinal(state.encrypted, 0, LENGTH, state.result);
+        return state.result;
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5)
+    @Fork(value = 1, jvmArgsAppend = "-XX:-UseAESIntrinsics")
+    public byte[] graalAESEncrypt(AESState state) throws Exception {
+        state.encrypt.doFinal(state.plain, 0, LENGTH, state.result);
+        return state.result;
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5)
+    @Fork(value = 1, jvmArgsAppend = "-XX:-UseAESIntrinsics")
+    public byte[] graalAESDecrypt(AESState state) throws Exception {
+        state.decrypt.doFinal(state.encrypted, 0, LENGTH, state.result);
+        return state.result;
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5)
+    public long crc32c(CRC32CState state) {
+        state.checksum.reset();
+        state.checksum.update(state.data, 1, LENGTH - 1);
+        return state.checksum.getValue();
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5)
+    @Fork(value = 1, jvmArgsAppend = "-XX:-UseCRC32CIntrinsics")
+    public long graalCRC32C(CRC32CState state) {
+        state.checksum.reset();
+        state.checksum.update(state.data, 1, LENGTH - 1);
+        return state.checksum.getValue();
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5)
+    public long crc32cDirect(CRC32CState state) throws Throwable {
+        return updateDirect(state);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5)
+    @Fork(value = 1, jvmArgsAppend = "-XX:-UseCRC32CIntrinsics")
+    public long graalCRC32CDirect(CRC32CState state) throws Throwable {
+        return updateDirect(state);
+    }
+
+    private static long updateDirect(CRC32CState state) throws Throwable {
+        state.checksum.reset();
+        state.direct.position(1);
+        UPDATE_BUFFER.invokeExact(state.checksum, state.direct);
+        return state.checksum.getValue();
+    }
+
+    /**
+     * {@code Checksum.update(ByteBuffer)} is not available in JDK 8, which this project is compiled
+     * against.
+     */
+    private static final MethodHandle UPDATE_BUFFER;
+
+    static {
+        MethodHandle updateBuffer;
+        try {
+            updateBuffer = MethodHandles.publicLookup().findVirtual(Checksum.class, "update", MethodType.methodType(void.class, ByteBuffer.class));
+        } catch (ReflectiveOperationException e) {
+            updateBuffer = null;
+        }
+        UPDATE_BUFFER = updateBuffer;
+    }
+}
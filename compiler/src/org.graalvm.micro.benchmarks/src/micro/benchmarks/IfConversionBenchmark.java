@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package micro.benchmarks;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Loops with data dependent branches that select between several cheap values. Run with
+ * {@code -Dgraal.OptIfConversion=true} and without to compare conditional moves with branches that
+ * mispredict on random input.
+ */
+@State(Scope.Thread)
+public class IfConversionBenchmark extends BenchmarkBase {
+
+    private static final int SIZE = 1024;
+
+    private int[] a;
+    private int[] b;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        a = new int[SIZE];
+        b = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            a[i] = random.nextInt();
+            b[i] = random.nextInt();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int minMaxSum() {
+        int[] x = a;
+        int[] y = b;
+        int low = 0;
+        int high = 0;
+        for (int i = 0; i < SIZE; i++) {
+            int u = x[i];
+            int v = y[i];
+            int min;
+            int max;
+            if (u < v) {
+                min = u;
+                max = v;
+            } else {
+                min = v;
+                max = u;
+            }
+            low += min;
+            high ^= max;
+        }
+        return low + high;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int hashSelect() {
+        int[] x = a;
+        int[] y = b;
+        int hash = 17;
+        for (int i = 0; i < SIZE; i++) {
+            int u = x[i];
+            int v = y[i];
+            int h;
+            int s;
+            if ((u & 1) == 0) {
+                h = u * 31;
+                s = v >>> 3;
+            } else {
+                h = v + 7;
+                s = u >>> 5;
+            }
+            hash = (hash ^ h) + s;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package micro.benchmarks;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Loops that repeat checks whose condition does not change between iterations. Run with
+ * {@code -Dgraal.SpeculativeGuardMovement=true} and without to compare loops whose invariant
+ * guards are moved to the loop entry with loops that check them in every iteration.
+ */
+@State(Scope.Thread)
+public class InvariantGuardBenchmark extends BenchmarkBase {
+
+    private static final int SIZE = 1024;
+
+    private int[] a;
+    private int[][] m;
+    private int index;
+    private int row;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        a = new int[SIZE];
+        m = new int[SIZE / 16][];
+        for (int i = 0; i < SIZE; i++) {
+            a[i] = random.nextInt();
+        }
+        for (int i = 0; i < m.length; i++) {
+            m[i] = new int[SIZE];
+            for (int j = 0; j < SIZE; j++) {
+                m[i][j] = random.nextInt();
+            }
+        }
+        index = SIZE / 2;
+        row = m.length / 2;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int invariantIndex() {
+        int[] x = a;
+        int idx = index;
+        int sum = 0;
+        int i = 0;
+        while (i < SIZE) {
+            sum ^= x[idx] + i;
+            i += (sum & 1) + 1;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE * 16)
+    public int nestedRow() {
+        int[][] x = m;
+        int r = row;
+        int sum = 0;
+        for (int i = 0; i < 16; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                sum += x[r][j] ^ i;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package micro.benchmarks;
+
+import java.util.Hashtable;
+import java.util.Vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Loops that call synchronized methods of the legacy collections on the same object. Run with
+ * {@code -Dgraal.OptLoopLockCoarsening=true} and {@code -Dgraal.OptEliminateNestedLocks=true} and
+ * without to compare loops that keep the monitor locked across iterations with loops that lock
+ * and unlock it in every iteration.
+ */
+@State(Scope.Thread)
+public class LockCoarseningBenchmark extends BenchmarkBase {
+
+    private static final int SIZE = 1024;
+
+    private StringBuffer buffer;
+    private Vector<Integer> vector;
+    private Hashtable<Integer, Integer> table;
+    private final Object lock = new Object();
+    private int counter;
+
+    @Setup
+    public void setup() {
+        buffer = new StringBuffer(SIZE);
+        vector = new Vector<>(SIZE);
+        table = new Hashtable<>();
+        for (int i = 0; i < SIZE; i++) {
+            table.put(i, i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int stringBufferAppend() {
+        StringBuffer b = buffer;
+        b.setLength(0);
+        for (int i = 0; i < SIZE; i++) {
+            b.append('x');
+        }
+        return b.length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int vectorAdd() {
+        Vector<Integer> v = vector;
+        v.clear();
+        for (int i = 0; i < SIZE; i++) {
+            v.add(i);
+        }
+        return v.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int hashtableGet() {
+        Hashtable<Integer, Integer> t = table;
+        int sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += t.get(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int synchronizedBlock() {
+        Object l = lock;
+        for (int i = 0; i < SIZE; i++) {
+            synchronized (l) {
+                counter++;
+            }
+        }
+        return counter;
+    }
+}
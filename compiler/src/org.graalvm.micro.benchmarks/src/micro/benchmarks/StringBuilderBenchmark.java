@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package micro.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Builds strings with {@link StringBuilder} append chains. Run with
+ * {@code -Dgraal.OptimizeStringConcat=true} and without to compare fused chains that allocate the
+ * result once with chains that grow and copy the builder.
+ */
+@State(Scope.Thread)
+public class StringBuilderBenchmark extends BenchmarkBase {
+
+    String shortLatin1 = "key";
+    String longLatin1 = "Lorem ipsum dolor sit amet, consectetur adipisici elit, sed eiusmod tempor incidunt ut labore et dolore magna aliqua.";
+    String utf16 = "\u00c4rger \u00fcber \u20ac-Kurse";
+    String nullString = null;
+
+    @Benchmark
+    public String shortLatin1() {
+        return new StringBuilder().append(shortLatin1).append('=').append(shortLatin1).toString();
+    }
+
+    @Benchmark
+    public String longLatin1() {
+        return new StringBuilder().append(longLatin1).append(", ").append(longLatin1).append(", ").append(longLatin1).toString();
+    }
+
+    @Benchmark
+    public String mixedCoders() {
+        return new StringBuilder().append(longLatin1).append(": ").append(utf16).toString();
+    }
+
+    @Benchmark
+    public String withNull() {
+        return new StringBuilder("[").append(shortLatin1).append(nullString).append(']').toString();
+    }
+
+    @Benchmark
+    public String statements() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(shortLatin1);
+        sb.append(" -> ");
+        sb.append(longLatin1);
+        return sb.toString();
+    }
+}
@@ -567,7 +567,12 @@ def svm_gate_body(args, tasks):
 
         with Task('native unittests', tasks, tags=[GraalTags.test]) as t:
             if t:
-                native_unittest([])
+                native_unittest(['--build-args', '--enable-all-security-services'])
+
+        with Task('native unittests with crypto CPU features', tasks, tags=[GraalTags.test]) as t:
+            if t:
+                # The AES and CRC32C intrinsics are only used when the image targets these features
+                native_unittest(['--build-args', '--enable-all-security-services', '-H:CPUFeatures=AES,SSSE3,SSE4_2'])
 
         with Task('JavaScript', tasks, tags=[GraalTags.js]) as t:
             if t:
@@ -35,8 +35,10 @@ import org.graalvm.compiler.graph.Node.ConstantNodeParameter;
 import org.graalvm.compiler.graph.Node.NodeIntrinsic;
 import org.graalvm.compiler.nodes.DeoptimizeNode;
 import org.graalvm.compiler.nodes.extended.ForeignCallNode;
+import org.graalvm.compiler.nodes.java.AccessMonitorNode;
 import org.graalvm.compiler.nodes.java.MonitorEnterNode;
 import org.graalvm.compiler.nodes.java.MonitorExitNode;
+import org.graalvm.compiler.nodes.java.MonitorIdNode;
 import org.graalvm.compiler.nodes.spi.LoweringTool;
 import org.graalvm.compiler.options.OptionValues;
 import org.graalvm.compiler.phases.util.Providers;
@@ -49,6 +51,7 @@ import org.graalvm.word.LocationIdentity;
 import com.oracle.svm.core.MonitorSupport;
 import com.oracle.svm.core.SubstrateOptions;
 import com.oracle.svm.core.annotate.AutomaticFeature;
+import com.oracle.svm.core.deopt.DeoptimizationSupport;
 import com.oracle.svm.core.graal.GraalFeature;
 import com.oracle.svm.core.graal.meta.RuntimeConfiguration;
 import com.oracle.svm.core.graal.meta.SubstrateForeignCallLinkage;
@@ -84,6 +87,15 @@ public final class MonitorSnippets extends SubstrateTemplates implements Snippet
         ForeignCalls.callMonitorExit(ForeignCalls.MONITOR_SNIPPETS_SLOW_PATH_MONITOR_EXIT, obj);
     }
 
+    /**
+     * Lowering of a monitor enter or exit whose object is already locked by an enclosing monitor,
+     * see {@link MonitorIdNode#isEliminated()}. Only the memory effect remains.
+     */
+    @Snippet
+    protected static void monitorEliminatedSnippet() {
+        KillMemoryNode.killMemory(LocationIdentity.any());
+    }
+
     private static void nullCheck(Object obj) {
         if (obj == null) {
             DeoptimizeNode.deopt(DeoptimizationAction.None, DeoptimizationReason.NullCheckException);
@@ -108,12 +120,18 @@ public final class MonitorSnippets extends SubstrateTemplates implements Snippet
     protected class MonitorEnterLowering implements NodeLoweringProvider<MonitorEnterNode> {
 
         private final SnippetInfo monitorEnter = snippet(MonitorSnippets.class, "monitorEnterSnippet");
+        private final SnippetInfo monitorEliminated = snippet(MonitorSnippets.class, "monitorEliminatedSnippet");
 
         @Override
         public void lower(MonitorEnterNode node, LoweringTool tool) {
             if (tool.getLoweringStage() == LoweringTool.StandardLoweringStage.HIGH_TIER) {
                 return;
             }
+            if (isEliminated(node)) {
+                Arguments args = new Arguments(monitorEliminated, node.graph().getGuardsStage(), tool.getLoweringStage());
+                template(node, args).instantiate(providers.getMetaAccess(), node, SnippetTemplate.DEFAULT_REPLACER, args);
+                return;
+            }
             Arguments args = new Arguments(monitorEnter, node.graph().getGuardsStage(), tool.getLoweringStage());
             args.add("obj", node.object());
             template(node, args).instantiate(providers.getMetaAccess(), node, SnippetTemplate.DEFAULT_REPLACER, args);
@@ -123,18 +141,33 @@ public final class MonitorSnippets extends SubstrateTemplates implements Snippet
     protected class MonitorExitLowering implements NodeLoweringProvider<MonitorExitNode> {
 
         private final SnippetInfo monitorExit = snippet(MonitorSnippets.class, "monitorExitSnippet");
+        private final SnippetInfo monitorEliminated = snippet(MonitorSnippets.class, "monitorEliminatedSnippet");
 
         @Override
         public void lower(MonitorExitNode node, LoweringTool tool) {
             if (tool.getLoweringStage() == LoweringTool.StandardLoweringStage.HIGH_TIER) {
                 return;
             }
+            if (isEliminated(node)) {
+                Arguments args = new Arguments(monitorEliminated, node.graph().getGuardsStage(), tool.getLoweringStage());
+                template(node, args).instantiate(providers.getMetaAccess(), node, SnippetTemplate.DEFAULT_REPLACER, args);
+                return;
+            }
             Arguments args = new Arguments(monitorExit, node.graph().getGuardsStage(), tool.getLoweringStage());
             args.add("obj", node.object());
             template(node, args).instantiate(providers.getMetaAccess(), node, SnippetTemplate.DEFAULT_REPLACER, args);
         }
     }
 
+    /**
+     * The deoptimizer only re-locks monitors of virtual objects, so an eliminated monitor can only
+     * be omitted if no code of the image is deoptimized. Otherwise, the recursive lock is acquired
+     * as usual.
+     */
+    private static boolean isEliminated(AccessMonitorNode node) {
+        return node.getMonitorId().isEliminated() && !DeoptimizationSupport.enabled();
+    }
+
     @AutomaticFeature
     static class MonitorFeature implements GraalFeature {
 
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks AES encryption and decryption against the example vectors of FIPS-197, appendix C. The
+ * image is built with the default CPU features and with {@code -H:CPUFeatures=AES,SSSE3,SSE4_2},
+ * so this covers both the Java implementation and the AES-NI intrinsic. Requires
+ * {@code --enable-all-security-services}.
+ */
+public class AESCryptTest {
+
+    private static final String PLAIN = "00112233445566778899aabbccddeeff";
+
+    private static byte[] parseHex(String hex) {
+        byte[] result = new byte[hex.length() / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return result;
+    }
+
+    private static byte[] sequentialKey(int length) {
+        byte[] key = new byte[length];
+        for (int i = 0; i < length; i++) {
+            key[i] = (byte) i;
+        }
+        return key;
+    }
+
+    private static void check(int keyLength, String expectedCipherText) throws Exception {
+        SecretKeySpec key = new SecretKeySpec(sequentialKey(keyLength), "AES");
+        Cipher cipher = Cipher.getInstance("AES/ECB/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key);
+        byte[] cipherText = cipher.doFinal(parseHex(PLAIN));
+        Assert.assertArrayEquals("AES-" + keyLength * 8 + " encrypt", parseHex(expectedCipherText), cipherText);
+        cipher.init(Cipher.DECRYPT_MODE, key);
+        Assert.assertArrayEquals("AES-" + keyLength * 8 + " decrypt", parseHex(PLAIN), cipher.doFinal(cipherText));
+    }
+
+    @Test
+    public void testAES128() throws Exception {
+        check(16, "69c4e0d86a7b0430d8cdb78070b4c55a");
+    }
+
+    @Test
+    public void testAES192() throws Exception {
+        check(24, "dda97ca4864cdfe06eaf70a0ec0d7191");
+    }
+
+    @Test
+    public void testAES256() throws Exception {
+        check(32, "8ea2b7ca516745bfeafc49904b496089");
+    }
+}
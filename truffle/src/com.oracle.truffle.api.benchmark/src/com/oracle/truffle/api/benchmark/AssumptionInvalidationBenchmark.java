@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.api.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.oracle.truffle.api.Assumption;
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+import com.oracle.truffle.api.nodes.RootNode;
+
+/**
+ * Compares invalidating many assumptions one by one with invalidating them as one batch using
+ * {@link com.oracle.truffle.api.TruffleRuntime#invalidateAssumptions(Iterable, String)}. Every
+ * compiled call target depends on all assumptions, as is typical for a global redefinition.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Dgraal.TruffleBackgroundCompilation=false", "-Dgraal.TruffleCompileImmediately=true"})
+public class AssumptionInvalidationBenchmark extends TruffleBenchmark {
+
+    private static final int ASSUMPTIONS = 200;
+    private static final int CALL_TARGETS = 10;
+
+    @State(Scope.Thread)
+    public static class AssumptionState {
+        final List<Assumption> assumptions = new ArrayList<>();
+
+        @Setup(Level.Invocation)
+        public void setup() {
+            assumptions.clear();
+            for (int i = 0; i < ASSUMPTIONS; i++) {
+                assumptions.add(Truffle.getRuntime().createAssumption("assumption" + i));
+            }
+            Assumption[] dependencies = assumptions.toArray(new Assumption[0]);
+            for (int i = 0; i < CALL_TARGETS; i++) {
+                CallTarget target = Truffle.getRuntime().createCallTarget(new AssumptionsRootNode(dependencies));
+                target.call();
+            }
+        }
+    }
+
+    static final class AssumptionsRootNode extends RootNode {
+
+        @CompilationFinal(dimensions = 1) private final Assumption[] assumptions;
+
+        AssumptionsRootNode(Assumption[] assumptions) {
+            super(null);
+            this.assumptions = assumptions;
+        }
+
+        @Override
+        @ExplodeLoop
+        public Object execute(VirtualFrame frame) {
+            int valid = 0;
+            for (Assumption assumption : assumptions) {
+                if (assumption.isValid()) {
+                    valid++;
+                }
+            }
+            return valid;
+        }
+    }
+
+    @Benchmark
+    public void invalidateOneByOne(AssumptionState state) {
+        for (Assumption assumption : state.assumptions) {
+            assumption.invalidate("benchmark");
+        }
+    }
+
+    @Benchmark
+    public void invalidateBatch(AssumptionState state) {
+        Truffle.getRuntime().invalidateAssumptions(state.assumptions, "benchmark");
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.api.benchmark;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.Source;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.TruffleLanguage;
+import com.oracle.truffle.api.TruffleLanguage.ContextPolicy;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.RootNode;
+
+/**
+ * Evaluates and runs the same source in many contexts of one engine. Languages with a
+ * {@link ContextPolicy#SHARED shared} context policy parse the source once per engine, so all
+ * contexts call the same call target and it is compiled only once. Languages with an
+ * {@link ContextPolicy#EXCLUSIVE exclusive} policy parse and compile it once per context.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ContextSharingBenchmark extends TruffleBenchmark {
+
+    private static final String SHARED_LANGUAGE = "benchmark-shared-language";
+    private static final String EXCLUSIVE_LANGUAGE = "benchmark-exclusive-language";
+
+    private static final int CONTEXTS = 100;
+    private static final int CALLS_PER_CONTEXT = 2000;
+    private static final int LOOP_COUNT = 100;
+
+    @Benchmark
+    public int evalShared() {
+        return evalInContexts(SHARED_LANGUAGE);
+    }
+
+    @Benchmark
+    public int evalExclusive() {
+        return evalInContexts(EXCLUSIVE_LANGUAGE);
+    }
+
+    private static int evalInContexts(String languageId) {
+        int result = 0;
+        Source source = Source.create(languageId, "module");
+        try (Engine engine = Engine.create()) {
+            for (int i = 0; i < CONTEXTS; i++) {
+                try (Context context = Context.newBuilder(languageId).engine(engine).build()) {
+                    for (int j = 0; j < CALLS_PER_CONTEXT; j++) {
+                        result += context.eval(source).asInt();
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    static final class LoopRootNode extends RootNode {
+
+        LoopRootNode(TruffleLanguage<?> language) {
+            super(language);
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            int sum = 0;
+            for (int i = 0; i < LOOP_COUNT; i++) {
+                sum += i;
+            }
+            return sum;
+        }
+    }
+
+    @TruffleLanguage.Registration(id = SHARED_LANGUAGE, name = "", contextPolicy = ContextPolicy.SHARED)
+    public static class SharedLanguage extends TruffleLanguage<Object> {
+
+        @Override
+        protected Object createContext(Env env) {
+            return new Object();
+        }
+
+        @Override
+        protected CallTarget parse(ParsingRequest request) throws Exception {
+            return Truffle.getRuntime().createCallTarget(new LoopRootNode(this));
+        }
+
+        @Override
+        protected boolean isObjectOfLanguage(Object object) {
+            return false;
+        }
+    }
+
+    @TruffleLanguage.Registration(id = EXCLUSIVE_LANGUAGE, name = "", contextPolicy = ContextPolicy.EXCLUSIVE)
+    public static class ExclusiveLanguage extends TruffleLanguage<Object> {
+
+        @Override
+        protected Object createContext(Env env) {
+            return new Object();
+        }
+
+        @Override
+        protected CallTarget parse(ParsingRequest request) throws Exception {
+            return Truffle.getRuntime().createCallTarget(new LoopRootNode(this));
+        }
+
+        @Override
+        protected boolean isObjectOfLanguage(Object object) {
+            return false;
+        }
+    }
+}
@@ -123,6 +123,24 @@ public interface TruffleRuntime {
      */
     Assumption createAssumption(String name);
 
+    /**
+     * Invalidates all given assumptions as one batch. This has the same effect as calling
+     * {@link Assumption#invalidate(String)} on each of the assumptions, but allows the runtime to
+     * collect the code depending on any of them and invalidate it only once. Languages that
+     * invalidate many assumptions at the same time, for example on a global redefinition, should
+     * prefer this method over invalidating the assumptions one by one.
+     *
+     * @param assumptions the assumptions to invalidate. Assumptions that are already invalid are
+     *            ignored.
+     * @param message a message stating the reason of the invalidation
+     * @since 1.0
+     */
+    default void invalidateAssumptions(Iterable<? extends Assumption> assumptions, String message) {
+        for (Assumption assumption : assumptions) {
+            assumption.invalidate(message);
+        }
+    }
+
     /**
      * Creates a new virtual frame object that can be used to store values and is potentially
      * optimizable by the runtime.